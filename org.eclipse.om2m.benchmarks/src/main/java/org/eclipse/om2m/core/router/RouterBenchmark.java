@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.router;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.core.controller.Controller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the former regex based resource routing (patterns compiled for each
+ * request, then tried in sequence) with the precompiled {@link RoutingTable}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+
+	/** Targeted resource, first and last patterns tried by the former routing */
+	@Param({"", "/Cae-1", "/cnt-123456", "/cin-987654321", "/req-42"})
+	public String resource;
+
+	private String uri;
+
+	private Router router;
+
+	@Setup
+	public void setup() {
+		uri = "/" + Constants.CSE_ID + resource;
+		router = new Router();
+	}
+
+	@Benchmark
+	public Controller patterns(Blackhole blackhole) {
+		// former behavior: patterns compiled in doRequest and once more for the controller lookup
+		blackhole.consume(new Patterns());
+		blackhole.consume(new Patterns());
+		return router.matchResourceControllerFromURI(uri);
+	}
+
+	@Benchmark
+	public Controller sharedPatterns() {
+		return router.matchResourceControllerFromURI(uri);
+	}
+
+	@Benchmark
+	public Controller routingTable() {
+		return router.getResourceControllerFromURI(uri);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(RouterBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+}
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.persistence.EntityManager;
+
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.constants.DBEntities;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.constants.ShortName;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.commons.resource.FilterCriteria;
+import org.eclipse.om2m.persistence.eclipselink.internal.dao.OldestDAO;
+import org.eclipse.om2m.persistence.eclipselink.internal.util.ComplexFindUtilImpl;
+
+/**
+ * Seeds an H2 database with containers and content instances and reports the
+ * latency of the main lookups, first with the indexes declared on the entities
+ * then after dropping them. Each lookup is run with the former string built
+ * JPQL and with the named queries.
+ * <p>
+ * Run from the benchmarks jar (mvn -P benchmarks package) with
+ * java -cp org.eclipse.om2m.benchmarks/target/benchmarks.jar
+ * org.eclipse.om2m.persistence.eclipselink.internal.QueryBenchmark and
+ * -Dorg.eclipse.om2m.benchmark.resources=1000000 (default), optionally
+ * -Dorg.eclipse.om2m.dbUrl=jdbc:h2:... to use another database file.
+ */
+public class QueryBenchmark {
+
+	/** Number of content instances to create */
+	private static final int RESOURCES = Integer.getInteger("org.eclipse.om2m.benchmark.resources", 1000000);
+
+	/** Content instances per container */
+	private static final int INSTANCES_PER_CONTAINER = 1000;
+
+	/** Measured lookups per operation */
+	private static final int ITERATIONS = Integer.getInteger("org.eclipse.om2m.benchmark.iterations", 200);
+
+	private static final String CSE_URI = "/" + Constants.CSE_ID;
+	private static final String CSE_HURI = "/" + Constants.CSE_ID + "/" + Constants.CSE_NAME;
+
+	private final Random random = new Random(42);
+	private final int containers = Math.max(1, RESOURCES / INSTANCES_PER_CONTAINER);
+
+	public static void main(String[] args) {
+		setDefault("org.eclipse.om2m.dbUrl", "jdbc:h2:./target/benchmark/om2m");
+		setDefault("org.eclipse.om2m.dbReset", "true");
+		// measure the database, not the shared cache
+		setDefault("org.eclipse.om2m.dbCache", "false");
+
+		DBServiceJPAImpl.getInstance().init();
+		QueryBenchmark benchmark = new QueryBenchmark();
+		benchmark.seed();
+		benchmark.run("with indexes");
+		benchmark.dropIndexes();
+		benchmark.run("without indexes");
+		DBServiceJPAImpl.getInstance().close();
+	}
+
+	private static void setDefault(String key, String value) {
+		if (System.getProperty(key) == null) {
+			System.setProperty(key, value);
+		}
+	}
+
+	private void seed() {
+		long start = System.currentTimeMillis();
+		EntityManager em = DBServiceJPAImpl.createEntityManager();
+		em.getTransaction().begin();
+		for (int c = 0; c < containers; c++) {
+			String containerId = containerId(c);
+			ContainerEntity container = new ContainerEntity();
+			container.setResourceID(containerId);
+			container.setResourceType(BigInteger.valueOf(ResourceType.CONTAINER));
+			container.setParentID(CSE_URI);
+			container.setName("cnt_" + c);
+			container.setHierarchicalURI(CSE_HURI + "/cnt_" + c);
+			container.setCreationTime(time(0));
+			em.persist(container);
+			em.persist(mapping(container.getHierarchicalURI(), containerId, ResourceType.CONTAINER));
+			for (int i = 0; i < INSTANCES_PER_CONTAINER && c * INSTANCES_PER_CONTAINER + i < RESOURCES; i++) {
+				ContentInstanceEntity cin = new ContentInstanceEntity();
+				cin.setResourceID(instanceId(c, i));
+				cin.setResourceType(BigInteger.valueOf(ResourceType.CONTENT_INSTANCE));
+				cin.setParentID(containerId);
+				cin.setName("cin_" + i);
+				cin.setHierarchicalURI(container.getHierarchicalURI() + "/cin_" + i);
+				cin.setCreationTime(time(i));
+				cin.setContent("value-" + i);
+				cin.setStateTag(BigInteger.ZERO);
+				em.persist(cin);
+				em.persist(mapping(cin.getHierarchicalURI(), cin.getResourceID(), ResourceType.CONTENT_INSTANCE));
+			}
+			em.getTransaction().commit();
+			em.clear();
+			em.getTransaction().begin();
+		}
+		em.getTransaction().commit();
+		em.close();
+		System.out.println("Seeded " + containers + " containers and " + RESOURCES + " content instances in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private void run(String label) {
+		System.out.println("--- " + label + " (microseconds, mean / p99)");
+		report("find cin by id", new Lookup() {
+			void run(EntityManager em) {
+				em.find(ContentInstanceEntity.class, instanceId(randomContainer(), randomInstance()));
+			}
+		}, null);
+		report("uri mapping by nhuri", new Lookup() {
+			void run(EntityManager em) {
+				em.createQuery("SELECT u FROM " + DBEntities.URI_MAPPER_ENTITY + " u WHERE u.nonHierarchicalUri = '"
+						+ instanceId(randomContainer(), randomInstance()) + "'").getResultList();
+			}
+		}, new Lookup() {
+			void run(EntityManager em) {
+				em.createNamedQuery(DBEntities.URI_MAPPER_FIND_BY_NHURI)
+						.setParameter("nonHierarchicalUri", instanceId(randomContainer(), randomInstance()))
+						.getResultList();
+			}
+		});
+		report("oldest cin", new Lookup() {
+			void run(EntityManager em) {
+				em.createQuery("SELECT r FROM " + DBEntities.CONTENTINSTANCE_ENTITY + " r WHERE r.parentID = '"
+						+ containerId(randomContainer()) + "' ORDER BY r.creationTime").setMaxResults(1).getResultList();
+			}
+		}, new Lookup() {
+			void run(EntityManager em) {
+				DBTransactionJPAImpl transaction = new DBTransactionJPAImpl();
+				transaction.open();
+				new OldestDAO().find(transaction, containerId(randomContainer()));
+				transaction.close();
+			}
+		});
+		report("discovery of a container", new Lookup() {
+			void run(EntityManager em) {
+				String huri = CSE_HURI + "/cnt_" + randomContainer();
+				em.createQuery("SELECT uri FROM " + DBEntities.URI_MAPPER_ENTITY + " uri WHERE uri.hierarchicalUri LIKE '"
+						+ huri + "%' AND uri.resourceType = '" + ResourceType.CONTENT_INSTANCE + "'").getResultList();
+			}
+		}, new Lookup() {
+			void run(EntityManager em) {
+				FilterCriteria filter = new FilterCriteria();
+				filter.setResourceType(BigInteger.valueOf(ResourceType.CONTENT_INSTANCE));
+				new ComplexFindUtilImpl().getChildUrisDis(containerId(randomContainer()), filter);
+			}
+		});
+	}
+
+	/**
+	 * Prints the latency of the former lookup and of the named query one.
+	 */
+	private void report(String name, Lookup former, Lookup named) {
+		StringBuilder line = new StringBuilder(String.format("%-28s", name));
+		line.append(String.format(" former %s", measure(former)));
+		if (named != null) {
+			line.append(String.format("   named %s", measure(named)));
+		}
+		System.out.println(line);
+	}
+
+	private String measure(Lookup lookup) {
+		long[] durations = new long[ITERATIONS];
+		for (int i = -ITERATIONS / 10; i < ITERATIONS; i++) {
+			EntityManager em = DBServiceJPAImpl.createEntityManager();
+			long start = System.nanoTime();
+			lookup.run(em);
+			long duration = System.nanoTime() - start;
+			em.close();
+			if (i >= 0) {
+				durations[i] = duration;
+			}
+		}
+		Arrays.sort(durations);
+		long total = 0;
+		for (long duration : durations) {
+			total += duration;
+		}
+		return String.format("%10.1f / %10.1f", total / 1000.0 / ITERATIONS,
+				durations[(int) (ITERATIONS * 0.99)] / 1000.0);
+	}
+
+	private void dropIndexes() {
+		EntityManager em = DBServiceJPAImpl.createEntityManager();
+		em.getTransaction().begin();
+		List<?> indexes = em.createNativeQuery("SELECT DISTINCT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES "
+				+ "WHERE INDEX_NAME LIKE 'IDX!_%' ESCAPE '!'").getResultList();
+		for (Object index : new ArrayList<Object>(indexes)) {
+			em.createNativeQuery("DROP INDEX IF EXISTS " + index).executeUpdate();
+		}
+		em.getTransaction().commit();
+		em.close();
+		System.out.println("Dropped indexes " + indexes);
+	}
+
+	private int randomContainer() {
+		return random.nextInt(containers);
+	}
+
+	private int randomInstance() {
+		return random.nextInt(Math.min(INSTANCES_PER_CONTAINER, RESOURCES));
+	}
+
+	private static String containerId(int container) {
+		return CSE_URI + "/" + ShortName.CNT + Constants.PREFIX_SEPERATOR + container;
+	}
+
+	private static String instanceId(int container, int instance) {
+		return CSE_URI + "/" + ShortName.CIN + Constants.PREFIX_SEPERATOR + container + "_" + instance;
+	}
+
+	private static String time(int offset) {
+		return String.format("20170101T%06d", offset);
+	}
+
+	private static UriMapperEntity mapping(String hierarchicalUri, String nonHierarchicalUri, int resourceType) {
+		UriMapperEntity mapping = new UriMapperEntity();
+		mapping.setHierarchicalUri(hierarchicalUri);
+		mapping.setNonHierarchicalUri(nonHierarchicalUri);
+		mapping.setResourceType(resourceType);
+		return mapping;
+	}
+
+	private abstract static class Lookup {
+		abstract void run(EntityManager em);
+	}
+
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.mongodb.resource.ResourceCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.Gson;
+
+/**
+ * Compares the former Gson based conversion of a resource (entity to JSON
+ * string to Document and back) with the {@link ResourceCodec} for a
+ * create / find / update cycle. Only the conversion between the entity and
+ * the BSON sent to or received from the driver is measured, no server is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	@Param({"cnt", "cin"})
+	public String resource;
+
+	private final Gson gson = DBServiceImpl.createGson();
+
+	private final DocumentCodec documentCodec = new DocumentCodec();
+
+	private ResourceEntity entity;
+
+	private Codec<ResourceEntity> codec;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() {
+		entity = "cnt".equals(resource) ? newContainer() : newContentInstance();
+		codec = new ResourceCodec<ResourceEntity>((Class<ResourceEntity>) entity.getClass(), false);
+	}
+
+	@Benchmark
+	public ResourceEntity gson() {
+		// create: the document is encoded by the driver
+		RawBsonDocument stored = new RawBsonDocument(Document.parse(gson.toJson(entity)), documentCodec);
+		// find: the document is decoded by the driver then converted by Gson
+		Document found = documentCodec.decode(new BsonDocumentReader(stored), DecoderContext.builder().build());
+		ResourceEntity resource = gson.fromJson(found.toJson(), entity.getClass());
+		// update
+		new RawBsonDocument(Document.parse(gson.toJson(resource)), documentCodec);
+		return resource;
+	}
+
+	@Benchmark
+	public ResourceEntity codec() {
+		RawBsonDocument stored = new RawBsonDocument(entity, codec);
+		ResourceEntity resource = stored.decode(codec);
+		new RawBsonDocument(resource, codec);
+		return resource;
+	}
+
+	private static ContainerEntity newContainer() {
+		ContainerEntity container = new ContainerEntity();
+		fill(container, "cnt-1234567", ResourceType.CONTAINER);
+		container.setName("DATA");
+		container.setCurrentNrOfInstances(BigInteger.valueOf(42));
+		container.setMaxNrOfInstances(BigInteger.valueOf(1000));
+		container.setMaxByteSize(BigInteger.valueOf(10000));
+		container.setStateTag(BigInteger.valueOf(42));
+		return container;
+	}
+
+	private static ContentInstanceEntity newContentInstance() {
+		ContentInstanceEntity cin = new ContentInstanceEntity();
+		fill(cin, "cin-987654321", ResourceType.CONTENT_INSTANCE);
+		cin.setName("cin_987654321");
+		cin.setContentInfo("application/json");
+		cin.setContent("{\"temperature\":21.5,\"unit\":\"celsius\"}");
+		cin.setContentSize(BigInteger.valueOf(cin.getContent().length()));
+		cin.setStateTag(BigInteger.ONE);
+		return cin;
+	}
+
+	private static void fill(ResourceEntity resource, String id, int type) {
+		resource.setResourceID("/in-cse/" + id);
+		resource.setParentID("/in-cse/CAE1");
+		resource.setResourceType(BigInteger.valueOf(type));
+		resource.setCreationTime("20260101T120000");
+		resource.setLastModifiedTime("20260101T120000");
+		resource.getLabelsEntities().add(new LabelEntity("Type/sensor"));
+		resource.getLabelsEntities().add(new LabelEntity("Location/home"));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CodecBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+}
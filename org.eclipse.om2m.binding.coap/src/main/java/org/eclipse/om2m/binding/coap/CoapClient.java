@@ -22,10 +22,12 @@ package org.eclipse.om2m.binding.coap;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.eclipse.om2m.binding.service.RestClientService;
+import org.eclipse.om2m.binding.service.AsyncRestClientService;
+import org.eclipse.om2m.binding.service.ResponseFuture;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
 import org.eclipse.om2m.commons.constants.Operation;
 import org.eclipse.om2m.commons.constants.ResponseStatusCode;
@@ -37,12 +39,13 @@ import org.eclipse.om2m.commons.resource.StatusCode;
 
 import ch.ethz.inf.vs.californium.coap.CoAP;
 import ch.ethz.inf.vs.californium.coap.MediaTypeRegistry;
+import ch.ethz.inf.vs.californium.coap.MessageObserverAdapter;
 import ch.ethz.inf.vs.californium.coap.Option;
 import ch.ethz.inf.vs.californium.coap.OptionSet;
 import ch.ethz.inf.vs.californium.coap.Request;
 import ch.ethz.inf.vs.californium.coap.Response;
 
-public class CoapClient implements RestClientService {
+public class CoapClient implements AsyncRestClientService {
 
 	/** Logger: */
 	private static Log LOGGER = LogFactory.getLog(CoapClient.class);
@@ -69,6 +72,28 @@ public class CoapClient implements RestClientService {
 	 * @return protocol independent response.
 	 */
 	public ResponsePrimitive sendRequest(RequestPrimitive requestPrimitive) {
+		try {
+			return sendRequestAsync(requestPrimitive).get();
+		} catch (InterruptedException e) {
+			LOGGER.error("CoAP Client > Failed to receive response: " + e.getMessage(), e);
+			Thread.currentThread().interrupt();
+			return targetNotReachable();
+		} catch (ExecutionException e) {
+			LOGGER.error("CoAP Client > Failed to receive response: " + e.getMessage(), e);
+			return targetNotReachable();
+		}
+	}
+
+	/**
+	 * Converts a protocol-independent {@link RequestPrimitive} object into a
+	 * standard CoAP request and sends it. The received standard CoAP response
+	 * is converted when it is received by the CoAP stack, no thread waits for it.
+	 * 
+	 * @param requestPrimitive
+	 *            - protocol independent request.
+	 * @return future protocol independent response.
+	 */
+	public ResponseFuture sendRequestAsync(RequestPrimitive requestPrimitive) {
         LOGGER.debug("Sending request with CoAP binding: " +requestPrimitive);
         
         // Retrieve the url
@@ -110,7 +135,7 @@ public class CoapClient implements RestClientService {
 				code = CoAP.Code.POST;
 			}
 		} else {
-			return responsePrimitive;
+			return ResponseFuture.completed(responsePrimitive);
 		}
 		
 		// create a coap request
@@ -236,6 +261,9 @@ public class CoapClient implements RestClientService {
 			if(filter.getFilterUsage() != null){
 				options.addURIQuery(CoapParameters.FILTER_USAGE + "=" + filter.getFilterUsage());
 			}
+			if(filter.getFilterOperation() != null){
+				options.addURIQuery(CoapParameters.FILTER_OPERATION + "=" + filter.getFilterOperation());
+			}
 			if(!filter.getLabels().isEmpty()){
 				for(String label : filter.getLabels()){
 					options.addURIQuery(CoapParameters.LABELS + "=" + label);
@@ -254,31 +282,59 @@ public class CoapClient implements RestClientService {
 					requestPrimitive.getGroupRequestIdentifier()));
 		}
 		
-		// send the request
+		// send the request, the response is converted by the CoAP stack thread
+		final String target = url;
+		final ResponseFuture responseFuture = new ResponseFuture();
+		request.addMessageObserver(new MessageObserverAdapter() {
+			@Override
+			public void onResponse(Response response) {
+				try {
+					responseFuture.complete(toResponsePrimitive(response));
+				} catch (RuntimeException e) {
+					responseFuture.fail(e);
+				}
+			}
+
+			@Override
+			public void onTimeout() {
+				LOGGER.warn("CoAP Client > No response received from " + target);
+				responseFuture.complete(targetNotReachable());
+			}
+
+			@Override
+			public void onReject() {
+				LOGGER.warn("CoAP Client > Request rejected by " + target);
+				responseFuture.complete(targetNotReachable());
+			}
+
+			@Override
+			public void onCancel() {
+				responseFuture.complete(targetNotReachable());
+			}
+		});
 		request.setScheme(url);
 		request.send();
+		return responseFuture;
+	}
 
-		// get the response
-		Response response = null;
-		try {
-			response = request.waitForResponse();
-		} catch (InterruptedException e) {
-			LOGGER.error("CoAP Client > Failed to receive response: " + e.getMessage(), e);
-			responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
-			responsePrimitive.setContent("Target is not reachable");
-			responsePrimitive.setContentType(MimeMediaType.TEXT_PLAIN);
-			return responsePrimitive;
-		}
-		if (response != null) {
-			if (response.getOptions().hasContentFormat(
-					MediaTypeRegistry.APPLICATION_LINK_FORMAT)) {
+	/**
+	 * Converts a received standard CoAP response into a protocol-independent
+	 * {@link ResponsePrimitive}.
+	 * 
+	 * @param response
+	 *            - standard CoAP response.
+	 * @return protocol independent response.
+	 */
+	private ResponsePrimitive toResponsePrimitive(Response response) {
+		ResponsePrimitive responsePrimitive = new ResponsePrimitive();
+		if (response.getOptions().hasContentFormat(
+				MediaTypeRegistry.APPLICATION_LINK_FORMAT)) {
 
-				String linkFormat = response.getPayloadString();
-				// fill in the representation of the responsePrimitive
-				responsePrimitive.setContent(linkFormat);
-			} else {
-				responsePrimitive.setContent(response.getPayloadString());
-			}
+			String linkFormat = response.getPayloadString();
+			// fill in the representation of the responsePrimitive
+			responsePrimitive.setContent(linkFormat);
+		} else {
+			responsePrimitive.setContent(response.getPayloadString());
 		}
 		
 		// Parse response options
@@ -322,6 +378,18 @@ public class CoapClient implements RestClientService {
 		return responsePrimitive;
 	}
 
+	/**
+	 * Builds the response of a request that has not been answered.
+	 * @return protocol independent response.
+	 */
+	private static ResponsePrimitive targetNotReachable() {
+		ResponsePrimitive responsePrimitive = new ResponsePrimitive();
+		responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
+		responsePrimitive.setContent("Target is not reachable");
+		responsePrimitive.setContentType(MimeMediaType.TEXT_PLAIN);
+		return responsePrimitive;
+	}
+
 	/**
 	 * Converts a standard CoAP status code into a protocol-independent
 	 * {@link StatusCode} object.
@@ -45,5 +45,6 @@ public class CoapParameters {
 	public static final String LIMIT = "lim";
 	public static final String ATTRIBUTE = "atr";
 	public static final String FILTER_USAGE = "fu";
+	public static final String FILTER_OPERATION = "fo";
 	public static final String DISCOVERY_RESULT_TYPE = "drt";
 }
@@ -36,6 +36,7 @@ import org.eclipse.om2m.commons.constants.Constants;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
 import org.eclipse.om2m.commons.constants.Operation;
 import org.eclipse.om2m.commons.constants.ResponseStatusCode;
+import org.eclipse.om2m.commons.exceptions.BadRequestException;
 import org.eclipse.om2m.commons.resource.FilterCriteria;
 import org.eclipse.om2m.commons.resource.RequestPrimitive;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
@@ -192,7 +193,12 @@ class CoapMessageDeliverer implements MessageDeliverer {
 		}
 
 		LOGGER.info("URIQueries: " + options.getURIQueries());
-		mapParameters(request, requestPrimitive);
+		String badRequest = null;
+		try {
+			mapParameters(request, requestPrimitive);
+		} catch (BadRequestException e) {
+			badRequest = e.getMessage();
+		}
 
 		requestPrimitive.setOperation(getOneM2MOperation(request.getCode(),
 				requestPrimitive.getResourceType()));
@@ -210,7 +216,11 @@ class CoapMessageDeliverer implements MessageDeliverer {
 			requestPrimitive.setReturnContentType(MimeMediaType.JSON);
 		}
 
-		if (cse != null) {
+		if (badRequest != null) {
+			responsePrimitive.setResponseStatusCode(ResponseStatusCode.BAD_REQUEST);
+			responsePrimitive.setContent(badRequest);
+			responsePrimitive.setContentType(MimeMediaType.TEXT_PLAIN);
+		} else if (cse != null) {
 			LOGGER.info("Execute requestPrimitive on the router");
 			responsePrimitive = cse.doRequest(requestPrimitive);
 		} else {
@@ -323,6 +333,8 @@ class CoapMessageDeliverer implements MessageDeliverer {
 			return ResponseCode.NOT_FOUND;
 		} else if (statusCode.equals(ResponseStatusCode.OPERATION_NOT_ALLOWED)) {
 			return ResponseCode.METHOD_NOT_ALLOWED;
+		} else if (statusCode.equals(ResponseStatusCode.NOT_ACCEPTABLE)) {
+			return ResponseCode.NOT_ACCEPTABLE;
 		} else if (statusCode.equals(ResponseStatusCode.REQUEST_TIMEOUT)) {
 			return ResponseCode.SERVICE_UNAVAILABLE;
 		} else if (statusCode.equals(ResponseStatusCode.CONFLICT)
@@ -371,6 +383,12 @@ class CoapMessageDeliverer implements MessageDeliverer {
 		}
 	}
 
+	/**
+	 * Maps the uri queries to the request primitive.
+	 * @param request coap request
+	 * @param primitive oneM2M generic request
+	 * @throws BadRequestException if a parameter has an invalid value
+	 */
 	private void mapParameters(Request request, RequestPrimitive primitive) {
 		List<String> params = request.getOptions().getURIQueries();
 		String name, value;
@@ -386,10 +404,10 @@ class CoapMessageDeliverer implements MessageDeliverer {
 						primitive.setResponseTypeInfo(new ResponseTypeInfo());
 					}
 					primitive.getResponseTypeInfo().setResponseType(
-							new BigInteger(value));
+							getInteger(name, value));
 				}
 				if (name.equals(CoapParameters.RESULT_CONTENT)) {
-					primitive.setResultContent(new BigInteger(value));
+					primitive.setResultContent(getInteger(name, value));
 				}
 				if (name.equals(CoapParameters.RESULT_PERSISTENCE)) {
 					try {
@@ -406,21 +424,25 @@ class CoapMessageDeliverer implements MessageDeliverer {
 				}
 
 				if (name.equals(CoapParameters.DISCOVERY_RESULT_TYPE)) {
-					primitive.setDiscoveryResultType(new BigInteger(value));
+					primitive.setDiscoveryResultType(getInteger(name, value));
 				}
 
 				if (name.equals(CoapParameters.FILTER_USAGE)) {
-					filterCriteria.setFilterUsage(new BigInteger(value));
+					filterCriteria.setFilterUsage(getInteger(name, value));
+				}
+
+				if (name.equals(CoapParameters.FILTER_OPERATION)) {
+					filterCriteria.setFilterOperation(getInteger(name, value));
 				}
 
 				if (name.equals(CoapParameters.LIMIT)) {
-					filterCriteria.setLimit(new BigInteger(value));
+					filterCriteria.setLimit(getInteger(name, value));
 				}
 				if (name.equals(CoapParameters.LABELS)) {
 					filterCriteria.getLabels().add(value);
 				}
 				if (name.equals(CoapParameters.RESOURCE_TYPE)) {
-					filterCriteria.setResourceType(new BigInteger(value));
+					filterCriteria.setResourceType(getInteger(name, value));
 				}
 			}
 		}
@@ -431,6 +453,21 @@ class CoapMessageDeliverer implements MessageDeliverer {
 
 	}
 
+	/**
+	 * Reads an integer uri query.
+	 * @param name name of the parameter
+	 * @param value value of the parameter
+	 * @return the value as an integer
+	 * @throws BadRequestException if the value is not an integer
+	 */
+	private static BigInteger getInteger(String name, String value) {
+		try {
+			return new BigInteger(value);
+		} catch (NumberFormatException e) {
+			throw new BadRequestException("Invalid value of parameter " + name + ": " + value, e);
+		}
+	}
+
 	public static CseService getCse() {
 		return cse;
 	}
@@ -23,6 +23,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.eclipse.om2m.binding.service.RestClientService;
 import org.eclipse.om2m.core.service.CseService;
+import org.eclipse.om2m.datamapping.service.DataMapperService;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
@@ -40,6 +41,10 @@ public class Activator implements BundleActivator {
     private ServiceTracker<Object, Object> httpServiceTracker;
     /** CSE service tracker */
     private ServiceTracker<Object, Object> cseServiceTracker;
+    /** Data mapper service tracker */
+    private ServiceTracker<Object, Object> dataMapperServiceTracker;
+    /** Rest HTTP client, holds the pooled connections */
+    private RestHttpClient restHttpClient;
     /** Csebase listening context */
     protected final String CSE_BASE_CONTEXT = System.getProperty("org.eclipse.om2m.cseBaseContext","/om2m");
 
@@ -48,7 +53,8 @@ public class Activator implements BundleActivator {
     	context = bundleContext;
         // Register the Rest HTTP Client
         LOGGER.info("Register HTTP RestClientService..");
-        bundleContext.registerService(RestClientService.class.getName(), new RestHttpClient(), null);
+        restHttpClient = new RestHttpClient();
+        bundleContext.registerService(RestClientService.class.getName(), restHttpClient, null);
         LOGGER.info("HTTP RestClientService is registered.");
 
         // track the HTTP service
@@ -104,11 +110,35 @@ public class Activator implements BundleActivator {
         };
         // Open service trackers
         cseServiceTracker.open();
+
+        // track the data mapper services
+        dataMapperServiceTracker = new ServiceTracker<Object, Object>(bundleContext, DataMapperService.class.getName(), null) {
+            public void removedService(ServiceReference<Object> reference, Object service) {
+                LOGGER.info("DataMapperService removed");
+                RestHttpServlet.removeDataMapper((DataMapperService) service);
+            }
+
+            public Object addingService(ServiceReference<Object> reference) {
+                DataMapperService dataMapper = (DataMapperService) this.context.getService(reference);
+                LOGGER.info("DataMapperService discovered: " + dataMapper.getServiceDataType());
+                RestHttpServlet.addDataMapper(dataMapper);
+                return dataMapper;
+            }
+        };
+        dataMapperServiceTracker.open();
     }
 
     @Override
     public void stop(BundleContext bundleContext) throws Exception {
     	context = null;
+    	if (dataMapperServiceTracker != null) {
+    		dataMapperServiceTracker.close();
+    		dataMapperServiceTracker = null;
+    	}
+    	if (restHttpClient != null) {
+    		restHttpClient.close();
+    		restHttpClient = null;
+    	}
     }
 
     protected static BundleContext getContext(){
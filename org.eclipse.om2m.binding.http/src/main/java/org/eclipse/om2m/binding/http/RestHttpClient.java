@@ -26,11 +26,21 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
@@ -40,9 +50,12 @@ import org.apache.http.conn.HttpHostConnectException;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.eclipse.om2m.binding.http.constants.HttpHeaders;
 import org.eclipse.om2m.binding.http.constants.HttpParameters;
-import org.eclipse.om2m.binding.service.RestClientService;
+import org.eclipse.om2m.binding.service.AsyncRestClientService;
+import org.eclipse.om2m.binding.service.ResponseFuture;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
 import org.eclipse.om2m.commons.constants.Operation;
 import org.eclipse.om2m.commons.constants.ResponseStatusCode;
@@ -57,11 +70,95 @@ import org.eclipse.om2m.commons.utils.Util;
  */
 
 @SuppressWarnings("restriction")
-public class RestHttpClient implements RestClientService {
+public class RestHttpClient implements AsyncRestClientService {
 	/** Logger */
 	private static Log LOGGER = LogFactory.getLog(RestHttpClient.class);
 	/** implemented specific protocol name */
 	private static String protocol ="http";
+	/** Maximum number of pooled connections */
+	private static final int MAX_CONNECTIONS = Integer.parseInt(System.getProperty("org.eclipse.om2m.http.client.maxConnections", "200"));
+	/** Maximum number of pooled connections to the same host */
+	private static final int MAX_CONNECTIONS_PER_ROUTE = Integer.parseInt(System.getProperty("org.eclipse.om2m.http.client.maxConnectionsPerRoute", "20"));
+	/** Connection timeout in ms, also used when waiting for a pooled connection */
+	private static final int CONNECT_TIMEOUT = Integer.parseInt(System.getProperty("org.eclipse.om2m.http.client.connectTimeout", "10000"));
+	/** Read timeout in ms */
+	private static final int READ_TIMEOUT = Integer.parseInt(System.getProperty("org.eclipse.om2m.http.client.readTimeout", "30000"));
+	/** Idle time in ms after which a pooled connection is closed */
+	private static final long IDLE_TIMEOUT = Long.parseLong(System.getProperty("org.eclipse.om2m.http.client.idleTimeout", "20000"));
+	/** Maximum number of asynchronous requests waiting for a thread, the next ones are rejected */
+	private static final int QUEUE_SIZE = Math.max(1, Integer.parseInt(System.getProperty("org.eclipse.om2m.http.client.queueSize", "1000")));
+
+	/** Pool of keep-alive connections */
+	private final PoolingHttpClientConnectionManager connectionManager;
+	/** Client shared by all the requests */
+	private final CloseableHttpClient httpClient;
+	/** Closes expired and idle connections of the pool */
+	private final ScheduledExecutorService idleConnectionEvictor;
+	/**
+	 * Sends the asynchronous requests, one thread per pooled connection at
+	 * most and a bounded queue: the requests sent on overload fail at once
+	 */
+	private final ThreadPoolExecutor requestExecutor;
+
+	public RestHttpClient() {
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(MAX_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(CONNECT_TIMEOUT)
+				.setConnectionRequestTimeout(CONNECT_TIMEOUT)
+				.setSocketTimeout(READ_TIMEOUT)
+				// retries are disabled, do not send a request on a connection closed by the peer
+				.setStaleConnectionCheckEnabled(true)
+				.build();
+		httpClient = HttpClientBuilder.create()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.disableAutomaticRetries()
+				.build();
+		idleConnectionEvictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "om2m-http-client-evictor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		requestExecutor = new ThreadPoolExecutor(MAX_CONNECTIONS, MAX_CONNECTIONS, 
+				60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "om2m-http-client-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		requestExecutor.allowCoreThreadTimeOut(true);
+		long period = Math.max(IDLE_TIMEOUT / 2, 1000);
+		idleConnectionEvictor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				connectionManager.closeExpiredConnections();
+				connectionManager.closeIdleConnections(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Closes the pooled connections, the client cannot be used anymore.
+	 */
+	public void close() {
+		requestExecutor.shutdownNow();
+		idleConnectionEvictor.shutdownNow();
+		try {
+			httpClient.close();
+		} catch (IOException e) {
+			// Silently fail
+			LOGGER.trace("Fail closing the http client", e);
+		}
+	}
 
 	/**
 	 * gets the implemented specific protocol name
@@ -71,6 +168,34 @@ public class RestHttpClient implements RestClientService {
 		return protocol;
 	}
 
+	/**
+	 * Sends the request from the threads of the http client, the calling
+	 * thread does not wait for the response.
+	 * @param requestPrimitive - protocol independent request.
+	 * @return future protocol independent response.
+	 */
+	public ResponseFuture sendRequestAsync(final RequestPrimitive requestPrimitive) {
+		final ResponseFuture response = new ResponseFuture();
+		try {
+			requestExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						response.complete(sendRequest(requestPrimitive));
+					} catch (RuntimeException e) {
+						response.fail(e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// queue full or client closed
+			LOGGER.warn("Request rejected, " + requestExecutor.getQueue().size() + " requests waiting: "
+					+ requestPrimitive.getTo());
+			response.fail(e);
+		}
+		return response;
+	}
+
 	/**
 	 * Converts a protocol-independent {@link RequestPrimitive} object into a standard HTTP request and sends a standard HTTP request.
 	 * Converts the received standard HTTP request into {@link ResponsePrimitive} object and returns it back.
@@ -79,11 +204,9 @@ public class RestHttpClient implements RestClientService {
 	 */
 	public ResponsePrimitive sendRequest(RequestPrimitive requestPrimitive) {
 		LOGGER.info("Sending request: " + requestPrimitive);
-		CloseableHttpClient httpClient = HttpClientBuilder.create()
-				.disableAutomaticRetries()
-				.build();
 		ResponsePrimitive responsePrimitive = new ResponsePrimitive(requestPrimitive);    	
 		HttpUriRequest method = null;
+		CloseableHttpResponse httpResponse = null;
 		
 		// Retrieve the url
 		String url = requestPrimitive.getTo();
@@ -162,6 +285,12 @@ public class RestHttpClient implements RestClientService {
 						requestPrimitive.getFrom());
 			}
 			
+			// Set the request expiration timestamp header
+			if (requestPrimitive.getRequestExpirationTimestamp() != null){
+				method.addHeader(HttpHeaders.REQUEST_EXPIRATION_TIMESTAMP,
+						requestPrimitive.getRequestExpirationTimestamp());
+			}
+			
 			// Add the content type header with the resource type for create operation
 			if (requestPrimitive.getResourceType() != null){
 				contentTypeHeader += ";ty=" + requestPrimitive.getResourceType().toString();
@@ -185,7 +314,7 @@ public class RestHttpClient implements RestClientService {
 			}
 			LOGGER.info("Headers:\n" + headers);
 			
-			HttpResponse httpResponse = httpClient.execute(method);
+			httpResponse = httpClient.execute(method);
 			int statusCode = httpResponse.getStatusLine().getStatusCode();
 			if(httpResponse.getFirstHeader(HttpHeaders.RESPONSE_STATUS_CODE) != null){
 				responsePrimitive.setResponseStatusCode(new BigInteger(httpResponse.getFirstHeader(HttpHeaders.RESPONSE_STATUS_CODE).getValue()));
@@ -201,6 +330,9 @@ public class RestHttpClient implements RestClientService {
 					}
 				}
 			}
+			if(httpResponse.getFirstHeader(HttpHeaders.CONTINUATION_TOKEN) != null){
+				responsePrimitive.setContinuationToken(httpResponse.getFirstHeader(HttpHeaders.CONTINUATION_TOKEN).getValue());
+			}
 			if (statusCode == 201){
 				String contentHeader = "";
 				for (Header header : httpResponse.getHeaders(HttpHeaders.CONTENT_LOCATION)){
@@ -208,6 +340,8 @@ public class RestHttpClient implements RestClientService {
 				}
 				responsePrimitive.setLocation(contentHeader);
 			}
+			// release the connection to the pool
+			EntityUtils.consume(httpResponse.getEntity());
 			LOGGER.info("Http Client response: " + responsePrimitive);
 		} catch(HttpHostConnectException e){
 			LOGGER.info("Target is not reachable: " + requestPrimitive.getTo());
@@ -218,11 +352,13 @@ public class RestHttpClient implements RestClientService {
 			LOGGER.error(url + " not found", e);
 			responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
 		} finally {
-			try {
-				httpClient.close();
-			} catch (IOException e) {
-				// Silently fail
-				LOGGER.trace("Fail closing the http client", e);
+			if (httpResponse != null) {
+				try {
+					httpResponse.close();
+				} catch (IOException e) {
+					// Silently fail
+					LOGGER.trace("Fail closing the http response", e);
+				}
 			}
 		}
 		return responsePrimitive;
@@ -280,6 +416,11 @@ public class RestHttpClient implements RestClientService {
 				list.add(filter.getFilterUsage().toString());
 				map.put(HttpParameters.FILTER_USAGE, list);
 			}
+			if(filter.getFilterOperation() != null){
+				list = new ArrayList<String>();
+				list.add(filter.getFilterOperation().toString());
+				map.put(HttpParameters.FILTER_OPERATION, list);
+			}
 			if(!filter.getLabels().isEmpty()){
 				list = new ArrayList<String>();
 				list.addAll(filter.getLabels());
@@ -290,6 +431,21 @@ public class RestHttpClient implements RestClientService {
 				list.add(filter.getLimit().toString());
 				map.put(HttpParameters.LIMIT, list);
 			}
+			if(filter.getLevel() != null){
+				list = new ArrayList<String>();
+				list.add(filter.getLevel().toString());
+				map.put(HttpParameters.LEVEL, list);
+			}
+			if(filter.getOffset() != null){
+				list = new ArrayList<String>();
+				list.add(filter.getOffset().toString());
+				map.put(HttpParameters.OFFSET, list);
+			}
+			if(filter.getContinuationToken() != null){
+				list = new ArrayList<String>();
+				list.add(filter.getContinuationToken());
+				map.put(HttpParameters.CONTINUATION_TOKEN, list);
+			}
 			if(filter.getModifiedSince() != null){
 				list = new ArrayList<String>();
 				list.add(filter.getModifiedSince());
@@ -29,6 +29,8 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -45,6 +47,7 @@ import org.eclipse.om2m.binding.http.constants.HttpParameters;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
 import org.eclipse.om2m.commons.constants.Operation;
 import org.eclipse.om2m.commons.constants.ResponseStatusCode;
+import org.eclipse.om2m.commons.constants.ResponseType;
 import org.eclipse.om2m.commons.exceptions.BadRequestException;
 import org.eclipse.om2m.commons.resource.FilterCriteria;
 import org.eclipse.om2m.commons.resource.RequestPrimitive;
@@ -53,6 +56,7 @@ import org.eclipse.om2m.commons.resource.ResponseTypeInfo;
 import org.eclipse.om2m.commons.resource.StatusCode;
 import org.eclipse.om2m.commons.utils.Util;
 import org.eclipse.om2m.core.service.CseService;
+import org.eclipse.om2m.datamapping.service.DataMapperService;
 
 /**
  *  Provides mapping from a HTTP-specific request to a protocol-independent request.
@@ -64,6 +68,8 @@ public class RestHttpServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
 	/** Discovered CSE service */
 	private static CseService cse;
+	/** Discovered data mappers by media type */
+	private static final ConcurrentMap<String, DataMapperService> DATA_MAPPERS = new ConcurrentHashMap<String, DataMapperService>();
 	
 	protected String CSE_BASE_CONTEXT = "";
 
@@ -96,25 +102,11 @@ public class RestHttpServlet extends HttpServlet {
 		
 		// Set the To parameter of the primitive request
 		request.setTo(targetID);
-		// Get the body of the request
-		String content = null;
-		try {
-			if(httpServletRequest.getInputStream().available() > 0){
-				content = Util.convertStreamToString(httpServletRequest.getInputStream());				
-			}
-		} catch (IOException e) {
-			LOGGER.error("Error reading httpServletRequest InputStream",e);
-		}
-		if (content != null && !content.isEmpty()){    		
-			request.setContent(content);
-		}	
-
-		// Get request parameters
-		mapParameters(httpServletRequest, request);
 
-		// Get the oneM2M operation
-		LOGGER.info("Built RequestPrimitive: " + request.toString());
+		// Get request parameters and the oneM2M operation
 		try{
+			mapParameters(httpServletRequest, request);
+			LOGGER.info("Built RequestPrimitive: " + request.toString());
 			request.setOperation(getOneM2MOperation(httpServletRequest));			
 		} catch (BadRequestException e){
 			httpServletResponse.setStatus(400);
@@ -125,6 +117,27 @@ public class RestHttpServlet extends HttpServlet {
 
 		mapHeaders(httpServletRequest, request);
 
+		// Get the body of the request
+		try {
+			if(httpServletRequest.getInputStream().available() > 0){
+				DataMapperService dataMapper = getResourceMapper(request);
+				if (dataMapper != null) {
+					// resource representation unmarshalled directly from the request stream
+					request.setContent(dataMapper.streamToObj(httpServletRequest.getInputStream()));
+					request.setRequestContentType(MimeMediaType.OBJ);
+				} else {
+					String content = Util.convertStreamToString(httpServletRequest.getInputStream());
+					if (content != null && !content.isEmpty()){
+						request.setContent(content);
+					}
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.error("Error reading httpServletRequest InputStream",e);
+		}
+		// The response content is marshalled directly in the servlet output stream
+		request.setResponseContentSerialized(false);
+
 		request.getQueryStrings().putAll(getParamsFromQuery(httpServletRequest.getQueryString()));
 
 		// Perform the request in the CSE
@@ -150,6 +163,10 @@ public class RestHttpServlet extends HttpServlet {
 		if (response.getFrom() != null){
 			httpServletResponse.setHeader(HttpHeaders.ORIGINATOR, response.getFrom());
 		}
+		// Set the continuation token of a truncated discovery
+		if (response.getContinuationToken() != null){
+			httpServletResponse.setHeader(HttpHeaders.CONTINUATION_TOKEN, response.getContinuationToken());
+		}
 
 		// Set HTTP status code
 		int httpStatus = getHttpStatusCode(response.getResponseStatusCode());
@@ -163,9 +180,22 @@ public class RestHttpServlet extends HttpServlet {
 			httpServletResponse.setCharacterEncoding("UTF-8");
 			httpServletResponse.setContentType(response.getContentType());
 			
-			String body = (String) response.getContent(); 
-			LOGGER.info("send UTF8");
-			httpServletResponse.getOutputStream().write(body.getBytes(Charset.forName("UTF-8")));
+			if (response.getContent() instanceof String) {
+				String body = (String) response.getContent(); 
+				LOGGER.info("send UTF8");
+				httpServletResponse.getOutputStream().write(body.getBytes(Charset.forName("UTF-8")));
+			} else {
+				DataMapperService dataMapper = DATA_MAPPERS.get(response.getContentType());
+				if (dataMapper == null || !dataMapper.objToStream(response.getContent(), httpServletResponse.getOutputStream())) {
+					LOGGER.error("Unable to write the response content in " + response.getContentType());
+					if (!httpServletResponse.isCommitted()) {
+						httpServletResponse.reset();
+						httpServletResponse.setStatus(500);
+						httpServletResponse.setHeader(HttpHeaders.RESPONSE_STATUS_CODE, 
+								ResponseStatusCode.INTERNAL_SERVER_ERROR.toString());
+					}
+				}
+			}
 		}
 		
 		httpServletResponse.getOutputStream().close();
@@ -236,6 +266,8 @@ public class RestHttpServlet extends HttpServlet {
 			return 404;
 		} else if (statusCode.equals(ResponseStatusCode.OPERATION_NOT_ALLOWED)){
 			return 405;
+		} else if (statusCode.equals(ResponseStatusCode.NOT_ACCEPTABLE)){
+			return 406;
 		} else if (statusCode.equals(ResponseStatusCode.REQUEST_TIMEOUT)){
 			return 408;
 		} else if (statusCode.equals(ResponseStatusCode.CONFLICT)
@@ -273,20 +305,56 @@ public class RestHttpServlet extends HttpServlet {
 		RestHttpServlet.cse = cse;
 	}
 
+	/**
+	 * Add a data mapper used to read and write the representations
+	 * @param dataMapper to add
+	 */
+	public static void addDataMapper(DataMapperService dataMapper) {
+		DATA_MAPPERS.put(dataMapper.getServiceDataType(), dataMapper);
+	}
+
+	/**
+	 * Remove a data mapper
+	 * @param dataMapper to remove
+	 */
+	public static void removeDataMapper(DataMapperService dataMapper) {
+		DATA_MAPPERS.remove(dataMapper.getServiceDataType(), dataMapper);
+	}
+
+	/**
+	 * Return the data mapper used to unmarshal the body of the request directly
+	 * from the request stream. Only the resources provided in blocking create and
+	 * update requests are unmarshalled, other bodies are kept as they are received.
+	 * @param request oneM2M generic request
+	 * @return the data mapper or null if the body is read as a string
+	 */
+	private static DataMapperService getResourceMapper(RequestPrimitive request) {
+		if (!Operation.CREATE.equals(request.getOperation()) 
+				&& !Operation.UPDATE.equals(request.getOperation())) {
+			return null;
+		}
+		if (request.getResponseTypeInfo() != null && request.getResponseTypeInfo().getResponseType() != null
+				&& !ResponseType.BLOCKING_REQUEST.equals(request.getResponseTypeInfo().getResponseType())) {
+			return null;
+		}
+		return DATA_MAPPERS.get(request.getRequestContentType());
+	}
+
 	/**
 	 * Method used to map uri parameters to generic oneM2M request primitive.
 	 * @param request http request
 	 * @param primitive oneM2M generic request
+	 * @throws BadRequestException if a parameter has an invalid value
 	 */
 	private void mapParameters(HttpServletRequest request, RequestPrimitive primitive){
 		if (request.getParameter(HttpParameters.RESPONSE_TYPE) != null){
 			if(primitive.getResponseTypeInfo() == null){
 				primitive.setResponseTypeInfo(new ResponseTypeInfo());
 			}
-			primitive.getResponseTypeInfo().setResponseType(new BigInteger(request.getParameter(HttpParameters.RESPONSE_TYPE)));;
+			primitive.getResponseTypeInfo().setResponseType(getInteger(request, HttpParameters.RESPONSE_TYPE));;
 		}
 		if(request.getParameter(HttpParameters.RESULT_CONTENT) != null){
-			primitive.setResultContent(new BigInteger(request.getParameter(HttpParameters.RESULT_CONTENT)));
+			primitive.setResultContent(getInteger(request, HttpParameters.RESULT_CONTENT));
 		}
 		if (request.getParameter(HttpParameters.RESULT_PERSISTENCE) != null){
 			try {
@@ -302,29 +370,84 @@ public class RestHttpServlet extends HttpServlet {
 		}
 
 		if (request.getParameter(HttpParameters.DISCOVERY_RESULT_TYPE) != null){
-			primitive.setDiscoveryResultType(new BigInteger(request.getParameter(HttpParameters.DISCOVERY_RESULT_TYPE)));
+			primitive.setDiscoveryResultType(getInteger(request, HttpParameters.DISCOVERY_RESULT_TYPE));
 		}
 
 		// create filter criteria
 		FilterCriteria filterCriteria = new FilterCriteria();
 		primitive.setFilterCriteria(filterCriteria);
 		if (request.getParameter(HttpParameters.LEVEL) != null) {
-			filterCriteria.setLevel(new BigInteger(request.getParameter(HttpParameters.LEVEL)));
+			filterCriteria.setLevel(getInteger(request, HttpParameters.LEVEL));
 		}
 		if (request.getParameter(HttpParameters.OFFSET) != null) {
-			filterCriteria.setOffset(new BigInteger(request.getParameter(HttpParameters.OFFSET)));
+			filterCriteria.setOffset(getInteger(request, HttpParameters.OFFSET));
+		}
+		if (request.getParameter(HttpParameters.CONTINUATION_TOKEN) != null) {
+			filterCriteria.setContinuationToken(request.getParameter(HttpParameters.CONTINUATION_TOKEN));
+		}
+		if (request.getParameter(HttpParameters.CREATED_AFTER) != null) {
+			filterCriteria.setCreatedAfter(request.getParameter(HttpParameters.CREATED_AFTER));
+		}
+		if (request.getParameter(HttpParameters.CREATED_BEFORE) != null) {
+			filterCriteria.setCreatedBefore(request.getParameter(HttpParameters.CREATED_BEFORE));
 		}
 		if(request.getParameter(HttpParameters.FILTER_USAGE) != null){
-			filterCriteria.setFilterUsage(new BigInteger(request.getParameter(HttpParameters.FILTER_USAGE)));
+			filterCriteria.setFilterUsage(getInteger(request, HttpParameters.FILTER_USAGE));
+		}
+		if(request.getParameter(HttpParameters.FILTER_OPERATION) != null){
+			filterCriteria.setFilterOperation(getInteger(request, HttpParameters.FILTER_OPERATION));
 		}
 		if(request.getParameter(HttpParameters.LIMIT) != null){
-			filterCriteria.setLimit(new BigInteger(request.getParameter(HttpParameters.LIMIT)));
+			filterCriteria.setLimit(getInteger(request, HttpParameters.LIMIT));
 		}
 		if(request.getParameter(HttpParameters.LABELS) != null){
 			filterCriteria.getLabels().addAll(Arrays.asList(request.getParameterValues(HttpParameters.LABELS)));
 		}
 		if(request.getParameter(HttpParameters.RESOURCE_TYPE) != null){
-			filterCriteria.setResourceType(new BigInteger(request.getParameter(HttpParameters.RESOURCE_TYPE)));
+			filterCriteria.setResourceType(getInteger(request, HttpParameters.RESOURCE_TYPE));
+		}
+		if(request.getParameter(HttpParameters.MODIFIED_SINCE) != null){
+			filterCriteria.setModifiedSince(request.getParameter(HttpParameters.MODIFIED_SINCE));
+		}
+		if(request.getParameter(HttpParameters.UNMODIFIED_SINCE) != null){
+			filterCriteria.setUnmodifiedSince(request.getParameter(HttpParameters.UNMODIFIED_SINCE));
+		}
+		if(request.getParameter(HttpParameters.STATE_TAG_SMALLER) != null){
+			filterCriteria.setStateTagSmaller(getInteger(request, HttpParameters.STATE_TAG_SMALLER));
+		}
+		if(request.getParameter(HttpParameters.STATE_TAG_BIGGER) != null){
+			filterCriteria.setStateTagBigger(getInteger(request, HttpParameters.STATE_TAG_BIGGER));
+		}
+		if(request.getParameter(HttpParameters.EXPIRE_BEFORE) != null){
+			filterCriteria.setExpireBefore(request.getParameter(HttpParameters.EXPIRE_BEFORE));
+		}
+		if(request.getParameter(HttpParameters.EXPIRE_AFTER) != null){
+			filterCriteria.setExpireAfter(request.getParameter(HttpParameters.EXPIRE_AFTER));
+		}
+		if(request.getParameter(HttpParameters.SIZE_ABOVE) != null){
+			filterCriteria.setSizeAbove(getInteger(request, HttpParameters.SIZE_ABOVE));
+		}
+		if(request.getParameter(HttpParameters.SIZE_BELOW) != null){
+			filterCriteria.setSizeBelow(getInteger(request, HttpParameters.SIZE_BELOW));
+		}
+		if(request.getParameter(HttpParameters.CONTENT_TYPE) != null){
+			filterCriteria.getContentType().addAll(Arrays.asList(request.getParameterValues(HttpParameters.CONTENT_TYPE)));
+		}
+	}
+
+	/**
+	 * Reads an integer uri parameter.
+	 * @param request http request
+	 * @param name name of the parameter
+	 * @return the value of the parameter
+	 * @throws BadRequestException if the value is not an integer
+	 */
+	private static BigInteger getInteger(HttpServletRequest request, String name) {
+		String value = request.getParameter(name);
+		try {
+			return new BigInteger(value);
+		} catch (NumberFormatException e) {
+			throw new BadRequestException("Invalid value of parameter " + name + ": " + value, e);
 		}
 	}
 
@@ -346,6 +469,12 @@ public class RestHttpServlet extends HttpServlet {
 			request.setRequestIdentifier(requestIdentifier.trim());
 		}
 
+		// Get the request expiration timestamp
+		String requestExpirationTimestamp = httpServletRequest.getHeader(HttpHeaders.REQUEST_EXPIRATION_TIMESTAMP);
+		if (requestExpirationTimestamp != null){
+			request.setRequestExpirationTimestamp(requestExpirationTimestamp.trim());
+		}
+
 		// Get Request Content type
 		String contentTypeHeaders = httpServletRequest.getHeader(HttpHeaders.CONTENT_TYPE);
 		if (contentTypeHeaders != null){
@@ -45,7 +45,9 @@ public class HttpParameters {
 	public static final String LIMIT = "lim";
 	public static final String LEVEL = "lvl";
 	public static final String OFFSET = "ofst";
+	public static final String CONTINUATION_TOKEN = "ctk";
 	public static final String ATTRIBUTE = "atr";
 	public static final String FILTER_USAGE = "fu";
+	public static final String FILTER_OPERATION = "fo";
 	public static final String DISCOVERY_RESULT_TYPE = "drt";
 }
@@ -20,6 +20,11 @@
 package org.eclipse.om2m.binding.mqtt;
 
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -30,8 +35,9 @@ import org.eclipse.om2m.binding.mqtt.util.DataMapperRegistry;
 import org.eclipse.om2m.binding.mqtt.util.MqttConstants;
 import org.eclipse.om2m.binding.mqtt.util.QueueSender;
 import org.eclipse.om2m.binding.mqtt.util.ResponseRegistry;
-import org.eclipse.om2m.binding.mqtt.util.ResponseSemaphore;
-import org.eclipse.om2m.binding.service.RestClientService;
+import org.eclipse.om2m.binding.service.AsyncRestClientService;
+import org.eclipse.om2m.binding.service.ResponseFuture;
+import org.eclipse.om2m.binding.service.ResponseListener;
 import org.eclipse.om2m.commons.constants.Constants;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
 import org.eclipse.om2m.commons.constants.ResponseStatusCode;
@@ -44,12 +50,43 @@ import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
-public class MqttRestClient implements RestClientService {
+public class MqttRestClient implements AsyncRestClientService {
 	
 	private static final Log LOGGER = LogFactory.getLog(MqttRestClient.class);
 	
+	/** Times out the requests waiting for a response and closes their client */
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "om2m-mqtt-client-timer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
 	@Override
 	public ResponsePrimitive sendRequest(RequestPrimitive requestPrimitive) {
+		ResponsePrimitive responsePrimitive = new ResponsePrimitive(requestPrimitive);
+		try {
+			return sendRequestAsync(requestPrimitive).get();
+		} catch (InterruptedException e) {
+			LOGGER.error("Interrupted exception caught in MqttRestClient: " + e.getMessage());
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LOGGER.error("Error caught in MqttRestClient: " + e.getMessage());
+		}
+		responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
+		return responsePrimitive;
+	}
+
+	/**
+	 * Sends the request, the response is provided when it is received on the
+	 * response topic or when the time out expires, no thread waits for it.
+	 * @param requestPrimitive - The generic request to handle.
+	 * @return the future response
+	 */
+	@Override
+	public ResponseFuture sendRequestAsync(final RequestPrimitive requestPrimitive) {
 		if(requestPrimitive.getContent() != null){
 			PrimitiveContent pc = new PrimitiveContent();
 			switch(requestPrimitive.getRequestContentType()){
@@ -74,7 +111,7 @@ public class MqttRestClient implements RestClientService {
 
 		if(requestPrimitive.getMqttTopic() == null || requestPrimitive.getMqttUri() == null){
 			responsePrimitive.setResponseStatusCode(ResponseStatusCode.BAD_REQUEST);
-			return responsePrimitive;
+			return ResponseFuture.completed(responsePrimitive);
 		}
 		
 		if(requestPrimitive.getRequestIdentifier() == null){
@@ -106,16 +143,17 @@ public class MqttRestClient implements RestClientService {
 			format = "xml";
 		}
 		
+		MqttClient mqttClient = null;
 		try {
-			MqttClient mqttClient = new MqttClient(uri, requestPrimitive.getRequestIdentifier(), new MemoryPersistence());
+			mqttClient = new MqttClient(uri, requestPrimitive.getRequestIdentifier(), new MemoryPersistence());
 			mqttClient.connect();
 			LOGGER.debug("Sending request on topic: " + topic + " with payload:\n" + payload);
-			ResponseSemaphore responseSemaphore = null;
+			ResponseFuture response = null;
 			if(requestPrimitive.isMqttResponseExpected()){
 				Matcher matcher = MqttConstants.REQUEST_PATTERN_OUT.matcher(topic);
 				if(matcher.matches()){
 					String responseTopic = "/oneM2M/resp/" + matcher.group(1) + "/"+ Constants.CSE_ID + "/" + format; 
-					responseSemaphore = ResponseRegistry.createSemaphore(requestPrimitive.getRequestIdentifier(), mqttClient, responseTopic);
+					response = ResponseRegistry.register(requestPrimitive.getRequestIdentifier(), mqttClient, responseTopic);
 				} else {					
 					responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
 				}
@@ -123,31 +161,87 @@ public class MqttRestClient implements RestClientService {
 				mqttClient.publish(topic, new MqttMessage(payload.getBytes()));
 				responsePrimitive.setResponseStatusCode(ResponseStatusCode.OK);
 			} 
-			if(responseSemaphore != null){
+			if(response != null){
+				ResponseFuture result = waitForResponse(requestPrimitive, mqttClient, response);
 				QueueSender.queue(mqttClient, topic, payload.getBytes());
 				LOGGER.debug("Waiting for response... (" + MqttConstants.TIME_OUT_DURATION + "s)");
-				boolean released = responseSemaphore.getSemaphore().tryAcquire(1, MqttConstants.TIME_OUT_DURATION, TimeUnit.SECONDS);
-				if(released){
-					responsePrimitive = responseSemaphore.getResponsePrimitive();
+				return result;
+			}
+			close(mqttClient);
+		} catch (MqttException e) {
+			LOGGER.warn("Cannot connect to: " + requestPrimitive.getMqttUri());
+			if(mqttClient != null && mqttClient.isConnected()){
+				close(mqttClient);
+			}
+			responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
+		}
+		
+		return ResponseFuture.completed(responsePrimitive);
+	}
+
+	/**
+	 * Provides the response once received, or a TARGET_NOT_REACHABLE response
+	 * when the time out expires, then closes the client.
+	 */
+	private ResponseFuture waitForResponse(final RequestPrimitive requestPrimitive, 
+			final MqttClient mqttClient, ResponseFuture response) {
+		final ResponseFuture result = new ResponseFuture();
+		final String requestIdentifier = requestPrimitive.getRequestIdentifier();
+		final ScheduledFuture<?> timeout = TIMER.schedule(new Runnable() {
+			@Override
+			public void run() {
+				ResponseFuture pending = ResponseRegistry.unregister(requestIdentifier);
+				if(pending != null){
+					ResponsePrimitive responsePrimitive = new ResponsePrimitive(requestPrimitive);
+					responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
+					pending.complete(responsePrimitive);
+				}
+			}
+		}, MqttConstants.TIME_OUT_DURATION, TimeUnit.SECONDS);
+		response.addListener(new ResponseListener() {
+			@Override
+			public void onResponse(ResponsePrimitive responsePrimitive) {
+				timeout.cancel(false);
+				closeLater(mqttClient);
+				try {
 					fillAndConvertContent(requestPrimitive, responsePrimitive);
 					LOGGER.debug("Response received: " + responsePrimitive);
-				} else {
-					responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
+					result.complete(responsePrimitive);
+				} catch (RuntimeException e) {
+					result.fail(e);
 				}
 			}
+
+			@Override
+			public void onFailure(Throwable cause) {
+				timeout.cancel(false);
+				closeLater(mqttClient);
+				result.fail(cause);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Closes the client from the timer thread, a client cannot be
+	 * disconnected from its own callback thread.
+	 */
+	private static void closeLater(final MqttClient mqttClient) {
+		TIMER.execute(new Runnable() {
+			@Override
+			public void run() {
+				close(mqttClient);
+			}
+		});
+	}
+
+	private static void close(MqttClient mqttClient) {
+		try {
 			mqttClient.disconnect();
 			mqttClient.close();
 		} catch (MqttException e) {
-			LOGGER.warn("Cannot connect to: " + requestPrimitive.getMqttUri());
-			responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
-			return responsePrimitive;
-		} catch (InterruptedException e) {
-			LOGGER.error("Interrupted exception caught in MqttRestClient: " + e.getMessage());
-			responsePrimitive.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
-			return responsePrimitive;
+			LOGGER.debug("Error closing the MQTT client of " + mqttClient.getServerURI(), e);
 		}
-		
-		return responsePrimitive;
 	}
 
 	private void fillAndConvertContent(RequestPrimitive requestPrimitive,
@@ -21,10 +21,10 @@ package org.eclipse.om2m.binding.mqtt.util;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.Semaphore;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.eclipse.om2m.binding.service.ResponseFuture;
 import org.eclipse.om2m.commons.constants.Constants;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
@@ -41,30 +41,46 @@ public final class ResponseRegistry {
 		// Empty and private constructor to avoid instantiation of this class
 	}
 	
-	private static final Map<String, ResponseSemaphore> responseMap = new HashMap<String, ResponseSemaphore>();
+	private static final Map<String, ResponseFuture> responseMap = new HashMap<String, ResponseFuture>();
 
-	public static ResponseSemaphore createSemaphore(String requestIdentifier, MqttClient mqttClient, 
+	/**
+	 * Subscribes to the response topic and registers the request waiting for a response.
+	 * @param requestIdentifier identifier of the request
+	 * @param mqttClient client used to send the request
+	 * @param responseTopic topic of the response
+	 * @return the future completed when the response is received or null if
+	 * a request with the same identifier is already waiting for a response
+	 * @throws MqttException if the subscription fails
+	 */
+	public static ResponseFuture register(String requestIdentifier, MqttClient mqttClient, 
 			String responseTopic) throws MqttException{
 		synchronized (responseMap) {
 			mqttClient.setCallback(new ResponseCallback());
 			mqttClient.subscribe(responseTopic, 1);
 			if(!responseMap.containsKey(requestIdentifier)){
-				ResponseSemaphore respSemaphore = new ResponseSemaphore(new Semaphore(0));
-				responseMap.put(requestIdentifier, respSemaphore);
-				return respSemaphore;
+				ResponseFuture responseFuture = new ResponseFuture();
+				responseMap.put(requestIdentifier, responseFuture);
+				return responseFuture;
 			}
 			return null;
 		}
 	}
+
+	/**
+	 * Stops waiting for the response of a request.
+	 * @param requestIdentifier identifier of the request
+	 * @return the future of the request or null if the response has already been received
+	 */
+	public static ResponseFuture unregister(String requestIdentifier){
+		synchronized (responseMap) {
+			return responseMap.remove(requestIdentifier);
+		}
+	}
 	
 	private static void responseReceived(ResponsePrimitive responsePrimitive){
-		synchronized (responseMap) {
-			if(responseMap.containsKey(responsePrimitive.getRequestIdentifier())){
-				ResponseSemaphore responseSemanphore = responseMap.get(responsePrimitive.getRequestIdentifier());
-				responseSemanphore.setResponsePrimitive(responsePrimitive);
-				responseSemanphore.getSemaphore().release();
-				responseMap.remove(responsePrimitive.getRequestIdentifier());
-			}			
+		ResponseFuture responseFuture = unregister(responsePrimitive.getRequestIdentifier());
+		if(responseFuture != null){
+			responseFuture.complete(responsePrimitive);
 		}
 	}
 	
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.binding.service;
+
+import org.eclipse.om2m.commons.resource.RequestPrimitive;
+
+/**
+ * Rest client able to send a request without blocking the calling thread
+ * until the response is received.
+ */
+public interface AsyncRestClientService extends RestClientService {
+
+	/**
+	 * Sends a request, the response is provided by the returned future
+	 * once it has been received.
+	 * @param request - The generic request to handle.
+	 * @return the future response, completed with a TARGET_NOT_REACHABLE
+	 * response if the target does not answer.
+	 */
+	public ResponseFuture sendRequestAsync(RequestPrimitive request);
+
+}
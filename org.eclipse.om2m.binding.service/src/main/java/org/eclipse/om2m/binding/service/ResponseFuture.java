@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.binding.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.om2m.commons.resource.ResponsePrimitive;
+
+/**
+ * Response of an asynchronous request, completed by the rest client once the
+ * response has been received.
+ * <p>
+ * Listeners are called by the thread completing the future, or by the thread
+ * registering them if the future is already completed. They must not block.
+ */
+public class ResponseFuture implements Future<ResponsePrimitive> {
+
+	private final CountDownLatch done = new CountDownLatch(1);
+	/** Listeners to call on completion, null once completed */
+	private List<ResponseListener> listeners = new ArrayList<ResponseListener>();
+	private ResponsePrimitive response;
+	private Throwable failure;
+	private boolean cancelled;
+
+	/**
+	 * Creates a future already completed with a response.
+	 * @param response - The generic returned response.
+	 * @return the completed future
+	 */
+	public static ResponseFuture completed(ResponsePrimitive response) {
+		ResponseFuture future = new ResponseFuture();
+		future.complete(response);
+		return future;
+	}
+
+	/**
+	 * Creates a future already failed.
+	 * @param cause - The error preventing the request to complete.
+	 * @return the failed future
+	 */
+	public static ResponseFuture failed(Throwable cause) {
+		ResponseFuture future = new ResponseFuture();
+		future.fail(cause);
+		return future;
+	}
+
+	/**
+	 * Completes the future with the received response.
+	 * @param response - The generic returned response.
+	 * @return false if the future was already completed
+	 */
+	public boolean complete(ResponsePrimitive response) {
+		return finish(response, null, false);
+	}
+
+	/**
+	 * Completes the future with an error.
+	 * @param cause - The error preventing the request to complete.
+	 * @return false if the future was already completed
+	 */
+	public boolean fail(Throwable cause) {
+		return finish(null, cause, false);
+	}
+
+	/**
+	 * Registers a listener called once the future is completed.
+	 * @param listener - listener of the response
+	 */
+	public void addListener(ResponseListener listener) {
+		synchronized (this) {
+			if (listeners != null) {
+				listeners.add(listener);
+				return;
+			}
+		}
+		if (failure != null) {
+			listener.onFailure(failure);
+		} else {
+			listener.onResponse(response);
+		}
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return finish(null, new CancellationException("Request cancelled"), true);
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	@Override
+	public ResponsePrimitive get() throws InterruptedException, ExecutionException {
+		done.await();
+		return getResult();
+	}
+
+	@Override
+	public ResponsePrimitive get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		if (!done.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return getResult();
+	}
+
+	private boolean finish(ResponsePrimitive response, Throwable failure, boolean cancelled) {
+		List<ResponseListener> toNotify;
+		synchronized (this) {
+			if (listeners == null) {
+				return false;
+			}
+			this.response = response;
+			this.failure = failure;
+			this.cancelled = cancelled;
+			toNotify = listeners;
+			listeners = null;
+		}
+		done.countDown();
+		for (ResponseListener listener : toNotify) {
+			if (failure != null) {
+				listener.onFailure(failure);
+			} else {
+				listener.onResponse(response);
+			}
+		}
+		return true;
+	}
+
+	private synchronized ResponsePrimitive getResult() throws ExecutionException {
+		if (cancelled) {
+			throw (CancellationException) failure;
+		}
+		if (failure != null) {
+			throw new ExecutionException(failure);
+		}
+		return response;
+	}
+
+}
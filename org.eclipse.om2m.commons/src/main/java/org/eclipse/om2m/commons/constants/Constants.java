@@ -94,4 +94,10 @@ public interface Constants {
 	
 	public final Integer MAX_THREAD_POOL_SIZE = Integer.valueOf(System.getProperty("org.eclipse.om2m.maxThreadPoolSize", "50"));
 	
+	/** Maximum number of hierarchical uri mappings kept in memory */
+	public final Integer URI_MAPPER_CACHE_SIZE = Integer.valueOf(System.getProperty("org.eclipse.om2m.uriMapper.cacheSize", "10000"));
+	
+	/** Maximum number of compiled access control policies and access decisions kept in memory */
+	public final Integer ACP_CACHE_SIZE = Integer.valueOf(System.getProperty("org.eclipse.om2m.acp.cacheSize", "10000"));
+	
 }
\ No newline at end of file
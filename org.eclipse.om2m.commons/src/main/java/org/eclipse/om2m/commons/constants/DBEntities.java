@@ -33,6 +33,7 @@ import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
 import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
 import org.eclipse.om2m.commons.entities.FlexContainerEntity;
 import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.LabelPostingEntity;
 import org.eclipse.om2m.commons.entities.MgmtObjEntity;
 import org.eclipse.om2m.commons.entities.PollingChannelEntity;
 import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
@@ -106,6 +107,9 @@ public class DBEntities {
 	/** Name used for the persisted {@link LabelEntity} entity */
 	public static final String LABEL_ENTITY = "LBL";
 
+	/** Name used for the persisted {@link LabelPostingEntity} entity */
+	public static final String LABEL_POSTING_ENTITY = "LBL_POSTING";
+
 	/** Name used for the persisted {@link PollingChannelEntity} entity */
 	public static final String POLLING_CHANNEL_ENTITY = "PCH";
 
@@ -495,4 +499,80 @@ public class DBEntities {
 	 */
 	public static final String AE_DACCHILD_JOIN = "AE_DACCHILD_JOIN";
 
+	// Labels
+	/** ID of the label in the join tables between resources and their labels, default name of the column */
+	public static final String LBL_JOIN_ID = "labelsEntities_" + ShortName.LABELS;
+	/** Lowest key of the ids of a label posting segment */
+	public static final String LOWER_KEY = "LOWER_KEY";
+	/** Lowest key of the ids of the next label posting segment */
+	public static final String UPPER_KEY = "UPPER_KEY";
+	/** Number of ids of a label posting segment */
+	public static final String POSTING_SIZE = "POSTING_SIZE";
+	/** Compressed ids of a label posting segment */
+	public static final String POSTING_DATA = "POSTING_DATA";
+
+	// NAMED QUERIES
+	/** Escape character of the LIKE patterns used in named queries */
+	public static final String LIKE_ESCAPE = "!";
+
+	/** Uri mapping of a non-hierarchical uri, parameter nonHierarchicalUri */
+	public static final String URI_MAPPER_FIND_BY_NHURI = "UriMapper.findByNonHierarchicalUri";
+	/** Uri mappings of a resource and its descendants, parameters hierarchicalUri and descendants */
+	public static final String URI_MAPPER_FIND_SUBTREE = "UriMapper.findSubtree";
+	/** Same as {@link #URI_MAPPER_FIND_SUBTREE} restricted to a resource type, parameter resourceType */
+	public static final String URI_MAPPER_FIND_SUBTREE_BY_TYPE = "UriMapper.findSubtreeByType";
+	/** Uri mappings of several resources, parameter uris holding hierarchical or non-hierarchical uris */
+	public static final String URI_MAPPER_FIND_ALL = "UriMapper.findAll";
+	/** Page of {@link #URI_MAPPER_FIND_SUBTREE} in hierarchical uri order, parameters hierarchicalUri, descendants and after */
+	public static final String URI_MAPPER_FIND_SUBTREE_PAGE = "UriMapper.findSubtreePage";
+	/** Same as {@link #URI_MAPPER_FIND_SUBTREE_PAGE} restricted to a resource type, parameter resourceType */
+	public static final String URI_MAPPER_FIND_SUBTREE_PAGE_BY_TYPE = "UriMapper.findSubtreePageByType";
+	/** Deletes the uri mappings of a resource and its descendants, parameters hierarchicalUri and descendants */
+	public static final String URI_MAPPER_DELETE_SUBTREE = "UriMapper.deleteSubtree";
+	/** Oldest content instance of a container, parameter parentID */
+	public static final String CIN_FIND_OLDEST = "ContentInstance.findOldest";
+	/** Latest content instance of a container, parameter parentID */
+	public static final String CIN_FIND_LATEST = "ContentInstance.findLatest";
+	/** Id of the oldest other content instance of a container, parameters parentID and resourceID */
+	public static final String CIN_FIND_OLDEST_OTHER_ID = "ContentInstance.findOldestOtherId";
+	/** Id of the latest other content instance of a container, parameters parentID and resourceID */
+	public static final String CIN_FIND_LATEST_OTHER_ID = "ContentInstance.findLatestOtherId";
+	/** Oldest content instances of a container created before a time, parameters parentID and creationTime */
+	public static final String CIN_FIND_OLDEST_BEFORE = "ContentInstance.findOldestBefore";
+	/** Id of the oldest content instance of a container out of a set, parameters parentID and resourceIDs */
+	public static final String CIN_FIND_OLDEST_OTHER_IDS = "ContentInstance.findOldestOtherIds";
+	/** Id of the latest content instance of a container out of a set, parameters parentID and resourceIDs */
+	public static final String CIN_FIND_LATEST_OTHER_IDS = "ContentInstance.findLatestOtherIds";
+	/** Containers by resource name, parameter name */
+	public static final String CNT_FIND_BY_NAME = "Container.findByName";
+	/** Child container of a resource by resource name, parameters name and parentID */
+	public static final String CNT_FIND_BY_NAME_AND_PARENT = "Container.findByNameAndParent";
+	/** Ids of the containers limiting the age of their content instances */
+	public static final String CNT_FIND_WITH_MAX_INSTANCE_AGE = "Container.findWithMaxInstanceAge";
+	/** AEs by App-ID, parameter appID */
+	public static final String AE_FIND_BY_APP_ID = "Ae.findByAppId";
+	/** Remote CSEs by CSE-ID, parameter remoteCseId */
+	public static final String CSR_FIND_BY_CSE_ID = "RemoteCse.findByCseId";
+	/** Access control originators by id, parameter originatorID */
+	public static final String ACO_FIND_BY_ORIGINATOR_ID = "AccessControlOriginator.findByOriginatorId";
+	/** Announced resource, parameters localAnnounceableId and announceCseId */
+	public static final String ANNC_FIND_BY_LOCAL_ID_AND_CSE = "AnnouncedResource.findByLocalIdAndCse";
+	/** Posting segment of a label and resource type holding a key, parameters label, resourceType and key */
+	public static final String LABEL_POSTING_FIND_SEGMENT = "LabelPosting.findSegment";
+	/** Posting segments of a resource type holding a key, whatever their label, parameters resourceType and key */
+	public static final String LABEL_POSTING_FIND_CONTAINING = "LabelPosting.findContaining";
+	/** Posting segments of a label in resource type and key order, parameter label */
+	public static final String LABEL_POSTING_FIND_BY_LABEL = "LabelPosting.findByLabel";
+	/** Posting segments of a label and resource type in key order, parameters label and resourceType */
+	public static final String LABEL_POSTING_FIND_BY_LABEL_AND_TYPE = "LabelPosting.findByLabelAndType";
+	/** Number of resources holding a label, parameter label */
+	public static final String LABEL_POSTING_COUNT = "LabelPosting.count";
+	/** Number of resources of a type holding a label, parameters label and resourceType */
+	public static final String LABEL_POSTING_COUNT_BY_TYPE = "LabelPosting.countByType";
+	/** Deletion of all the posting segments, before the label index is built */
+	public static final String LABEL_POSTING_DELETE_ALL = "LabelPosting.deleteAll";
+
+	/** Query hint enabling the EclipseLink query results cache */
+	public static final String QUERY_RESULTS_CACHE = "eclipselink.query-results-cache";
+
 }
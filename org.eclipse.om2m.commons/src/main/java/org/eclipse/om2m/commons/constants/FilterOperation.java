@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.commons.constants;
+
+import java.math.BigInteger;
+
+/**
+ * Constants for Filter Operation
+ *
+ */
+public class FilterOperation {
+	/** Big integer constant for the logical AND of the criteria, the default */
+	public static final BigInteger AND = BigInteger.valueOf(1);
+	/** Big integer constant for the logical OR of the criteria */
+	public static final BigInteger OR = BigInteger.valueOf(2);
+	
+}
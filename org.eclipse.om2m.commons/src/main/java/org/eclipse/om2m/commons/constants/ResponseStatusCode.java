@@ -60,6 +60,7 @@ public class ResponseStatusCode {
 	public static final BigInteger SUBSCRIPTION_VERIFICATION_INITIATION_FAILED = BigInteger.valueOf(5204);
 	public static final BigInteger SUBSCRIPTION_HOST_HAS_NO_PRIVILEGE = BigInteger.valueOf(5205);
 	public static final BigInteger NON_BLOCKING_REQUEST_NOT_SUPPORTED = BigInteger.valueOf(5206);
+	public static final BigInteger NOT_ACCEPTABLE = BigInteger.valueOf(5207);
 	
 	public static final BigInteger SERVICE_UNAVAILABLE = BigInteger.valueOf(5042);
 	
@@ -336,8 +336,10 @@ public class ShortName {
 	public static final String LIMIT = "lim";
 	public static final String LEVEL = "lvl";
 	public static final String OFFSET = "ofst";
+	public static final String CONTINUATION_TOKEN = "ctk";
 	public static final String ATTRIBUTE = "atr";
 	public static final String FILTER_USAGE = "fu";
+	public static final String FILTER_OPERATION = "fo";
 	public static final String DISCOVERY_RESULT_TYPE = "drt";
 	public static final String RESPONSE_STATUS_CODE = "rsc";
 	public static final String ORIGINATOR = "og";
@@ -378,6 +380,7 @@ public class ShortName {
 	public static final String OM_ORIGINATOR = "org";
 	
 	public static final String AGGREGATED_RESPONSE = "agr";
+	public static final String AGGREGATED_NOTIFICATION = "agn";
 	public static final String RESPONSE_PRIMITIVE = "rsp";
 	public static final String REQUEST_PRIMITIVE = "rqp";
 	public static final String REQUEST_IDENTIFIER = "rqi";
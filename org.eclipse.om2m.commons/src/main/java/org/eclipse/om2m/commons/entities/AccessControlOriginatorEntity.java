@@ -24,6 +24,9 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.constants.ShortName;
@@ -33,6 +36,9 @@ import org.eclipse.om2m.commons.constants.ShortName;
  *
  */
 @Entity(name=DBEntities.ACCESSCONTROLORIGINATOR_ENTITY)
+@Table(indexes = @Index(name = "IDX_ACO_OG", columnList = ShortName.ORIGINATOR))
+@NamedQuery(name = DBEntities.ACO_FIND_BY_ORIGINATOR_ID, query = "SELECT a FROM " + DBEntities.ACCESSCONTROLORIGINATOR_ENTITY
+		+ " a WHERE a.originatorID = :originatorID")
 public class AccessControlOriginatorEntity {
 	
 	@Id
@@ -26,14 +26,18 @@ import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.QueryHint;
+import javax.persistence.Table;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.constants.ShortName;
@@ -43,6 +47,10 @@ import org.eclipse.om2m.commons.constants.ShortName;
  *
  */
 @Entity(name = DBEntities.AE_ENTITY)
+@Table(indexes = @Index(name = "IDX_AE_API", columnList = ShortName.APP_ID))
+@NamedQuery(name = DBEntities.AE_FIND_BY_APP_ID, query = "SELECT r FROM " + DBEntities.AE_ENTITY
+		+ " r WHERE r.appID = :appID",
+		hints = @QueryHint(name = DBEntities.QUERY_RESULTS_CACHE, value = "true"))
 @Inheritance(strategy = InheritanceType.JOINED)
 public class AeEntity extends AnnounceableSubordinateEntity {
 	@Column(name=ShortName.APP_NAME)
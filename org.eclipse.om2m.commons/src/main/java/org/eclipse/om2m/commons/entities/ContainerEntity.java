@@ -28,14 +28,18 @@ import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderBy;
+import javax.persistence.Table;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.constants.ShortName;
@@ -45,6 +49,15 @@ import org.eclipse.om2m.commons.constants.ShortName;
  *
  */
 @Entity(name=DBEntities.CONTAINER_ENTITY)
+@Table(indexes = @Index(name = "IDX_CNT_RN_PI", columnList = ShortName.RESOURCE_NAME + "," + ShortName.PARENT_ID))
+@NamedQueries({
+	@NamedQuery(name = DBEntities.CNT_FIND_BY_NAME, query = "SELECT r FROM " + DBEntities.CONTAINER_ENTITY
+			+ " r WHERE r.name = :name"),
+	@NamedQuery(name = DBEntities.CNT_FIND_BY_NAME_AND_PARENT, query = "SELECT r FROM " + DBEntities.CONTAINER_ENTITY
+			+ " r WHERE r.name = :name AND r.parentID = :parentID"),
+	@NamedQuery(name = DBEntities.CNT_FIND_WITH_MAX_INSTANCE_AGE, query = "SELECT r.resourceID FROM " + DBEntities.CONTAINER_ENTITY
+			+ " r WHERE r.maxInstanceAge > 0")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
 public class ContainerEntity extends AnnounceableSubordinateEntity{
 	@Column(name= ShortName.STATETAG)
@@ -59,10 +72,19 @@ public class ContainerEntity extends AnnounceableSubordinateEntity{
 	protected BigInteger currentNrOfInstances;
 	@Column(name= ShortName.MAX_INSTANCE_AGE)
 	protected BigInteger maxInstanceAge;
+	/** Sum of the content sizes of the child content instances, maintained with currentNrOfInstances */
+	@Column(name= ShortName.CURRENT_BYTE_SIZE)
+	protected BigInteger currentByteSize;
 	@Column(name= ShortName.LOCATION_ID)
 	protected String locationID;
 	@Column(name= ShortName.ONTOLOGY_REF)
 	protected String ontologyRef;
+	/** Resource id of the latest child content instance, maintained by the content instance DAO */
+	@Column(name= ShortName.LATEST)
+	protected String latestInstanceID;
+	/** Resource id of the oldest child content instance, maintained by the content instance DAO */
+	@Column(name= ShortName.OLDEST)
+	protected String oldestInstanceID;
 	
 	@OneToMany(cascade = { CascadeType.ALL }, fetch = FetchType.LAZY, mappedBy="parentCnt")
 	@JoinTable(
@@ -364,6 +386,34 @@ public class ContainerEntity extends AnnounceableSubordinateEntity{
 		this.accessControlPolicies = accessControlPolicies;
 	}
 
+	/**
+	 * @return the latestInstanceID
+	 */
+	public String getLatestInstanceID() {
+		return latestInstanceID;
+	}
+
+	/**
+	 * @param latestInstanceID the latestInstanceID to set
+	 */
+	public void setLatestInstanceID(String latestInstanceID) {
+		this.latestInstanceID = latestInstanceID;
+	}
+
+	/**
+	 * @return the oldestInstanceID
+	 */
+	public String getOldestInstanceID() {
+		return oldestInstanceID;
+	}
+
+	/**
+	 * @param oldestInstanceID the oldestInstanceID to set
+	 */
+	public void setOldestInstanceID(String oldestInstanceID) {
+		this.oldestInstanceID = oldestInstanceID;
+	}
+
 	/**
 	 * @return the childContentInstances
 	 */
@@ -433,15 +483,27 @@ public class ContainerEntity extends AnnounceableSubordinateEntity{
 	}
 	
 	/**
-	 * Return the current byte size of summed content instance content size in bytes
+	 * Return the current byte size of summed content instance content size in bytes.
+	 * It is computed from the child content instances for the containers
+	 * stored before it was maintained.
 	 * @return
 	 */
-	public int getCurrentByteSize() {
-		int result = 0;
-		for (ContentInstanceEntity cin : this.getChildContentInstances()) {
-			result += cin.getByteSize();
+	public BigInteger getCurrentByteSize() {
+		if (currentByteSize == null) {
+			long result = 0;
+			for (ContentInstanceEntity cin : this.getChildContentInstances()) {
+				result += cin.getByteSize();
+			}
+			currentByteSize = BigInteger.valueOf(result);
 		}
-		return result;
+		return currentByteSize;
+	}
+
+	/**
+	 * @param currentByteSize the currentByteSize to set
+	 */
+	public void setCurrentByteSize(BigInteger currentByteSize) {
+		this.currentByteSize = currentByteSize;
 	}
 
 }
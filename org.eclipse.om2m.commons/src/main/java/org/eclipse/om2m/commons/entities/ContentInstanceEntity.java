@@ -26,6 +26,7 @@ import java.util.List;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
@@ -33,6 +34,9 @@ import javax.persistence.JoinTable;
 import javax.persistence.Lob;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
@@ -43,6 +47,23 @@ import org.eclipse.om2m.commons.constants.ShortName;
  *
  */
 @Entity(name = DBEntities.CONTENTINSTANCE_ENTITY)
+@Table(indexes = @Index(name = "IDX_CIN_PI_CT", columnList = ShortName.PARENT_ID + "," + ShortName.CREATION_TIME))
+@NamedQueries({
+	@NamedQuery(name = DBEntities.CIN_FIND_OLDEST, query = "SELECT r FROM " + DBEntities.CONTENTINSTANCE_ENTITY
+			+ " r WHERE r.parentID = :parentID ORDER BY r.creationTime ASC"),
+	@NamedQuery(name = DBEntities.CIN_FIND_LATEST, query = "SELECT r FROM " + DBEntities.CONTENTINSTANCE_ENTITY
+			+ " r WHERE r.parentID = :parentID ORDER BY r.creationTime DESC"),
+	@NamedQuery(name = DBEntities.CIN_FIND_OLDEST_OTHER_ID, query = "SELECT r.resourceID FROM " + DBEntities.CONTENTINSTANCE_ENTITY
+			+ " r WHERE r.parentID = :parentID AND r.resourceID <> :resourceID ORDER BY r.creationTime ASC"),
+	@NamedQuery(name = DBEntities.CIN_FIND_LATEST_OTHER_ID, query = "SELECT r.resourceID FROM " + DBEntities.CONTENTINSTANCE_ENTITY
+			+ " r WHERE r.parentID = :parentID AND r.resourceID <> :resourceID ORDER BY r.creationTime DESC"),
+	@NamedQuery(name = DBEntities.CIN_FIND_OLDEST_BEFORE, query = "SELECT r FROM " + DBEntities.CONTENTINSTANCE_ENTITY
+			+ " r WHERE r.parentID = :parentID AND r.creationTime < :creationTime ORDER BY r.creationTime ASC"),
+	@NamedQuery(name = DBEntities.CIN_FIND_OLDEST_OTHER_IDS, query = "SELECT r.resourceID FROM " + DBEntities.CONTENTINSTANCE_ENTITY
+			+ " r WHERE r.parentID = :parentID AND r.resourceID NOT IN :resourceIDs ORDER BY r.creationTime ASC"),
+	@NamedQuery(name = DBEntities.CIN_FIND_LATEST_OTHER_IDS, query = "SELECT r.resourceID FROM " + DBEntities.CONTENTINSTANCE_ENTITY
+			+ " r WHERE r.parentID = :parentID AND r.resourceID NOT IN :resourceIDs ORDER BY r.creationTime DESC")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
 public class ContentInstanceEntity extends AnnounceableSubordinateEntity {
 	
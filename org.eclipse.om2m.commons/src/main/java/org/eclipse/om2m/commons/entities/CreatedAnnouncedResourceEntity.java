@@ -12,12 +12,18 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
 
 @Entity(name=DBEntities.ANNOUNCED_RESOURCE_ENTITY)
+@Table(indexes = @Index(name = "IDX_ANNC_LOCAL_CSE", columnList = DBEntities.LOCAL_RESOURCE_ID + "," + DBEntities.ANNOUNCE_CSE_ID))
+@NamedQuery(name = DBEntities.ANNC_FIND_BY_LOCAL_ID_AND_CSE, query = "SELECT ar FROM " + DBEntities.ANNOUNCED_RESOURCE_ENTITY
+		+ " ar WHERE ar.localAnnounceableId = :localAnnounceableId AND ar.announceCseId = :announceCseId")
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class CreatedAnnouncedResourceEntity {
 	
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.commons.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+import org.eclipse.om2m.commons.constants.DBEntities;
+import org.eclipse.om2m.commons.constants.ShortName;
+
+/**
+ * Segment of the posting list of a label: the compressed ids of the
+ * resources of one type holding the label, from the lower key of the
+ * segment to the lower key of the next one.
+ * <p>
+ * The keys are the hexadecimal form of the ids, see
+ * org.eclipse.om2m.persistence.service.util.PostingList, so that the
+ * database orders them like the ids whatever its collation. The first
+ * segment of a list has an empty lower key, the last one has no upper key.
+ */
+@Entity(name = DBEntities.LABEL_POSTING_ENTITY)
+@Table(indexes = {
+		@Index(name = "IDX_LBL_POSTING_SEGMENT", columnList = ShortName.LABELS + "," + ShortName.RESOURCE_TYPE + ","
+				+ DBEntities.LOWER_KEY, unique = true),
+		@Index(name = "IDX_LBL_POSTING_TY_KEY", columnList = ShortName.RESOURCE_TYPE + "," + DBEntities.LOWER_KEY)
+})
+@NamedQueries({
+	@NamedQuery(name = DBEntities.LABEL_POSTING_FIND_SEGMENT, query = "SELECT p FROM " + DBEntities.LABEL_POSTING_ENTITY
+			+ " p WHERE p.label = :label AND p.resourceType = :resourceType AND p.lowerKey <= :key"
+			+ " AND (p.upperKey > :key OR p.upperKey IS NULL)"),
+	@NamedQuery(name = DBEntities.LABEL_POSTING_FIND_CONTAINING, query = "SELECT p FROM " + DBEntities.LABEL_POSTING_ENTITY
+			+ " p WHERE p.resourceType = :resourceType AND p.lowerKey <= :key"
+			+ " AND (p.upperKey > :key OR p.upperKey IS NULL)"),
+	@NamedQuery(name = DBEntities.LABEL_POSTING_FIND_BY_LABEL, query = "SELECT p FROM " + DBEntities.LABEL_POSTING_ENTITY
+			+ " p WHERE p.label = :label ORDER BY p.resourceType, p.lowerKey"),
+	@NamedQuery(name = DBEntities.LABEL_POSTING_FIND_BY_LABEL_AND_TYPE, query = "SELECT p FROM "
+			+ DBEntities.LABEL_POSTING_ENTITY + " p WHERE p.label = :label AND p.resourceType = :resourceType"
+			+ " ORDER BY p.lowerKey"),
+	@NamedQuery(name = DBEntities.LABEL_POSTING_COUNT, query = "SELECT SUM(p.size) FROM "
+			+ DBEntities.LABEL_POSTING_ENTITY + " p WHERE p.label = :label"),
+	@NamedQuery(name = DBEntities.LABEL_POSTING_COUNT_BY_TYPE, query = "SELECT SUM(p.size) FROM "
+			+ DBEntities.LABEL_POSTING_ENTITY + " p WHERE p.label = :label AND p.resourceType = :resourceType"),
+	@NamedQuery(name = DBEntities.LABEL_POSTING_DELETE_ALL, query = "DELETE FROM " + DBEntities.LABEL_POSTING_ENTITY
+			+ " p")
+})
+public class LabelPostingEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	private long id;
+
+	@Column(name = ShortName.LABELS)
+	private String label;
+
+	@Column(name = ShortName.RESOURCE_TYPE)
+	private int resourceType;
+
+	@Column(name = DBEntities.LOWER_KEY, length = 510)
+	private String lowerKey;
+
+	@Column(name = DBEntities.UPPER_KEY, length = 510)
+	private String upperKey;
+
+	@Column(name = DBEntities.POSTING_SIZE)
+	private int size;
+
+	@Lob
+	@Column(name = DBEntities.POSTING_DATA)
+	private byte[] data;
+
+	public LabelPostingEntity() {
+	}
+
+	/**
+	 * @param label label of the resources
+	 * @param resourceType type of the resources
+	 * @param lowerKey lowest key of the segment, empty for the first segment
+	 * @param upperKey lowest key of the next segment, null for the last segment
+	 */
+	public LabelPostingEntity(String label, int resourceType, String lowerKey, String upperKey) {
+		this.label = label;
+		this.resourceType = resourceType;
+		this.lowerKey = lowerKey;
+		this.upperKey = upperKey;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
+	public int getResourceType() {
+		return resourceType;
+	}
+
+	public void setResourceType(int resourceType) {
+		this.resourceType = resourceType;
+	}
+
+	public String getLowerKey() {
+		return lowerKey;
+	}
+
+	public void setLowerKey(String lowerKey) {
+		this.lowerKey = lowerKey;
+	}
+
+	public String getUpperKey() {
+		return upperKey;
+	}
+
+	public void setUpperKey(String upperKey) {
+		this.upperKey = upperKey;
+	}
+
+	/**
+	 * @return the number of ids of the segment
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * @return the compressed ids of the segment
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	public void setData(byte[] data) {
+		this.data = data;
+	}
+
+}
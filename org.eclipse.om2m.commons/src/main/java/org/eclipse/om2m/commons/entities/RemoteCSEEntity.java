@@ -27,14 +27,18 @@ import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.QueryHint;
+import javax.persistence.Table;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.constants.ShortName;
@@ -44,6 +48,10 @@ import org.eclipse.om2m.commons.constants.ShortName;
  *
  */
 @Entity(name=DBEntities.REMOTECSE_ENTITY)
+@Table(indexes = @Index(name = "IDX_CSR_CSI", columnList = ShortName.CSE_ID))
+@NamedQuery(name = DBEntities.CSR_FIND_BY_CSE_ID, query = "SELECT r FROM " + DBEntities.REMOTECSE_ENTITY
+		+ " r WHERE r.remoteCseId = :remoteCseId",
+		hints = @QueryHint(name = DBEntities.QUERY_RESULTS_CACHE, value = "true"))
 @Inheritance(strategy = InheritanceType.JOINED)
 public class RemoteCSEEntity extends AnnounceableSubordinateEntity {
 	@Column(name=ShortName.CSE_TYPE)
@@ -26,9 +26,12 @@ import java.util.List;
 import javax.persistence.Column;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.MappedSuperclass;
 
+import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.constants.ShortName;
 
 /**
@@ -50,6 +53,8 @@ public class ResourceEntity {
 	@Column(name = ShortName.LAST_MODIFIED_TIME)
 	protected String lastModifiedTime;
 	@ManyToMany(targetEntity = LabelEntity.class, fetch = FetchType.LAZY)
+	// the resource column leads the primary key of the join tables
+	@JoinTable(indexes = { @Index(columnList = DBEntities.LBL_JOIN_ID) })
 	protected List<LabelEntity> labelsEntities;
 	// ʶList -by litao
 	@Column(name = ShortName.TANGIBLEID)
@@ -74,8 +74,18 @@ public class SubscriptionEntity extends RegularResourceEntity {
 	@Column(name = ShortName.NOTIFICATION_FORWARDING_URI)
 	protected String notificationForwardingURI;
 	
-	// TODO batch notify : embedded
-	// TODO rate limit
+	/** Batch notify: number of notifications per batch */
+	@Column(name = "bnNumber")
+	protected BigInteger batchNotifyNumber;
+	/** Batch notify: maximum time a notification waits in a batch (xs:duration) */
+	@Column(name = "bnDuration")
+	protected String batchNotifyDuration;
+	/** Rate limit: maximum number of notifications per time window */
+	@Column(name = "rlMaxNrOfNotify")
+	protected BigInteger rateLimitMaxNrOfNotify;
+	/** Rate limit: time window (xs:duration) */
+	@Column(name = "rlTimeWindow")
+	protected String rateLimitTimeWindow;
 
 	protected BigInteger preSubscriptionNotify;
 	protected BigInteger pendingNotification;
@@ -310,6 +320,62 @@ public class SubscriptionEntity extends RegularResourceEntity {
 		this.notificationStoragePriority = notificationStoragePriority;
 	}
 
+	/**
+	 * @return the number of notifications per batch
+	 */
+	public BigInteger getBatchNotifyNumber() {
+		return batchNotifyNumber;
+	}
+
+	/**
+	 * @param batchNotifyNumber the number of notifications per batch
+	 */
+	public void setBatchNotifyNumber(BigInteger batchNotifyNumber) {
+		this.batchNotifyNumber = batchNotifyNumber;
+	}
+
+	/**
+	 * @return the maximum duration of a batch (xs:duration)
+	 */
+	public String getBatchNotifyDuration() {
+		return batchNotifyDuration;
+	}
+
+	/**
+	 * @param batchNotifyDuration the maximum duration of a batch (xs:duration)
+	 */
+	public void setBatchNotifyDuration(String batchNotifyDuration) {
+		this.batchNotifyDuration = batchNotifyDuration;
+	}
+
+	/**
+	 * @return the maximum number of notifications per time window
+	 */
+	public BigInteger getRateLimitMaxNrOfNotify() {
+		return rateLimitMaxNrOfNotify;
+	}
+
+	/**
+	 * @param rateLimitMaxNrOfNotify the maximum number of notifications per time window
+	 */
+	public void setRateLimitMaxNrOfNotify(BigInteger rateLimitMaxNrOfNotify) {
+		this.rateLimitMaxNrOfNotify = rateLimitMaxNrOfNotify;
+	}
+
+	/**
+	 * @return the rate limit time window (xs:duration)
+	 */
+	public String getRateLimitTimeWindow() {
+		return rateLimitTimeWindow;
+	}
+
+	/**
+	 * @param rateLimitTimeWindow the rate limit time window (xs:duration)
+	 */
+	public void setRateLimitTimeWindow(String rateLimitTimeWindow) {
+		this.rateLimitTimeWindow = rateLimitTimeWindow;
+	}
+
 	/**
 	 * @return the latestNotify
 	 */
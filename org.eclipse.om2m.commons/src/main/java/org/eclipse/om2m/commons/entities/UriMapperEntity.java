@@ -20,10 +20,16 @@
 package org.eclipse.om2m.commons.entities;
 
 import java.math.BigInteger;
+import java.util.List;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.Transient;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.constants.ShortName;
@@ -33,6 +39,32 @@ import org.eclipse.om2m.commons.constants.ShortName;
  *
  */
 @Entity(name=DBEntities.URI_MAPPER_ENTITY)
+@Table(indexes = {
+		@Index(name = "IDX_URI_MAPPER_NHURI", columnList = DBEntities.NONHIERARCHICAL_URI),
+		@Index(name = "IDX_URI_MAPPER_TY_HURI", columnList = ShortName.RESOURCE_TYPE + "," + DBEntities.HIERARCHICAL_URI)
+})
+@NamedQueries({
+	@NamedQuery(name = DBEntities.URI_MAPPER_FIND_BY_NHURI, query = "SELECT u FROM " + DBEntities.URI_MAPPER_ENTITY
+			+ " u WHERE u.nonHierarchicalUri = :nonHierarchicalUri"),
+	@NamedQuery(name = DBEntities.URI_MAPPER_FIND_SUBTREE, query = "SELECT u FROM " + DBEntities.URI_MAPPER_ENTITY
+			+ " u WHERE u.hierarchicalUri = :hierarchicalUri OR u.hierarchicalUri LIKE :descendants ESCAPE '"
+			+ DBEntities.LIKE_ESCAPE + "'"),
+	@NamedQuery(name = DBEntities.URI_MAPPER_FIND_SUBTREE_BY_TYPE, query = "SELECT u FROM " + DBEntities.URI_MAPPER_ENTITY
+			+ " u WHERE u.resourceType = :resourceType AND (u.hierarchicalUri = :hierarchicalUri"
+			+ " OR u.hierarchicalUri LIKE :descendants ESCAPE '" + DBEntities.LIKE_ESCAPE + "')"),
+	@NamedQuery(name = DBEntities.URI_MAPPER_FIND_SUBTREE_PAGE, query = "SELECT u FROM " + DBEntities.URI_MAPPER_ENTITY
+			+ " u WHERE (u.hierarchicalUri = :hierarchicalUri OR u.hierarchicalUri LIKE :descendants ESCAPE '"
+			+ DBEntities.LIKE_ESCAPE + "') AND u.hierarchicalUri > :after ORDER BY u.hierarchicalUri"),
+	@NamedQuery(name = DBEntities.URI_MAPPER_FIND_SUBTREE_PAGE_BY_TYPE, query = "SELECT u FROM " + DBEntities.URI_MAPPER_ENTITY
+			+ " u WHERE u.resourceType = :resourceType AND (u.hierarchicalUri = :hierarchicalUri"
+			+ " OR u.hierarchicalUri LIKE :descendants ESCAPE '" + DBEntities.LIKE_ESCAPE + "')"
+			+ " AND u.hierarchicalUri > :after ORDER BY u.hierarchicalUri"),
+	@NamedQuery(name = DBEntities.URI_MAPPER_FIND_ALL, query = "SELECT u FROM " + DBEntities.URI_MAPPER_ENTITY
+			+ " u WHERE u.hierarchicalUri IN :uris OR u.nonHierarchicalUri IN :uris"),
+	@NamedQuery(name = DBEntities.URI_MAPPER_DELETE_SUBTREE, query = "DELETE FROM " + DBEntities.URI_MAPPER_ENTITY
+			+ " u WHERE u.hierarchicalUri = :hierarchicalUri OR u.hierarchicalUri LIKE :descendants ESCAPE '"
+			+ DBEntities.LIKE_ESCAPE + "'")
+})
 public class UriMapperEntity {
 	
 	@Id
@@ -44,6 +76,10 @@ public class UriMapperEntity {
 
 	@Column(name = ShortName.RESOURCE_TYPE)
 	private int resourceType;
+
+	/** Ids of the policies of the resource when read along with the mapping, not persisted */
+	@Transient
+	private List<String> accessControlPolicyIDs;
 	
 	/**
 	 * @return the hierarchicalUri
@@ -91,6 +127,21 @@ public class UriMapperEntity {
 		this.resourceType = resourceType.intValue();
 	}
 
+	/**
+	 * @return the ids of the access control policies of the resource, null
+	 *         if they have not been read with the mapping
+	 */
+	public List<String> getAccessControlPolicyIDs() {
+		return accessControlPolicyIDs;
+	}
+
+	/**
+	 * @param accessControlPolicyIDs the accessControlPolicyIDs to set
+	 */
+	public void setAccessControlPolicyIDs(List<String> accessControlPolicyIDs) {
+		this.accessControlPolicyIDs = accessControlPolicyIDs;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -31,8 +31,12 @@ import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
 
+import org.eclipse.om2m.commons.constants.ShortName;
+
 /**
  * <p>
  * Java class for aggregatedNotification complex type.
@@ -57,8 +61,10 @@ import javax.xml.bind.annotation.XmlType;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "aggregatedNotification", propOrder = { "notification" })
+@XmlRootElement(name = ShortName.AGGREGATED_NOTIFICATION)
 public class AggregatedNotification {
 
+	@XmlElement(name = ShortName.NOTIFICATION)
 	protected List<Notification> notification;
 
 	/**
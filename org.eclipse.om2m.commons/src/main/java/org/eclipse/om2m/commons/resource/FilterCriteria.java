@@ -68,6 +68,7 @@ import org.eclipse.om2m.commons.constants.ShortName;
  *         &lt;element name="attribute" type="{http://www.onem2m.org/xml/protocols}attribute" maxOccurs="unbounded" minOccurs="0"/>
  *         &lt;element name="filterUsage" type="{http://www.onem2m.org/xml/protocols}filterUsage" minOccurs="0"/>
  *         &lt;element name="limit" type="{http://www.w3.org/2001/XMLSchema}nonNegativeInteger" minOccurs="0"/>
+ *         &lt;element name="filterOperation" type="{http://www.onem2m.org/xml/protocols}filterOperation" minOccurs="0"/>
  *       &lt;/sequence>
  *     &lt;/restriction>
  *   &lt;/complexContent>
@@ -123,6 +124,10 @@ public class FilterCriteria {
 	@XmlSchemaType(name="positiveInteger")
 	@XmlElement(name=ShortName.OFFSET)
 	protected BigInteger offset;
+	@XmlElement(name=ShortName.CONTINUATION_TOKEN)
+	protected String continuationToken;
+	@XmlElement(name=ShortName.FILTER_OPERATION)
+	protected BigInteger filterOperation;
 	
 
 	/**
@@ -513,6 +518,37 @@ public class FilterCriteria {
 	public void setOffset(BigInteger offset) {
 		this.offset = offset;
 	}
+
+	/**
+	 * @return the token returned by a previous discovery to resume it, null
+	 *         to start from the first resource
+	 */
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	/**
+	 * @param continuationToken the continuationToken to set
+	 */
+	public void setContinuationToken(String continuationToken) {
+		this.continuationToken = continuationToken;
+	}
+
+	/**
+	 * @return the logical operation combining the criteria, see
+	 *         {@link org.eclipse.om2m.commons.constants.FilterOperation},
+	 *         null for the default AND
+	 */
+	public BigInteger getFilterOperation() {
+		return filterOperation;
+	}
+
+	/**
+	 * @param filterOperation the filterOperation to set
+	 */
+	public void setFilterOperation(BigInteger filterOperation) {
+		this.filterOperation = filterOperation;
+	}
 	
 	
 
@@ -139,6 +139,8 @@ public class RequestPrimitive {
 	protected String mqttUri;
 	@XmlTransient
 	protected boolean mqttResponseExpected = true;
+	@XmlTransient
+	protected boolean responseContentSerialized = true;
 
 	/**
 	 * @return the queryStrings
@@ -599,6 +601,22 @@ public class RequestPrimitive {
 		this.mqttResponseExpected = mqttResponseExpected;
 	}
 
+	/**
+	 * @return false if the binding serializes the response content itself,
+	 * in which case the content of a successful response is left as an object
+	 */
+	public boolean isResponseContentSerialized() {
+		return responseContentSerialized;
+	}
+
+	/**
+	 * @param responseContentSerialized false to get the response content as an object
+	 * and serialize it directly in the return content type
+	 */
+	public void setResponseContentSerialized(boolean responseContentSerialized) {
+		this.responseContentSerialized = responseContentSerialized;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
@@ -91,6 +91,8 @@ public class ResponsePrimitive implements Constants {
 	protected String resultExpirationTimestamp;
 	@XmlElement(name = ShortName.EVENT_CATEGORY)
 	protected String eventCategory;
+	@XmlElement(name = ShortName.CONTINUATION_TOKEN)
+	protected String continuationToken;
 	@XmlTransient
 	protected String location;
 	@XmlTransient
@@ -288,6 +290,21 @@ public class ResponsePrimitive implements Constants {
 		this.eventCategory = value;
 	}
 
+	/**
+	 * @return the token resuming a discovery truncated by its limit, null if
+	 *         the result is complete
+	 */
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	/**
+	 * @param continuationToken the continuationToken to set
+	 */
+	public void setContinuationToken(String continuationToken) {
+		this.continuationToken = continuationToken;
+	}
+
 	/**
 	 * @return the location
 	 */
@@ -24,6 +24,7 @@ import java.util.GregorianCalendar;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.Duration;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.apache.commons.logging.Log;
@@ -54,4 +55,33 @@ public class DateConverter {
         }
         return xmlGregorianCalendar;
     }
+
+    /**
+     * Converts a xs:duration lexical representation to javax.xml.datatype.Duration
+     * @param lexicalDuration - The duration to convert (e.g. PT5S)
+     * @return duration object or null if the duration is null or invalid
+     */
+    public static Duration toDuration(String lexicalDuration) {
+        if (lexicalDuration == null) {
+            return null;
+        }
+        try {
+            return DatatypeFactory.newInstance().newDuration(lexicalDuration);
+        } catch (DatatypeConfigurationException e) {
+            LOGGER.error("Duration creation error", e);
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Invalid duration " + lexicalDuration, e);
+        }
+        return null;
+    }
+
+    /**
+     * Converts a xs:duration lexical representation to milliseconds from now
+     * @param lexicalDuration - The duration to convert (e.g. PT5S)
+     * @return duration in milliseconds or -1 if the duration is null or invalid
+     */
+    public static long toMillis(String lexicalDuration) {
+        Duration duration = toDuration(lexicalDuration);
+        return duration != null ? duration.getTimeInMillis(new Date()) : -1;
+    }
 }
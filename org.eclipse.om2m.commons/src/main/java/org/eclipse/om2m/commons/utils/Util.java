@@ -59,9 +59,18 @@ public class Util {
 		 * @return
 		 */
 		public static String now() {
+			return format(new Date());
+		}
+
+		/**
+		 * Returns a date as a string, in the format of {@link #now()}.
+		 * @param date - date to format
+		 * @return the formatted date
+		 */
+		public static String format(Date date) {
 			String dateFormat = System.getProperty("org.eclipse.om2m.date.format", "yyyyMMdd'T'HHmmss");
 //			String dateFormat = "yyyy-MM-dd'T'HH:mm:ss.SSSZZZZ";
-			return new SimpleDateFormat(dateFormat).format(new Date()).toString();
+			return new SimpleDateFormat(dateFormat).format(date);
 		}
 		
 	    /**
@@ -30,6 +30,7 @@ import org.eclipse.om2m.core.flexcontainer.FlexContainerSelector;
 import org.eclipse.om2m.core.interworking.IpeSelector;
 import org.eclipse.om2m.core.persistence.PersistenceService;
 import org.eclipse.om2m.core.remotecse.RemoteCseService;
+import org.eclipse.om2m.core.retention.ContentInstanceRetention;
 import org.eclipse.om2m.core.router.Router;
 import org.eclipse.om2m.core.service.CseService;
 import org.eclipse.om2m.core.thread.CoreExecutor;
@@ -107,6 +108,7 @@ public class Activator implements BundleActivator {
 						} catch (InterruptedException e) {
 							LOGGER.error("Error in CSEInitializer", e);
 						}
+						ContentInstanceRetention.start();
 						LOGGER.info("Registering CseService...");
 						context.registerService(CseService.class.getName(), new Router(), null);		
 						LOGGER.info("CSE Started");		
@@ -210,6 +212,7 @@ public class Activator implements BundleActivator {
 
 	public void stop(BundleContext bundleContext) throws Exception {
 		LOGGER.info("Stopping CSE");
+		ContentInstanceRetention.stop();
 		if(!Constants.CSE_TYPE.equals(CSEType.IN_CSE)){
 			CSEInitializer.unregisterCse();			
 		}
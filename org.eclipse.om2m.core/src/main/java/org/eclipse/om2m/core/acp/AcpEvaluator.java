@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.acp;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+
+/**
+ * Evaluates access control policies. Policies are compiled once and cached
+ * until they are updated or deleted, and the recent decisions for an
+ * (originator, policies, operation) tuple are memoized.
+ */
+public final class AcpEvaluator {
+
+	/** Maximum number of compiled policies and of memoized decisions */
+	private static final int MAX_SIZE = Constants.ACP_CACHE_SIZE;
+
+	/** Compiled policies by resource id */
+	private static final ConcurrentMap<String, CompiledAcp> POLICIES = new ConcurrentHashMap<String, CompiledAcp>();
+
+	/** Memoized decisions by originator, operation and policy ids */
+	private static final ConcurrentMap<String, Boolean> DECISIONS = new ConcurrentHashMap<String, Boolean>();
+
+	/** Incremented on each invalidation to detect a concurrent policy change during an evaluation */
+	private static final AtomicLong GENERATION = new AtomicLong();
+
+	private AcpEvaluator() {
+		// static only
+	}
+
+	/**
+	 * Checks if one of the policies grants the operation to the originator.
+	 * @param acpList policies of the targeted resource
+	 * @param originator requesting entity
+	 * @param operation requested operation
+	 * @return true if the access is granted
+	 */
+	public static boolean isGranted(List<AccessControlPolicyEntity> acpList, String originator,
+			BigInteger operation) {
+		int operationBit = CompiledAcp.operationBit(operation);
+		if (originator == null || operationBit == 0 || acpList == null) {
+			return false;
+		}
+		long generation = GENERATION.get();
+		CompiledAcp[] compiledAcps = new CompiledAcp[acpList.size()];
+		boolean memoizable = true;
+		StringBuilder key = new StringBuilder(originator).append('\n').append(operationBit);
+		for (int i = 0; i < compiledAcps.length; i++) {
+			AccessControlPolicyEntity acp = acpList.get(i);
+			compiledAcps[i] = getCompiled(acp);
+			if (acp.getResourceID() == null) {
+				memoizable = false;
+			} else {
+				key.append('\n').append(acp.getResourceID());
+			}
+		}
+		String decisionKey = key.toString();
+		if (memoizable) {
+			Boolean decision = DECISIONS.get(decisionKey);
+			if (decision != null) {
+				return decision;
+			}
+		}
+		boolean granted = false;
+		for (CompiledAcp compiledAcp : compiledAcps) {
+			if (compiledAcp.getPrivileges().isGranted(originator, operationBit)) {
+				granted = true;
+				break;
+			}
+		}
+		if (memoizable && MAX_SIZE > 0) {
+			if (DECISIONS.size() >= MAX_SIZE) {
+				DECISIONS.clear();
+			}
+			DECISIONS.put(decisionKey, granted);
+			if (GENERATION.get() != generation) {
+				DECISIONS.remove(decisionKey);
+			}
+		}
+		return granted;
+	}
+
+	/**
+	 * Checks if the self privileges of a policy grant the operation to the originator.
+	 * @param acp policy to be accessed
+	 * @param originator requesting entity
+	 * @param operation requested operation
+	 * @return true if the access is granted
+	 */
+	public static boolean isSelfGranted(AccessControlPolicyEntity acp, String originator,
+			BigInteger operation) {
+		int operationBit = CompiledAcp.operationBit(operation);
+		if (originator == null || operationBit == 0) {
+			return false;
+		}
+		return getCompiled(acp).getSelfPrivileges().isGranted(originator, operationBit);
+	}
+
+	/**
+	 * Drops the compiled policy and the decisions made with it.
+	 * To be called when a policy is updated or deleted.
+	 * @param acpID resource id of the policy
+	 */
+	public static void invalidate(String acpID) {
+		GENERATION.incrementAndGet();
+		if (acpID != null) {
+			POLICIES.remove(acpID);
+		}
+		DECISIONS.clear();
+	}
+
+	/**
+	 * Drops all the compiled policies and decisions.
+	 */
+	public static void clear() {
+		GENERATION.incrementAndGet();
+		POLICIES.clear();
+		DECISIONS.clear();
+	}
+
+	/**
+	 * Retrieves the compiled policy, compiling it if it is not cached or if
+	 * the policy has been modified since it has been compiled.
+	 */
+	private static CompiledAcp getCompiled(AccessControlPolicyEntity acp) {
+		String acpID = acp.getResourceID();
+		if (acpID == null) {
+			return new CompiledAcp(acp);
+		}
+		CompiledAcp compiledAcp = POLICIES.get(acpID);
+		if (compiledAcp != null && compiledAcp.isCompiledFrom(acp)) {
+			return compiledAcp;
+		}
+		if (compiledAcp != null) {
+			// modified by another way than the ACP controller
+			invalidate(acpID);
+		}
+		long generation = GENERATION.get();
+		compiledAcp = new CompiledAcp(acp);
+		if (MAX_SIZE > 0) {
+			if (POLICIES.size() >= MAX_SIZE) {
+				POLICIES.clear();
+			}
+			POLICIES.put(acpID, compiledAcp);
+			if (GENERATION.get() != generation) {
+				POLICIES.remove(acpID, compiledAcp);
+			}
+		}
+		return compiledAcp;
+	}
+
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.acp;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.commons.constants.Operation;
+import org.eclipse.om2m.commons.entities.AccessControlOriginatorEntity;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.AccessControlRuleEntity;
+
+/**
+ * Access control policy compiled for evaluation. For each set of rules, the
+ * allowed operations are stored as a bitmask per exact originator and per
+ * wildcard originator pattern.
+ */
+class CompiledAcp {
+
+	private static final Log LOGGER = LogFactory.getLog(CompiledAcp.class);
+
+	/** Characters giving a regex meaning to an originator id */
+	private static final String REGEX_CHARACTERS = "*.[]{}()\\+?^$|";
+
+	private final String resourceID;
+	private final String lastModifiedTime;
+	private final Rules privileges;
+	private final Rules selfPrivileges;
+
+	CompiledAcp(AccessControlPolicyEntity acp) {
+		this.resourceID = acp.getResourceID();
+		this.lastModifiedTime = acp.getLastModifiedTime();
+		this.privileges = new Rules(acp.getPrivileges(), true);
+		this.selfPrivileges = new Rules(acp.getSelfPrivileges(), false);
+	}
+
+	/**
+	 * @param acp persisted policy
+	 * @return true if this compiled policy has been built from the current state of the policy
+	 */
+	boolean isCompiledFrom(AccessControlPolicyEntity acp) {
+		return resourceID != null && resourceID.equals(acp.getResourceID())
+				&& (lastModifiedTime == null ? acp.getLastModifiedTime() == null
+						: lastModifiedTime.equals(acp.getLastModifiedTime()));
+	}
+
+	Rules getPrivileges() {
+		return privileges;
+	}
+
+	Rules getSelfPrivileges() {
+		return selfPrivileges;
+	}
+
+	/**
+	 * Bit of an operation in the masks.
+	 * @param operation requested operation
+	 * @return the bit of the operation or 0 if the operation cannot be granted by an ACP
+	 */
+	static int operationBit(BigInteger operation) {
+		if (operation == null || operation.bitLength() > 8) {
+			return 0;
+		}
+		int value = operation.intValue();
+		if (value < Operation.CREATE.intValue() || value > Operation.DISCOVERY.intValue()) {
+			return 0;
+		}
+		return 1 << value;
+	}
+
+	/**
+	 * Rules of a set of privileges.
+	 */
+	static class Rules {
+
+		/** Exact originator to allowed operations */
+		private final Map<String, Integer> originators = new HashMap<String, Integer>();
+		/** Wildcard originators */
+		private final Pattern[] patterns;
+		/** Allowed operations of each wildcard originator */
+		private final int[] patternOperations;
+
+		Rules(List<AccessControlRuleEntity> rules, boolean notifyGranted) {
+			List<Pattern> patternList = new ArrayList<Pattern>();
+			List<Integer> operationList = new ArrayList<Integer>();
+			for (AccessControlRuleEntity rule : rules) {
+				int operations = operations(rule, notifyGranted);
+				if (operations == 0) {
+					continue;
+				}
+				for (AccessControlOriginatorEntity originator : rule.getAccessControlOriginators()) {
+					String id = originator.getOriginatorID();
+					if (id == null) {
+						continue;
+					}
+					if (!isRegex(id)) {
+						Integer current = originators.get(id);
+						originators.put(id, current == null ? operations : current | operations);
+						continue;
+					}
+					try {
+						patternList.add(Pattern.compile(id.replace("*", ".*")));
+						operationList.add(operations);
+					} catch (PatternSyntaxException e) {
+						LOGGER.warn("Invalid originator " + id + " ignored in ACP rule", e);
+					}
+				}
+			}
+			patterns = patternList.toArray(new Pattern[patternList.size()]);
+			patternOperations = new int[operationList.size()];
+			for (int i = 0; i < patternOperations.length; i++) {
+				patternOperations[i] = operationList.get(i);
+			}
+		}
+
+		/**
+		 * @param originator requesting entity
+		 * @param operationBit bit of the requested operation
+		 * @return true if one rule grants the operation to the originator
+		 */
+		boolean isGranted(String originator, int operationBit) {
+			Integer operations = originators.get(originator);
+			if (operations != null && (operations & operationBit) != 0) {
+				return true;
+			}
+			for (int i = 0; i < patterns.length; i++) {
+				if ((patternOperations[i] & operationBit) != 0
+						&& patterns[i].matcher(originator).matches()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static int operations(AccessControlRuleEntity rule, boolean notifyGranted) {
+			int operations = 0;
+			if (rule.isCreate()) {
+				operations |= operationBit(Operation.CREATE);
+			}
+			if (rule.isRetrieve()) {
+				operations |= operationBit(Operation.RETRIEVE);
+			}
+			if (rule.isUpdate()) {
+				operations |= operationBit(Operation.UPDATE);
+			}
+			if (rule.isDelete()) {
+				operations |= operationBit(Operation.DELETE);
+			}
+			if (rule.isDiscovery()) {
+				operations |= operationBit(Operation.DISCOVERY);
+			}
+			if (notifyGranted && rule.isNotify()) {
+				operations |= operationBit(Operation.NOTIFY);
+			}
+			return operations;
+		}
+
+		private static boolean isRegex(String originatorID) {
+			for (int i = 0; i < originatorID.length(); i++) {
+				if (REGEX_CHARACTERS.indexOf(originatorID.charAt(i)) >= 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
@@ -21,14 +21,21 @@ package org.eclipse.om2m.core.comm;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.binding.service.AsyncRestClientService;
+import org.eclipse.om2m.binding.service.ResponseFuture;
+import org.eclipse.om2m.binding.service.ResponseListener;
 import org.eclipse.om2m.binding.service.RestClientService;
+import org.eclipse.om2m.commons.constants.ResponseStatusCode;
 import org.eclipse.om2m.commons.exceptions.InternalServerErrorException;
 import org.eclipse.om2m.commons.exceptions.NotImplementedException;
+import org.eclipse.om2m.commons.exceptions.Om2mException;
 import org.eclipse.om2m.commons.resource.RequestPrimitive;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
+import org.eclipse.om2m.core.thread.CoreExecutor;
 
 
 /**
@@ -74,6 +81,83 @@ public class RestClient{
 		return response;
 	}
 
+	/**
+	 * Sends the request without waiting for the response. Clients implementing
+	 * {@link AsyncRestClientService} send it without blocking any thread, the
+	 * other ones are called from a core thread.
+	 * @param request - The generic request to handle
+	 * @return The future response, failed with an {@link Om2mException} on error
+	 */
+	public static ResponseFuture sendRequestAsync(final RequestPrimitive request){
+		LOGGER.info("the async requestIndication RC: "+request);
+		String protocol = request.getTo().split("://")[0];
+		final RestClientService restClient = restClients.get(protocol);
+		if(restClient == null){
+			throw new NotImplementedException("No RestClient service found for protocol: " + protocol);
+		}
+
+		final ResponseFuture result = new ResponseFuture();
+		if(restClient instanceof AsyncRestClientService){
+			ResponseFuture response;
+			try{
+				response = ((AsyncRestClientService) restClient).sendRequestAsync(request);
+			}catch(Exception e){
+				response = ResponseFuture.failed(e);
+			}
+			response.addListener(new ResponseListener() {
+				@Override
+				public void onResponse(ResponsePrimitive response) {
+					if(response == null || response.getResponseStatusCode() == null){
+						onFailure(new Exception("No response status code"));
+					} else {
+						LOGGER.info(response);
+						result.complete(response);
+					}
+				}
+
+				@Override
+				public void onFailure(Throwable cause) {
+					LOGGER.error("RestClient error",cause);
+					result.fail(new InternalServerErrorException("RestClient Error", cause));
+				}
+			});
+		} else {
+			// Default adapter for synchronous clients
+			CoreExecutor.postThread(CoreExecutor.Pool.RETARGETING, new Runnable() {
+				@Override
+				public void run() {
+					try{
+						result.complete(sendRequest(request));
+					}catch(Exception e){
+						result.fail(e);
+					}
+				}
+			});
+		}
+		return result;
+	}
+
+	/**
+	 * Waits for the response of an asynchronous request.
+	 * @param future - The future response
+	 * @return The generic returned response
+	 * @throws Om2mException if the request failed
+	 */
+	public static ResponsePrimitive getResponse(ResponseFuture future){
+		try{
+			return future.get();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new Om2mException("Interrupted while waiting for the response", e,
+					ResponseStatusCode.TARGET_NOT_REACHABLE);
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof Om2mException){
+				throw (Om2mException) e.getCause();
+			}
+			throw new InternalServerErrorException("RestClient Error", e.getCause());
+		}
+	}
+
 	/**
 	 * Gets RestClients
 	 * @return restClients
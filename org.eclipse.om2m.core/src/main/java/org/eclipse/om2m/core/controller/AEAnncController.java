@@ -57,7 +57,7 @@ public class AEAnncController extends Controller {
 		 */
 
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		// Get the DAO of the parent
 		DAO<ResourceEntity> dao = (DAO<ResourceEntity>) patterns.getDAO(request.getTo(), dbs);
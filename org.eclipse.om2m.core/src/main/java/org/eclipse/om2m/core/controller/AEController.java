@@ -45,6 +45,7 @@ import org.eclipse.om2m.commons.resource.AE;
 import org.eclipse.om2m.commons.resource.RequestPrimitive;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
 import org.eclipse.om2m.commons.utils.Util.DateUtil;
+import org.eclipse.om2m.core.acp.AcpEvaluator;
 import org.eclipse.om2m.core.announcer.Announcer;
 import org.eclipse.om2m.core.datamapper.DataMapperSelector;
 import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
@@ -86,7 +87,7 @@ public class AEController extends Controller {
 		 */
 
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		// Get the DAO of the parent
 		DAO<ResourceEntity> dao = (DAO<ResourceEntity>) patterns.getDAO(request.getTo(), dbs);
@@ -592,6 +593,7 @@ public class AEController extends Controller {
 		
 		if(aeEntity.getGeneratedAcp() != null){
 			UriMapper.deleteUri(aeEntity.getGeneratedAcp().getHierarchicalURI());
+			AcpEvaluator.invalidate(aeEntity.getGeneratedAcp().getResourceID());
 		}
 		
 		Notifier.notifyDeletion(aeEntity.getSubscriptions(), aeEntity);
@@ -43,6 +43,7 @@ import org.eclipse.om2m.commons.resource.RequestPrimitive;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
 import org.eclipse.om2m.commons.utils.AcpUtils;
 import org.eclipse.om2m.commons.utils.Util.DateUtil;
+import org.eclipse.om2m.core.acp.AcpEvaluator;
 import org.eclipse.om2m.core.datamapper.DataMapperSelector;
 import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
 import org.eclipse.om2m.core.notifier.Notifier;
@@ -79,7 +80,7 @@ public class AccessControlPolicyController extends Controller {
 	@Override
 	public ResponsePrimitive doCreate(RequestPrimitive request) {
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		// Get the DAO of the parent
 		DAO<ResourceEntity> dao = (DAO<ResourceEntity>) patterns.getDAO(request.getTo(), dbs);
@@ -374,6 +375,7 @@ public class AccessControlPolicyController extends Controller {
 		
 		// commit transaction & unlock
 		transaction.commit();
+		AcpEvaluator.invalidate(acpEntity.getResourceID());
 
 		Notifier.notify(acpEntity.getChildSubscriptions(), acpEntity, ResourceStatus.UPDATED);
 		
@@ -434,6 +436,7 @@ public class AccessControlPolicyController extends Controller {
 		
 		// commit & unlock
 		transaction.commit();
+		AcpEvaluator.invalidate(acpEntity.getResourceID());
 		
 		// Close transaction and return
 		response.setResponseStatusCode(ResponseStatusCode.DELETED);
@@ -47,6 +47,7 @@ import org.eclipse.om2m.commons.utils.Util.DateUtil;
 import org.eclipse.om2m.core.datamapper.DataMapperSelector;
 import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
 import org.eclipse.om2m.core.notifier.Notifier;
+import org.eclipse.om2m.core.retention.ContentInstanceRetention;
 import org.eclipse.om2m.core.router.Patterns;
 import org.eclipse.om2m.core.urimapper.UriMapper;
 import org.eclipse.om2m.core.util.ControllerUtil;
@@ -90,7 +91,7 @@ public class ContainerController extends Controller {
 		 * 
 		 */
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		// get the dao of the parent
 		DAO<ResourceEntity> dao = (DAO<ResourceEntity>) patterns.getDAO(request.getTo(), dbs);
@@ -234,6 +235,7 @@ public class ContainerController extends Controller {
 		containerEntity.setParentID(parentEntity.getResourceID());
 		containerEntity.setResourceType(ResourceType.CONTAINER);
 		containerEntity.setCurrentNrOfInstances(BigInteger.valueOf(0));
+		containerEntity.setCurrentByteSize(BigInteger.valueOf(0));
 		
 		// accessControlPolicyIDs	O
 		if (!container.getAccessControlPolicyIDs().isEmpty()){
@@ -480,6 +482,11 @@ public class ContainerController extends Controller {
 		containerEntity.setLastModifiedTime(DateUtil.now());
 		modifiedAttributes.setLastModifiedTime(containerEntity.getLastModifiedTime());
 		response.setContent(modifiedAttributes);
+		// lowered limits, delete the instances in excess at once
+		if (container.getMaxNrOfInstances() != null || container.getMaxByteSize() != null
+				|| container.getMaxInstanceAge() != null) {
+			ContentInstanceRetention.enforce(transaction, containerEntity);
+		}
 		// update the resource in the database
 		dbs.getDAOFactory().getContainerDAO().update(transaction, containerEntity);
 		transaction.commit();
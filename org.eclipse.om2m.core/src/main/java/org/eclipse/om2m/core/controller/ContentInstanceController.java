@@ -45,12 +45,12 @@ import org.eclipse.om2m.core.datamapper.DataMapperSelector;
 import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
 import org.eclipse.om2m.core.notifier.Notifier;
 import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.retention.ContentInstanceRetention;
 import org.eclipse.om2m.core.router.Patterns;
 import org.eclipse.om2m.core.urimapper.UriMapper;
 import org.eclipse.om2m.core.util.ControllerUtil;
 import org.eclipse.om2m.persistence.service.DAO;
 import org.eclipse.om2m.persistence.service.DBService;
-import org.eclipse.om2m.persistence.service.DBTransaction;
 
 /**
  * Controller for the content instance resource
@@ -88,7 +88,7 @@ public class ContentInstanceController extends Controller {
 		 */
 		// create the response
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		// get the dao of the parent
 		DAO<?> dao = (DAO<?>) patterns.getDAO(request.getTo(), dbs);
@@ -189,6 +189,8 @@ public class ContentInstanceController extends Controller {
 		cinEntity.setParentID(parentEntity.getResourceID());
 		cinEntity.setResourceType(ResourceType.CONTENT_INSTANCE);
 		cinEntity.setContent(cin.getContent());
+		// contentSize is persisted so that the size criteria are evaluated by the database
+		cinEntity.setContentSize(BigInteger.valueOf(cinEntity.getByteSize()));
 		cinEntity.setStateTag(BigInteger.valueOf(0));
 
 		// creator					O
@@ -213,20 +215,12 @@ public class ContentInstanceController extends Controller {
 		// case parent is Container
 		if (parentEntity.getResourceType().intValue() == (ResourceType.CONTAINER)) {
 			ContainerEntity container = (ContainerEntity) parentEntity;
-			if (container.getMaxNrOfInstances()!= null ){
-				if (container.getCurrentNrOfInstances().intValue() >= container.getMaxNrOfInstances().intValue()) {
-					LOGGER.info("Deleting oldest content instance due to container size limit");
-					ContentInstanceEntity cinent = dbs.getDAOFactory().getOldestDAO().find(transaction, request.getTo());
-					dbs.getDAOFactory().getContentInstanceDAO().delete(transaction,cinent);
-					UriMapper.deleteUri(cinent.getHierarchicalURI());	
-				}else{
-					container.setCurrentNrOfInstances(BigInteger.valueOf(container.getCurrentNrOfInstances().intValue()+1));
-				}
-			}
 			cinEntity.setParentContainer(container);
 			if(container.getStateTag() != null){
 				container.setStateTag(BigInteger.valueOf(container.getStateTag().intValue() + 1));
 			}
+			// maxNrOfInstances, maxByteSize & maxInstanceAge
+			ContentInstanceRetention.beforeCreate(transaction, container, cinEntity);
 		}	
 		
 		// case parent is ContainerAnnc
@@ -296,14 +290,11 @@ public class ContentInstanceController extends Controller {
 	public ResponsePrimitive doDelete(RequestPrimitive request) {
 		// create the response primitive
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		
 		// get the database service
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = dbs.getDbTransaction();
-		// open the transaction
-		transaction.open();
 
 		// retrieve the target resource from database
 		ContentInstanceEntity cin = dbs.getDAOFactory()
@@ -322,7 +313,7 @@ public class ContentInstanceController extends Controller {
 		ResourceEntity parentEntity = (ResourceEntity)dao.find(transaction, cin.getParentID());
 		ContainerEntity container = (ContainerEntity) parentEntity;
 
-		container.setCurrentNrOfInstances(BigInteger.valueOf(container.getCurrentNrOfInstances().intValue()-1));
+		ContentInstanceRetention.afterDelete(container, cin);
 		dbs.getDAOFactory().getContainerDAO().update(transaction, container);
 		
 		Notifier.notifyDeletion(null, cin);
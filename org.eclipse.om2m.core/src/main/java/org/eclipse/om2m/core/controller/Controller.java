@@ -31,7 +31,6 @@ import org.eclipse.om2m.commons.constants.Operation;
 import org.eclipse.om2m.commons.constants.ResultContent;
 import org.eclipse.om2m.commons.entities.AccessControlOriginatorEntity;
 import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
-import org.eclipse.om2m.commons.entities.AccessControlRuleEntity;
 import org.eclipse.om2m.commons.entities.ResourceEntity;
 import org.eclipse.om2m.commons.exceptions.AccessDeniedException;
 import org.eclipse.om2m.commons.exceptions.BadRequestException;
@@ -40,11 +39,13 @@ import org.eclipse.om2m.commons.exceptions.ResourceNotFoundException;
 import org.eclipse.om2m.commons.resource.RequestPrimitive;
 import org.eclipse.om2m.commons.resource.Resource;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
+import org.eclipse.om2m.core.acp.AcpEvaluator;
 import org.eclipse.om2m.core.datamapper.DataMapperSelector;
 import org.eclipse.om2m.core.dynamicauthorization.DynamicAuthorizationSelector;
 import org.eclipse.om2m.core.entitymapper.EntityMapper;
 import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
 import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.persistence.RequestTransaction;
 import org.eclipse.om2m.persistence.service.DBService;
 import org.eclipse.om2m.persistence.service.DBTransaction;
 
@@ -63,16 +64,17 @@ public abstract class Controller {
 	protected DBTransaction transaction; 
 
 	/**
-	 * Perform the request on selected controller
+	 * Perform the request on selected controller. The controller joins the
+	 * transaction of the request, its changes are committed with it.
 	 * @param request
 	 * @return
 	 */
 	public ResponsePrimitive doRequest(RequestPrimitive request) throws Om2mException{
 		ResponsePrimitive response = new ResponsePrimitive(request);
 		dbs = PersistenceService.getInstance().getDbService();
-		transaction = dbs.getDbTransaction();
+		RequestTransaction requestTransaction = RequestTransaction.open(dbs);
+		transaction = requestTransaction.get();
 		try{
-			transaction.open();
 			if(request.getOperation().equals(Operation.CREATE)){
 				response = doCreate(request);
 			} else if(request.getOperation().equals(Operation.RETRIEVE)){
@@ -86,6 +88,7 @@ public abstract class Controller {
 			} else {
 				throw new BadRequestException("Incorrect Operation value (op): " + request.getOperation());
 			}
+			requestTransaction.commit();
 		} catch(Om2mException om2mException){
 			LOGGER.error("om2mException", om2mException);
 			throw om2mException;
@@ -93,14 +96,9 @@ public abstract class Controller {
 			LOGGER.error("Controller internal error", e);
 			throw e;
 		} finally {
-			LOGGER.info("Clear and close transaction");
-			try {
-				transaction.commit();
-			} catch (Exception e) {
-				// do not log this exception
-			}
-			transaction.clear();
-			transaction.close();
+			LOGGER.info("Close transaction");
+			// changes not committed are dropped
+			requestTransaction.close();
 		}
 		return response;
 	}
@@ -181,19 +179,21 @@ public abstract class Controller {
 	 */
 	public void checkACP(String acpID, String originator, BigInteger method) throws AccessDeniedException{
 		DBService db = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = db.getDbTransaction();
-		transaction.open();
-		if (!originatorExists(originator)) {
-			throw new AccessDeniedException("Provided originator not found");
-		}
-		AccessControlPolicyEntity acp = db.getDAOFactory().getAccessControlPolicyDAO().find(transaction, acpID);
-		if (acp == null){
-			throw new ResourceNotFoundException();
+		RequestTransaction transaction = RequestTransaction.open(db);
+		try {
+			if (!originatorExists(transaction.get(), originator)) {
+				throw new AccessDeniedException("Provided originator not found");
+			}
+			AccessControlPolicyEntity acp = db.getDAOFactory().getAccessControlPolicyDAO().find(transaction.get(), acpID);
+			if (acp == null){
+				throw new ResourceNotFoundException();
+			}
+			List<AccessControlPolicyEntity> acpList = new ArrayList<>();
+			acpList.add(acp);
+			checkACP(acpList, originator, method);
+		} finally {
+			transaction.close();
 		}
-		List<AccessControlPolicyEntity> acpList = new ArrayList<>();
-		acpList.add(acp);
-		checkACP(acpList, originator, method);
-		transaction.close();
 	}
 
 	/**
@@ -211,53 +211,10 @@ public abstract class Controller {
 		if (acpList == null || acpList.isEmpty()) {
 			throw new AccessDeniedException("Current resource does not have any ACP attached");
 		}
-		// Check Resource accessRight existence not found
-		boolean originatorFound = false;
-		boolean operationAllowed = false;
-		for(AccessControlPolicyEntity acp : acpList){
-			for (AccessControlRuleEntity rule : acp.getPrivileges()){
-				originatorFound = false ; 
-				operationAllowed = false;
-				for (AccessControlOriginatorEntity originatorEntity : rule.getAccessControlOriginators()){
-					if (originator.matches(originatorEntity.getOriginatorID().replace("*", ".*"))){
-						originatorFound = true;
-						break;
-					}
-				}
-				if (originatorFound){
-					if (operation.equals(Operation.CREATE) && rule.isCreate()){
-						operationAllowed = true;
-					} else if (operation.equals(Operation.RETRIEVE) && rule.isRetrieve()){
-						operationAllowed = true;
-					} else if (operation.equals(Operation.UPDATE) && rule.isUpdate()){
-						operationAllowed = true;
-					} else if (operation.equals(Operation.DELETE) && rule.isDelete()){
-						operationAllowed = true; 
-					} else if (operation.equals(Operation.DISCOVERY) && rule.isDiscovery()){
-						operationAllowed = true;
-					} else if (operation.equals(Operation.NOTIFY) && rule.isNotify()){
-						operationAllowed = true;
-					}
-				}
-				if (originatorFound && operationAllowed){
-					break;
-				}
-			}
-			if (originatorFound && operationAllowed){
-				break;
-			}
-		}
-
-		if (!originatorFound){
-			throw new AccessDeniedException();
-		}
-		if (!operationAllowed){
+		if (!AcpEvaluator.isGranted(acpList, originator, operation)){
 			throw new AccessDeniedException();
 		}
 	}
-	
-	
-	
 
 	/**
 	 * Check Access Right from Acp Self privileges for ACP modifications
@@ -267,50 +224,7 @@ public abstract class Controller {
 	 */
 	public void checkSelfACP(AccessControlPolicyEntity acp, String originator, BigInteger operation)
 			throws AccessDeniedException{
-		// Check Resource accessRight existence not found
-		boolean originatorFound = false;
-		boolean operationAllowed = false;
-
-		for (AccessControlRuleEntity rule : acp.getSelfPrivileges()){
-			originatorFound = false ; 
-			operationAllowed = false ;
-			for (AccessControlOriginatorEntity originatorEntity : rule.getAccessControlOriginators()){
-				if (originator.matches(originatorEntity.getOriginatorID().replace("*", ".*"))){
-					originatorFound = true;
-					break;
-				}
-			}
-			if (originatorFound){
-				if (operation.equals(Operation.CREATE)){
-					if (rule.isCreate()){
-						operationAllowed = true;
-					}
-				} else if (operation.equals(Operation.RETRIEVE)){
-					if (rule.isRetrieve()){
-						operationAllowed = true;
-					}
-				} else if (operation.equals(Operation.UPDATE)){
-					if (rule.isUpdate()){
-						operationAllowed = true;
-					}
-				} else if (operation.equals(Operation.DELETE)){
-					if (rule.isDelete()){
-						operationAllowed = true; 
-					}
-				} else if (operation.equals(Operation.DISCOVERY)) {
-					if (rule.isDiscovery()) {
-						operationAllowed = true;
-					}
-				}
-			}
-			if (originatorFound && operationAllowed){
-				break;
-			}
-		}
-		if (!originatorFound){
-			throw new AccessDeniedException();
-		}
-		if (!operationAllowed){
+		if (!AcpEvaluator.isSelfGranted(acp, originator, operation)){
 			throw new AccessDeniedException();
 		}
 	}
@@ -375,16 +289,23 @@ public abstract class Controller {
 	 * @return true if exists
 	 */
 	protected boolean originatorExists(String originator) {
-		boolean isValid = false;
-		DBService db = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = db.getDbTransaction();
-		transaction.open();
-		AccessControlOriginatorEntity originatorEntity = db.getDAOFactory().getAccessControlOriginatorDAO().find(transaction, originator);
-		if (originatorEntity != null) {
-			isValid = true;
+		RequestTransaction transaction = RequestTransaction.open();
+		try {
+			return originatorExists(transaction.get(), originator);
+		} finally {
+			transaction.close();
 		}
-		transaction.close();
-		return isValid;
+	}
+
+	/**
+	 * Allows to know if the provided originator exists in the system
+	 * @param transaction already opened transaction
+	 * @param originator
+	 * @return true if exists
+	 */
+	protected boolean originatorExists(DBTransaction transaction, String originator) {
+		DBService db = PersistenceService.getInstance().getDbService();
+		return db.getDAOFactory().getAccessControlOriginatorDAO().find(transaction, originator) != null;
 	}
 
 	/**
@@ -393,15 +314,17 @@ public abstract class Controller {
 	 */
 	protected void registerOriginator(String originator) {
 		DBService db = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = db.getDbTransaction();
-		transaction.open();
-		// create the new originator
-		AccessControlOriginatorEntity originatorEntity = new AccessControlOriginatorEntity();
-		originatorEntity.setOriginatorID(originator);
-		// persist the new access control originator
-		db.getDAOFactory().getAccessControlOriginatorDAO().create(transaction, originatorEntity);
-		transaction.commit();
-		transaction.close();
+		RequestTransaction transaction = RequestTransaction.open(db);
+		try {
+			// create the new originator
+			AccessControlOriginatorEntity originatorEntity = new AccessControlOriginatorEntity();
+			originatorEntity.setOriginatorID(originator);
+			// persist the new access control originator, with the resource of the request
+			db.getDAOFactory().getAccessControlOriginatorDAO().create(transaction.get(), originatorEntity);
+			transaction.commit();
+		} finally {
+			transaction.close();
+		}
 	}
 
 }
@@ -49,16 +49,17 @@ import org.eclipse.om2m.commons.resource.ResponsePrimitive;
 import org.eclipse.om2m.commons.utils.Util.DateUtil;
 import org.eclipse.om2m.core.datamapper.DataMapperSelector;
 import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
+import org.eclipse.om2m.core.fanout.FanOut;
 import org.eclipse.om2m.core.notifier.Notifier;
 import org.eclipse.om2m.core.persistence.PersistenceService;
 import org.eclipse.om2m.core.router.Patterns;
 import org.eclipse.om2m.core.urimapper.UriMapper;
 import org.eclipse.om2m.core.util.ControllerUtil;
 import org.eclipse.om2m.core.util.ControllerUtil.UpdateUtil;
+import org.eclipse.om2m.core.util.GroupMembershipIndex;
 import org.eclipse.om2m.core.util.GroupUtil;
 import org.eclipse.om2m.persistence.service.DAO;
 import org.eclipse.om2m.persistence.service.DBService;
-import org.eclipse.om2m.persistence.service.DBTransaction;
 
 /**
  * Controller for group
@@ -92,7 +93,7 @@ public class GroupController extends Controller {
 	@Override
 	public ResponsePrimitive doCreate(RequestPrimitive request) {
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		// Get the DAO of the parent
 		DAO<ResourceEntity> dao = (DAO<ResourceEntity>) patterns.getDAO(request.getTo(), dbs);
@@ -336,8 +337,6 @@ public class GroupController extends Controller {
 		ResponsePrimitive response = new ResponsePrimitive(request);
 
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = dbs.getDbTransaction();
-		transaction.open();
 
 		// Retrieve the resource from database
 		GroupEntity groupEntity = dbs.getDAOFactory()
@@ -496,6 +495,10 @@ public class GroupController extends Controller {
 		// Commit the transaction
 		transaction.commit();
 
+		// Delete the sub-groups created on the remote CSEs for the fan out
+		FanOut.release(groupEntity.getResourceID());
+		GroupMembershipIndex.invalidate(groupEntity.getResourceID());
+
 		response.setResponseStatusCode(ResponseStatusCode.DELETED);
 		return response;
 	}
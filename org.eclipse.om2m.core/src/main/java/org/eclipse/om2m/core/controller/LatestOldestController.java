@@ -19,14 +19,12 @@
  *******************************************************************************/
 package org.eclipse.om2m.core.controller;
 
-import java.math.BigInteger;
 import java.util.List;
 
 import org.eclipse.om2m.commons.constants.ResponseStatusCode;
 import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
 import org.eclipse.om2m.commons.entities.ContainerEntity;
 import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
-import org.eclipse.om2m.commons.entities.ResourceEntity;
 import org.eclipse.om2m.commons.exceptions.OperationNotAllowed;
 import org.eclipse.om2m.commons.exceptions.ResourceNotFoundException;
 import org.eclipse.om2m.commons.resource.ContentInstance;
@@ -34,7 +32,7 @@ import org.eclipse.om2m.commons.resource.RequestPrimitive;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
 import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
 import org.eclipse.om2m.core.notifier.Notifier;
-import org.eclipse.om2m.core.router.Patterns;
+import org.eclipse.om2m.core.retention.ContentInstanceRetention;
 import org.eclipse.om2m.core.urimapper.UriMapper;
 import org.eclipse.om2m.persistence.service.DAO;
 
@@ -76,21 +74,10 @@ public class LatestOldestController extends Controller{
 		List<AccessControlPolicyEntity> acpList = containerEntity.getAccessControlPolicies();
 		checkACP(acpList, request.getFrom(), request.getOperation());
 
-		ContentInstanceEntity cinEntity = null;
-		if (containerEntity.getChildContentInstances().isEmpty()) {
+		ContentInstanceEntity cinEntity = findContentInstance(containerEntity);
+		if (cinEntity == null) {
 			throw new ResourceNotFoundException("Resource not found");
 		}
-		switch(this.policy){
-		case LATEST:
-			cinEntity = containerEntity.getChildContentInstances().get(
-					containerEntity.getChildContentInstances().size()-1);
-			break;
-		case OLDEST:
-			cinEntity = dbs.getDAOFactory().getOldestDAO().find(transaction, request.getTo());
-			break;
-		default:
-			break;
-		}
 
 		// mapping the entity with the exchange resource
 		ContentInstance cin = EntityMapperFactory.getContentInstanceMapper().mapEntityToResource(cinEntity, request);		
@@ -108,7 +95,6 @@ public class LatestOldestController extends Controller{
 	public ResponsePrimitive doDelete(RequestPrimitive request) {
 		// Creating the response primitive
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
 
 
 		// Check existence of the resource
@@ -122,30 +108,15 @@ public class LatestOldestController extends Controller{
 		List<AccessControlPolicyEntity> acpList = containerEntity.getAccessControlPolicies();
 		checkACP(acpList, request.getFrom(), request.getOperation());
 
-		if (containerEntity.getChildContentInstances().isEmpty()) {
+		ContentInstanceEntity cinEntity = findContentInstance(containerEntity);
+		if (cinEntity == null) {
 			throw new ResourceNotFoundException();
 		}
-		ContentInstanceEntity cinEntity = null;
-		switch(this.policy){
-		case LATEST:
-			cinEntity = containerEntity.getChildContentInstances().get(
-					containerEntity.getChildContentInstances().size()-1);
-			break;
-		case OLDEST:
-			cinEntity = containerEntity.getChildContentInstances().get(0);
-			break;
-		default:
-			break;
-		}
 		UriMapper.deleteUri(cinEntity.getHierarchicalURI());
-		DAO<?> dao = (DAO<?>) patterns.getDAO(cinEntity.getParentID(), dbs);
-		ResourceEntity parentEntity = (ResourceEntity)dao.find(transaction, cinEntity.getParentID());
 
-		ContainerEntity container = (ContainerEntity) parentEntity;
+		ContentInstanceRetention.afterDelete(containerEntity, cinEntity);
 
-		container.setCurrentNrOfInstances(BigInteger.valueOf(container.getCurrentNrOfInstances().intValue()-1));
-
-		dbs.getDAOFactory().getContainerDAO().update(transaction, container);
+		dbs.getDAOFactory().getContainerDAO().update(transaction, containerEntity);
 
 		Notifier.notifyDeletion(null, cinEntity);
 		
@@ -157,4 +128,53 @@ public class LatestOldestController extends Controller{
 		return response;
 	}
 
+	/**
+	 * Retrieves the latest or oldest content instance from the id stored in
+	 * the container, without loading the child content instances. The
+	 * containers created before the ids were stored have none: the instance
+	 * is looked up with an ordered query and its id is stored in the
+	 * container.
+	 * @param containerEntity parent container
+	 * @return the content instance or null if the container is empty
+	 */
+	private ContentInstanceEntity findContentInstance(ContainerEntity containerEntity) {
+		String cinID = getInstanceID(containerEntity);
+		if (cinID != null) {
+			return dbs.getDAOFactory().getContentInstanceDAO().find(transaction, cinID);
+		}
+		DAO<ContentInstanceEntity> dao = policy == SortingPolicy.LATEST ? dbs.getDAOFactory().getLatestDAO()
+				: dbs.getDAOFactory().getOldestDAO();
+		if (dao.find(transaction, containerEntity.getResourceID()) == null) {
+			return null;
+		}
+		// looked up again once the container is locked, the instances may
+		// have changed meanwhile
+		transaction.lock(containerEntity);
+		ContainerEntity locked = dbs.getDAOFactory().getContainerDAO().find(transaction, containerEntity.getResourceID());
+		cinID = locked == null ? null : getInstanceID(locked);
+		if (cinID != null) {
+			return dbs.getDAOFactory().getContentInstanceDAO().find(transaction, cinID);
+		}
+		ContentInstanceEntity cinEntity = dao.find(transaction, containerEntity.getResourceID());
+		if (cinEntity != null && locked != null) {
+			setInstanceID(locked, cinEntity.getResourceID());
+			setInstanceID(containerEntity, cinEntity.getResourceID());
+			dbs.getDAOFactory().getContainerDAO().update(transaction, locked);
+		}
+		return cinEntity;
+	}
+
+	private String getInstanceID(ContainerEntity containerEntity) {
+		return policy == SortingPolicy.LATEST ? containerEntity.getLatestInstanceID()
+				: containerEntity.getOldestInstanceID();
+	}
+
+	private void setInstanceID(ContainerEntity containerEntity, String cinID) {
+		if (policy == SortingPolicy.LATEST) {
+			containerEntity.setLatestInstanceID(cinID);
+		} else {
+			containerEntity.setOldestInstanceID(cinID);
+		}
+	}
+
 }
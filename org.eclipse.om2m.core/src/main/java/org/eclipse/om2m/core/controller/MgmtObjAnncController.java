@@ -69,7 +69,7 @@ public class MgmtObjAnncController extends Controller {
 		 */
 		
 		String contentFormat = System.getProperty("org.eclipse.om2m.registration.contentFormat", MimeMediaType.XML);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		ResponsePrimitive response = new ResponsePrimitive(request);
 
@@ -84,7 +84,7 @@ public class NodeController extends Controller {
 		 */
 
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		// retrieve the parent
 		DAO<ResourceEntity> parentDao = (DAO<ResourceEntity>) patterns.getDAO(request.getTo(), dbs);
@@ -41,6 +41,8 @@ import org.eclipse.om2m.commons.exceptions.BadRequestException;
 import org.eclipse.om2m.commons.exceptions.ConflictException;
 import org.eclipse.om2m.commons.exceptions.NotImplementedException;
 import org.eclipse.om2m.commons.exceptions.ResourceNotFoundException;
+import org.eclipse.om2m.commons.resource.BatchNotify;
+import org.eclipse.om2m.commons.resource.RateLimit;
 import org.eclipse.om2m.commons.resource.RequestPrimitive;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
 import org.eclipse.om2m.commons.resource.Subscription;
@@ -56,7 +58,6 @@ import org.eclipse.om2m.core.util.ControllerUtil.CreateUtil;
 import org.eclipse.om2m.core.util.ControllerUtil.UpdateUtil;
 import org.eclipse.om2m.persistence.service.DAO;
 import org.eclipse.om2m.persistence.service.DBService;
-import org.eclipse.om2m.persistence.service.DBTransaction;
 
 /**
  * Controller for Subscription
@@ -67,7 +68,7 @@ public class SubscriptionController extends Controller{
 	@Override
 	public ResponsePrimitive doCreate(RequestPrimitive request) {
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		// Get the DAO of the parent
 		DAO<ResourceEntity> dao = (DAO<ResourceEntity>) patterns.getDAO(request.getTo(), dbs);
@@ -209,12 +210,12 @@ public class SubscriptionController extends Controller{
 
 		// batchNotify O
 		if(subscription.getBatchNotify() != null){
-			// TODO BatchNotify
+			setBatchNotify(subscriptionEntity, subscription.getBatchNotify());
 		}
 
 		// rateLimit O
 		if(subscription.getRateLimit() != null){
-			// TODO RateLimit
+			setRateLimit(subscriptionEntity, subscription.getRateLimit());
 		}
 
 		// preSubscriptionNotification O
@@ -338,8 +339,6 @@ public class SubscriptionController extends Controller{
 		ResponsePrimitive response = new ResponsePrimitive(request);
 
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = dbs.getDbTransaction();
-		transaction.open();
 
 		SubscriptionEntity subscriptionEntity = dbs.getDAOFactory()
 				.getSubsciptionDAO().find(transaction, request.getTo());
@@ -440,11 +439,13 @@ public class SubscriptionController extends Controller{
 		}
 		// batchNotify O
 		if(subscription.getBatchNotify() != null){
-			// TODO batch notify
+			setBatchNotify(subscriptionEntity, subscription.getBatchNotify());
+			modifiedAttributes.setBatchNotify(subscription.getBatchNotify());
 		}
 		// rateLimit O
 		if(subscription.getRateLimit() != null){
-			// TODO rate limit
+			setRateLimit(subscriptionEntity, subscription.getRateLimit());
+			modifiedAttributes.setRateLimit(subscription.getRateLimit());
 		}
 		// pendingNotification O
 		if(subscription.getPendingNotification() != null){
@@ -495,8 +496,6 @@ public class SubscriptionController extends Controller{
 
 		// Get the database service
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = dbs.getDbTransaction();
-		transaction.open();
 
 		SubscriptionEntity se = dbs.getDAOFactory()
 				.getSubsciptionDAO().find(transaction, request.getTo());
@@ -513,9 +512,38 @@ public class SubscriptionController extends Controller{
 		// Delete the resource
 		dbs.getDAOFactory().getSubsciptionDAO().delete(transaction, se);
 		transaction.commit();
+		Notifier.discardPendingNotifications(se.getResourceID());
 
 		response.setResponseStatusCode(ResponseStatusCode.DELETED);
 		return response;
 	}
 
+	/**
+	 * Copies the batch notify attribute to the entity.
+	 * @param subscriptionEntity entity to update
+	 * @param batchNotify provided attribute
+	 */
+	private static void setBatchNotify(SubscriptionEntity subscriptionEntity, BatchNotify batchNotify){
+		if(batchNotify.getNumber() != null && batchNotify.getNumber().signum() <= 0){
+			throw new BadRequestException("BatchNotify number must be positive");
+		}
+		subscriptionEntity.setBatchNotifyNumber(batchNotify.getNumber());
+		subscriptionEntity.setBatchNotifyDuration(batchNotify.getDuration() != null ?
+				batchNotify.getDuration().toString() : null);
+	}
+
+	/**
+	 * Copies the rate limit attribute to the entity.
+	 * @param subscriptionEntity entity to update
+	 * @param rateLimit provided attribute
+	 */
+	private static void setRateLimit(SubscriptionEntity subscriptionEntity, RateLimit rateLimit){
+		if(rateLimit.getMaxNrOfNotify() != null && rateLimit.getMaxNrOfNotify().signum() <= 0){
+			throw new BadRequestException("RateLimit maxNrOfNotify must be positive");
+		}
+		subscriptionEntity.setRateLimitMaxNrOfNotify(rateLimit.getMaxNrOfNotify());
+		subscriptionEntity.setRateLimitTimeWindow(rateLimit.getTimeWindow() != null ?
+				rateLimit.getTimeWindow().toString() : null);
+	}
+
 }
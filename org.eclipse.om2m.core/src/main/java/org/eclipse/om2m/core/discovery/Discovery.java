@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.discovery;
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.constants.DiscoveryResultType;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.commons.exceptions.AccessDeniedException;
+import org.eclipse.om2m.commons.exceptions.BadRequestException;
+import org.eclipse.om2m.commons.resource.FilterCriteria;
+import org.eclipse.om2m.commons.resource.RequestPrimitive;
+import org.eclipse.om2m.commons.resource.URIList;
+import org.eclipse.om2m.core.acp.AcpEvaluator;
+import org.eclipse.om2m.core.controller.Controller;
+import org.eclipse.om2m.core.router.Patterns;
+import org.eclipse.om2m.core.urimapper.UriMapper;
+import org.eclipse.om2m.core.util.ControllerUtil;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBService;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.CompiledFilter;
+import org.eclipse.om2m.persistence.service.util.ComplexFindUtil;
+
+/**
+ * Discovery of the resources of a subtree.
+ * <p>
+ * The filter criteria are compiled once and resolved by the persistence
+ * layer, which returns the candidates by pages in hierarchical uri order
+ * along with the ids of their policies. The policies are evaluated
+ * once per distinct set of ids, the resources themselves are only loaded
+ * when the persistence layer cannot provide their policies or when the
+ * dynamic authorization has to be consulted. The offset and the limit are
+ * applied to the accessible resources.
+ * <p>
+ * A discovery truncated by its limit returns a continuation token, given
+ * back in the filter criteria to resume the discovery after the last
+ * returned resource.
+ * <p>
+ * The size of the pages read from the persistence layer can be configured
+ * with the system property org.eclipse.om2m.discovery.batchSize.
+ */
+public final class Discovery {
+
+	/** Number of candidates read at once from the persistence layer */
+	private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("org.eclipse.om2m.discovery.batchSize", 500));
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final Controller controller;
+	private final DBService dbs;
+	private final DBTransaction transaction;
+	private final RequestPrimitive request;
+
+	/** Policies read by id, null values for the missing ones */
+	private final Map<String, AccessControlPolicyEntity> policies = new HashMap<>();
+
+	/** Decisions by set of policy ids */
+	private final Map<List<String>, Boolean> decisions = new HashMap<>();
+
+	/** Policy ids of the parents of the content instances by hierarchical uri, null values for unknown policies */
+	private final Map<String, List<String>> parentPolicyIDs = new HashMap<>();
+
+	/** True if a dynamic authorization consultation may grant the access, null until needed */
+	private Boolean dynamicAuthorization;
+
+	private String continuationToken;
+
+	/**
+	 * @param controller controller of the discovery, used to consult the dynamic authorization
+	 * @param dbs database service
+	 * @param transaction transaction of the request
+	 * @param request discovery request
+	 */
+	public Discovery(Controller controller, DBService dbs, DBTransaction transaction, RequestPrimitive request) {
+		this.controller = controller;
+		this.dbs = dbs;
+		this.transaction = transaction;
+		this.request = request;
+	}
+
+	/**
+	 * Discovers the accessible resources matching the filter criteria of the request.
+	 * @param root resource targeted by the discovery
+	 * @return the uris of the resources, hierarchical or not depending on the discovery result type
+	 * @throws BadRequestException if the continuation token or a criterion is invalid
+	 */
+	public URIList execute(ResourceEntity root) {
+		FilterCriteria filter = request.getFilterCriteria();
+		CompiledFilter compiledFilter = CompiledFilter.compile(filter);
+		boolean hierarchical = DiscoveryResultType.HIERARCHICAL.equals(request.getDiscoveryResultType());
+		int limit = filter.getLimit() != null && filter.getLimit().signum() > 0 ? toInt(filter.getLimit())
+				: Integer.MAX_VALUE;
+		int offset = filter.getOffset() != null && filter.getOffset().signum() > 0 ? toInt(filter.getOffset()) : 0;
+		String after = decodeToken(filter.getContinuationToken(), root.getHierarchicalURI());
+
+		ComplexFindUtil finder = dbs.getDBUtilManager().getComplexFindUtil();
+		URIList uriList = new URIList();
+		List<String> uris = uriList.getListOfUri();
+		Set<String> found = new HashSet<>();
+		String lastReturned = null;
+		int skipped = 0;
+		while (true) {
+			List<UriMapperEntity> candidates = finder.getDiscoveryCandidates(transaction, root.getResourceID(),
+					compiledFilter, after, BATCH_SIZE);
+			for (UriMapperEntity candidate : candidates) {
+				after = candidate.getHierarchicalUri();
+				String uri = hierarchical ? candidate.getHierarchicalUri() : candidate.getNonHierarchicalUri();
+				if (!found.add(uri) || !isGranted(candidate)) {
+					continue;
+				}
+				if (skipped < offset) {
+					skipped++;
+					continue;
+				}
+				if (uris.size() == limit) {
+					// one more accessible resource, the discovery can be resumed
+					continuationToken = encodeToken(lastReturned);
+					return uriList;
+				}
+				uris.add(uri);
+				lastReturned = candidate.getHierarchicalUri();
+			}
+			if (candidates.size() < BATCH_SIZE) {
+				return uriList;
+			}
+		}
+	}
+
+	/**
+	 * @return the token resuming the discovery after the last returned
+	 *         resource, null if the discovery has not been truncated
+	 */
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	private boolean isGranted(UriMapperEntity candidate) {
+		List<String> acpIDs;
+		if (candidate.getResourceType() == ResourceType.CONTENT_INSTANCE) {
+			// the policies of the parent container apply
+			acpIDs = getParentPolicyIDs(candidate.getHierarchicalUri());
+		} else {
+			acpIDs = candidate.getAccessControlPolicyIDs();
+			if (acpIDs != null && candidate.getResourceType() == ResourceType.CONTAINER) {
+				parentPolicyIDs.put(candidate.getHierarchicalUri(), acpIDs);
+			}
+		}
+		ResourceEntity resource = null;
+		if (acpIDs == null) {
+			resource = find(candidate.getNonHierarchicalUri());
+			if (resource == null) {
+				return false;
+			}
+			if (isGrantedBy(ControllerUtil.getAcpsFromEntity(resource))) {
+				return true;
+			}
+		} else if (isGrantedByIDs(acpIDs)) {
+			return true;
+		}
+		if (!isDynamicAuthorizationAvailable()) {
+			return false;
+		}
+		if (resource == null) {
+			resource = find(candidate.getNonHierarchicalUri());
+			if (resource == null) {
+				return false;
+			}
+		}
+		try {
+			controller.checkPermissions(request, resource, ControllerUtil.getAcpsFromEntity(resource));
+			return true;
+		} catch (AccessDeniedException e) {
+			return false;
+		}
+	}
+
+	private boolean isGrantedByIDs(List<String> acpIDs) {
+		Boolean decision = decisions.get(acpIDs);
+		if (decision == null) {
+			List<AccessControlPolicyEntity> acps = new ArrayList<>(acpIDs.size());
+			for (String acpID : acpIDs) {
+				if (!policies.containsKey(acpID)) {
+					policies.put(acpID, dbs.getDAOFactory().getAccessControlPolicyDAO().find(transaction, acpID));
+				}
+				if (policies.get(acpID) != null) {
+					acps.add(policies.get(acpID));
+				}
+			}
+			decision = isGrantedBy(acps);
+			decisions.put(acpIDs, decision);
+		}
+		return decision;
+	}
+
+	private boolean isGrantedBy(List<AccessControlPolicyEntity> acps) {
+		return acps != null && !acps.isEmpty()
+				&& AcpEvaluator.isGranted(acps, request.getFrom(), request.getOperation());
+	}
+
+	/**
+	 * @return the policy ids of the parent of a content instance, null if
+	 *         the parent cannot be read
+	 */
+	private List<String> getParentPolicyIDs(String hierarchicalUri) {
+		String parentUri = hierarchicalUri.substring(0, hierarchicalUri.lastIndexOf('/'));
+		if (parentPolicyIDs.containsKey(parentUri)) {
+			return parentPolicyIDs.get(parentUri);
+		}
+		List<String> acpIDs = null;
+		String parentID = UriMapper.getNonHierarchicalUri(parentUri);
+		ResourceEntity parent = parentID == null ? null : find(parentID);
+		if (parent != null && parent.getResourceType() != null
+				&& parent.getResourceType().intValue() == ResourceType.CONTAINER) {
+			acpIDs = new ArrayList<>();
+			for (AccessControlPolicyEntity acp : ControllerUtil.getAcpsFromEntity(parent)) {
+				acpIDs.add(acp.getResourceID());
+			}
+		}
+		parentPolicyIDs.put(parentUri, acpIDs);
+		return acpIDs;
+	}
+
+	/**
+	 * @return true if the CSE holds at least one dynamic authorization consultation
+	 */
+	private boolean isDynamicAuthorizationAvailable() {
+		if (dynamicAuthorization == null) {
+			FilterCriteria filter = new FilterCriteria();
+			filter.setResourceType(BigInteger.valueOf(ResourceType.DYNAMIC_AUTHORIZATION_CONSULTATION));
+			dynamicAuthorization = !dbs.getDBUtilManager().getComplexFindUtil()
+					.getDiscoveryCandidates(transaction, "/" + Constants.CSE_ID, CompiledFilter.compile(filter), null, 1)
+					.isEmpty();
+		}
+		return dynamicAuthorization;
+	}
+
+	private ResourceEntity find(String resourceID) {
+		DAO<?> dao = Patterns.getInstance().getDAO(resourceID, dbs);
+		return dao == null ? null : (ResourceEntity) dao.find(transaction, resourceID);
+	}
+
+	private static int toInt(BigInteger value) {
+		return value.bitLength() < 32 ? value.intValue() : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @param hierarchicalUri last returned uri
+	 * @return an opaque token holding the uri
+	 */
+	static String encodeToken(String hierarchicalUri) {
+		byte[] bytes = hierarchicalUri.getBytes(UTF_8);
+		char[] token = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			token[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			token[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+		}
+		return new String(token);
+	}
+
+	/**
+	 * @param token continuation token, may be null
+	 * @param rootUri hierarchical uri of the discovery root
+	 * @return the last returned uri, null if there is no token
+	 * @throws BadRequestException if the token is invalid for this root
+	 */
+	static String decodeToken(String token, String rootUri) {
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+		if (token.length() % 2 != 0) {
+			throw new BadRequestException("Invalid continuation token");
+		}
+		byte[] bytes = new byte[token.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int high = Character.digit(token.charAt(2 * i), 16);
+			int low = Character.digit(token.charAt(2 * i + 1), 16);
+			if (high < 0 || low < 0) {
+				throw new BadRequestException("Invalid continuation token");
+			}
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+		String uri = new String(bytes, UTF_8);
+		if (!uri.equals(rootUri) && !uri.startsWith(rootUri + "/")) {
+			throw new BadRequestException("Continuation token of another discovery");
+		}
+		return uri;
+	}
+
+}
@@ -19,7 +19,6 @@
  *******************************************************************************/
 package org.eclipse.om2m.core.entitymapper;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -54,7 +53,7 @@ public class ContainerMapper extends EntityMapper<ContainerEntity, Container>{
 		
 		// Container attributes
 		resource.setCreator(entity.getCreator());
-		resource.setCurrentByteSize(BigInteger.valueOf(entity.getCurrentByteSize()));
+		resource.setCurrentByteSize(entity.getCurrentByteSize());
 		resource.setCurrentNrOfInstances(entity.getCurrentNrOfInstances());
 		resource.setLocationID(entity.getLocationID());
 		resource.setMaxByteSize(entity.getMaxByteSize());
@@ -24,8 +24,11 @@ import java.util.List;
 
 import org.eclipse.om2m.commons.entities.ScheduleEntity;
 import org.eclipse.om2m.commons.entities.SubscriptionEntity;
+import org.eclipse.om2m.commons.resource.BatchNotify;
 import org.eclipse.om2m.commons.resource.ChildResourceRef;
+import org.eclipse.om2m.commons.resource.RateLimit;
 import org.eclipse.om2m.commons.resource.Subscription;
+import org.eclipse.om2m.commons.utils.DateConverter;
 
 public class SubscriptionMapper extends EntityMapper<SubscriptionEntity, Subscription> {
 
@@ -43,7 +46,12 @@ public class SubscriptionMapper extends EntityMapper<SubscriptionEntity, Subscri
 		// regular resources
 		EntityMapperFactory.getRegularResourceMapper().mapAttributes(subscriptionEntity, subscription, level, offset);
 
-		// subscription.setBatchNotify(value); // TODO
+		if (subscriptionEntity.getBatchNotifyNumber() != null || subscriptionEntity.getBatchNotifyDuration() != null) {
+			BatchNotify batchNotify = new BatchNotify();
+			batchNotify.setNumber(subscriptionEntity.getBatchNotifyNumber());
+			batchNotify.setDuration(DateConverter.toDuration(subscriptionEntity.getBatchNotifyDuration()));
+			subscription.setBatchNotify(batchNotify);
+		}
 		subscription.setCreator(subscriptionEntity.getCreator());
 		// subscription.setEventNotificationCriteria(value); // TODO
 		subscription.setExpirationCounter(subscriptionEntity.getExpirationCounter());
@@ -56,7 +64,12 @@ public class SubscriptionMapper extends EntityMapper<SubscriptionEntity, Subscri
 		subscription.setNotificationStoragePriority(subscriptionEntity.getNotificationStoragePriority());
 		subscription.setPendingNotification(subscriptionEntity.getPendingNotification());
 		subscription.setPreSubscriptionNotify(subscriptionEntity.getPreSubscriptionNotify());
-		// subscription.setRateLimit(value); // TODO
+		if (subscriptionEntity.getRateLimitMaxNrOfNotify() != null || subscriptionEntity.getRateLimitTimeWindow() != null) {
+			RateLimit rateLimit = new RateLimit();
+			rateLimit.setMaxNrOfNotify(subscriptionEntity.getRateLimitMaxNrOfNotify());
+			rateLimit.setTimeWindow(DateConverter.toDuration(subscriptionEntity.getRateLimitTimeWindow()));
+			subscription.setRateLimit(rateLimit);
+		}
 		// subscription.setSchedule(value); // TODO
 		subscription.setSubscriberURI(subscriptionEntity.getSubscriberURI());
 
@@ -0,0 +1,545 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.fanout;
+
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.binding.service.ResponseListener;
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.constants.MimeMediaType;
+import org.eclipse.om2m.commons.constants.ResponseStatusCode;
+import org.eclipse.om2m.commons.constants.ShortName;
+import org.eclipse.om2m.commons.resource.AggregatedResponse;
+import org.eclipse.om2m.commons.resource.PrimitiveContent;
+import org.eclipse.om2m.commons.resource.RequestPrimitive;
+import org.eclipse.om2m.commons.resource.ResponsePrimitive;
+import org.eclipse.om2m.core.fanout.RemoteGroups.RemoteGroup;
+import org.eclipse.om2m.core.router.Router;
+import org.eclipse.om2m.core.thread.CoreExecutor;
+import org.eclipse.om2m.core.util.GroupMembershipIndex.Membership;
+
+/**
+ * Fan out of a request to the members of a group.
+ * <p>
+ * The requests to the members are sent in parallel, at most maxConcurrency
+ * at once, and their responses are aggregated in the order they are
+ * received. The fan out ends at the deadline of the request: its
+ * requestExpirationTimestamp, absolute or relative in ms, or the default
+ * timeout. The members that did not answer by then are reported in the
+ * aggregated response with a REQUEST_TIMEOUT status.
+ * <p>
+ * When the remote sub-groups are enabled with remoteGroupThreshold, the
+ * members hosted by the same remote CSE are reached with a single request to
+ * the fan out point of a sub-group created on that CSE, if the group provides
+ * in its membersAccessControlPolicyIDs the policies of the sub-group hosted
+ * by that CSE. The members are requested one by one if the sub-group cannot
+ * be used.
+ * <p>
+ * The fan out can be configured using the following system properties:
+ * <ul>
+ * <li>org.eclipse.om2m.fanout.timeout: default timeout of the fan out in ms</li>
+ * <li>org.eclipse.om2m.fanout.maxConcurrency: maximum number of requests in progress for a fan out</li>
+ * <li>org.eclipse.om2m.fanout.remoteGroupThreshold: minimum number of members of a remote CSE to create a sub-group, 0 (default) disables them</li>
+ * <li>org.eclipse.om2m.fanout.remoteGroupLifetime: lifetime of the sub-groups in s</li>
+ * </ul>
+ */
+public final class FanOut {
+
+	/** Logger */
+	private static final Log LOGGER = LogFactory.getLog(FanOut.class);
+
+	/** Timeout of the fan out when the request has no expiration timestamp, in ms */
+	private static final long DEFAULT_TIMEOUT = Long.parseLong(
+			System.getProperty("org.eclipse.om2m.fanout.timeout", "30000"));
+
+	/** Maximum number of requests in progress for a fan out */
+	private static final int MAX_CONCURRENCY = Math.max(1, Integer.parseInt(
+			System.getProperty("org.eclipse.om2m.fanout.maxConcurrency", "64")));
+
+	/** Minimum number of members hosted by a remote CSE to use a sub-group, 0 disables them */
+	private static final int REMOTE_GROUP_THRESHOLD = Integer.parseInt(
+			System.getProperty("org.eclipse.om2m.fanout.remoteGroupThreshold", "0"));
+
+	/** Time left to a remote sub-group to return its aggregated response, in ms */
+	private static final long FORWARD_MARGIN = 500;
+
+	/** Request to fan out */
+	private final RequestPrimitive request;
+	/** Id of the group targeted by the request */
+	private final String groupID;
+	/** Members of the group */
+	private final Membership membership;
+	/** Suffix added to the member uris, null if none */
+	private final String suffix;
+	/** Deadline of the fan out, in ms */
+	private final long deadline;
+
+	/** Completed requests, filled by the listeners */
+	private final BlockingQueue<Completion> completions = new LinkedBlockingQueue<Completion>();
+	/** Requests to send */
+	private final Deque<Target> pending = new ArrayDeque<Target>();
+	/** Requests in progress */
+	private final Set<Target> inProgress = new LinkedHashSet<Target>();
+	/** Aggregated responses in completion order */
+	private final AggregatedResponse aggregated = new AggregatedResponse();
+
+	/**
+	 * Creates the fan out of a request.
+	 * @param request - request to fan out, its target is the group
+	 * @param groupID - id of the group targeted by the request
+	 * @param membership - members of the group
+	 * @param suffix - suffix added to the member uris, null if none
+	 */
+	public FanOut(RequestPrimitive request, String groupID, Membership membership, String suffix) {
+		this.request = request;
+		this.groupID = groupID;
+		this.membership = membership;
+		this.suffix = suffix;
+		this.deadline = System.currentTimeMillis() + getTimeout(request.getRequestExpirationTimestamp());
+	}
+
+	/**
+	 * Sends the request to the members and waits for their responses until
+	 * the deadline of the request.
+	 * @return the responses of the members
+	 */
+	public AggregatedResponse execute() {
+		plan();
+		send();
+		boolean interrupted = false;
+		while (!inProgress.isEmpty()) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				break;
+			}
+			Completion completion;
+			try {
+				completion = completions.poll(remaining, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+				break;
+			}
+			if (completion == null) {
+				break;
+			}
+			inProgress.remove(completion.target);
+			completion.target.handle(completion.response, completion.failure);
+			send();
+		}
+		if (!inProgress.isEmpty() || !pending.isEmpty()) {
+			LOGGER.info("Fan out of " + groupID + " timed out, "
+					+ inProgress.size() + " requests in progress, " + pending.size() + " not sent");
+		}
+		for (Target target : inProgress) {
+			timeout(target);
+		}
+		for (Target target : pending) {
+			timeout(target);
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return aggregated;
+	}
+
+	/**
+	 * Deletes the remote sub-groups of a deleted group.
+	 * @param groupID - id of the group
+	 */
+	public static void release(String groupID) {
+		RemoteGroups.release(groupID);
+	}
+
+	/**
+	 * Gets the time given to a request to complete.
+	 * @param expirationTimestamp - request expiration timestamp, absolute or relative in ms
+	 * @return the timeout in ms
+	 */
+	static long getTimeout(String expirationTimestamp) {
+		if (expirationTimestamp == null || expirationTimestamp.isEmpty()) {
+			return DEFAULT_TIMEOUT;
+		}
+		try {
+			if (isDigits(expirationTimestamp)) {
+				return Long.parseLong(expirationTimestamp);
+			}
+			String dateFormat = System.getProperty("org.eclipse.om2m.date.format", "yyyyMMdd'T'HHmmss");
+			return new SimpleDateFormat(dateFormat).parse(expirationTimestamp).getTime()
+					- System.currentTimeMillis();
+		} catch (ParseException | NumberFormatException e) {
+			LOGGER.warn("Invalid request expiration timestamp: " + expirationTimestamp);
+			return DEFAULT_TIMEOUT;
+		}
+	}
+
+	/**
+	 * Routes a request on a thread of the fan out pool, which handles the
+	 * requests targeting this CSE and forwards the others asynchronously.
+	 * @param request - request to route
+	 * @param listener - listener of the response, null to ignore it
+	 */
+	static void post(final RequestPrimitive request, final ResponseListener listener) {
+		try {
+			CoreExecutor.postThread(CoreExecutor.Pool.FAN_OUT, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						ResponseListener target = listener != null ? listener : IGNORE;
+						new Router().doRequestAsync(request).addListener(target);
+					} catch (Exception e) {
+						if (listener != null) {
+							listener.onFailure(e);
+						}
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			// rejected by the pool
+			if (listener == null) {
+				LOGGER.warn("Request to " + request.getTo() + " not sent", e);
+			} else {
+				listener.onFailure(e);
+			}
+		}
+	}
+
+	/**
+	 * Splits the members between the requests to send.
+	 */
+	private void plan() {
+		Map<String, List<String>> remoteMembers = new LinkedHashMap<String, List<String>>();
+		List<Target> members = new ArrayList<Target>();
+		for (String member : membership.getMemberIDs()) {
+			String cseID = REMOTE_GROUP_THRESHOLD > 0 ? getRemoteCseId(member) : null;
+			if (cseID == null) {
+				members.add(new MemberTarget(member));
+				continue;
+			}
+			List<String> cseMembers = remoteMembers.get(cseID);
+			if (cseMembers == null) {
+				cseMembers = new ArrayList<String>();
+				remoteMembers.put(cseID, cseMembers);
+			}
+			cseMembers.add(member);
+		}
+		for (Map.Entry<String, List<String>> entry : remoteMembers.entrySet()) {
+			String cseID = entry.getKey();
+			List<String> acpIDs = getRemoteAcpIds(cseID);
+			String cseBaseUri = null;
+			if (entry.getValue().size() >= REMOTE_GROUP_THRESHOLD && !acpIDs.isEmpty()) {
+				cseBaseUri = RemoteGroups.getCseBaseUri(cseID);
+			}
+			if (cseBaseUri != null) {
+				// the slowest requests, sent first
+				pending.add(new RemoteTarget(cseID, cseBaseUri, entry.getValue(), acpIDs));
+			} else {
+				for (String member : entry.getValue()) {
+					members.add(new MemberTarget(member));
+				}
+			}
+		}
+		pending.addAll(members);
+	}
+
+	/**
+	 * Sends the pending requests while the concurrency allows it.
+	 */
+	private void send() {
+		while (!pending.isEmpty() && inProgress.size() < MAX_CONCURRENCY
+				&& deadline > System.currentTimeMillis()) {
+			Target target = pending.poll();
+			inProgress.add(target);
+			target.send();
+		}
+	}
+
+	/**
+	 * @return the time left before the deadline, in ms
+	 */
+	private long remaining() {
+		return Math.max(0, deadline - System.currentTimeMillis());
+	}
+
+	/**
+	 * Builds the request to a member or sub-group fan out point.
+	 * @param to - uri of the member
+	 * @param margin - time kept before the deadline, in ms
+	 * @return the request
+	 */
+	private RequestPrimitive memberRequest(String to, long margin) {
+		RequestPrimitive memberRequest = request.cloneParameters();
+		memberRequest.setTo(suffix != null ? to + suffix : to);
+		memberRequest.setReturnContentType(MimeMediaType.OBJ);
+		memberRequest.setRequestExpirationTimestamp(String.valueOf(Math.max(1, remaining() - margin)));
+		return memberRequest;
+	}
+
+	private void add(String member, ResponsePrimitive response) {
+		response.setFrom(member);
+		aggregated.getResponsePrimitive().add(response);
+	}
+
+	private void add(String member, BigInteger statusCode, String message) {
+		ResponsePrimitive response = new ResponsePrimitive(request);
+		response.setResponseStatusCode(statusCode);
+		if (message != null) {
+			PrimitiveContent content = new PrimitiveContent();
+			content.getAny().add(message);
+			response.setContent(content);
+		}
+		add(member, response);
+	}
+
+	private void timeout(Target target) {
+		for (String member : target.members) {
+			add(member, ResponseStatusCode.REQUEST_TIMEOUT, "No response before the request expiration");
+		}
+	}
+
+	/**
+	 * Gets the ids of the access control policies of the members hosted by a
+	 * remote CSE, given to its sub-group.
+	 * @param cseID - id of the remote CSE
+	 * @return the ids of the policies hosted by the remote CSE
+	 */
+	private List<String> getRemoteAcpIds(String cseID) {
+		List<String> acpIDs = new ArrayList<String>();
+		for (String acpID : membership.getMemberAcpIDs()) {
+			if (cseID.equals(getRemoteCseId(acpID))) {
+				acpIDs.add(acpID);
+			}
+		}
+		return acpIDs;
+	}
+
+	/**
+	 * Gets the remote CSE hosting a resource.
+	 * @param uri - uri of the resource, CSE-relative, SP-relative or absolute
+	 * @return the id of the remote CSE or null if the resource is hosted by
+	 *         this CSE or cannot be reached through a sub-group
+	 */
+	static String getRemoteCseId(String uri) {
+		String to = uri.startsWith("~") ? uri.substring(1) : uri;
+		if (to.startsWith("//") || to.startsWith("_")) {
+			String spRelative = to.substring(2);
+			String spID = spRelative.split("/")[0];
+			if (!spID.equals(Constants.M2M_SP_ID)) {
+				return null;
+			}
+			to = spRelative.substring(spID.length());
+		}
+		if (!to.startsWith("/")) {
+			return null;
+		}
+		String[] segments = to.split("/");
+		if (segments.length < 3 || segments[1].isEmpty() || segments[1].equals(Constants.CSE_ID)) {
+			return null;
+		}
+		return "/" + segments[1];
+	}
+
+	private static boolean isDigits(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (!Character.isDigit(value.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Listener of the responses nobody waits for */
+	private static final ResponseListener IGNORE = new ResponseListener() {
+		@Override
+		public void onResponse(ResponsePrimitive response) {
+			LOGGER.debug("Response ignored: " + response.getResponseStatusCode());
+		}
+
+		@Override
+		public void onFailure(Throwable cause) {
+			LOGGER.debug("Request failed", cause);
+		}
+	};
+
+	/**
+	 * Completion of a request, handled by the thread of the fan out.
+	 */
+	private static final class Completion {
+		final Target target;
+		final ResponsePrimitive response;
+		final Throwable failure;
+
+		Completion(Target target, ResponsePrimitive response, Throwable failure) {
+			this.target = target;
+			this.response = response;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * Request sent for one or several members.
+	 */
+	private abstract class Target implements ResponseListener {
+		/** Members reached by the request */
+		final List<String> members;
+
+		Target(List<String> members) {
+			this.members = members;
+		}
+
+		/**
+		 * Sends the request, the listener is called on completion.
+		 */
+		abstract void send();
+
+		/**
+		 * Handles the completion of the request on the thread of the fan out.
+		 * @param response - response, null on failure
+		 * @param failure - cause of the failure, null on response
+		 */
+		abstract void handle(ResponsePrimitive response, Throwable failure);
+
+		@Override
+		public void onResponse(ResponsePrimitive response) {
+			completions.add(new Completion(this, response, null));
+		}
+
+		@Override
+		public void onFailure(Throwable cause) {
+			completions.add(new Completion(this, null, cause));
+		}
+	}
+
+	/**
+	 * Request to a member.
+	 */
+	private final class MemberTarget extends Target {
+
+		MemberTarget(String member) {
+			super(Collections.singletonList(member));
+		}
+
+		@Override
+		void send() {
+			RequestPrimitive memberRequest = memberRequest(members.get(0), 0);
+			LOGGER.debug("Fan out to " + memberRequest.getTo());
+			post(memberRequest, this);
+		}
+
+		@Override
+		void handle(ResponsePrimitive response, Throwable failure) {
+			String member = members.get(0);
+			if (failure != null) {
+				LOGGER.warn("Fan out to " + member + " failed", failure);
+				add(member, ResponseStatusCode.INTERNAL_SERVER_ERROR, String.valueOf(failure.getMessage()));
+				return;
+			}
+			response.setPrimitiveContent(new PrimitiveContent());
+			response.getPrimitiveContent().getAny().add(response.getContent());
+			add(member, response);
+		}
+	}
+
+	/**
+	 * Request to the fan out point of a sub-group created on a remote CSE.
+	 */
+	private final class RemoteTarget extends Target {
+		/** Id of the remote CSE */
+		private final String cseID;
+		/** Hierarchical uri of the remote CSEBase */
+		private final String cseBaseUri;
+		/** Access control policies of the sub-group */
+		private final List<String> acpIDs;
+
+		RemoteTarget(String cseID, String cseBaseUri, List<String> members, List<String> acpIDs) {
+			super(members);
+			this.cseID = cseID;
+			this.cseBaseUri = cseBaseUri;
+			this.acpIDs = acpIDs;
+		}
+
+		@Override
+		void send() {
+			RemoteGroup remoteGroup = RemoteGroups.get(groupID, cseID, members);
+			if (remoteGroup != null) {
+				sendFanOut(remoteGroup);
+				return;
+			}
+			final String name = RemoteGroups.newName();
+			LOGGER.info("Creating the sub-group " + name + " of " + groupID + " on " + cseID);
+			post(RemoteGroups.createRequest(cseBaseUri, name, members, acpIDs), new ResponseListener() {
+				@Override
+				public void onResponse(ResponsePrimitive response) {
+					if (!ResponseStatusCode.CREATED.equals(response.getResponseStatusCode())) {
+						RemoteTarget.this.onResponse(response);
+						return;
+					}
+					RemoteGroup created = RemoteGroups.created(cseBaseUri, name, members);
+					RemoteGroups.put(groupID, cseID, created);
+					sendFanOut(created);
+				}
+
+				@Override
+				public void onFailure(Throwable cause) {
+					RemoteTarget.this.onFailure(cause);
+				}
+			});
+		}
+
+		private void sendFanOut(RemoteGroup remoteGroup) {
+			RequestPrimitive groupRequest = memberRequest(remoteGroup.uri + "/" + ShortName.FANOUTPOINT, FORWARD_MARGIN);
+			LOGGER.debug("Fan out to " + groupRequest.getTo() + " for " + members.size() + " members");
+			post(groupRequest, this);
+		}
+
+		@Override
+		void handle(ResponsePrimitive response, Throwable failure) {
+			if (failure == null && ResponseStatusCode.OK.equals(response.getResponseStatusCode())
+					&& response.getContent() instanceof AggregatedResponse) {
+				aggregated.getResponsePrimitive().addAll(
+						((AggregatedResponse) response.getContent()).getResponsePrimitive());
+				return;
+			}
+			LOGGER.warn("Sub-group of " + groupID + " on " + cseID + " not usable ("
+					+ (failure != null ? failure.getMessage() : response.getResponseStatusCode())
+					+ "), requesting its members one by one");
+			RemoteGroups.invalidate(groupID, cseID);
+			for (int i = members.size() - 1; i >= 0; i--) {
+				pending.addFirst(new MemberTarget(members.get(i)));
+			}
+		}
+	}
+
+}
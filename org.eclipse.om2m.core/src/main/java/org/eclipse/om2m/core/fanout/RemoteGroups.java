@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.fanout;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.constants.MemberType;
+import org.eclipse.om2m.commons.constants.MimeMediaType;
+import org.eclipse.om2m.commons.constants.Operation;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
+import org.eclipse.om2m.commons.resource.Group;
+import org.eclipse.om2m.commons.resource.RequestPrimitive;
+import org.eclipse.om2m.commons.utils.Util.DateUtil;
+import org.eclipse.om2m.core.controller.Controller;
+import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.persistence.RequestTransaction;
+import org.eclipse.om2m.persistence.service.DBService;
+
+/**
+ * Sub-groups created on the remote CSEs hosting several members of a group.
+ * <p>
+ * The sub-groups are created and deleted by this CSE, with its CSE-ID as
+ * originator: the remote CSE must allow it to create groups under its
+ * CSEBase. The requests to their fan out points keep the originator of the
+ * request to the group, checked against the policies of the sub-group.
+ * <p>
+ * A sub-group is kept as long as the members of the group hosted by the
+ * remote CSE do not change, it is deleted and created again otherwise. It
+ * is created with an expiration time so the sub-groups of a CSE that stopped
+ * are eventually removed by the remote CSE.
+ */
+final class RemoteGroups {
+
+	/** Logger */
+	private static final Log LOGGER = LogFactory.getLog(RemoteGroups.class);
+
+	/** Lifetime of the sub-groups, in s */
+	private static final long LIFETIME = Long.parseLong(
+			System.getProperty("org.eclipse.om2m.fanout.remoteGroupLifetime", "86400"));
+
+	/** Prefix of the names of the sub-groups */
+	private static final String NAME_PREFIX = "fopt_";
+
+	/** Originator of the requests creating and deleting the sub-groups */
+	private static final String ORIGINATOR = "/" + Constants.CSE_ID;
+
+	/** Sub-groups by group id and remote CSE id */
+	private static final ConcurrentMap<String, RemoteGroup> GROUPS = new ConcurrentHashMap<String, RemoteGroup>();
+
+	/**
+	 * Sub-group created on a remote CSE.
+	 */
+	static final class RemoteGroup {
+		/** Members of the sub-group */
+		final List<String> members;
+		/** Hierarchical uri of the sub-group */
+		final String uri;
+		/** Expiration of the sub-group, in ms */
+		final long expiration;
+
+		RemoteGroup(List<String> members, String uri, long expiration) {
+			this.members = members;
+			this.uri = uri;
+			this.expiration = expiration;
+		}
+	}
+
+	private RemoteGroups() {
+		// static only
+	}
+
+	/**
+	 * Gets the sub-group of a group on a remote CSE.
+	 * @param groupID - id of the group
+	 * @param cseID - id of the remote CSE
+	 * @param members - members of the group hosted by the remote CSE
+	 * @return the sub-group or null if it must be created
+	 */
+	static RemoteGroup get(String groupID, String cseID, List<String> members) {
+		String key = key(groupID, cseID);
+		RemoteGroup remoteGroup = GROUPS.get(key);
+		if (remoteGroup == null) {
+			return null;
+		}
+		// renewed when 90% of its lifetime is over, not to be used when the remote CSE removes it
+		if (remoteGroup.members.equals(members)
+				&& remoteGroup.expiration - LIFETIME * 100 > System.currentTimeMillis()) {
+			return remoteGroup;
+		}
+		if (GROUPS.remove(key, remoteGroup)) {
+			delete(remoteGroup);
+		}
+		return null;
+	}
+
+	/**
+	 * Registers the sub-group created on a remote CSE.
+	 * @param groupID - id of the group
+	 * @param cseID - id of the remote CSE
+	 * @param remoteGroup - created sub-group
+	 */
+	static void put(String groupID, String cseID, RemoteGroup remoteGroup) {
+		RemoteGroup previous = GROUPS.put(key(groupID, cseID), remoteGroup);
+		if (previous != null) {
+			delete(previous);
+		}
+	}
+
+	/**
+	 * Forgets and deletes the sub-group of a group on a remote CSE.
+	 * @param groupID - id of the group
+	 * @param cseID - id of the remote CSE
+	 */
+	static void invalidate(String groupID, String cseID) {
+		RemoteGroup remoteGroup = GROUPS.remove(key(groupID, cseID));
+		if (remoteGroup != null) {
+			delete(remoteGroup);
+		}
+	}
+
+	/**
+	 * Deletes all the sub-groups of a group.
+	 * @param groupID - id of the group
+	 */
+	static void release(String groupID) {
+		String prefix = key(groupID, "");
+		for (Map.Entry<String, RemoteGroup> entry : GROUPS.entrySet()) {
+			if (entry.getKey().startsWith(prefix) && GROUPS.remove(entry.getKey(), entry.getValue())) {
+				delete(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Gets the hierarchical uri of the CSEBase of a remote CSE.
+	 * @param cseID - id of the remote CSE
+	 * @return the uri or null if the CSE is not registered to this CSE
+	 */
+	static String getCseBaseUri(String cseID) {
+		DBService dbs = PersistenceService.getInstance().getDbService();
+		RequestTransaction transaction = RequestTransaction.open(dbs);
+		try {
+			RemoteCSEEntity csr = dbs.getDAOFactory().getRemoteCSEbyCseIdDAO().find(transaction.get(), cseID);
+			return csr == null ? null : cseID + "/" + csr.getName();
+		} finally {
+			transaction.close();
+		}
+	}
+
+	/**
+	 * Generates the name of a new sub-group.
+	 * @return the name, unique among the sub-groups of the CSEs
+	 */
+	static String newName() {
+		return NAME_PREFIX + Constants.CSE_ID + "_" + Controller.generateId();
+	}
+
+	/**
+	 * Builds the request creating a sub-group on a remote CSE.
+	 * @param cseBaseUri - hierarchical uri of the remote CSEBase
+	 * @param name - name of the sub-group
+	 * @param members - members of the sub-group
+	 * @param acpIDs - ids of the access control policies of the sub-group
+	 * @return the create request, sent by this CSE
+	 */
+	static RequestPrimitive createRequest(String cseBaseUri, String name, List<String> members, List<String> acpIDs) {
+		Group group = new Group();
+		group.setName(name);
+		group.setMemberType(MemberType.MIXED);
+		group.setMaxNrOfMembers(BigInteger.valueOf(members.size()));
+		group.getMemberIDs().addAll(members);
+		group.getAccessControlPolicyIDs().addAll(acpIDs);
+		group.setExpirationTime(DateUtil.format(new Date(System.currentTimeMillis() + LIFETIME * 1000)));
+
+		RequestPrimitive request = new RequestPrimitive();
+		request.setOperation(Operation.CREATE);
+		request.setFrom(ORIGINATOR);
+		request.setTo(cseBaseUri);
+		request.setResourceType(BigInteger.valueOf(ResourceType.GROUP));
+		request.setRequestContentType(MimeMediaType.OBJ);
+		request.setReturnContentType(MimeMediaType.OBJ);
+		request.setContent(group);
+		return request;
+	}
+
+	/**
+	 * Creates the entry of a sub-group created on a remote CSE.
+	 * @param cseBaseUri - hierarchical uri of the remote CSEBase
+	 * @param name - name of the sub-group
+	 * @param members - members of the sub-group
+	 * @return the entry to register
+	 */
+	static RemoteGroup created(String cseBaseUri, String name, List<String> members) {
+		return new RemoteGroup(new ArrayList<String>(members), cseBaseUri + "/" + name,
+				System.currentTimeMillis() + LIFETIME * 1000);
+	}
+
+	private static void delete(RemoteGroup remoteGroup) {
+		LOGGER.info("Deleting remote sub-group " + remoteGroup.uri);
+		RequestPrimitive request = new RequestPrimitive();
+		request.setOperation(Operation.DELETE);
+		request.setFrom(ORIGINATOR);
+		request.setTo(remoteGroup.uri);
+		request.setReturnContentType(MimeMediaType.OBJ);
+		FanOut.post(request, null);
+	}
+
+	private static String key(String groupID, String cseID) {
+		return groupID + " " + cseID;
+	}
+
+}
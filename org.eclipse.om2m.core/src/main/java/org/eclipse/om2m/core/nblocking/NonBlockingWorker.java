@@ -60,7 +60,7 @@ public class NonBlockingWorker extends Thread {
 		DBService dbs = PersistenceService.getInstance().getDbService();
 		DBTransaction transaction = dbs.getDbTransaction();
 		transaction.open();
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		
 		RequestEntity managedRequest = dbs.getDAOFactory().getRequestEntityDAO().
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.notifier;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.eclipse.om2m.commons.constants.NotificationContentType;
+import org.eclipse.om2m.commons.constants.ResourceStatus;
+import org.eclipse.om2m.commons.constants.ResultContent;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.SubscriptionEntity;
+import org.eclipse.om2m.commons.resource.Notification;
+import org.eclipse.om2m.commons.resource.Notification.NotificationEvent;
+import org.eclipse.om2m.commons.resource.Notification.NotificationEvent.Representation;
+import org.eclipse.om2m.commons.resource.Resource;
+import org.eclipse.om2m.core.datamapper.DataMapperSelector;
+import org.eclipse.om2m.core.entitymapper.EntityMapper;
+import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
+
+/**
+ * Content of the notifications of one event, shared by all the subscribers.
+ * <p>
+ * The resource is mapped once and the notification is serialized once per
+ * (notificationContentType, notificationPayloadContentType). The serialized
+ * notification is kept as a template in which only the subscription specific
+ * fields, the subscription reference and the creator, are filled in for each
+ * subscriber.
+ */
+final class NotificationContent {
+
+	/** Placeholders of the subscription specific fields, cannot appear in a resource by chance */
+	private static final String TOKEN = "om2m" + UUID.randomUUID().toString().replace("-", "");
+	private static final String SUBSCRIPTION_REFERENCE_TOKEN = TOKEN + "sur";
+	private static final String CREATOR_TOKEN = TOKEN + "cr";
+
+	private final ResourceEntity resource;
+	private final Resource modifiedOnlyResource;
+	private final int resourceStatus;
+
+	/** Resource mapped with its attributes, shared by the notifications */
+	private Resource mappedResource;
+	/** Serialized notifications by content types and creator presence */
+	private final Map<String, Template> templates = new HashMap<String, Template>();
+
+	NotificationContent(ResourceEntity resource, Resource modifiedOnlyResource, int resourceStatus) {
+		this.resource = resource;
+		this.modifiedOnlyResource = modifiedOnlyResource;
+		this.resourceStatus = resourceStatus;
+	}
+
+	/**
+	 * @return true if the notified subscriptions are deleted with the resource
+	 */
+	boolean isSubscriptionDeletion() {
+		return resourceStatus == ResourceStatus.DELETED;
+	}
+
+	/**
+	 * Builds the notification sent to a subscriber.
+	 * @param sub - The notified subscription
+	 * @return the notification
+	 */
+	Notification getNotification(SubscriptionEntity sub) {
+		return newNotification(sub.getNotificationContentType(), sub.getResourceID(), sub.getCreator());
+	}
+
+	/**
+	 * Serializes the notification sent to a subscriber.
+	 * @param sub - The notified subscription
+	 * @return the serialized notification
+	 */
+	String serialize(SubscriptionEntity sub) {
+		String payloadContentType = sub.getNotificationPayloadContentType();
+		boolean withCreator = sub.getCreator() != null;
+		String key = sub.getNotificationContentType() + " " + payloadContentType + " " + withCreator;
+		Template template;
+		synchronized (this) {
+			template = templates.get(key);
+			if (template == null) {
+				Notification notification = newNotification(sub.getNotificationContentType(), 
+						SUBSCRIPTION_REFERENCE_TOKEN, withCreator ? CREATOR_TOKEN : null);
+				template = new Template(DataMapperSelector.getDataMapperList()
+						.get(payloadContentType).objToString(notification));
+				templates.put(key, template);
+			}
+		}
+		boolean json = payloadContentType != null && payloadContentType.toLowerCase().contains("json");
+		return template.fill(escape(sub.getResourceID(), json), escape(sub.getCreator(), json));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Notification newNotification(BigInteger notificationContentType, String subscriptionReference, 
+			String creator) {
+		Notification notification = new Notification();
+		NotificationEvent notifEvent = new NotificationEvent();
+		notification.setNotificationEvent(notifEvent);
+
+		// Set attributes of notification object
+		notifEvent.setResourceStatus(BigInteger.valueOf(resourceStatus));
+		notification.setCreator(creator);
+		notification.setSubscriptionDeletion(resourceStatus == ResourceStatus.DELETED);
+		notification.setSubscriptionReference(subscriptionReference);
+
+		// Get the representation of the content
+		if (notificationContentType != null) {
+			if (notificationContentType.equals(NotificationContentType.MODIFIED_ATTRIBUTES)) {
+				Representation representation = new Representation();
+				if (modifiedOnlyResource != null) {
+					// as all Controllers have not been modified
+					// for modified controllers, use the resource provided by the controller
+					representation.setResource(modifiedOnlyResource);
+				} else {
+					// for non modified controllers, send the ResourceEntity 
+					// but it is not compliant with the specs
+					representation.setResource(getMappedResource());
+				}
+				notifEvent.setRepresentation(representation);
+			} else if (notificationContentType.equals(NotificationContentType.WHOLE_RESOURCE)) {
+				Representation representation = new Representation();
+				representation.setResource(getMappedResource());
+				notifEvent.setRepresentation(representation);
+			}
+		}
+		return notification;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private synchronized Resource getMappedResource() {
+		if (mappedResource == null) {
+			EntityMapper mapper = EntityMapperFactory.getMapperFromResourceType(resource.getResourceType().intValue());
+			mappedResource = mapper.mapEntityToResource(resource, ResultContent.ATTRIBUTES, 0, 0);
+		}
+		return mappedResource;
+	}
+
+	/**
+	 * Escapes a field value inserted in a serialized notification.
+	 */
+	private static String escape(String value, boolean json) {
+		if (value == null) {
+			return null;
+		}
+		StringBuilder builder = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (json) {
+				if (c == '"' || c == '\\') {
+					builder.append('\\');
+				}
+				builder.append(c);
+			} else if (c == '&') {
+				builder.append("&amp;");
+			} else if (c == '<') {
+				builder.append("&lt;");
+			} else if (c == '>') {
+				builder.append("&gt;");
+			} else if (c == '"') {
+				builder.append("&quot;");
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Serialized notification split around the placeholders.
+	 */
+	private static final class Template {
+
+		private static final int SUBSCRIPTION_REFERENCE = 0;
+		private static final int CREATOR = 1;
+
+		/** Text between the placeholders */
+		private final String[] segments;
+		/** Field following each segment, the last segment has none */
+		private final int[] fields;
+		private final int length;
+
+		Template(String serialized) {
+			List<String> segmentList = new ArrayList<String>();
+			List<Integer> fieldList = new ArrayList<Integer>();
+			int start = 0;
+			int index;
+			while ((index = serialized.indexOf(TOKEN, start)) >= 0) {
+				segmentList.add(serialized.substring(start, index));
+				if (serialized.startsWith(SUBSCRIPTION_REFERENCE_TOKEN, index)) {
+					fieldList.add(SUBSCRIPTION_REFERENCE);
+					start = index + SUBSCRIPTION_REFERENCE_TOKEN.length();
+				} else {
+					fieldList.add(CREATOR);
+					start = index + CREATOR_TOKEN.length();
+				}
+			}
+			segmentList.add(serialized.substring(start));
+			segments = segmentList.toArray(new String[segmentList.size()]);
+			fields = new int[fieldList.size()];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = fieldList.get(i);
+			}
+			length = serialized.length();
+		}
+
+		String fill(String subscriptionReference, String creator) {
+			StringBuilder builder = new StringBuilder(length + 64);
+			for (int i = 0; i < fields.length; i++) {
+				builder.append(segments[i]);
+				builder.append(fields[i] == SUBSCRIPTION_REFERENCE ? subscriptionReference : creator);
+			}
+			builder.append(segments[segments.length - 1]);
+			return builder.toString();
+		}
+	}
+
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.notifier;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.commons.entities.SubscriptionEntity;
+import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.thread.CoreExecutor;
+import org.eclipse.om2m.core.urimapper.UriMapper;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBService;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Counts the failed notifications of the subscriptions. Results are accumulated
+ * in memory and periodically written in a single transaction instead of one
+ * transaction per notification. A subscription is deleted when the number of
+ * consecutive failed notifications exceeds the configured limit.
+ */
+final class NotificationCounters {
+
+	/** Logger */
+	private static final Log LOGGER = LogFactory.getLog(NotificationCounters.class);
+
+	/** Number of consecutive failed notifications before the subscription is deleted */
+	private static final int NB_OF_FAILED_NOTIFS_BEFORE_DELETION = Integer.parseInt(
+			System.getProperty("org.eclipse.om2m.subscriptions.nbOfFailedNotificationsBeforeDeletion", "5"));
+
+	/** Period of the counter writes, in ms */
+	private static final long FLUSH_PERIOD = Long.parseLong(
+			System.getProperty("org.eclipse.om2m.notification.counterFlushPeriod", "1000"));
+
+	/** Results not written yet by subscription id */
+	private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<String, Counter>();
+
+	static {
+		CoreExecutor.scheduleAtFixedRate(CoreExecutor.Pool.NOTIFICATION, new Runnable() {
+			@Override
+			public void run() {
+				flush();
+			}
+		}, FLUSH_PERIOD > 0 ? FLUSH_PERIOD : 1000, TimeUnit.MILLISECONDS);
+	}
+
+	private NotificationCounters() {
+		// static only
+	}
+
+	/**
+	 * Records a notification received by the subscriber.
+	 * @param subscriptionId - The id of the notified subscription
+	 */
+	static void notified(String subscriptionId) {
+		while (true) {
+			Counter counter = getCounter(subscriptionId);
+			synchronized (counter) {
+				if (!counter.taken) {
+					counter.reset = true;
+					counter.failures = 0;
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records a notification that could not be delivered.
+	 * @param subscriptionId - The id of the notified subscription
+	 */
+	static void failed(String subscriptionId) {
+		while (true) {
+			Counter counter = getCounter(subscriptionId);
+			synchronized (counter) {
+				if (!counter.taken) {
+					counter.failures++;
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the accumulated results: the counter of a subscription is reset after a
+	 * received notification and increased by the failures that followed.
+	 */
+	static synchronized void flush() {
+		if (COUNTERS.isEmpty()) {
+			return;
+		}
+		Map<String, Counter> counters = new HashMap<String, Counter>();
+		for (String subscriptionId : COUNTERS.keySet()) {
+			Counter counter = COUNTERS.remove(subscriptionId);
+			if (counter != null) {
+				synchronized (counter) {
+					// results recorded from now on go to a new counter
+					counter.taken = true;
+				}
+				counters.put(subscriptionId, counter);
+			}
+		}
+		DBService dbs = PersistenceService.getInstance().getDbService();
+		DAO<SubscriptionEntity> dao = dbs.getDAOFactory().getSubsciptionDAO();
+		DBTransaction transaction = dbs.getDbTransaction();
+		transaction.open();
+		try {
+			for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+				SubscriptionEntity subscription = dao.find(transaction, entry.getKey());
+				if (subscription == null) {
+					continue;
+				}
+				Counter counter = entry.getValue();
+				Integer current = subscription.getNbOfFailedNotifications();
+				int nbOfFailed = (counter.reset || current == null ? 0 : current) + counter.failures;
+				if (nbOfFailed > NB_OF_FAILED_NOTIFS_BEFORE_DELETION) {
+					LOGGER.error("Reach the limit of failed notifs --> delete subscription " + entry.getKey());
+					UriMapper.deleteUri(subscription.getHierarchicalURI());
+					dao.delete(transaction, subscription);
+					NotificationDispatcher.discard(entry.getKey());
+				} else {
+					if (nbOfFailed > 0) {
+						LOGGER.warn("unable to notify, failed notifs(" + nbOfFailed + ") for subscription " + entry.getKey());
+					}
+					subscription.setNbOfFailedNotifications(nbOfFailed);
+					dao.update(transaction, subscription);
+				}
+			}
+			transaction.commit();
+		} catch (RuntimeException e) {
+			LOGGER.error("Error writing the failed notification counters", e);
+		} finally {
+			transaction.close();
+		}
+	}
+
+	private static Counter getCounter(String subscriptionId) {
+		Counter counter = COUNTERS.get(subscriptionId);
+		if (counter == null) {
+			Counter newCounter = new Counter();
+			counter = COUNTERS.putIfAbsent(subscriptionId, newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * Results of a subscription since the last write.
+	 */
+	private static final class Counter {
+		/** A notification has been received, the persisted counter is reset */
+		private boolean reset;
+		/** Failures since the last write or the last received notification */
+		private int failures;
+		/** Taken by a write, no more results can be recorded */
+		private boolean taken;
+	}
+
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.notifier;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.binding.service.ResponseFuture;
+import org.eclipse.om2m.binding.service.ResponseListener;
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.constants.Operation;
+import org.eclipse.om2m.commons.constants.ResponseStatusCode;
+import org.eclipse.om2m.commons.entities.SubscriptionEntity;
+import org.eclipse.om2m.commons.resource.AggregatedNotification;
+import org.eclipse.om2m.commons.resource.RequestPrimitive;
+import org.eclipse.om2m.commons.resource.ResponsePrimitive;
+import org.eclipse.om2m.commons.utils.DateConverter;
+import org.eclipse.om2m.core.datamapper.DataMapperSelector;
+import org.eclipse.om2m.core.thread.CoreExecutor;
+
+/**
+ * Delivers the notifications of the subscriptions.
+ * <p>
+ * Notifications of a subscription without batchNotify and rateLimit attributes
+ * are sent as soon as they are dispatched. Otherwise they go through a delivery
+ * queue per subscription:
+ * <ul>
+ * <li>batchNotify: notifications are buffered until batchNotify.number are pending
+ * or batchNotify.duration has elapsed since the first one, then sent as one
+ * aggregated notification</li>
+ * <li>rateLimit: at most rateLimit.maxNrOfNotify requests are sent per timeWindow,
+ * the notifications held in the meantime are sent together when the window reopens</li>
+ * <li>latestNotify: only the newest pending notification is kept</li>
+ * </ul>
+ * A subscription deletion notification flushes the pending ones immediately.
+ */
+final class NotificationDispatcher {
+
+	/** Logger */
+	private static final Log LOGGER = LogFactory.getLog(NotificationDispatcher.class);
+
+	/** Maximum number of notifications held per subscription, the oldest ones are dropped beyond */
+	private static final int MAX_PENDING_NOTIFICATIONS = Integer.parseInt(
+			System.getProperty("org.eclipse.om2m.notification.maxPendingNotifications", "1000"));
+
+	/** Delivery queues by subscription id */
+	private static final ConcurrentMap<String, DeliveryQueue> QUEUES = new ConcurrentHashMap<String, DeliveryQueue>();
+
+	private NotificationDispatcher() {
+		// static only
+	}
+
+	/**
+	 * Sends the notification or queues it according to the subscription.
+	 * @param subscription - The notified subscription
+	 * @param content - The content of the notification to send
+	 */
+	static void dispatch(SubscriptionEntity subscription, NotificationContent content) {
+		String subscriptionId = subscription.getResourceID();
+		if (!isQueued(subscription) && !QUEUES.containsKey(subscriptionId)) {
+			deliver(subscription, Collections.singletonList(content));
+			return;
+		}
+		while (true) {
+			DeliveryQueue queue = QUEUES.get(subscriptionId);
+			if (queue == null) {
+				DeliveryQueue newQueue = new DeliveryQueue(subscriptionId);
+				queue = QUEUES.putIfAbsent(subscriptionId, newQueue);
+				if (queue == null) {
+					queue = newQueue;
+				}
+			}
+			if (queue.offer(subscription, content)) {
+				return;
+			}
+			// the queue has been discarded concurrently
+		}
+	}
+
+	/**
+	 * Drops the pending notifications of a deleted subscription.
+	 * @param subscriptionId - The id of the deleted subscription
+	 */
+	static void discard(String subscriptionId) {
+		DeliveryQueue queue = QUEUES.remove(subscriptionId);
+		if (queue != null) {
+			queue.close();
+		}
+	}
+
+	/**
+	 * @param subscription - The notified subscription
+	 * @return true if the notifications of the subscription have to go through a delivery queue
+	 */
+	private static boolean isQueued(SubscriptionEntity subscription) {
+		return subscription.getBatchNotifyNumber() != null
+				|| subscription.getBatchNotifyDuration() != null
+				|| subscription.getRateLimitMaxNrOfNotify() != null;
+	}
+
+	/**
+	 * Sends the notifications to each notification URI of the subscription. The
+	 * responses are handled when received without holding a thread.
+	 * @param subscription - The notified subscription
+	 * @param contents - The notifications, aggregated if there is more than one
+	 */
+	private static void deliver(final SubscriptionEntity subscription, List<NotificationContent> contents) {
+		String contentType = subscription.getNotificationPayloadContentType();
+		RequestPrimitive request = new RequestPrimitive();
+		request.setOperation(Operation.NOTIFY);
+		request.setFrom("/" + Constants.CSE_ID);
+		request.setRequestContentType(contentType);
+		if (contents.size() == 1) {
+			// serialized once for all the subscribers of the event
+			request.setContent(contents.get(0).serialize(subscription));
+		} else {
+			AggregatedNotification aggregatedNotification = new AggregatedNotification();
+			for (NotificationContent content : contents) {
+				aggregatedNotification.getNotification().add(content.getNotification(subscription));
+			}
+			request.setContent(DataMapperSelector.getDataMapperList().get(contentType).objToString(aggregatedNotification));
+		}
+		final String subscriptionId = subscription.getResourceID();
+		for (final String uri : subscription.getNotificationURI()) {
+			ResponseFuture response;
+			try {
+				response = Notifier.notifyAsync(request.cloneParameters(), uri);
+			} catch (Exception e) {
+				response = ResponseFuture.failed(e);
+			}
+			response.addListener(new ResponseListener() {
+				@Override
+				public void onResponse(ResponsePrimitive response) {
+					if (ResponseStatusCode.OK.equals(response.getResponseStatusCode())) {
+						LOGGER.debug("notify OK for subscription " + subscriptionId);
+						NotificationCounters.notified(subscriptionId);
+					} else {
+						LOGGER.warn("unable to notify " + uri + " for subscription " + subscriptionId 
+								+ ": " + response.getResponseStatusCode());
+						NotificationCounters.failed(subscriptionId);
+					}
+				}
+
+				@Override
+				public void onFailure(Throwable cause) {
+					LOGGER.warn("Error sending notification to " + uri, cause);
+					NotificationCounters.failed(subscriptionId);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Pending notifications and rate limit window of a subscription.
+	 */
+	private static final class DeliveryQueue implements Runnable {
+
+		private final String subscriptionId;
+		/** Latest state of the subscription, its attributes may be updated */
+		private SubscriptionEntity subscription;
+		private final List<NotificationContent> pending = new ArrayList<NotificationContent>();
+		/** Start of the current rate limit window, in ms */
+		private long windowStart;
+		/** Number of requests sent in the current rate limit window */
+		private int sentInWindow;
+		/** Scheduled flush, either at the end of the batch duration or when the window reopens */
+		private ScheduledFuture<?> flushTask;
+		private boolean closed;
+
+		DeliveryQueue(String subscriptionId) {
+			this.subscriptionId = subscriptionId;
+		}
+
+		/**
+		 * Queues a notification and sends the pending ones if a batch is complete.
+		 * @return false if the queue has been discarded
+		 */
+		synchronized boolean offer(SubscriptionEntity subscription, NotificationContent content) {
+			if (closed) {
+				return false;
+			}
+			this.subscription = subscription;
+			if (Boolean.TRUE.equals(subscription.getLatestNotify())) {
+				pending.clear();
+			} else if (pending.size() >= MAX_PENDING_NOTIFICATIONS) {
+				pending.remove(0);
+				LOGGER.warn("Too many pending notifications, oldest one dropped for subscription " + subscriptionId);
+			}
+			pending.add(content);
+
+			if (content.isSubscriptionDeletion()) {
+				send();
+				close();
+				QUEUES.remove(subscriptionId, this);
+				return true;
+			}
+			BigInteger batchNumber = subscription.getBatchNotifyNumber();
+			long batchDuration = DateConverter.toMillis(subscription.getBatchNotifyDuration());
+			if (batchNumber == null && batchDuration < 0) {
+				flush();
+			} else if (batchNumber != null && pending.size() >= batchNumber.intValue()) {
+				flush();
+			} else if (flushTask == null && batchDuration >= 0) {
+				schedule(batchDuration);
+			}
+			if (pending.isEmpty() && flushTask == null && !isQueued(subscription)) {
+				// attributes removed by an update, back to direct sending
+				close();
+				QUEUES.remove(subscriptionId, this);
+			}
+			return true;
+		}
+
+		/**
+		 * Scheduled flush.
+		 */
+		@Override
+		public synchronized void run() {
+			flushTask = null;
+			if (!closed) {
+				flush();
+			}
+		}
+
+		/**
+		 * Sends the pending notifications unless the rate limit is reached,
+		 * in which case they are sent when the window reopens.
+		 */
+		private void flush() {
+			if (pending.isEmpty()) {
+				return;
+			}
+			BigInteger maxNrOfNotify = subscription.getRateLimitMaxNrOfNotify();
+			long timeWindow = DateConverter.toMillis(subscription.getRateLimitTimeWindow());
+			if (maxNrOfNotify != null && timeWindow > 0) {
+				long now = System.currentTimeMillis();
+				if (now - windowStart >= timeWindow) {
+					windowStart = now;
+					sentInWindow = 0;
+				}
+				if (sentInWindow >= maxNrOfNotify.intValue()) {
+					if (flushTask == null) {
+						schedule(windowStart + timeWindow - now);
+					}
+					return;
+				}
+				sentInWindow++;
+			}
+			send();
+		}
+
+		private void send() {
+			if (flushTask != null) {
+				flushTask.cancel(false);
+				flushTask = null;
+			}
+			if (pending.isEmpty()) {
+				return;
+			}
+			List<NotificationContent> contents = new ArrayList<NotificationContent>(pending);
+			pending.clear();
+			deliver(subscription, contents);
+		}
+
+		private void schedule(long delay) {
+			flushTask = CoreExecutor.schedule(CoreExecutor.Pool.NOTIFICATION, this, delay, TimeUnit.MILLISECONDS);
+		}
+
+		synchronized void close() {
+			closed = true;
+			if (flushTask != null) {
+				flushTask.cancel(false);
+				flushTask = null;
+			}
+		}
+	}
+
+}
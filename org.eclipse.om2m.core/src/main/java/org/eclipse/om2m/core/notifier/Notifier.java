@@ -19,20 +19,18 @@
  *******************************************************************************/
 package org.eclipse.om2m.core.notifier;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.binding.service.ResponseFuture;
 import org.eclipse.om2m.commons.constants.Constants;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
-import org.eclipse.om2m.commons.constants.NotificationContentType;
 import org.eclipse.om2m.commons.constants.Operation;
 import org.eclipse.om2m.commons.constants.ResourceStatus;
 import org.eclipse.om2m.commons.constants.ResourceType;
 import org.eclipse.om2m.commons.constants.ResponseStatusCode;
-import org.eclipse.om2m.commons.constants.ResultContent;
 import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
 import org.eclipse.om2m.commons.entities.AeEntity;
 import org.eclipse.om2m.commons.entities.CSEBaseEntity;
@@ -44,23 +42,19 @@ import org.eclipse.om2m.commons.entities.ScheduleEntity;
 import org.eclipse.om2m.commons.entities.SubscriptionEntity;
 import org.eclipse.om2m.commons.exceptions.Om2mException;
 import org.eclipse.om2m.commons.resource.Notification;
-import org.eclipse.om2m.commons.resource.Notification.NotificationEvent;
-import org.eclipse.om2m.commons.resource.Notification.NotificationEvent.Representation;
 import org.eclipse.om2m.commons.resource.RequestPrimitive;
 import org.eclipse.om2m.commons.resource.Resource;
 import org.eclipse.om2m.commons.resource.ResponsePrimitive;
 import org.eclipse.om2m.core.comm.RestClient;
 import org.eclipse.om2m.core.datamapper.DataMapperSelector;
-import org.eclipse.om2m.core.entitymapper.EntityMapper;
-import org.eclipse.om2m.core.entitymapper.EntityMapperFactory;
 import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.persistence.RequestTransaction;
 import org.eclipse.om2m.core.router.Patterns;
 import org.eclipse.om2m.core.router.Router;
 import org.eclipse.om2m.core.thread.CoreExecutor;
 import org.eclipse.om2m.core.urimapper.UriMapper;
 import org.eclipse.om2m.persistence.service.DAO;
 import org.eclipse.om2m.persistence.service.DBService;
-import org.eclipse.om2m.persistence.service.DBTransaction;
 
 /**
  * Notifies subscribers when a change occurs on a resource according to their subscriptions.
@@ -86,10 +80,12 @@ public class Notifier {
 	 * @param resourceStatus
 	 */
 	public static void notify(List<SubscriptionEntity> listSubscription, ResourceEntity resource, Resource modifiedOnlyResource, int resourceStatus) {
-		if (listSubscription != null){
+		if (listSubscription != null && !listSubscription.isEmpty()){
+			// the content is mapped and serialized once for all the subscribers
+			NotificationContent content = new NotificationContent(resource, modifiedOnlyResource, resourceStatus);
 			for(SubscriptionEntity sub : listSubscription){
-				NotificationWorker worker = new NotificationWorker(sub, resourceStatus, resource, modifiedOnlyResource);
-				CoreExecutor.postThread(worker);
+				NotificationWorker worker = new NotificationWorker(sub, content);
+				CoreExecutor.postThread(CoreExecutor.Pool.NOTIFICATION, worker);
 			}
 		}
 	}
@@ -159,6 +155,32 @@ public class Notifier {
 		}
 	}
 
+	/**
+	 * Sends a notify request without waiting for the response.
+	 * @param request - The notify request
+	 * @param contact - The notification target
+	 * @return The future response
+	 */
+	public static ResponseFuture notifyAsync(RequestPrimitive request, String contact){
+		LOGGER.info("Sending async notify request to: " + contact);
+		request.setTo(contact);
+		if(contact.matches(".*://.*")){ 
+			// Contact = protocol-dependent -> direct notification using the rest client.
+			return RestClient.sendRequestAsync(request);
+		}else{
+			request.setFrom(Constants.ADMIN_REQUESTING_ENTITY);
+			return new Router().doRequestAsync(request);
+		}
+	}
+
+	/**
+	 * Drops the notifications still pending for a deleted subscription.
+	 * @param subscriptionId - The id of the deleted subscription
+	 */
+	public static void discardPendingNotifications(String subscriptionId){
+		NotificationDispatcher.discard(subscriptionId);
+	}
+
 	/**
 	 * Used to retrieve the subscription list of the parent resource
 	 * @param resource 
@@ -166,20 +188,31 @@ public class Notifier {
 	 */
 	private static List<SubscriptionEntity> getParentSubscriptions(
 			ResourceEntity resourceDeleted) {
-		List<SubscriptionEntity> result;
 		// Get parent id
 		String[] ids = resourceDeleted.getHierarchicalURI().split("/");
 		String parentHierarchicalId = resourceDeleted.getHierarchicalURI().replace("/" + ids[ids.length - 1], "");
 		String parentId = UriMapper.getNonHierarchicalUri(parentHierarchicalId);
 		// get parent entity
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 
 		DAO<?> dao = patterns.getDAO(parentId, dbs);
-		DBTransaction transaction = dbs.getDbTransaction();
-		transaction.open();
-		ResourceEntity parentEntity = (ResourceEntity) dao.find(transaction, parentId);
+		RequestTransaction transaction = RequestTransaction.open(dbs);
+		try {
+			return getSubscriptions((ResourceEntity) dao.find(transaction.get(), parentId));
+		} finally {
+			transaction.close();
+		}
+	}
+
+	/**
+	 * Retrieves the subscriptions to the children of a resource.
+	 * @param parentEntity
+	 * @return
+	 */
+	private static List<SubscriptionEntity> getSubscriptions(ResourceEntity parentEntity) {
+		List<SubscriptionEntity> result;
 		// get the sub list from parent
 		switch(parentEntity.getResourceType().intValue()){
 		case ResourceType.ACCESS_CONTROL_POLICY:
@@ -213,7 +246,6 @@ public class Notifier {
 		default:
 			result = new ArrayList<SubscriptionEntity>();
 		}
-		transaction.close();
 		return result;
 	}
 
@@ -222,127 +254,21 @@ public class Notifier {
 	 *
 	 */
 	static class NotificationWorker implements Runnable {
-		/** resource status of the notification */
-		private int resourceStatus;
 		/** the subscription to handle */
 		private SubscriptionEntity sub;
-		/** the resource to be sent */
-		private ResourceEntity resource;
-		/** the resource to be sent - modified attribute */
-		private Resource modifiedOnlyResource;
+		/** the content of the notification, shared by the subscribers */
+		private NotificationContent content;
 
-		public NotificationWorker(SubscriptionEntity sub, int resourceStatus, ResourceEntity resource, Resource modifiedOnlyResource) {
-			this.resourceStatus = resourceStatus;
+		public NotificationWorker(SubscriptionEntity sub, NotificationContent content) {
 			this.sub = sub;
-			this.resource = resource;
-			this.modifiedOnlyResource = modifiedOnlyResource;
+			this.content = content;
 		}
 
-		@SuppressWarnings("unchecked")
 		@Override
 		public void run() {
-			final Integer NB_OF_FAILED_NOTIFS_BEFORE_DELETION = Integer.valueOf(System.getProperty("org.eclipse.om2m.subscriptions.nbOfFailedNotificationsBeforeDeletion", "5"));
-
-			final RequestPrimitive request = new RequestPrimitive();
-			Notification notification = new Notification();
-			NotificationEvent notifEvent = new NotificationEvent();
-			notification.setNotificationEvent(notifEvent);
-
-			// Set attributes of notification object
-			notifEvent.setResourceStatus(BigInteger.valueOf(resourceStatus));
-			notification.setCreator(sub.getCreator());
-
-			// Set request parameters
-			request.setOperation(Operation.NOTIFY);
-			request.setFrom("/" + Constants.CSE_ID);
-
-			if(resourceStatus == ResourceStatus.DELETED){
-				notification.setSubscriptionDeletion(true);
-			} else {
-				notification.setSubscriptionDeletion(false);
-			}
-
-			notification.setSubscriptionReference(sub.getResourceID());
-
-			// Get the representation of the content
-			Resource serializableResource;
-			if (sub.getNotificationContentType() != null) {
-				EntityMapper mapper = EntityMapperFactory.getMapperFromResourceType(resource.getResourceType().intValue());
-				if (sub.getNotificationContentType().equals(NotificationContentType.MODIFIED_ATTRIBUTES)) {
-					Representation representation = new Representation();
-					if (modifiedOnlyResource != null) {
-						// Gregory BONNARDEL - 26 Avril 2016
-						// as all Controllers have not been modified
-						// for modified controllers, use the resource provided by the controller
-						representation.setResource(modifiedOnlyResource);
-					} else {
-						// for non modified controllers, send the ResourceEntity 
-						// but it is not compliant with the specs
-						serializableResource  = (Resource) mapper
-								.mapEntityToResource(resource, ResultContent.ATTRIBUTES, 0, 0);
-						representation.setResource(serializableResource);
-					}
-					notification.getNotificationEvent().setRepresentation(representation);
-					request.setRequestContentType(sub.getNotificationPayloadContentType());
-				} else if(sub.getNotificationContentType().equals(NotificationContentType.WHOLE_RESOURCE)){
-					serializableResource = (Resource) mapper.mapEntityToResource(resource, ResultContent.ATTRIBUTES, 0, 0);
-					Representation representation = new Representation();
-					representation.setResource(serializableResource);
-					notification.getNotificationEvent().setRepresentation(representation);
-					request.setRequestContentType(sub.getNotificationPayloadContentType());
-				} 
-			} 
-			// Set the content
-			request.setContent(DataMapperSelector.getDataMapperList().get(sub.getNotificationPayloadContentType()).objToString(notification));
-			// For each notification URI: send the notify request
-			for(final String uri : sub.getNotificationURI()){
-				CoreExecutor.postThread(new Runnable(){
-					public void run() {
-						ResponsePrimitive response = Notifier.notify(request, uri);  
-						if (ResponseStatusCode.OK.equals(response.getResponseStatusCode())) {
-							// notify ok
-							updateSubscription(sub.getResourceID(), 0);
-							LOGGER.debug("notify OK for subscription " + sub.getResourceID());
-						} else {
-							// notify KO
-							Integer nbOfFailed = sub.getNbOfFailedNotifications();
-							if (nbOfFailed == null) {
-								nbOfFailed = 0;
-							}
-							if (nbOfFailed > NB_OF_FAILED_NOTIFS_BEFORE_DELETION) {
-								// delete notification
-								deleteSubscription(sub.getResourceID());
-								LOGGER.error("Reach the limit of failed notifs --> delete subscription " + sub.getResourceID());
-							} else {
-								updateSubscription(sub.getResourceID(), nbOfFailed+1);
-								LOGGER.warn("unable to notify, increase failed notifs(" + nbOfFailed +") for subscription " + sub.getResourceID());
-							}
-						}
-					};
-				});
-			}
+			// Send the notification now or queue it according to batchNotify and rateLimit
+			NotificationDispatcher.dispatch(sub, content);
 		}
 	}
-	
-	private static void deleteSubscription(String resourceId) {
-		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction dbTransaction = dbs.getDbTransaction();
-		dbTransaction.open();
-		SubscriptionEntity subscriptionEntityToBeDeleted = dbs.getDAOFactory().getSubsciptionDAO().find(dbTransaction, resourceId);
-		dbs.getDAOFactory().getSubsciptionDAO().delete(dbTransaction, subscriptionEntityToBeDeleted);
-		dbTransaction.commit();
-		dbTransaction.close();
-	}
-	
-	private static void updateSubscription(String resourceId, Integer nbOfFailedNotification) {
-		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction dbTransaction = dbs.getDbTransaction();
-		dbTransaction.open();
-		SubscriptionEntity subscriptionEntityToBeUpdated = dbs.getDAOFactory().getSubsciptionDAO().find(dbTransaction, resourceId);
-		subscriptionEntityToBeUpdated.setNbOfFailedNotifications(nbOfFailedNotification);
-		dbs.getDAOFactory().getSubsciptionDAO().update(dbTransaction, subscriptionEntityToBeUpdated);
-		dbTransaction.commit();
-		dbTransaction.close();
-	}
 
 }
@@ -19,6 +19,8 @@
  *******************************************************************************/
 package org.eclipse.om2m.core.persistence;
 
+import org.eclipse.om2m.core.acp.AcpEvaluator;
+import org.eclipse.om2m.core.urimapper.UriMapper;
 import org.eclipse.om2m.persistence.service.DBService;
 
 /**
@@ -44,6 +46,9 @@ public class PersistenceService {
 
 	public void setDbService(DBService dbService) {
 		this.dbService = dbService;
+		// cached data belongs to the previous database
+		UriMapper.clearCache();
+		AcpEvaluator.clear();
 	}
 
 }
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.persistence.service.DBService;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Database transaction of the request handled by the current thread.
+ * <p>
+ * The first scope opened by a thread opens a transaction of the database
+ * service. The scopes opened by the same thread before it is closed (controller,
+ * uri mapper, notifier, redirector...) join it, so a request reads and writes
+ * through a single transaction. Only the outermost scope commits and closes
+ * it: a request failing before the end leaves no partial change behind, such
+ * as the uri mapping of a resource which could not be created.
+ * <p>
+ * Scopes must be closed in a finally block by the thread that opened them.
+ */
+public final class RequestTransaction {
+
+	private static final Log LOGGER = LogFactory.getLog(RequestTransaction.class);
+
+	/** Outermost scope of the current thread */
+	private static final ThreadLocal<RequestTransaction> CURRENT = new ThreadLocal<RequestTransaction>();
+
+	private final DBTransaction transaction;
+
+	/** Outermost scope, null if this scope is the outermost one */
+	private final RequestTransaction outermost;
+
+	/** Actions to perform once the changes are committed, outermost scope only */
+	private List<Runnable> afterCommit;
+
+	private boolean closed;
+
+	private RequestTransaction(DBTransaction transaction, RequestTransaction outermost) {
+		this.transaction = transaction;
+		this.outermost = outermost;
+	}
+
+	/**
+	 * Joins the transaction of the current request or opens a new one.
+	 * @param dbs database service to open the transaction from
+	 * @return the scope, to be closed
+	 */
+	public static RequestTransaction open(DBService dbs) {
+		RequestTransaction current = CURRENT.get();
+		if (current != null) {
+			return new RequestTransaction(current.transaction, current);
+		}
+		DBTransaction transaction = dbs.getDbTransaction();
+		transaction.open();
+		RequestTransaction scope = new RequestTransaction(transaction, null);
+		CURRENT.set(scope);
+		return scope;
+	}
+
+	/**
+	 * Joins the transaction of the current request or opens a new one
+	 * from the current database service.
+	 * @return the scope, to be closed
+	 */
+	public static RequestTransaction open() {
+		return open(PersistenceService.getInstance().getDbService());
+	}
+
+	/**
+	 * @return the opened transaction shared by the scopes of the request
+	 */
+	public DBTransaction get() {
+		return transaction;
+	}
+
+	/**
+	 * @return true if this scope has opened the transaction
+	 */
+	public boolean isOutermost() {
+		return outermost == null;
+	}
+
+	/**
+	 * Registers an action to perform once the changes of the request are
+	 * committed, e.g. to update a cache. The action is dropped if the request
+	 * is not committed.
+	 * @param action to perform after the commit of the outermost scope
+	 */
+	public void afterCommit(Runnable action) {
+		RequestTransaction root = outermost == null ? this : outermost;
+		if (root.afterCommit == null) {
+			root.afterCommit = new ArrayList<Runnable>();
+		}
+		root.afterCommit.add(action);
+	}
+
+	/**
+	 * Commits the transaction if this scope is the outermost one, the
+	 * enclosing scope commits otherwise.
+	 */
+	public void commit() {
+		if (outermost != null) {
+			return;
+		}
+		transaction.commit();
+		List<Runnable> actions = afterCommit;
+		afterCommit = null;
+		if (actions != null) {
+			for (Runnable action : actions) {
+				try {
+					action.run();
+				} catch (RuntimeException e) {
+					LOGGER.warn("Error after the commit of the request transaction", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Leaves the scope. The outermost scope closes the transaction, which
+	 * drops the changes that have not been committed.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (outermost != null) {
+			return;
+		}
+		afterCommit = null;
+		try {
+			transaction.close();
+		} finally {
+			if (CURRENT.get() == this) {
+				CURRENT.remove();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.redirector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.binding.service.ResponseFuture;
+import org.eclipse.om2m.binding.service.ResponseListener;
+import org.eclipse.om2m.commons.constants.ResponseStatusCode;
+import org.eclipse.om2m.commons.resource.RequestPrimitive;
+import org.eclipse.om2m.commons.resource.ResponsePrimitive;
+
+/**
+ * Sends a request to the points of access of an entity one after the other,
+ * until one of them is reachable. The next point of access is tried when the
+ * response of the previous one is received, no thread waits for the responses.
+ */
+abstract class PointOfAccessForwarder implements ResponseListener {
+
+	private static final Log LOGGER = LogFactory.getLog(PointOfAccessForwarder.class);
+
+	/** Request to forward */
+	protected final RequestPrimitive request;
+	/** Points of access of the targeted entity, in preference order */
+	private final List<String> pointsOfAccess;
+	/** Final response */
+	private final ResponseFuture result = new ResponseFuture();
+	/** Index of the point of access currently tried */
+	private int index;
+	/** Last response received */
+	private ResponsePrimitive lastResponse;
+
+	PointOfAccessForwarder(RequestPrimitive request, List<String> pointsOfAccess) {
+		this.request = request;
+		this.pointsOfAccess = new ArrayList<String>(pointsOfAccess);
+	}
+
+	/**
+	 * Starts forwarding the request.
+	 * @return the future response
+	 */
+	ResponseFuture forward() {
+		sendNext();
+		return result;
+	}
+
+	/**
+	 * Sends the request to a point of access.
+	 * @param poa point of access
+	 * @return the future response or null if the point of access cannot be used
+	 */
+	abstract ResponseFuture send(String poa);
+
+	/**
+	 * Called when a point of access other than the first one has been reached,
+	 * to try it first next time.
+	 * @param index index of the point of access
+	 * @param poa point of access
+	 */
+	abstract void promote(int index, String poa);
+
+	/**
+	 * Builds the response when no point of access could be reached.
+	 * @param lastResponse last response received, may be null
+	 * @return the response
+	 */
+	abstract ResponsePrimitive unreachable(ResponsePrimitive lastResponse);
+
+	/**
+	 * Converts the response of a reachable point of access.
+	 * @param response received response
+	 * @return the response to provide
+	 */
+	ResponsePrimitive convert(ResponsePrimitive response) {
+		return response;
+	}
+
+	/**
+	 * @param poa point of access that answered
+	 * @param response received response
+	 * @return true if no other point of access should be tried
+	 */
+	boolean isReached(String poa, ResponsePrimitive response) {
+		return !ResponseStatusCode.TARGET_NOT_REACHABLE.equals(response.getResponseStatusCode());
+	}
+
+	private void sendNext() {
+		try {
+			while (index < pointsOfAccess.size()) {
+				ResponseFuture response = send(pointsOfAccess.get(index));
+				if (response != null) {
+					response.addListener(this);
+					return;
+				}
+				index++;
+			}
+			result.complete(unreachable(lastResponse));
+		} catch (Exception e) {
+			result.fail(e);
+		}
+	}
+
+	@Override
+	public void onResponse(ResponsePrimitive response) {
+		String poa = pointsOfAccess.get(index);
+		if (!isReached(poa, response)) {
+			lastResponse = response;
+			index++;
+			sendNext();
+			return;
+		}
+		if (index > 0) {
+			try {
+				promote(index, poa);
+			} catch (Exception e) {
+				LOGGER.warn("Unable to reorder the points of access", e);
+			}
+		}
+		try {
+			result.complete(convert(response));
+		} catch (Exception e) {
+			result.fail(e);
+		}
+	}
+
+	@Override
+	public void onFailure(Throwable cause) {
+		result.fail(cause);
+	}
+
+}
@@ -19,11 +19,14 @@
  *******************************************************************************/
 package org.eclipse.om2m.core.redirector;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.binding.service.ResponseFuture;
 import org.eclipse.om2m.commons.constants.CSEType;
 import org.eclipse.om2m.commons.constants.Constants;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
@@ -42,9 +45,10 @@ import org.eclipse.om2m.core.controller.AEController;
 import org.eclipse.om2m.core.datamapper.DataMapperSelector;
 import org.eclipse.om2m.core.interworking.IpeSelector;
 import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.persistence.RequestTransaction;
+import org.eclipse.om2m.interworking.service.InterworkingService;
 import org.eclipse.om2m.persistence.service.DAO;
 import org.eclipse.om2m.persistence.service.DBService;
-import org.eclipse.om2m.persistence.service.DBTransaction;
 
 /**
  * Re-target the REST request to the Distant CSE registered in the
@@ -55,6 +59,11 @@ public class Redirector implements Constants {
 
 	private static Log LOGGER = LogFactory.getLog(Redirector.class);
 
+	/** MQTT point of access */
+	private static final Pattern MQTT_URI_PATTERN = Pattern.compile("(mqtt://[^:/]*(:[0-9]{1,5})?)(/.*)");
+	/** MQTT point of access of an AE, the topic is optional */
+	private static final Pattern MQTT_AE_URI_PATTERN = Pattern.compile("(mqtt://[^:/]*(:[0-9]{1,5})?)(/.*)?");
+
 	/**
 	 * Re-targets a request to a Distant SCL registered in the sclCollection.
 	 * 
@@ -63,11 +72,22 @@ public class Redirector implements Constants {
 	 * @return The generic returned response.
 	 */
 	public static ResponsePrimitive retarget(RequestPrimitive request) {
+		return RestClient.getResponse(retargetAsync(request));
+	}
+
+	/**
+	 * Re-targets a request to a Distant SCL registered in the sclCollection
+	 * without waiting for the response.
+	 * 
+	 * @param request
+	 *            - The generic request to handle.
+	 * @return The future response.
+	 */
+	public static ResponseFuture retargetAsync(RequestPrimitive request) {
 		if (request.getTo() == null) {
 			throw new BadRequestException("No To/TargetId parameter provided");
 		} 
 		String remoteCseId = "";
-		ResponsePrimitive response = new ResponsePrimitive(request);
 
 		try {
 			remoteCseId = "/" + request.getTo().split("/")[1];
@@ -78,53 +98,72 @@ public class Redirector implements Constants {
 
 		// get the database service
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = dbs.getDbTransaction();
-		transaction.open();
-
-		// get the dao of the parent
-		DAO<RemoteCSEEntity> dao = dbs.getDAOFactory().getRemoteCSEbyCseIdDAO();
-		RemoteCSEEntity csrEntity = dao.find(transaction, remoteCseId);
-		if (csrEntity != null) {
-			LOGGER.info("RemoteCSE found: " + csrEntity.getRemoteCseId());
-			response = sendRedirectorRequest(request, csrEntity, transaction);
-		} else {
+		RequestTransaction transaction = RequestTransaction.open(dbs);
+		try {
+			// get the dao of the parent
+			DAO<RemoteCSEEntity> dao = dbs.getDAOFactory().getRemoteCSEbyCseIdDAO();
+			RemoteCSEEntity csrEntity = dao.find(transaction.get(), remoteCseId);
+			if (csrEntity != null) {
+				LOGGER.info("RemoteCSE found: " + csrEntity.getRemoteCseId());
+				return sendRedirectorRequest(request, csrEntity);
+			}
 			if (!Constants.CSE_TYPE.equalsIgnoreCase(CSEType.IN)) {
 				LOGGER.info("Unknow CSE, sending request to registrar CSE: " + Constants.REMOTE_CSE_ID);
-				csrEntity = dao.find(transaction, "/" + Constants.REMOTE_CSE_ID);
+				csrEntity = dao.find(transaction.get(), "/" + Constants.REMOTE_CSE_ID);
 
 				if (csrEntity != null) {
 					// transfer the request and get the response
-					response = sendRedirectorRequest(request, csrEntity, transaction);
+					return sendRedirectorRequest(request, csrEntity);
 				}
 			}
-			
-			if (response == null) {
-				// case nothing found
-				throw new ResourceNotFoundException("RemoteCse with cseId " + remoteCseId + " has not been found");
-			}
+			return ResponseFuture.completed(new ResponsePrimitive(request));
+		} finally {
+			transaction.close();
 		}
-		transaction.close();
-		return response;
 	}
 
-	private static ResponsePrimitive sendRedirectorRequest(RequestPrimitive request, RemoteCSEEntity csrEntity,
-			DBTransaction transaction) {
+	private static ResponseFuture sendRedirectorRequest(RequestPrimitive request, 
+			final RemoteCSEEntity csrEntity) {
 		
-		String contentFormat = System.getProperty("org.eclipse.om2m.registration.contentFormat", 	MimeMediaType.XML);
+		final String contentFormat = System.getProperty("org.eclipse.om2m.registration.contentFormat", 	MimeMediaType.XML);
 
 		// test if the remoteCse is reachable
 		if (!csrEntity.isRequestReachability()) {
 			throw new Om2mException("Remote Cse is not request reachable", ResponseStatusCode.TARGET_NOT_REACHABLE);
 		}
-		DBService dbs = PersistenceService.getInstance().getDbService();
-		// get Point of Access
-		String url = "";
-		if (!csrEntity.getPointOfAccess().isEmpty()) {
-			boolean done = false;
-			int i = 0;
-			// iterating on points of access while target are not reachable
-			while (!done & i < csrEntity.getPointOfAccess().size()) {
-				url = csrEntity.getPointOfAccess().get(i);
+		if (csrEntity.getPointOfAccess().isEmpty()) {
+			// TODO to improve w/ polling channel policy
+			throw new Om2mException("The point of access parameter is missing",
+					ResponseStatusCode.TARGET_NOT_REACHABLE);
+		}
+
+		// modify the request if content type is OBJ.
+		final String initialReturnContentType = request.getReturnContentType();
+		if ((MimeMediaType.OBJ.equals(request.getRequestContentType()))) {
+			// forward payload using the set content format
+			request.setRequestContentType(contentFormat);
+
+			if ((Operation.CREATE.equals(request.getOperation()))
+					|| (Operation.UPDATE.equals(request.getOperation()))) {
+				// convert content type as XML or JSON payload
+				String payload = DataMapperSelector.getDataMapperList().get(request.getRequestContentType())
+						.objToString(request.getContent());
+				request.setContent(payload);
+			}
+		}
+		// if returnType=OBJ, change it to the set content format
+		if ((MimeMediaType.OBJ.equals(initialReturnContentType))) {
+			request.setReturnContentType(contentFormat);
+		}
+
+		final String to = request.getTo();
+		final String csrResourceId = csrEntity.getResourceID();
+		// iterating on points of access while target are not reachable
+		return new PointOfAccessForwarder(request, csrEntity.getPointOfAccess()) {
+
+			@Override
+			ResponseFuture send(String poa) {
+				String url = poa;
 				// Remove a potential / added at the end of the poa
 				if (url.endsWith("/")) {
 					LOGGER.debug("Removing / at the end of poa: " + url);
@@ -132,9 +171,8 @@ public class Redirector implements Constants {
 				}
 
 				if(url.startsWith("mqtt://")){
-					url += request.getTo();
-					Pattern mqttUriPattern = Pattern.compile("(mqtt://[^:/]*(:[0-9]{1,5})?)(/.*)");
-					Matcher matcher = mqttUriPattern.matcher(url);
+					url += to;
+					Matcher matcher = MQTT_URI_PATTERN.matcher(url);
 					if(matcher.matches()){
 						// FIXME we need a response but not yet implemented in MQTT binding
 						request.setMqttResponseExpected(true);
@@ -143,113 +181,115 @@ public class Redirector implements Constants {
 						request.setMqttUri(matcher.group(1));
 					} else {
 						LOGGER.warn("Incorrect MQTT URI specified in remoteCSE: " + url);
-						i++;
-						continue;
+						return null;
 					}
 				} else {
-					if(request.getTo().startsWith("//")){
-						url += request.getTo().replaceFirst("//", "/_/");
-					} else if(request.getTo().startsWith("/")){
-						url += request.getTo().replaceFirst("/", "/~/");
+					if(to.startsWith("//")){
+						url += to.replaceFirst("//", "/_/");
+					} else if(to.startsWith("/")){
+						url += to.replaceFirst("/", "/~/");
 					} else {
-						url+= "/" + request.getTo();
+						url+= "/" + to;
 					}
 				}
-				
-				
-				request.setTo(url);
 
-				// modify the request if content type is OBJ.
-				String initialRequestContentType = request.getRequestContentType();
-				String initialReturnContentType = request.getReturnContentType();
-				if ((MimeMediaType.OBJ.equals(initialRequestContentType))) {
-					// forward payload using the set content format
-					request.setRequestContentType(contentFormat);
+				request.setTo(url);
+				return RestClient.sendRequestAsync(request);
+			}
 
-					if ((Operation.CREATE.equals(request.getOperation()))
-							|| (Operation.UPDATE.equals(request.getOperation()))) {
-						// convert content type as XML or JSON payload
-						String payload = DataMapperSelector.getDataMapperList().get(request.getRequestContentType())
-								.objToString(request.getContent());
-						request.setContent(payload);
+			@Override
+			void promote(int index, String poa) {
+				DBService dbs = PersistenceService.getInstance().getDbService();
+				RequestTransaction transaction = RequestTransaction.open(dbs);
+				try {
+					RemoteCSEEntity entity = dbs.getDAOFactory().getRemoteCSEDAO().find(transaction.get(), csrResourceId);
+					if (entity != null && entity.getPointOfAccess().remove(poa)) {
+						entity.getPointOfAccess().add(0, poa);
+						dbs.getDAOFactory().getRemoteCSEDAO().update(transaction.get(), entity);
+						transaction.commit();
 					}
-
-				}
-				
-				// if returnType=OBJ, change it to the set content format
-				if ((MimeMediaType.OBJ.equals(initialReturnContentType))) {
-					request.setReturnContentType(contentFormat);
+				} finally {
+					transaction.close();
 				}
+			}
 
-				ResponsePrimitive response = RestClient.sendRequest(request);
-				if (!(response.getResponseStatusCode().equals(ResponseStatusCode.TARGET_NOT_REACHABLE))) {
-					done = true;
-					if (i > 0) {
-						String poa = csrEntity.getPointOfAccess().get(i);
-						csrEntity.getPointOfAccess().remove(i);
-						csrEntity.getPointOfAccess().add(0, poa);
-						dbs.getDAOFactory().getRemoteCSEDAO().update(transaction, csrEntity);
-						transaction.commit();
-					}
-					// convert response as expected
-					if (response.getContent() != null) {
-						if (MimeMediaType.OBJ.equals(initialReturnContentType)) {
-							Object resource = DataMapperSelector.getDataMapperList().get(contentFormat)
-									.stringToObj((String) response.getContent());
-							response.setContent(resource);
-						}
+			@Override
+			ResponsePrimitive convert(ResponsePrimitive response) {
+				// convert response as expected
+				if (response.getContent() != null) {
+					if (MimeMediaType.OBJ.equals(initialReturnContentType)) {
+						Object resource = DataMapperSelector.getDataMapperList().get(contentFormat)
+								.stringToObj((String) response.getContent());
+						response.setContent(resource);
 					}
-					return response;
 				}
-				i++;
+				return response;
 			}
-			// if we reach this point, there is no poa working
-			ResponsePrimitive response = new ResponsePrimitive(request);
-			response.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
-			response.setContent("Target is not reachable");
-			response.setContentType(MimeMediaType.TEXT_PLAIN);
-			return response;
-		} else {
-			// TODO to improve w/ polling channel policy
-			throw new Om2mException("The point of access parameter is missing",
-					ResponseStatusCode.TARGET_NOT_REACHABLE);
-		}
+
+			@Override
+			ResponsePrimitive unreachable(ResponsePrimitive lastResponse) {
+				// if we reach this point, there is no poa working
+				ResponsePrimitive response = new ResponsePrimitive(request);
+				response.setResponseStatusCode(ResponseStatusCode.TARGET_NOT_REACHABLE);
+				response.setContent("Target is not reachable");
+				response.setContentType(MimeMediaType.TEXT_PLAIN);
+				return response;
+			}
+		}.forward();
 	}
 
 	public static ResponsePrimitive retargetNotify(RequestPrimitive request) {
+		return RestClient.getResponse(retargetNotifyAsync(request));
+	}
+
+	/**
+	 * Sends a notification to the points of access of an AE without
+	 * waiting for the response.
+	 * @param request - The notify request targeting the AE.
+	 * @return The future response.
+	 */
+	public static ResponseFuture retargetNotifyAsync(final RequestPrimitive request) {
 		if (request.getTo() == null) {
 			throw new BadRequestException("No To/TargetId parameter provided");
 		}
-		ResponsePrimitive response = new ResponsePrimitive(request);
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction dbt = dbs.getDbTransaction();
-		dbt.open();
-		// get the AE
-		AeEntity ae = dbs.getDAOFactory().getAeDAO().find(dbt, request.getTo());
-		if (ae == null) {
+		RequestTransaction dbt = RequestTransaction.open(dbs);
+		AeEntity ae;
+		List<String> pointsOfAccess;
+		try {
+			// get the AE
+			ae = dbs.getDAOFactory().getAeDAO().find(dbt.get(), request.getTo());
+			if (ae == null) {
+				throw new ResourceNotFoundException("AE resource " + request.getTo() + " not found.");
+			}
+
+			// FIXME use the correct originator when a notification is generated
+			if (!request.getFrom().equals("/" + Constants.CSE_ID)) {
+				new AEController().checkACP(ae.getAccessControlPolicies(), request.getFrom(), Operation.NOTIFY);
+			}
+			pointsOfAccess = new ArrayList<String>(ae.getPointOfAccess());
+
+			// Get point of access
+			if (pointsOfAccess.isEmpty() || !(ae.isRequestReachability())) {
+				throw new Om2mException("AE has no point of access", ResponseStatusCode.TARGET_NOT_REACHABLE);
+			}
+		} finally {
 			dbt.close();
-			throw new ResourceNotFoundException("AE resource " + request.getTo() + " not found.");
 		}
 
-		// FIXME use the correct originator when a notification is generated
-		if (!request.getFrom().equals("/" + Constants.CSE_ID)) {
-			new AEController().checkACP(ae.getAccessControlPolicies(), request.getFrom(), Operation.NOTIFY);
-		}
+		final String aeResourceId = request.getTo();
+		final String aeId = ae.getAeid();
+		// for each PoA
+		return new PointOfAccessForwarder(request, pointsOfAccess) {
 
-		// Get point of access
-		if (ae.getPointOfAccess().isEmpty() || !(ae.isRequestReachability())) {
-			throw new Om2mException("AE has no point of access", ResponseStatusCode.TARGET_NOT_REACHABLE);
-		} else {
-			boolean done = false;
-			int i = 0;
-			// for each PoA
-			while (!done && (i < ae.getPointOfAccess().size())) {
-				String poa = ae.getPointOfAccess().get(i);
+			@Override
+			ResponseFuture send(String poa) {
 				// if the PoA is a local IPE
-				if (IpeSelector.getInterworkingList().containsKey(poa)) {
+				InterworkingService ipe = IpeSelector.getInterworkingList().get(poa);
+				if (ipe != null) {
 					try {
 						LOGGER.info("Sending notification to IPE: " + poa);
-						response = IpeSelector.getInterworkingList().get(poa).doExecute(request);
+						return ResponseFuture.completed(ipe.doExecute(request));
 					} catch (Om2mException om2mE) {
 						LOGGER.info("Om2m exception caught in Redirector: " + om2mE.getMessage());
 						throw om2mE;
@@ -257,45 +297,55 @@ public class Redirector implements Constants {
 						LOGGER.error("Exception caught in IPE execution", e);
 						throw new Om2mException("IPE Internal Error", e, ResponseStatusCode.INTERNAL_SERVER_ERROR);
 					}
-					done = true;
-				} else {
-					request.setTo(poa);
-					if(poa.startsWith("mqtt://")){
-						Pattern mqttUriPattern = Pattern.compile("(mqtt://[^:/]*(:[0-9]{1,5})?)(/.*)?");
-						Matcher matcher = mqttUriPattern.matcher(poa);
-						if(matcher.matches()){
-							String topic = matcher.group(3);
-							String aeId = ae.getAeid();
-							if(topic != null){
-								request.setMqttTopic(topic);
-								request.setMqttResponseExpected(false);
-							} else {
-								request.setMqttTopic("/oneM2M/req/" + Constants.CSE_ID + "/" + aeId + "/xml");
-								request.setMqttResponseExpected(true);
-							}
-							request.setMqttUri(matcher.group(1));
+				}
+				request.setTo(poa);
+				if(poa.startsWith("mqtt://")){
+					Matcher matcher = MQTT_AE_URI_PATTERN.matcher(poa);
+					if(matcher.matches()){
+						String topic = matcher.group(3);
+						if(topic != null){
+							request.setMqttTopic(topic);
+							request.setMqttResponseExpected(false);
 						} else {
-							LOGGER.warn("POA is incorrect for MQTT: " + poa);
-							i++;
-							continue;
+							request.setMqttTopic("/oneM2M/req/" + Constants.CSE_ID + "/" + aeId + "/xml");
+							request.setMqttResponseExpected(true);
 						}
+						request.setMqttUri(matcher.group(1));
+					} else {
+						LOGGER.warn("POA is incorrect for MQTT: " + poa);
+						return null;
 					}
-					response = RestClient.sendRequest(request);
-					if (!response.getResponseStatusCode().equals(ResponseStatusCode.TARGET_NOT_REACHABLE)) {
-						done = true;
-						if (i > 0) {
-							ae.getPointOfAccess().remove(i);
-							ae.getPointOfAccess().add(0, poa);
-							dbs.getDAOFactory().getAeDAO().update(dbt, ae);
-							dbt.commit();
-						}
+				}
+				return RestClient.sendRequestAsync(request);
+			}
+
+			@Override
+			boolean isReached(String poa, ResponsePrimitive response) {
+				return IpeSelector.getInterworkingList().containsKey(poa) 
+						|| super.isReached(poa, response);
+			}
+
+			@Override
+			void promote(int index, String poa) {
+				DBService dbs = PersistenceService.getInstance().getDbService();
+				RequestTransaction dbt = RequestTransaction.open(dbs);
+				try {
+					AeEntity entity = dbs.getDAOFactory().getAeDAO().find(dbt.get(), aeResourceId);
+					if (entity != null && entity.getPointOfAccess().remove(poa)) {
+						entity.getPointOfAccess().add(0, poa);
+						dbs.getDAOFactory().getAeDAO().update(dbt.get(), entity);
+						dbt.commit();
 					}
+				} finally {
+					dbt.close();
 				}
-				i++;
 			}
-		}
-		dbt.close();
-		return response;
+
+			@Override
+			ResponsePrimitive unreachable(ResponsePrimitive lastResponse) {
+				return lastResponse != null ? lastResponse : new ResponsePrimitive(request);
+			}
+		}.forward();
 	}
 
 }
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.retention;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.commons.constants.ResponseStatusCode;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.exceptions.Om2mException;
+import org.eclipse.om2m.commons.utils.Util.DateUtil;
+import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.persistence.RequestTransaction;
+import org.eclipse.om2m.core.thread.CoreExecutor;
+import org.eclipse.om2m.core.urimapper.UriMapper;
+import org.eclipse.om2m.persistence.service.DBService;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.RetentionUtil;
+
+/**
+ * Retention of the content instances of the containers.
+ * <p>
+ * The maxNrOfInstances, maxByteSize and maxInstanceAge limits of a container
+ * are enforced when a content instance is created and when the limits of the
+ * container are updated: the oldest instances are deleted by batches until
+ * the container is within its limits. The instances older than maxInstanceAge
+ * are also deleted by a periodic sweep, a container may receive no instance
+ * for a long time.
+ * <p>
+ * The sweep can be configured using the following system properties:
+ * <ul>
+ * <li>org.eclipse.om2m.retention.sweepPeriod: period of the sweeps in s, 0 disables them</li>
+ * <li>org.eclipse.om2m.retention.batchSize: maximum number of instances deleted at once</li>
+ * </ul>
+ */
+public final class ContentInstanceRetention {
+
+	/** Logger */
+	private static final Log LOGGER = LogFactory.getLog(ContentInstanceRetention.class);
+
+	/** Period of the sweeps of the expired instances, in s */
+	private static final long SWEEP_PERIOD = Long.parseLong(
+			System.getProperty("org.eclipse.om2m.retention.sweepPeriod", "60"));
+
+	/** Maximum number of instances loaded and deleted at once */
+	private static final int BATCH_SIZE = Math.max(1, Integer.parseInt(
+			System.getProperty("org.eclipse.om2m.retention.batchSize", "100")));
+
+	/** Periodic sweep, null when stopped */
+	private static ScheduledFuture<?> sweep;
+
+	private ContentInstanceRetention() {
+		// static only
+	}
+
+	/**
+	 * Starts the periodic sweep of the expired instances.
+	 */
+	public static synchronized void start() {
+		if (sweep != null || SWEEP_PERIOD <= 0) {
+			return;
+		}
+		LOGGER.info("Sweeping the expired content instances every " + SWEEP_PERIOD + "s");
+		sweep = CoreExecutor.scheduleAtFixedRate(CoreExecutor.Pool.CORE, new Runnable() {
+			@Override
+			public void run() {
+				sweep();
+			}
+		}, SWEEP_PERIOD, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the periodic sweep.
+	 */
+	public static synchronized void stop() {
+		if (sweep != null) {
+			sweep.cancel(false);
+			sweep = null;
+		}
+	}
+
+	/**
+	 * Makes room in a container for a new content instance, then counts the
+	 * new instance in the current number of instances and byte size of the
+	 * container.
+	 * @param transaction current transaction
+	 * @param container parent container of the new instance
+	 * @param instance content instance being created
+	 * @throws Om2mException NOT_ACCEPTABLE if the instance alone exceeds the maxByteSize
+	 */
+	public static void beforeCreate(DBTransaction transaction, ContainerEntity container, ContentInstanceEntity instance) {
+		long size = instance.getByteSize();
+		if (container.getMaxByteSize() != null && size > container.getMaxByteSize().longValue()) {
+			throw new Om2mException("Content size " + size + " exceeds the maxByteSize of the container",
+					ResponseStatusCode.NOT_ACCEPTABLE);
+		}
+		int deleted = enforce(transaction, container, 1, size);
+		if (deleted > 0) {
+			LOGGER.info("Deleted " + deleted + " content instances of " + container.getResourceID()
+					+ " due to container limits");
+		}
+		container.setCurrentNrOfInstances(BigInteger.valueOf(getCurrentNrOfInstances(container) + 1));
+		container.setCurrentByteSize(BigInteger.valueOf(getCurrentByteSize(container) + size));
+		getDbs().getDAOFactory().getContainerDAO().update(transaction, container);
+	}
+
+	/**
+	 * Uncounts a deleted content instance from its container.
+	 * @param container parent container of the instance
+	 * @param instance deleted content instance
+	 */
+	public static void afterDelete(ContainerEntity container, ContentInstanceEntity instance) {
+		container.setCurrentNrOfInstances(BigInteger.valueOf(Math.max(0, getCurrentNrOfInstances(container) - 1)));
+		container.setCurrentByteSize(BigInteger.valueOf(Math.max(0, getCurrentByteSize(container) - instance.getByteSize())));
+	}
+
+	/**
+	 * Deletes the oldest instances of a container until it is within its
+	 * limits, e.g. after the limits have been lowered. The counters of the
+	 * container are updated, the caller writes the container.
+	 * @param transaction current transaction
+	 * @param container container to check
+	 * @return the number of deleted instances
+	 */
+	public static int enforce(DBTransaction transaction, ContainerEntity container) {
+		return enforce(transaction, container, 0, 0);
+	}
+
+	/**
+	 * Deletes the oldest instances of a container until it can hold the given
+	 * number of new instances and bytes, and the expired instances.
+	 */
+	private static int enforce(DBTransaction transaction, ContainerEntity container, int newInstances, long newBytes) {
+		String createdBefore = null;
+		if (container.getMaxInstanceAge() != null && container.getMaxInstanceAge().signum() > 0) {
+			createdBefore = DateUtil.format(new Date(System.currentTimeMillis()
+					- container.getMaxInstanceAge().longValue() * 1000));
+		}
+		RetentionUtil retentionUtil = getDbs().getDBUtilManager().getRetentionUtil();
+		int deleted = 0;
+		while (true) {
+			long excessInstances = container.getMaxNrOfInstances() == null ? 0
+					: getCurrentNrOfInstances(container) + newInstances - container.getMaxNrOfInstances().longValue();
+			long excessBytes = container.getMaxByteSize() == null ? 0
+					: getCurrentByteSize(container) + newBytes - container.getMaxByteSize().longValue();
+			boolean excess = excessInstances > 0 || excessBytes > 0;
+			if (!excess && createdBefore == null) {
+				return deleted;
+			}
+			// within the size limits, only the expired instances are loaded
+			List<ContentInstanceEntity> oldest = retentionUtil.findOldest(transaction, container.getResourceID(),
+					excess ? null : createdBefore, BATCH_SIZE);
+			List<ContentInstanceEntity> instances = new ArrayList<>();
+			for (ContentInstanceEntity instance : oldest) {
+				boolean expired = createdBefore != null && instance.getCreationTime() != null
+						&& instance.getCreationTime().compareTo(createdBefore) < 0;
+				if (excessInstances <= 0 && excessBytes <= 0 && !expired) {
+					break;
+				}
+				instances.add(instance);
+				excessInstances--;
+				excessBytes -= instance.getByteSize();
+			}
+			delete(transaction, retentionUtil, container, instances);
+			deleted += instances.size();
+			if (instances.size() < BATCH_SIZE) {
+				// no more instances or no more to delete
+				return deleted;
+			}
+		}
+	}
+
+	private static void delete(DBTransaction transaction, RetentionUtil retentionUtil, ContainerEntity container,
+			List<ContentInstanceEntity> instances) {
+		if (instances.isEmpty()) {
+			return;
+		}
+		for (ContentInstanceEntity instance : instances) {
+			UriMapper.deleteUri(instance.getHierarchicalURI());
+			afterDelete(container, instance);
+		}
+		retentionUtil.delete(transaction, container, instances);
+	}
+
+	/**
+	 * Deletes the expired instances of all the containers with a maxInstanceAge,
+	 * one transaction per container.
+	 */
+	static void sweep() {
+		DBService dbs = getDbs();
+		if (dbs == null) {
+			return;
+		}
+		List<String> containerIDs;
+		RequestTransaction transaction = RequestTransaction.open(dbs);
+		try {
+			containerIDs = dbs.getDBUtilManager().getRetentionUtil().findContainersWithMaxInstanceAge(transaction.get());
+		} catch (RuntimeException e) {
+			LOGGER.error("Error looking for the containers with a maxInstanceAge", e);
+			return;
+		} finally {
+			transaction.close();
+		}
+		int deleted = 0;
+		for (String containerID : containerIDs) {
+			transaction = RequestTransaction.open(dbs);
+			try {
+				ContainerEntity container = dbs.getDAOFactory().getContainerDAO().find(transaction.get(), containerID);
+				if (container == null) {
+					continue;
+				}
+				int containerDeleted = enforce(transaction.get(), container);
+				if (containerDeleted > 0) {
+					dbs.getDAOFactory().getContainerDAO().update(transaction.get(), container);
+					transaction.commit();
+					deleted += containerDeleted;
+				}
+			} catch (RuntimeException e) {
+				LOGGER.error("Error deleting the expired content instances of " + containerID, e);
+			} finally {
+				transaction.close();
+			}
+		}
+		if (deleted > 0) {
+			LOGGER.info("Deleted " + deleted + " expired content instances");
+		}
+	}
+
+	private static long getCurrentNrOfInstances(ContainerEntity container) {
+		return container.getCurrentNrOfInstances() == null ? 0 : container.getCurrentNrOfInstances().longValue();
+	}
+
+	private static long getCurrentByteSize(ContainerEntity container) {
+		return container.getCurrentByteSize() == null ? 0 : container.getCurrentByteSize().longValue();
+	}
+
+	private static DBService getDbs() {
+		return PersistenceService.getInstance().getDbService();
+	}
+
+}
@@ -42,6 +42,9 @@ public class Patterns implements Constants {
 			"|" + ShortName.POLLING_CHANNEL_URI + "|" + ShortName.REQ + 
 			"|" + ShortName.NODE + "|" + ShortName.MGO + 
 			"|" + ShortName.FCNT + "|" + ShortName.DAC;
+
+	/** Shared instance, patterns only depend on the CSE configuration */
+	private static final Patterns INSTANCE = new Patterns();
 	
 //	private static final String NON_HIERARCHICAL_ID = "(" + Constants.PREFIX_SEPERATOR +"(\\b\\w+\\b)?)" ;
 //	
@@ -115,6 +118,14 @@ public class Patterns implements Constants {
     		CSE_BASE_PATTERN + "(/" + Constants.CSE_NAME + "(/"+ ID_PATTERN +")*)?"
     		);
     
+	/**
+	 * Returns the shared instance, patterns are compiled once per CSE.
+	 * @return patterns instance
+	 */
+	public static Patterns getInstance() {
+		return INSTANCE;
+	}
+
 	/**
 	 * match uri with a pattern.
 	 * @param pattern - pattern
@@ -133,6 +144,10 @@ public class Patterns implements Constants {
 	 * @return DAO corresponding to the resource, null if not found
 	 */
 	public DAO<?> getDAO(String uri, DBService db){
+		RoutingTable.Route route = RoutingTable.classify(uri);
+		if (route != null) {
+			return route.getDAO(db.getDAOFactory());
+		}
 		if (match(CSE_BASE_PATTERN, uri)){
 			return db.getDAOFactory().getCSEBaseDAO();
 		}
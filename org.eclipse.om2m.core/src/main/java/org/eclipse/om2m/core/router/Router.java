@@ -27,6 +27,8 @@ import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.binding.service.ResponseFuture;
+import org.eclipse.om2m.binding.service.ResponseListener;
 import org.eclipse.om2m.commons.constants.Constants;
 import org.eclipse.om2m.commons.constants.MimeMediaType;
 import org.eclipse.om2m.commons.constants.Operation;
@@ -68,6 +70,7 @@ import org.eclipse.om2m.core.controller.RequestController;
 import org.eclipse.om2m.core.controller.SubscriptionController;
 import org.eclipse.om2m.core.datamapper.DataMapperSelector;
 import org.eclipse.om2m.core.nblocking.NonBlockingHandler;
+import org.eclipse.om2m.core.persistence.RequestTransaction;
 import org.eclipse.om2m.core.redirector.Redirector;
 import org.eclipse.om2m.core.service.CseService;
 import org.eclipse.om2m.core.urimapper.UriMapper;
@@ -85,10 +88,35 @@ public class Router implements CseService {
 	 * @return The generic returned response
 	 */
 	public ResponsePrimitive doRequest(RequestPrimitive request) {
+		return doRequest(request, null);
+	}
+
+	/**
+	 * Invokes required resource controller method. Requests forwarded to another
+	 * CSE or to the point of access of an AE are sent without waiting for the response.
+	 * @param request - The generic request to handle
+	 * @return The future response
+	 */
+	public ResponseFuture doRequestAsync(RequestPrimitive request) {
+		final ResponseFuture result = new ResponseFuture();
+		ResponsePrimitive response = doRequest(request, result);
+		if (response != null) {
+			result.complete(response);
+		}
+		return result;
+	}
+
+	/**
+	 * Handles the request.
+	 * @param request - The generic request to handle
+	 * @param async - The future response of a forwarded request, null to wait for the response
+	 * @return The generic returned response, null if the request has been forwarded asynchronously
+	 */
+	private ResponsePrimitive doRequest(RequestPrimitive request, ResponseFuture async) {
 
 		LOGGER.info("Received request in Router: " + request.toString());
 		ResponsePrimitive response = new ResponsePrimitive(request);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 		
 		String contentFormat = System.getProperty("org.eclipse.om2m.registration.contentFormat", MimeMediaType.XML);
 
@@ -169,112 +197,186 @@ public class Router implements CseService {
 			// Redirection case
 			if (!patterns.match(patterns.NON_RETARGETING_PATTERN, request.getTo())){
 				LOGGER.info("Request targeting another CSE, forwarding to Redirector: " + request.getTo());
+				if (async != null) {
+					Redirector.retargetAsync(request).addListener(new ForwardedResponseListener(request, async));
+					return null;
+				}
 				return Redirector.retarget(request);
 			}
 			LOGGER.info("Request handling in the current CSE: " + request.getTo());
 
-			Controller controller = null ; 
-			// Case of hierarchical URI, retrieve the non-hierarchical URI of the resource
-			if (patterns.match(patterns.HIERARCHICAL_PATTERN, request.getTo())){
-				if(request.getTo().contains(patterns.FANOUT_POINT_MATCH + "/")){
-					int foptIndex = request.getTo().indexOf(patterns.FANOUT_POINT_MATCH);
-					String uri = request.getTo().substring(0, foptIndex);
-					String suffix = request.getTo()
-							.substring(
-									foptIndex + patterns.FANOUT_POINT_MATCH.length(), 
-									request.getTo().length()
-									);
-					controller = new FanOutPointController(suffix);
-					request.setTo(uri);
-					LOGGER.info("Fan Out request received: [grp uri: " + uri + ", suffix: " + suffix + "]");
-				} if (request.getTo().endsWith(patterns.FANOUT_POINT_MATCH)) {
-					controller = new FanOutPointController();
-					request.setTo(request.getTo().replaceAll(patterns.FANOUT_POINT_MATCH, ""));
-					LOGGER.info("Fan Out request received: [grp uri: " + request.getTo()+ "]");
-				} 
-				if(request.getTo().endsWith("/" + ShortName.LATEST)){
-					controller = new LatestOldestController(SortingPolicy.LATEST);
-					request.setTo(request.getTo() + "/");
-					request.setTo(request.getTo().replace("/"+ShortName.LATEST+"/", ""));
-				}
-				if (request.getTo().endsWith("/" + ShortName.OLDEST)){
-					controller = new LatestOldestController(SortingPolicy.OLDEST);
-					request.setTo(request.getTo() + "/");
-					request.setTo(request.getTo().replace("/"+ShortName.OLDEST+"/", ""));
-				}
-				String nonHierarchicalUri = UriMapper.getNonHierarchicalUri(request.getTo());
-				if (nonHierarchicalUri == null){
-					throw new ResourceNotFoundException("Resource not found");
+			// resolution, controller and helpers share the transaction of the request,
+			// committed once the controller succeeded
+			RequestTransaction transaction = RequestTransaction.open();
+			try {
+				Controller controller = null ; 
+				// Case of hierarchical URI, retrieve the non-hierarchical URI of the resource
+				if (patterns.match(patterns.HIERARCHICAL_PATTERN, request.getTo())){
+					if(request.getTo().contains(patterns.FANOUT_POINT_MATCH + "/")){
+						int foptIndex = request.getTo().indexOf(patterns.FANOUT_POINT_MATCH);
+						String uri = request.getTo().substring(0, foptIndex);
+						String suffix = request.getTo()
+								.substring(
+										foptIndex + patterns.FANOUT_POINT_MATCH.length(), 
+										request.getTo().length()
+										);
+						controller = new FanOutPointController(suffix);
+						request.setTo(uri);
+						LOGGER.info("Fan Out request received: [grp uri: " + uri + ", suffix: " + suffix + "]");
+					} if (request.getTo().endsWith(patterns.FANOUT_POINT_MATCH)) {
+						controller = new FanOutPointController();
+						request.setTo(request.getTo().replaceAll(patterns.FANOUT_POINT_MATCH, ""));
+						LOGGER.info("Fan Out request received: [grp uri: " + request.getTo()+ "]");
+					} 
+					if(request.getTo().endsWith("/" + ShortName.LATEST)){
+						controller = new LatestOldestController(SortingPolicy.LATEST);
+						request.setTo(request.getTo() + "/");
+						request.setTo(request.getTo().replace("/"+ShortName.LATEST+"/", ""));
+					}
+					if (request.getTo().endsWith("/" + ShortName.OLDEST)){
+						controller = new LatestOldestController(SortingPolicy.OLDEST);
+						request.setTo(request.getTo() + "/");
+						request.setTo(request.getTo().replace("/"+ShortName.OLDEST+"/", ""));
+					}
+					String nonHierarchicalUri = UriMapper.getNonHierarchicalUri(request.getTo());
+					if (nonHierarchicalUri == null){
+						throw new ResourceNotFoundException("Resource not found");
+					}
+					request.setTo(nonHierarchicalUri);
+					LOGGER.debug("Changing to unstructured uri for routing to: " + request.getTo());
 				}
-				request.setTo(nonHierarchicalUri);
-				LOGGER.debug("Changing to unstructured uri for routing to: " + request.getTo());
-			}
 
-			// Notify case
-			if(request.getOperation().equals(Operation.NOTIFY)){
-				return Redirector.retargetNotify(request);
-			}
+				// Notify case
+				if(request.getOperation().equals(Operation.NOTIFY)){
+					// nothing written locally
+					transaction.commit();
+					if (async != null) {
+						Redirector.retargetNotifyAsync(request).addListener(new ForwardedResponseListener(request, async));
+						return null;
+					}
+					return Redirector.retargetNotify(request);
+				}
 
-			// Discovery case
-			if ((request.getFilterCriteria() != null) && (request.getFilterCriteria().getFilterUsage() != null)
-					&& (request.getFilterCriteria().getFilterUsage().intValue() == 1)){
-				controller = new DiscoveryController();
-			}
+				// Discovery case
+				if ((request.getFilterCriteria() != null) && (request.getFilterCriteria().getFilterUsage() != null)
+						&& (request.getFilterCriteria().getFilterUsage().intValue() == 1)){
+					controller = new DiscoveryController();
+				}
 
-			// Determine the appropriate resource controller
-			// In case of a CREATE, the resource type determine the controller
-			if (controller == null){
-				if (request.getOperation().equals(Operation.CREATE)){
-					controller = getResourceControllerFromRT(request.getResourceType());
-				} else {
-					controller = getResourceControllerFromURI(request.getTo());
-				}        		
-			}
+				// Determine the appropriate resource controller
+				// In case of a CREATE, the resource type determine the controller
+				if (controller == null){
+					if (request.getOperation().equals(Operation.CREATE)){
+						controller = getResourceControllerFromRT(request.getResourceType());
+					} else {
+						controller = getResourceControllerFromURI(request.getTo());
+					}        		
+				}
 
-			if (controller!=null){
-				LOGGER.info("ResourceController to be used ["+ controller.getClass().getSimpleName()+"]");
-				// Perform the request in the specific controller
-				response = controller.doRequest(request);
-				if(request.getResultContent() != null && request.getResultContent().equals(ResultContent.NOTHING)){
-					response.setContent(null);
-				} else {
-					if(response.getContent() != null && !(response.getContent() instanceof String)
-							&& !request.getReturnContentType().equals(MimeMediaType.OBJ)){
-						String representation = DataMapperSelector.getDataMapperList().
-								get(request.getReturnContentType()).objToString(response.getContent());
-						response.setContent(representation);
-						response.setContentType(request.getReturnContentType());
+				if (controller!=null){
+					LOGGER.info("ResourceController to be used ["+ controller.getClass().getSimpleName()+"]");
+					// Perform the request in the specific controller
+					response = controller.doRequest(request);
+					transaction.commit();
+					if(request.getResultContent() != null && request.getResultContent().equals(ResultContent.NOTHING)){
+						response.setContent(null);
+					} else {
+						if(response.getContent() != null && !(response.getContent() instanceof String)
+								&& !request.getReturnContentType().equals(MimeMediaType.OBJ)){
+							if (request.isResponseContentSerialized()) {
+								String representation = DataMapperSelector.getDataMapperList().
+										get(request.getReturnContentType()).objToString(response.getContent());
+								response.setContent(representation);
+							}
+							// else the binding writes the content directly in the return content type
+							response.setContentType(request.getReturnContentType());
+						}
 					}
+				} else {
+					throw new BadRequestException("Malformed URI");
 				}
-			} else {
-				throw new BadRequestException("Malformed URI");
+			} finally {
+				transaction.close();
 			}
-		} catch (Om2mException om2mException){
+		} catch(Exception e){
+			setError(response, e);
+		}
+
+		LOGGER.info("Response in Router= " + response);
+		return response;
+	}
+
+	/**
+	 * Fills the response with the error raised while handling the request.
+	 * @param response - The generic returned response
+	 * @param e - The error
+	 */
+	private static void setError(ResponsePrimitive response, Throwable e) {
+		if (e instanceof Om2mException) {
+			Om2mException om2mException = (Om2mException) e;
 			response.setResponseStatusCode(om2mException.getErrorStatusCode());
 			response.setContent(om2mException.getMessage());
 			response.setContentType(MimeMediaType.TEXT_PLAIN);
 			LOGGER.error("OM2M exception caught in Router: " + om2mException.getMessage(), om2mException);
 			LOGGER.debug("OM2M exception caught in Router", om2mException);
-		} catch(Exception e){
+		} else {
 			LOGGER.error("Router internal error", e);
 			response.setResponseStatusCode(ResponseStatusCode.INTERNAL_SERVER_ERROR);
 			response.setContent("Router internal error");
 			response.setContentType(MimeMediaType.TEXT_PLAIN);
 		}
+	}
 
-		LOGGER.info("Response in Router= " + response);
-		return response;
+	/**
+	 * Provides the response of a forwarded request, errors are converted
+	 * into responses as for local requests.
+	 */
+	private static class ForwardedResponseListener implements ResponseListener {
+
+		private final RequestPrimitive request;
+		private final ResponseFuture result;
+
+		ForwardedResponseListener(RequestPrimitive request, ResponseFuture result) {
+			this.request = request;
+			this.result = result;
+		}
+
+		@Override
+		public void onResponse(ResponsePrimitive response) {
+			LOGGER.info("Response in Router= " + response);
+			result.complete(response);
+		}
+
+		@Override
+		public void onFailure(Throwable cause) {
+			ResponsePrimitive response = new ResponsePrimitive(request);
+			setError(response, cause);
+			LOGGER.info("Response in Router= " + response);
+			result.complete(response);
+		}
 	}
 
 	/**
-	 * Finds required resource controller based on uri patterns.
+	 * Finds required resource controller based on the routing table.
 	 * @param uri - Generic request uri
-	 * @param method - Generic request method
-	 * @param representation - Resource representation
 	 * @return The matched resource controller otherwise null
 	 */
 	protected Controller getResourceControllerFromURI(String uri){
-		Patterns patterns = new Patterns();
+		RoutingTable.Route route = RoutingTable.classify(uri);
+		if (route != null) {
+			return route.newController();
+		}
+		return matchResourceControllerFromURI(uri);
+	}
+
+	/**
+	 * Finds required resource controller based on uri patterns.
+	 * Used when the uri cannot be classified by the routing table.
+	 * @param uri - Generic request uri
+	 * @return The matched resource controller otherwise null
+	 */
+	Controller matchResourceControllerFromURI(String uri){
+		Patterns patterns = Patterns.getInstance();
 		// Match the resource controller with an uri pattern and return it, otherwise return null
 		if (patterns.match(patterns.CSE_BASE_PATTERN, uri)){
 			return new CSEBaseController();
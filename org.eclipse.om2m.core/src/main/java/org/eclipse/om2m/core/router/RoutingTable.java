@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.constants.ShortName;
+import org.eclipse.om2m.core.controller.AEAnncController;
+import org.eclipse.om2m.core.controller.AEController;
+import org.eclipse.om2m.core.controller.AccessControlPolicyController;
+import org.eclipse.om2m.core.controller.CSEBaseController;
+import org.eclipse.om2m.core.controller.ContainerController;
+import org.eclipse.om2m.core.controller.ContentInstanceController;
+import org.eclipse.om2m.core.controller.Controller;
+import org.eclipse.om2m.core.controller.DynamicAuthorizationConsultationController;
+import org.eclipse.om2m.core.controller.FlexContainerAnncController;
+import org.eclipse.om2m.core.controller.FlexContainerController;
+import org.eclipse.om2m.core.controller.GroupController;
+import org.eclipse.om2m.core.controller.MgmtObjAnncController;
+import org.eclipse.om2m.core.controller.MgmtObjController;
+import org.eclipse.om2m.core.controller.NodeAnncController;
+import org.eclipse.om2m.core.controller.NodeController;
+import org.eclipse.om2m.core.controller.PollingChannelController;
+import org.eclipse.om2m.core.controller.PollingChannelUriController;
+import org.eclipse.om2m.core.controller.RemoteCSEController;
+import org.eclipse.om2m.core.controller.RequestController;
+import org.eclipse.om2m.core.controller.SubscriptionController;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DAOFactory;
+
+/**
+ * Routing table built once per CSE. It classifies a non-hierarchical URI
+ * (/cse-id/cnt-123, /cse-id/Cae1...) by the short name prefix of its last segment
+ * instead of trying every resource pattern of {@link Patterns} in sequence.
+ * <p>
+ * The accepted URIs are exactly the ones matched by the corresponding
+ * patterns: a URI that cannot be classified returns null.
+ */
+final class RoutingTable {
+
+	/**
+	 * Resource routes, each one knows how to build the controller and
+	 * how to find the DAO of the resource type.
+	 */
+	enum Route {
+		CSE_BASE {
+			Controller newController() { return new CSEBaseController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getCSEBaseDAO(); }
+		},
+		AE {
+			Controller newController() { return new AEController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getAeDAO(); }
+		},
+		AE_ANNC {
+			Controller newController() { return new AEAnncController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getAeAnncDAO(); }
+		},
+		ACP {
+			Controller newController() { return new AccessControlPolicyController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getAccessControlPolicyDAO(); }
+		},
+		CONTAINER {
+			Controller newController() { return new ContainerController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getContainerDAO(); }
+		},
+		DYNAMIC_AUTHORIZATION_CONSULTATION {
+			Controller newController() { return new DynamicAuthorizationConsultationController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getDynamicAuthorizationDAO(); }
+		},
+		FLEXCONTAINER {
+			Controller newController() { return new FlexContainerController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getFlexContainerDAO(); }
+		},
+		FLEXCONTAINER_ANNC {
+			Controller newController() { return new FlexContainerAnncController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getFlexContainerAnncDAO(); }
+		},
+		CONTENT_INSTANCE {
+			Controller newController() { return new ContentInstanceController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getContentInstanceDAO(); }
+		},
+		REMOTE_CSE {
+			Controller newController() { return new RemoteCSEController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getRemoteCSEDAO(); }
+		},
+		GROUP {
+			Controller newController() { return new GroupController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getGroupDAO(); }
+		},
+		NODE {
+			Controller newController() { return new NodeController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getNodeDAO(); }
+		},
+		NODE_ANNC {
+			Controller newController() { return new NodeAnncController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getNodeAnncDAO(); }
+		},
+		MGMT_OBJ {
+			Controller newController() { return new MgmtObjController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getMgmtObjDAO(); }
+		},
+		MGMT_OBJ_ANNC {
+			Controller newController() { return new MgmtObjAnncController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getMgmtObjAnncDAO(); }
+		},
+		SUBSCRIPTION {
+			Controller newController() { return new SubscriptionController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getSubsciptionDAO(); }
+		},
+		POLLING_CHANNEL {
+			Controller newController() { return new PollingChannelController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getPollingChannelDAO(); }
+		},
+		POLLING_CHANNEL_URI {
+			Controller newController() { return new PollingChannelUriController(); }
+			DAO<?> getDAO(DAOFactory factory) { return null; }
+		},
+		REQUEST {
+			Controller newController() { return new RequestController(); }
+			DAO<?> getDAO(DAOFactory factory) { return factory.getRequestEntityDAO(); }
+		};
+
+		/**
+		 * Creates the controller handling this kind of resource. Controllers hold
+		 * the transaction of the request they handle so a new one is created per request.
+		 * @return a new controller
+		 */
+		abstract Controller newController();
+
+		/**
+		 * Retrieves the DAO of this kind of resource.
+		 * @param factory DAO factory of the current database service
+		 * @return the DAO or null if the resource is not persisted
+		 */
+		abstract DAO<?> getDAO(DAOFactory factory);
+	}
+
+	/** Prefix every local non-hierarchical URI starts with */
+	private static final String CSE_BASE_URI = "/" + Constants.CSE_ID;
+
+	/** Resource id separator */
+	private static final String SEPARATOR = Constants.PREFIX_SEPERATOR;
+
+	/** Short name prefix to route */
+	private static final Map<String, Route> PREFIXES = new HashMap<String, Route>();
+
+	static {
+		PREFIXES.put(ShortName.ACP, Route.ACP);
+		PREFIXES.put(ShortName.CNT, Route.CONTAINER);
+		PREFIXES.put(ShortName.DAC, Route.DYNAMIC_AUTHORIZATION_CONSULTATION);
+		PREFIXES.put(ShortName.FCNT, Route.FLEXCONTAINER);
+		PREFIXES.put(ShortName.FCNTA, Route.FLEXCONTAINER_ANNC);
+		PREFIXES.put(ShortName.CIN, Route.CONTENT_INSTANCE);
+		PREFIXES.put(ShortName.REMOTE_CSE, Route.REMOTE_CSE);
+		PREFIXES.put(ShortName.GROUP, Route.GROUP);
+		PREFIXES.put(ShortName.NODE, Route.NODE);
+		PREFIXES.put(ShortName.NODE_ANNC, Route.NODE_ANNC);
+		PREFIXES.put(ShortName.MGO, Route.MGMT_OBJ);
+		PREFIXES.put(ShortName.MGOA, Route.MGMT_OBJ_ANNC);
+		PREFIXES.put(ShortName.SUB, Route.SUBSCRIPTION);
+		PREFIXES.put(ShortName.PCH, Route.POLLING_CHANNEL);
+		PREFIXES.put(ShortName.POLLING_CHANNEL_URI, Route.POLLING_CHANNEL_URI);
+		PREFIXES.put(ShortName.REQ, Route.REQUEST);
+	}
+
+	private RoutingTable() {
+		// static only
+	}
+
+	/**
+	 * Classifies a local non-hierarchical URI.
+	 * @param uri non-hierarchical uri of the resource
+	 * @return the matching route or null if the uri does not target a known resource
+	 */
+	static Route classify(String uri) {
+		if (uri == null || !uri.startsWith(CSE_BASE_URI)) {
+			return null;
+		}
+		int length = CSE_BASE_URI.length();
+		if (uri.length() == length) {
+			return Route.CSE_BASE;
+		}
+		if (uri.charAt(length) != '/') {
+			return null;
+		}
+		int start = length + 1;
+		if (start == uri.length() || !isId(uri, start)) {
+			return null;
+		}
+		// AE resource ids start with C or S without any separator
+		char first = uri.charAt(start);
+		if ((first == 'C' || first == 'S') && uri.length() > start + 1) {
+			return Route.AE;
+		}
+		if (uri.startsWith(ShortName.AE_ANNC, start)
+				&& uri.length() > start + ShortName.AE_ANNC.length()) {
+			return Route.AE_ANNC;
+		}
+		if (SEPARATOR.isEmpty()) {
+			return null;
+		}
+		int separatorIndex = uri.indexOf(SEPARATOR, start);
+		if (separatorIndex < 0 || separatorIndex + SEPARATOR.length() == uri.length()) {
+			return null;
+		}
+		return PREFIXES.get(uri.substring(start, separatorIndex));
+	}
+
+	/**
+	 * Checks that the end of the uri is a single valid id segment.
+	 * Same characters as {@link Patterns#ID_STRING}.
+	 */
+	private static boolean isId(String uri, int start) {
+		for (int i = start; i < uri.length(); i++) {
+			char c = uri.charAt(i);
+			if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+					|| c == '_' || c == '-' || c == '~' || c == '#' || c == '.')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -20,45 +20,82 @@
 package org.eclipse.om2m.core.thread;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.core.thread.CorePool.RejectionPolicy;
 
 /**
- * This class provides a management of thread policies. It is initialized using 
- * the Constants.MAX_THREAD_POOL_SIZE and avoid creating too much thread and overload 
- * an instance. 
- * 
+ * This class provides a management of thread policies. Tasks are performed by 
+ * separate named pools so that a burst of one kind of task (e.g. notifications) 
+ * does not starve the others. Each pool is sized using Constants.MAX_THREAD_POOL_SIZE, 
+ * has a bounded queue and a rejection policy applied when it is saturated.
+ * <p>
+ * Each pool can be configured using the following system properties, 
+ * where &lt;pool&gt; is the name of the pool (core, notification, fanout, retargeting):
+ * <ul>
+ * <li>org.eclipse.om2m.executor.&lt;pool&gt;.size: maximum number of threads</li>
+ * <li>org.eclipse.om2m.executor.&lt;pool&gt;.queueSize: maximum number of waiting tasks</li>
+ * <li>org.eclipse.om2m.executor.&lt;pool&gt;.rejectionPolicy: CALLER_RUNS, DROP_OLDEST or RETRY</li>
+ * </ul>
  */
 public class CoreExecutor {
 	
+	/**
+	 * Kinds of tasks, each one is performed by its own pool.
+	 */
+	public enum Pool {
+		/** General purpose tasks */
+		CORE("core", 1000, RejectionPolicy.CALLER_RUNS),
+		/** Notifications sent to the subscribers, kept for retry rather than lost */
+		NOTIFICATION("notification", 10000, RejectionPolicy.RETRY),
+		/** Requests fanned out to the members of a group */
+		FAN_OUT("fanout", 1000, RejectionPolicy.CALLER_RUNS),
+		/** Requests forwarded to remote entities */
+		RETARGETING("retargeting", 1000, RejectionPolicy.CALLER_RUNS);
+
+		private final CorePool pool;
+
+		private Pool(String name, int defaultQueueSize, RejectionPolicy defaultRejectionPolicy) {
+			String prefix = "org.eclipse.om2m.executor." + name + ".";
+			// Use minimum 2 threads
+			int defaultSize = Constants.MAX_THREAD_POOL_SIZE > 2 ? Constants.MAX_THREAD_POOL_SIZE : 2;
+			int size = Integer.parseInt(System.getProperty(prefix + "size", String.valueOf(defaultSize)));
+			int queueSize = Integer.parseInt(System.getProperty(prefix + "queueSize", String.valueOf(defaultQueueSize)));
+			RejectionPolicy rejectionPolicy = RejectionPolicy.valueOf(
+					System.getProperty(prefix + "rejectionPolicy", defaultRejectionPolicy.name()).toUpperCase());
+			this.pool = new CorePool(name, Math.max(size, 1), Math.max(queueSize, 1), rejectionPolicy);
+		}
+
+		/** @return the pool performing this kind of task */
+		public CorePool getPool() {
+			return pool;
+		}
+	}
+
 	/** Default logger */
 	private static final Log LOGGER = LogFactory.getLog(CoreExecutor.class.getName());
-	/** The ExecutorService with the applied thread policy */
-	private static final ExecutorService threadPool;
 
-	/**
-	 * Initialize the threadPool with the specific policy
-	 */
+	/** Period of the statistics logs, in s */
+	private static final long STATISTICS_PERIOD = Long.parseLong(System.getProperty("org.eclipse.om2m.executor.statisticsPeriod", "60"));
+
 	static {
-		// Use minimum 2 threads
-		int maximumPoolSize = Constants.MAX_THREAD_POOL_SIZE > 2 ? Constants.MAX_THREAD_POOL_SIZE: 2; 
-		// Provide 10% of thread kept alive for better performance
-		int corePoolSize = maximumPoolSize / 10;
-		LOGGER.info("Creating thread pool with corePoolSize=" + corePoolSize + 
-				" & maximumSize=" + maximumPoolSize);
-		// Keep alive the threads for a minute in the pool
-		threadPool = new ThreadPoolExecutor(
-				corePoolSize, maximumPoolSize, 
-				60L, TimeUnit.SECONDS, 
-				new SynchronousQueue<Runnable>()
-		);
+		if (STATISTICS_PERIOD > 0) {
+			CorePool.SCHEDULER.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					if (LOGGER.isDebugEnabled()) {
+						for (Pool pool : Pool.values()) {
+							LOGGER.debug(pool.getPool());
+						}
+					}
+				}
+			}, STATISTICS_PERIOD, STATISTICS_PERIOD, TimeUnit.SECONDS);
+		}
 	}
 	
 	/**
@@ -71,7 +108,17 @@ public class CoreExecutor {
 	 * @return the Future<T> object, use the get() method to retrieve the result
 	 */
 	public static <T> Future<T> submit(Callable<T> callable){
-		return threadPool.submit(callable);
+		return submit(Pool.CORE, callable);
+	}
+
+	/**
+	 * Submit the operation to a specific pool.
+	 * @param pool the pool performing the operation
+	 * @param callable the operation to perform with the specific type
+	 * @return the Future<T> object, use the get() method to retrieve the result
+	 */
+	public static <T> Future<T> submit(Pool pool, Callable<T> callable){
+		return pool.getPool().submit(callable);
 	}
 	
 	/** 
@@ -79,7 +126,50 @@ public class CoreExecutor {
 	 * @param runnable the operation to be performed
 	 */
 	public static void postThread(Runnable runnable){
-		threadPool.execute(runnable);
+		postThread(Pool.CORE, runnable);
+	}
+
+	/** 
+	 * Post the runnable into a specific pool.
+	 * @param pool the pool performing the operation
+	 * @param runnable the operation to be performed
+	 */
+	public static void postThread(Pool pool, Runnable runnable){
+		pool.getPool().execute(runnable);
+	}
+
+	/**
+	 * Post the runnable into a specific pool once the delay has elapsed.
+	 * @param pool the pool performing the operation
+	 * @param runnable the operation to be performed
+	 * @param delay the delay before the operation is posted
+	 * @param unit the unit of the delay
+	 * @return the scheduled future, used to cancel the operation before it is posted
+	 */
+	public static ScheduledFuture<?> schedule(final Pool pool, final Runnable runnable, long delay, TimeUnit unit){
+		return CorePool.SCHEDULER.schedule(new Runnable() {
+			@Override
+			public void run() {
+				postThread(pool, runnable);
+			}
+		}, delay, unit);
+	}
+
+	/**
+	 * Periodically post the runnable into a specific pool.
+	 * @param pool the pool performing the operation
+	 * @param runnable the operation to be performed
+	 * @param period the period between two posts
+	 * @param unit the unit of the period
+	 * @return the scheduled future, used to stop the posts
+	 */
+	public static ScheduledFuture<?> scheduleAtFixedRate(final Pool pool, final Runnable runnable, long period, TimeUnit unit){
+		return CorePool.SCHEDULER.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				postThread(pool, runnable);
+			}
+		}, period, period, unit);
 	}
 	
 }
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.thread;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Named thread pool with a bounded queue. When both the threads and the
+ * queue are busy, the {@link RejectionPolicy} of the pool decides what
+ * happens to the new task. The pool keeps statistics about its load.
+ */
+public class CorePool {
+
+	/**
+	 * Behavior when the threads and the queue of a pool are busy.
+	 */
+	public enum RejectionPolicy {
+		/** The task is performed by the submitting thread, slowing the producer down */
+		CALLER_RUNS,
+		/** The oldest queued task is dropped to make room for the new one */
+		DROP_OLDEST,
+		/** The task is kept aside and queued again when the pool has room,
+		 * the submitting thread performs it if too many tasks are waiting */
+		RETRY
+	}
+
+	private static final Log LOGGER = LogFactory.getLog(CorePool.class);
+
+	/** Period of the retries of the rejected tasks, in ms */
+	private static final long RETRY_PERIOD = 100;
+	/** Queues again the tasks rejected by the pools using the RETRY policy */
+	static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "om2m-executor-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	/** Only one rejection out of this number is logged */
+	private static final long REJECTION_LOG_INTERVAL = 1000;
+
+	private final String name;
+	private final RejectionPolicy rejectionPolicy;
+	private final ThreadPoolExecutor executor;
+	/** Rejected tasks waiting to be queued again, RETRY policy only */
+	private final BlockingQueue<Runnable> retryQueue;
+	/** Periodic retry of the rejected tasks, RETRY policy only */
+	private final ScheduledFuture<?> retryTask;
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong completedCount = new AtomicLong();
+	/** Sum of the times spent in the queue, in ns */
+	private final AtomicLong totalWaitTime = new AtomicLong();
+	/** Sum of the execution times, in ns */
+	private final AtomicLong totalRunTime = new AtomicLong();
+	/** Longest time between the submission and the end of a task, in ns */
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	/**
+	 * Creates a pool.
+	 * @param name name of the pool, used to name the threads
+	 * @param size maximum number of threads
+	 * @param queueSize maximum number of waiting tasks
+	 * @param rejectionPolicy behavior when the threads and the queue are busy
+	 */
+	public CorePool(final String name, int size, int queueSize, RejectionPolicy rejectionPolicy) {
+		this.name = name;
+		this.rejectionPolicy = rejectionPolicy;
+		this.retryQueue = rejectionPolicy == RejectionPolicy.RETRY ? 
+				new ArrayBlockingQueue<Runnable>(queueSize) : null;
+		// threads are created up to the maximum before queuing and released when idle
+		this.executor = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS, 
+				new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "om2m-" + name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new RejectedExecutionHandler() {
+			@Override
+			public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+				reject(task);
+			}
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+		if (retryQueue != null) {
+			this.retryTask = SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					retry();
+				}
+			}, RETRY_PERIOD, RETRY_PERIOD, TimeUnit.MILLISECONDS);
+		} else {
+			this.retryTask = null;
+		}
+		LOGGER.info("Creating thread pool " + name + " with size=" + size 
+				+ ", queueSize=" + queueSize + " & rejectionPolicy=" + rejectionPolicy);
+	}
+
+	/**
+	 * Posts the task into the pool.
+	 * @param runnable the operation to be performed
+	 */
+	public void execute(Runnable runnable) {
+		executor.execute(new TimedTask(runnable));
+	}
+
+	/**
+	 * Submits the operation to the pool.
+	 * @param callable the operation to perform
+	 * @return the Future<T> object, use the get() method to retrieve the result
+	 */
+	public <T> Future<T> submit(Callable<T> callable) {
+		FutureTask<T> task = new FutureTask<T>(callable);
+		execute(task);
+		return task;
+	}
+
+	/**
+	 * Moves the rejected tasks back into the pool queue while it has room.
+	 */
+	private void retry() {
+		Runnable task;
+		while (executor.getQueue().remainingCapacity() > 0 && (task = retryQueue.poll()) != null) {
+			if (executor.isShutdown() || !executor.getQueue().offer(task)) {
+				runInCaller(task);
+			}
+		}
+		// all the threads may have been released while the task was waiting
+		if (executor.getPoolSize() == 0 && !executor.getQueue().isEmpty()) {
+			executor.prestartCoreThread();
+		}
+	}
+
+	/**
+	 * Stops the threads, the queued tasks are not performed.
+	 */
+	public void shutdown() {
+		if (retryTask != null) {
+			retryTask.cancel(false);
+		}
+		executor.shutdownNow();
+	}
+
+	private void reject(Runnable task) {
+		long rejected = rejectedCount.incrementAndGet();
+		if (rejected % REJECTION_LOG_INTERVAL == 1) {
+			LOGGER.warn("Thread pool " + name + " saturated (" + rejected + " rejections), applying " 
+					+ rejectionPolicy + " policy: " + this);
+		}
+		if (executor.isShutdown()) {
+			runInCaller(task);
+			return;
+		}
+		switch (rejectionPolicy) {
+		case DROP_OLDEST:
+			Runnable dropped = executor.getQueue().poll();
+			if (dropped != null) {
+				droppedCount.incrementAndGet();
+				LOGGER.debug("Task dropped from thread pool " + name);
+			}
+			executor.execute(task);
+			break;
+		case RETRY:
+			if (retryQueue.offer(task)) {
+				break;
+			}
+			runInCaller(task);
+			break;
+		case CALLER_RUNS:
+		default:
+			runInCaller(task);
+			break;
+		}
+	}
+
+	private void runInCaller(Runnable task) {
+		try {
+			task.run();
+		} catch (RuntimeException e) {
+			LOGGER.error("Error in task of thread pool " + name, e);
+		}
+	}
+
+	/** @return the name of the pool */
+	public String getName() {
+		return name;
+	}
+
+	/** @return the number of tasks waiting for a thread */
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	/** @return the number of rejected tasks waiting to be queued again */
+	public int getRetryQueueDepth() {
+		return retryQueue == null ? 0 : retryQueue.size();
+	}
+
+	/** @return the number of threads performing a task */
+	public int getActiveThreads() {
+		return executor.getActiveCount();
+	}
+
+	/** @return the number of threads of the pool */
+	public int getPoolSize() {
+		return executor.getPoolSize();
+	}
+
+	/** @return the number of tasks submitted while the pool was saturated */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/** @return the number of tasks dropped by the DROP_OLDEST policy */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/** @return the number of completed tasks */
+	public long getCompletedCount() {
+		return completedCount.get();
+	}
+
+	/** @return the average time spent by a task in the queue, in ms */
+	public double getAverageWaitTime() {
+		long completed = completedCount.get();
+		return completed == 0 ? 0 : totalWaitTime.get() / 1e6 / completed;
+	}
+
+	/** @return the average execution time of a task, in ms */
+	public double getAverageRunTime() {
+		long completed = completedCount.get();
+		return completed == 0 ? 0 : totalRunTime.get() / 1e6 / completed;
+	}
+
+	/** @return the longest time between the submission and the end of a task, in ms */
+	public double getMaxLatency() {
+		return maxLatency.get() / 1e6;
+	}
+
+	@Override
+	public String toString() {
+		return "CorePool [name=" + name 
+				+ ", poolSize=" + getPoolSize()
+				+ ", activeThreads=" + getActiveThreads()
+				+ ", queueDepth=" + getQueueDepth()
+				+ ", retryQueueDepth=" + getRetryQueueDepth()
+				+ ", completed=" + getCompletedCount()
+				+ ", rejected=" + getRejectedCount()
+				+ ", dropped=" + getDroppedCount()
+				+ String.format(", avgWaitMs=%.3f, avgRunMs=%.3f, maxLatencyMs=%.3f]", 
+						getAverageWaitTime(), getAverageRunTime(), getMaxLatency());
+	}
+
+	/**
+	 * Task measuring its time in the queue and its execution time.
+	 */
+	private class TimedTask implements Runnable {
+
+		private final Runnable task;
+		private final long submitTime = System.nanoTime();
+
+		TimedTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			long startTime = System.nanoTime();
+			try {
+				task.run();
+			} finally {
+				long endTime = System.nanoTime();
+				totalWaitTime.addAndGet(startTime - submitTime);
+				totalRunTime.addAndGet(endTime - startTime);
+				completedCount.incrementAndGet();
+				long latency = endTime - submitTime;
+				long max;
+				while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency)) {
+					// retry
+				}
+			}
+		}
+	}
+
+}
@@ -19,12 +19,14 @@
  *******************************************************************************/
 package org.eclipse.om2m.core.urimapper;
 
+import org.eclipse.om2m.commons.constants.Constants;
 import org.eclipse.om2m.commons.entities.UriMapperEntity;
 import org.eclipse.om2m.commons.utils.UriUtil;
 import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.persistence.RequestTransaction;
 import org.eclipse.om2m.core.router.Patterns;
+import org.eclipse.om2m.core.util.GroupMembershipIndex;
 import org.eclipse.om2m.persistence.service.DBService;
-import org.eclipse.om2m.persistence.service.DBTransaction;
 
 /**
  * Mapper between hierarchical uri and non-hierarchical uri
@@ -32,6 +34,9 @@ import org.eclipse.om2m.persistence.service.DBTransaction;
  */
 public class UriMapper {
 
+	/** Cache of the hierarchical uri mappings, shared by all requests */
+	private static final UriMapperCache CACHE = new UriMapperCache(Constants.URI_MAPPER_CACHE_SIZE);
+
 	/**
 	 * Get the non-hierarchical URI of a resource from its hierarchical one.
 	 * 
@@ -46,21 +51,31 @@ public class UriMapper {
 		}
 		
 		String spRelativeUri = UriUtil.toSpRelativeUri(uri);
-		Patterns patterns = new Patterns();
+		Patterns patterns = Patterns.getInstance();
 
 		if (patterns.match(patterns.NON_HIERARCHICAL_PATTERN, spRelativeUri)){
 			return spRelativeUri;
 		}
+		String cached = CACHE.get(spRelativeUri);
+		if (cached != null) {
+			return cached;
+		}
+		long generation = CACHE.generation();
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = dbs.getDbTransaction();
-		transaction.open();
-		UriMapperEntity entity = dbs.getDAOFactory().getUriMapperEntity()
-				.find(transaction, spRelativeUri);
-		transaction.close();
-		if (entity != null) {
+		RequestTransaction transaction = RequestTransaction.open(dbs);
+		try {
+			UriMapperEntity entity = dbs.getDAOFactory().getUriMapperEntity()
+					.find(transaction.get(), spRelativeUri);
+			if (entity == null) {
+				return null;
+			}
+			// the mapping may have been added by the current request, cache it once committed
+			transaction.afterCommit(new CachePut(spRelativeUri, entity.getNonHierarchicalUri(), generation));
+			transaction.commit();
 			return entity.getNonHierarchicalUri();
+		} finally {
+			transaction.close();
 		}
-		return null;
 	}
 
 	/**
@@ -74,22 +89,26 @@ public class UriMapper {
 	 */
 	public static boolean addNewUri(String hierarchicalUri,
 			String nonHierarchicalUri, int resourceType) {
+		long generation = CACHE.generation();
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = dbs.getDbTransaction();
-		transaction.open();
-		if (dbs.getDAOFactory().getUriMapperEntity()
-				.find(transaction, hierarchicalUri) != null) {
+		RequestTransaction transaction = RequestTransaction.open(dbs);
+		try {
+			if (dbs.getDAOFactory().getUriMapperEntity()
+					.find(transaction.get(), hierarchicalUri) != null) {
+				return false;
+			}
+			UriMapperEntity entity = new UriMapperEntity();
+			entity.setHierarchicalUri(hierarchicalUri);
+			entity.setNonHierarchicalUri(nonHierarchicalUri);
+			entity.setResourceType(resourceType);
+			dbs.getDAOFactory().getUriMapperEntity().create(transaction.get(), entity);
+			// dropped with the mapping if the request fails
+			transaction.afterCommit(new CachePut(hierarchicalUri, nonHierarchicalUri, generation));
+			transaction.commit();
+			return true;
+		} finally {
 			transaction.close();
-			return false;
 		}
-		UriMapperEntity entity = new UriMapperEntity();
-		entity.setHierarchicalUri(hierarchicalUri);
-		entity.setNonHierarchicalUri(nonHierarchicalUri);
-		entity.setResourceType(resourceType);
-		dbs.getDAOFactory().getUriMapperEntity().create(transaction, entity);
-		transaction.commit();
-		transaction.close();
-		return true;
 	}
 
 	/**
@@ -98,17 +117,57 @@ public class UriMapper {
 	 * @param hierarchicalUri
 	 *            of the resource
 	 */
-	public static void deleteUri(String hierarchicalUri) {
+	public static void deleteUri(final String hierarchicalUri) {
 		DBService dbs = PersistenceService.getInstance().getDbService();
-		DBTransaction transaction = dbs.getDbTransaction();
-		transaction.open();
-		UriMapperEntity entity = dbs.getDAOFactory().getUriMapperEntity()
-				.find(transaction, hierarchicalUri);
-		if (entity != null){
-			dbs.getDAOFactory().getUriMapperEntity().delete(transaction, entity);
-			transaction.commit();			
+		RequestTransaction transaction = RequestTransaction.open(dbs);
+		try {
+			UriMapperEntity entity = dbs.getDAOFactory().getUriMapperEntity()
+					.find(transaction.get(), hierarchicalUri);
+			if (entity != null){
+				dbs.getDAOFactory().getUriMapperEntity().delete(transaction.get(), entity);
+			}
+			// mappings of the descendants are deleted with the one of the resource
+			CACHE.invalidateSubtree(hierarchicalUri);
+			GroupMembershipIndex.invalidateSubtree(hierarchicalUri);
+			// once more when committed, the mappings may have been reloaded meanwhile
+			transaction.afterCommit(new Runnable() {
+				@Override
+				public void run() {
+					CACHE.invalidateSubtree(hierarchicalUri);
+					GroupMembershipIndex.invalidateSubtree(hierarchicalUri);
+				}
+			});
+			transaction.commit();
+		} finally {
+			transaction.close();
+		}
+	}
+
+	/**
+	 * Drop all the cached mappings, e.g. when the database service changes.
+	 */
+	public static void clearCache() {
+		CACHE.clear();
+	}
+
+	/**
+	 * Caches a mapping unless it has been invalidated since the generation was read.
+	 */
+	private static class CachePut implements Runnable {
+		private final String hierarchicalUri;
+		private final String nonHierarchicalUri;
+		private final long generation;
+
+		CachePut(String hierarchicalUri, String nonHierarchicalUri, long generation) {
+			this.hierarchicalUri = hierarchicalUri;
+			this.nonHierarchicalUri = nonHierarchicalUri;
+			this.generation = generation;
+		}
+
+		@Override
+		public void run() {
+			CACHE.put(hierarchicalUri, nonHierarchicalUri, generation);
 		}
-		transaction.close();
 	}
 
 }
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.urimapper;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of hierarchical uri to non-hierarchical uri mappings.
+ * <p>
+ * Entries are sorted by hierarchical uri so that the mappings of a whole
+ * subtree can be invalidated when its root resource is deleted.
+ * When the cache is full, the oldest inserted entries are evicted first.
+ */
+class UriMapperCache {
+
+	/** Character following '/' in the natural ordering of strings */
+	private static final char AFTER_SEPARATOR = (char) ('/' + 1);
+
+	/** Hierarchical uri to non-hierarchical uri */
+	private final ConcurrentSkipListMap<String, String> mappings = new ConcurrentSkipListMap<String, String>();
+
+	/** Number of entries, size() of the skip list is not constant time */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/** Insertion order of the keys, may contain keys already removed */
+	private final Queue<String> insertions = new ConcurrentLinkedQueue<String>();
+
+	/** Number of keys in the insertion queue */
+	private final AtomicInteger queued = new AtomicInteger();
+
+	/** Incremented on each invalidation to detect a concurrent delete during a load */
+	private final AtomicLong generation = new AtomicLong();
+
+	private final int maxSize;
+
+	UriMapperCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param hierarchicalUri of the resource
+	 * @return the cached non-hierarchical uri or null if not cached
+	 */
+	String get(String hierarchicalUri) {
+		return mappings.get(hierarchicalUri);
+	}
+
+	/**
+	 * Current generation, to be read before loading a mapping from the database
+	 * and given back to {@link #put(String, String, long)}.
+	 * @return the current generation
+	 */
+	long generation() {
+		return generation.get();
+	}
+
+	/**
+	 * Caches a mapping loaded from the database. The mapping is discarded if
+	 * an invalidation happened since the provided generation was read.
+	 * @param hierarchicalUri of the resource
+	 * @param nonHierarchicalUri of the resource
+	 * @param loadGeneration generation read before the load
+	 */
+	void put(String hierarchicalUri, String nonHierarchicalUri, long loadGeneration) {
+		if (maxSize <= 0) {
+			return;
+		}
+		if (mappings.put(hierarchicalUri, nonHierarchicalUri) == null) {
+			size.incrementAndGet();
+			insertions.offer(hierarchicalUri);
+			queued.incrementAndGet();
+			evict();
+		}
+		if (generation.get() != loadGeneration) {
+			remove(hierarchicalUri);
+		}
+	}
+
+	/**
+	 * Caches a mapping that has just been persisted.
+	 * @param hierarchicalUri of the resource
+	 * @param nonHierarchicalUri of the resource
+	 */
+	void put(String hierarchicalUri, String nonHierarchicalUri) {
+		put(hierarchicalUri, nonHierarchicalUri, generation.get());
+	}
+
+	/**
+	 * Removes the mapping of the resource and the ones of all its descendants.
+	 * @param hierarchicalUri of the deleted resource
+	 */
+	void invalidateSubtree(String hierarchicalUri) {
+		generation.incrementAndGet();
+		remove(hierarchicalUri);
+		ConcurrentNavigableMap<String, String> children = mappings.subMap(
+				hierarchicalUri + "/", true, hierarchicalUri + AFTER_SEPARATOR, false);
+		for (String child : children.keySet()) {
+			remove(child);
+		}
+	}
+
+	/**
+	 * Removes all the mappings.
+	 */
+	void clear() {
+		generation.incrementAndGet();
+		for (String key : mappings.keySet()) {
+			remove(key);
+		}
+	}
+
+	private void remove(String hierarchicalUri) {
+		if (mappings.remove(hierarchicalUri) != null) {
+			size.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Evicts the oldest entries while the cache is full. Keys of removed
+	 * entries are also dropped from the insertion queue to keep it bounded.
+	 */
+	private void evict() {
+		while (size.get() > maxSize || queued.get() > 2 * maxSize) {
+			String oldest = insertions.poll();
+			if (oldest == null) {
+				if (mappings.pollLastEntry() != null) {
+					size.decrementAndGet();
+					continue;
+				}
+				return;
+			}
+			queued.decrementAndGet();
+			if (size.get() > maxSize) {
+				remove(oldest);
+			}
+		}
+	}
+
+}
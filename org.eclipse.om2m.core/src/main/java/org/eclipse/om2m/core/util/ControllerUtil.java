@@ -20,14 +20,30 @@
 package org.eclipse.om2m.core.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.constants.ResourceType;
 import org.eclipse.om2m.commons.constants.ResponseStatusCode;
 import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.AeAnncEntity;
+import org.eclipse.om2m.commons.entities.AeEntity;
 import org.eclipse.om2m.commons.entities.AnnounceableSubordinateEntity;
+import org.eclipse.om2m.commons.entities.CSEBaseEntity;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
 import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerEntity;
+import org.eclipse.om2m.commons.entities.GroupEntity;
+import org.eclipse.om2m.commons.entities.MgmtObjAnncEntity;
+import org.eclipse.om2m.commons.entities.MgmtObjEntity;
+import org.eclipse.om2m.commons.entities.NodeAnncEntity;
+import org.eclipse.om2m.commons.entities.NodeEntity;
+import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
 import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.SubscriptionEntity;
 import org.eclipse.om2m.commons.exceptions.BadRequestException;
 import org.eclipse.om2m.commons.exceptions.NotPermittedAttrException;
 import org.eclipse.om2m.commons.exceptions.Om2mException;
@@ -87,6 +103,52 @@ public class ControllerUtil {
 		return response;
 	}
 	
+	/**
+	 * Returns the access control policies applying to a resource.
+	 * @param resourceEntity resource
+	 * @return the policies, null if the resource type is not handled
+	 */
+	public static List<AccessControlPolicyEntity> getAcpsFromEntity(ResourceEntity resourceEntity) {
+		int ty = resourceEntity.getResourceType().intValue();
+		switch(ty){		
+		case ResourceType.ACCESS_CONTROL_POLICY:
+			return Arrays.asList((AccessControlPolicyEntity) resourceEntity);
+		case ResourceType.AE:
+			return ((AeEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.AE_ANNC:
+			return ((AeAnncEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.DYNAMIC_AUTHORIZATION_CONSULTATION:
+			return ((DynamicAuthorizationConsultationEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.CONTAINER:
+			return ((ContainerEntity) resourceEntity).getAccessControlPolicies();		
+		case ResourceType.CONTENT_INSTANCE:
+			return ((ContentInstanceEntity) resourceEntity).getAcpListFromParent();		
+		case ResourceType.GROUP:
+			return ((GroupEntity) resourceEntity).getAccessControlPolicies();	
+		case ResourceType.REMOTE_CSE:
+			return ((RemoteCSEEntity) resourceEntity).getAccessControlPolicies();		
+		case ResourceType.CSE_BASE:
+			return ((CSEBaseEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.SUBSCRIPTION:
+			return ((SubscriptionEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.FLEXCONTAINER:
+			return ((FlexContainerEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.FLEXCONTAINER_ANNC:
+			return ((FlexContainerAnncEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.NODE:
+			return ((NodeEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.NODE_ANNC:
+			return ((NodeAnncEntity) resourceEntity).getAccessControlPolicies();
+		case ResourceType.MGMT_OBJ:
+			return ((MgmtObjEntity)resourceEntity).getAccessControlPolicies();
+		case ResourceType.MGMT_OBJ_ANNC:
+			return ((MgmtObjAnncEntity)resourceEntity).getAccessControlPolicies();
+		default:
+			// TODO On implementing resource, add the reference here
+			return null;
+		}
+	}
+
 	public static List<DynamicAuthorizationConsultationEntity> buildDacEntityList(
 			List<String> dacIds, DBTransaction transaction) 
 					throws ResourceNotFoundException{
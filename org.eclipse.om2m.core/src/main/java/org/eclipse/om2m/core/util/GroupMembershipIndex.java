@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.core.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.commons.entities.GroupEntity;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.commons.utils.UriUtil;
+import org.eclipse.om2m.core.persistence.PersistenceService;
+import org.eclipse.om2m.core.persistence.RequestTransaction;
+import org.eclipse.om2m.core.router.Patterns;
+import org.eclipse.om2m.persistence.service.DBService;
+
+/**
+ * In-memory index of the members of the groups.
+ * <p>
+ * The members of a group are resolved with a single query: the resource id
+ * and type of each member hosted by this CSE. The memberships are kept until
+ * the group is updated or deleted, or until one of the members is deleted, so
+ * the fan out and the validation of the members do not read them again.
+ * <p>
+ * The number of groups kept is set by the org.eclipse.om2m.group.membershipCacheSize
+ * system property, 0 disables the cache.
+ */
+public final class GroupMembershipIndex {
+
+	/** Logger */
+	private static final Log LOGGER = LogFactory.getLog(GroupMembershipIndex.class);
+
+	/** Maximum number of groups kept */
+	private static final int CACHE_SIZE = Integer.parseInt(
+			System.getProperty("org.eclipse.om2m.group.membershipCacheSize", "1000"));
+
+	/** Character following '/' in the natural ordering of strings */
+	private static final char AFTER_SEPARATOR = (char) ('/' + 1);
+
+	/** Memberships by group id, the least recently used first */
+	private static final Map<String, Membership> MEMBERSHIPS = new LinkedHashMap<String, Membership>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Membership> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/** Incremented on each invalidation to detect a concurrent delete during a load */
+	private static final AtomicLong GENERATION = new AtomicLong();
+
+	/**
+	 * Members of a group.
+	 */
+	public static final class Membership {
+		/** Last modification of the group the members have been read from */
+		private final String lastModifiedTime;
+		/** Generation read before the members have been resolved */
+		private final long generation;
+		private final List<String> memberIDs;
+		private final List<String> memberAcpIDs;
+		/** Mappings of the members hosted by this CSE, by member id */
+		private final Map<String, UriMapperEntity> resolved;
+		/** Hierarchical uris of the resolved members */
+		private final NavigableSet<String> hierarchicalUris = new TreeSet<String>();
+
+		private Membership(GroupEntity group, Map<String, UriMapperEntity> resolved, long generation) {
+			this.lastModifiedTime = group.getLastModifiedTime();
+			this.generation = generation;
+			this.memberIDs = Collections.unmodifiableList(new ArrayList<String>(group.getMemberIDs()));
+			this.memberAcpIDs = Collections.unmodifiableList(new ArrayList<String>(group.getMemberAcpIds()));
+			this.resolved = resolved;
+			for (UriMapperEntity mapping : resolved.values()) {
+				hierarchicalUris.add(mapping.getHierarchicalUri());
+			}
+		}
+
+		/**
+		 * @return the member ids of the group
+		 */
+		public List<String> getMemberIDs() {
+			return memberIDs;
+		}
+
+		/**
+		 * @return the membersAccessControlPolicyIDs of the group
+		 */
+		public List<String> getMemberAcpIDs() {
+			return memberAcpIDs;
+		}
+
+		/**
+		 * @param memberID - id of a member of the group
+		 * @return the uri mapping of the member, with its resource id and
+		 *         type, or null if the member is not a resource of this CSE
+		 */
+		public UriMapperEntity getMember(String memberID) {
+			return resolved.get(memberID);
+		}
+
+		/**
+		 * @param hierarchicalUri - hierarchical uri of a deleted resource
+		 * @return true if the resource or one of its descendants is a member
+		 */
+		private boolean hasMemberIn(String hierarchicalUri) {
+			if (hierarchicalUris.contains(hierarchicalUri)) {
+				return true;
+			}
+			String next = hierarchicalUris.ceiling(hierarchicalUri + "/");
+			return next != null && next.compareTo(hierarchicalUri + AFTER_SEPARATOR) < 0;
+		}
+	}
+
+	private GroupMembershipIndex() {
+		// static only
+	}
+
+	/**
+	 * Gets the members of a group, resolved once until the group is modified.
+	 * @param group - the group
+	 * @return the members of the group
+	 */
+	public static Membership get(GroupEntity group) {
+		Membership membership = getCached(group.getResourceID());
+		if (membership != null && equals(membership.lastModifiedTime, group.getLastModifiedTime())) {
+			return membership;
+		}
+		membership = resolve(group, membership);
+		put(group.getResourceID(), membership);
+		return membership;
+	}
+
+	/**
+	 * Resolves the members of a group being created or updated. The members
+	 * already resolved for the previous state of the group are not read again.
+	 * @param group - the group, with its new members
+	 * @return the members of the group
+	 */
+	public static Membership resolve(GroupEntity group) {
+		return resolve(group, getCached(group.getResourceID()));
+	}
+
+	/**
+	 * Keeps the members of a group once the request creating or updating
+	 * the group is committed.
+	 * @param group - the group, with its validated members
+	 * @param resolved - members resolved by {@link #resolve(GroupEntity)}
+	 */
+	public static void register(GroupEntity group, Membership resolved) {
+		final String groupID = group.getResourceID();
+		final Membership membership = new Membership(group, resolved.resolved, resolved.generation);
+		RequestTransaction transaction = RequestTransaction.open();
+		try {
+			transaction.afterCommit(new Runnable() {
+				@Override
+				public void run() {
+					put(groupID, membership);
+				}
+			});
+		} finally {
+			transaction.close();
+		}
+	}
+
+	/**
+	 * Forgets the members of a group.
+	 * @param groupID - id of the updated or deleted group
+	 */
+	public static void invalidate(String groupID) {
+		GENERATION.incrementAndGet();
+		synchronized (MEMBERSHIPS) {
+			MEMBERSHIPS.remove(groupID);
+		}
+	}
+
+	/**
+	 * Forgets the groups having as member a deleted resource or one of its
+	 * descendants.
+	 * @param hierarchicalUri - hierarchical uri of the deleted resource
+	 */
+	public static void invalidateSubtree(String hierarchicalUri) {
+		GENERATION.incrementAndGet();
+		synchronized (MEMBERSHIPS) {
+			for (Membership membership : new ArrayList<Membership>(MEMBERSHIPS.values())) {
+				if (membership.hasMemberIn(hierarchicalUri)) {
+					MEMBERSHIPS.values().remove(membership);
+				}
+			}
+		}
+	}
+
+	private static Membership getCached(String groupID) {
+		synchronized (MEMBERSHIPS) {
+			return MEMBERSHIPS.get(groupID);
+		}
+	}
+
+	private static void put(String groupID, Membership membership) {
+		if (CACHE_SIZE <= 0) {
+			return;
+		}
+		synchronized (MEMBERSHIPS) {
+			// a member may have been deleted meanwhile, reloaded next time
+			if (GENERATION.get() == membership.generation) {
+				MEMBERSHIPS.put(groupID, membership);
+			} else {
+				MEMBERSHIPS.remove(groupID);
+			}
+		}
+	}
+
+	/**
+	 * Resolves the members of a group hosted by this CSE with a single query.
+	 * @param group - the group
+	 * @param previous - previous members of the group, null if unknown
+	 * @return the members of the group
+	 */
+	private static Membership resolve(GroupEntity group, Membership previous) {
+		long generation = GENERATION.get();
+		Patterns patterns = Patterns.getInstance();
+		Map<String, UriMapperEntity> resolved = new HashMap<String, UriMapperEntity>();
+		// member ids by SP-relative uri
+		Map<String, List<String>> toResolve = new LinkedHashMap<String, List<String>>();
+		for (String memberID : new LinkedHashSet<String>(group.getMemberIDs())) {
+			UriMapperEntity known = previous == null ? null : previous.getMember(memberID);
+			if (known != null) {
+				resolved.put(memberID, known);
+				continue;
+			}
+			String uri = toSpRelativeUri(memberID);
+			if (uri == null || !patterns.match(patterns.NON_RETARGETING_PATTERN, uri)) {
+				continue;
+			}
+			List<String> memberIDs = toResolve.get(uri);
+			if (memberIDs == null) {
+				memberIDs = new ArrayList<String>(1);
+				toResolve.put(uri, memberIDs);
+			}
+			memberIDs.add(memberID);
+		}
+		if (!toResolve.isEmpty()) {
+			LOGGER.debug("Resolving " + toResolve.size() + " members of " + group.getResourceID());
+			DBService dbs = PersistenceService.getInstance().getDbService();
+			RequestTransaction transaction = RequestTransaction.open(dbs);
+			try {
+				for (UriMapperEntity mapping : dbs.getDBUtilManager().getUriMapperUtil()
+						.findAll(transaction.get(), toResolve.keySet())) {
+					resolve(resolved, toResolve.get(mapping.getHierarchicalUri()), mapping);
+					resolve(resolved, toResolve.get(mapping.getNonHierarchicalUri()), mapping);
+				}
+			} finally {
+				transaction.close();
+			}
+		}
+		return new Membership(group, resolved, generation);
+	}
+
+	private static void resolve(Map<String, UriMapperEntity> resolved, List<String> memberIDs, UriMapperEntity mapping) {
+		if (memberIDs != null) {
+			for (String memberID : memberIDs) {
+				resolved.put(memberID, mapping);
+			}
+		}
+	}
+
+	/**
+	 * @param memberID - id of a member
+	 * @return the SP-relative uri of the member or null if it is incorrect
+	 */
+	private static String toSpRelativeUri(String memberID) {
+		String uri = memberID.contains("#") ? memberID.split("#")[0] : memberID;
+		try {
+			uri = UriUtil.toSpRelativeUri(uri);
+		} catch (RuntimeException e) {
+			LOGGER.debug("Incorrect member id: " + memberID, e);
+			return null;
+		}
+		// same normalization as the router
+		return uri.length() > 1 && uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+	}
+
+	private static boolean equals(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
+
+}
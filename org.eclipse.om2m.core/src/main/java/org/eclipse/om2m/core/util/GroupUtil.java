@@ -19,6 +19,7 @@
  *******************************************************************************/
 package org.eclipse.om2m.core.util;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,16 +28,11 @@ import org.apache.commons.logging.LogFactory;
 import org.eclipse.om2m.commons.constants.ConsistencyStrategy;
 import org.eclipse.om2m.commons.constants.MemberType;
 import org.eclipse.om2m.commons.entities.GroupEntity;
-import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
 import org.eclipse.om2m.commons.exceptions.BadRequestException;
 import org.eclipse.om2m.commons.exceptions.MemberNonFoundException;
 import org.eclipse.om2m.commons.exceptions.MemberTypeInconsistentException;
-import org.eclipse.om2m.core.persistence.PersistenceService;
-import org.eclipse.om2m.core.router.Patterns;
-import org.eclipse.om2m.core.urimapper.UriMapper;
-import org.eclipse.om2m.persistence.service.DAO;
-import org.eclipse.om2m.persistence.service.DBService;
-import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.core.util.GroupMembershipIndex.Membership;
 
 public class GroupUtil {
 
@@ -46,38 +42,21 @@ public class GroupUtil {
 
 	public static void validateGroupMember(GroupEntity group) 
 			throws MemberNonFoundException, MemberTypeInconsistentException{
+		// all the members are resolved at once, kept for the fan out once committed
+		Membership membership = GroupMembershipIndex.resolve(group);
 		// if the member type is not validated
 		if(!group.isMemberTypeValidated() && !group.getMemberType().equals(MemberType.MIXED)){
 			LOGGER.info("Validating the memberType of " + group.getHierarchicalURI());
-			// get the database service 
-			DBService dbs = PersistenceService.getInstance().getDbService();
-			DBTransaction transaction = dbs.getDbTransaction();
-			transaction.open();
-			Patterns patterns = new Patterns();
-
 			List<String> result = new ArrayList<String>();
 			// for each member of the group
 			for(String memberUri : group.getMemberIDs()){
-				String nonHierarchicalUri = UriMapper.getNonHierarchicalUri(memberUri);
-				if(nonHierarchicalUri == null){
-					transaction.close();
-					throw new MemberNonFoundException("Member not found: " + memberUri);
-				}
-				
-				DAO<ResourceEntity> dao = (DAO<ResourceEntity>) patterns.getDAO(nonHierarchicalUri, dbs);
-				if(dao == null){
-					transaction.close();
-					throw new MemberNonFoundException("Member not found: " + memberUri);
-				}
-				ResourceEntity entity = dao.find(transaction, nonHierarchicalUri);
-				if(entity == null){
-					transaction.close();
+				UriMapperEntity member = membership.getMember(memberUri);
+				if(member == null){
 					throw new MemberNonFoundException("Member not found: " + memberUri);
 				}
 				result.add(memberUri);				
-				if(!entity.getResourceType().equals(group.getMemberType())){
+				if(!BigInteger.valueOf(member.getResourceType()).equals(group.getMemberType())){
 					if(group.getConsistencyStrategy().equals(ConsistencyStrategy.ABANDON_GROUP)){
-						transaction.close();
 						throw new MemberTypeInconsistentException(
 								"MemberType is inconsistent and consistency strategy is set to ABANDON_GROUP");
 					} else if(group.getConsistencyStrategy().equals(ConsistencyStrategy.ABANDON_MEMBER)){
@@ -95,8 +74,8 @@ public class GroupUtil {
 			}
 			group.setMemberIDs(result);
 			group.setMemberTypeValidated(true);
-			transaction.close();
 		}
+		GroupMembershipIndex.register(group, membership);
 	}
 
 }
@@ -19,16 +19,21 @@
  *******************************************************************************/
 package org.eclipse.om2m.datamapping.jaxb;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.StringReader;
-import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -47,7 +52,15 @@ import org.eclipse.persistence.jaxb.MarshallerProperties;
 import org.eclipse.persistence.jaxb.UnmarshallerProperties;
 
 /**
- * Datamapper (JAXB) implementing DataMapper service
+ * Datamapper (JAXB) implementing DataMapper service.
+ * <p>
+ * Marshallers and unmarshallers are configured once and kept in bounded pools,
+ * one for URIList objects and one for the other resources. The following
+ * system properties can be used:
+ * <ul>
+ * <li>org.eclipse.om2m.datamapping.poolSize: maximum number of idle (un)marshallers per pool</li>
+ * <li>org.eclipse.om2m.datamapping.compactOutput: true to produce representations without indentation</li>
+ * </ul>
  */
 public class Mapper implements DataMapperService {
 
@@ -60,6 +73,44 @@ public class Mapper implements DataMapperService {
 	private String resourcePackage = "org.eclipse.om2m.commons.resource:org.eclipse.om2m.commons.resource.flexcontainerspec";
 	private String mediaType;
 
+	/** Root element of the URIList representations */
+	private static final String URI_LIST_ROOT = "m2m:uril";
+	private static final byte[] URI_LIST_ROOT_BYTES = URI_LIST_ROOT.getBytes(Charset.forName("UTF-8"));
+	/** Number of bytes read from a stream to find its root element */
+	private static final int ROOT_LOOKUP_SIZE = 256;
+	/** Maximum number of idle marshallers and unmarshallers kept per kind */
+	private static final int POOL_SIZE = Math.max(1, Integer.parseInt(System.getProperty(
+			"org.eclipse.om2m.datamapping.poolSize", String.valueOf(2 * Runtime.getRuntime().availableProcessors()))));
+	/** Representations without indentation nor line breaks */
+	private static final boolean COMPACT_OUTPUT = Boolean.parseBoolean(System.getProperty(
+			"org.eclipse.om2m.datamapping.compactOutput", "false"));
+	/** Namespace prefixes */
+	private static final Map<String, String> NAMESPACES = new HashMap<String, String>();
+	static {
+		NAMESPACES.put("http://www.onem2m.org/xml/protocols/homedomain", "hd"); 
+		NAMESPACES.put("http://www.onem2m.org/xml/protocols", "m2m"); 
+	}
+	/** Completes the flex containers once unmarshalled */
+	private static final Listener FLEX_CONTAINER_LISTENER = new Listener() {
+
+		@Override
+		public void afterUnmarshal(Object target, Object parent) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("afterUnmarshal (target=" + target + ", parent=" + parent + ")");
+			}
+			super.afterUnmarshal(target, parent);
+
+			if (target instanceof AbstractFlexContainer) {
+				((AbstractFlexContainer) target).finalizeDeserialization();
+			}
+		}
+	};
+
+	private final MarshallerPool marshallers = new MarshallerPool(false);
+	private final MarshallerPool uriListMarshallers = new MarshallerPool(true);
+	private final UnmarshallerPool unmarshallers = new UnmarshallerPool(false);
+	private final UnmarshallerPool uriListUnmarshallers = new UnmarshallerPool(true);
+
 	/**
 	 * Private constructor that will create the JAXB context.
 	 */
@@ -105,40 +156,58 @@ public class Mapper implements DataMapperService {
 	 */
 	@Override
 	public String objToString(Object obj) {
+		MarshallerPool pool = getMarshallerPool(obj);
+		Marshaller marshaller = pool.borrow();
 		try {
-			Marshaller marshaller = context.createMarshaller();
-			marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-			marshaller.setProperty(MarshallerProperties.MEDIA_TYPE,mediaType);
-			if (obj instanceof URIList) {
-				marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
-				marshaller.setProperty(MarshallerProperties.JSON_MARSHAL_EMPTY_COLLECTIONS, true);
-				marshaller.setProperty(MarshallerProperties.JSON_REDUCE_ANY_ARRAYS, false);
-			} else {
-				marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, true);
-				marshaller.setProperty(MarshallerProperties.JSON_MARSHAL_EMPTY_COLLECTIONS, false);
-				marshaller.setProperty(MarshallerProperties.JSON_REDUCE_ANY_ARRAYS, true);
-			}
-			marshaller.setProperty(MarshallerProperties.JSON_VALUE_WRAPPER, "val");
-			
-			
-			Map<String, String> namespaces = new HashMap<String, String>(); 
-			namespaces.put("http://www.onem2m.org/xml/protocols/homedomain", "hd"); 
-			namespaces.put("http://www.onem2m.org/xml/protocols", "m2m"); 
-			marshaller.setProperty(MarshallerProperties.NAMESPACE_PREFIX_MAPPER, namespaces);
-			marshaller.setProperty(MarshallerProperties.JSON_NAMESPACE_SEPARATOR, ':');
-			marshaller.marshal(obj, outputStream);
-			
-			return outputStream.toString("UTF-8");
+			StringWriter writer = new StringWriter();
+			marshaller.marshal(obj, writer);
+			pool.release(marshaller);
+			return writer.toString();
 		} catch (JAXBException e) {
 			LOGGER.error("JAXB marshalling error!", e);
-		} catch (UnsupportedEncodingException e) {
-			LOGGER.error("JAXB marshalling error!", e);
 		}
 		return null;
 	}
 
+	/**
+	 * Converts a resource Java object into UTF-8 encoded resource representation.
+	 * 
+	 * @param object
+	 *            - resource Java object
+	 * @return encoded resource representation
+	 */
+	@Override
+	public byte[] objToBytes(Object obj) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		if (objToStream(obj, outputStream)) {
+			return outputStream.toByteArray();
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the UTF-8 encoded resource representation of a resource Java object.
+	 * 
+	 * @param object
+	 *            - resource Java object
+	 * @param outputStream
+	 *            - stream receiving the representation
+	 * @return true if the representation has been written
+	 */
+	@Override
+	public boolean objToStream(Object obj, OutputStream outputStream) {
+		MarshallerPool pool = getMarshallerPool(obj);
+		Marshaller marshaller = pool.borrow();
+		try {
+			marshaller.marshal(obj, outputStream);
+			pool.release(marshaller);
+			return true;
+		} catch (JAXBException e) {
+			LOGGER.error("JAXB marshalling error!", e);
+		}
+		return false;
+	}
+
 	/**
 	 * Converts a resource XML representation data into resource Java object.
 	 * 
@@ -151,42 +220,78 @@ public class Mapper implements DataMapperService {
 		if(representation.isEmpty()){
 			return null;
 		}
-		StringReader stringReader = new StringReader(representation);
+		UnmarshallerPool pool = representation.contains(URI_LIST_ROOT) ? uriListUnmarshallers : unmarshallers;
+		Unmarshaller unmarshaller = pool.borrow();
 		try {
-			Unmarshaller unmarshaller = context.createUnmarshaller();
-			unmarshaller.setProperty(UnmarshallerProperties.MEDIA_TYPE, mediaType);
-			if (representation.contains("m2m:uril")) {
-				unmarshaller.setProperty(UnmarshallerProperties.JSON_INCLUDE_ROOT, true);
-				unmarshaller.setProperty(UnmarshallerProperties.JSON_WRAPPER_AS_ARRAY_NAME , true);
-			} else {
-				unmarshaller.setProperty(UnmarshallerProperties.JSON_INCLUDE_ROOT, true);
-				unmarshaller.setProperty(UnmarshallerProperties.JSON_WRAPPER_AS_ARRAY_NAME , false);
-			}
-			unmarshaller.setProperty(UnmarshallerProperties.JSON_VALUE_WRAPPER , "val");
-			Map<String, String> namespaces = new HashMap<String, String>(); 
-			namespaces.put("http://www.onem2m.org/xml/protocols/homedomain", "hd"); 
-			namespaces.put("http://www.onem2m.org/xml/protocols", "m2m"); 
-			unmarshaller.setProperty(MarshallerProperties.NAMESPACE_PREFIX_MAPPER, namespaces);
-			unmarshaller.setProperty(MarshallerProperties.JSON_NAMESPACE_SEPARATOR, ':');
-			
-			unmarshaller.setListener(new Listener() {
-				
-				@Override
-				public void afterUnmarshal(Object target, Object parent) {
-					LOGGER.debug("afterUnmarshal (target=" + target + ", parent=" + parent + ")");
-					super.afterUnmarshal(target, parent);
-					
-					if (target instanceof AbstractFlexContainer) {
-						((AbstractFlexContainer) target).finalizeDeserialization();
-					}
-				}
-			});
-			
-			Object unmarshaledObject = unmarshaller.unmarshal(stringReader);
-			Object toBeReturned = null;
-			toBeReturned = unmarshaledObject;
+			Object unmarshaledObject = unmarshaller.unmarshal(new StringReader(representation));
+			pool.release(unmarshaller);
+			return unmarshaledObject;
+		} catch (JAXBException e) {
+			LOGGER.error("JAXB unmarshalling error!", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Converts an UTF-8 encoded resource representation into resource Java object.
+	 * 
+	 * @param representation
+	 *            - encoded resource representation
+	 * @return resource Java object
+	 */
+	@Override
+	public Object bytesToObj(byte[] representation) {
+		if(representation == null || representation.length == 0){
+			return null;
+		}
+		UnmarshallerPool pool = contains(representation, representation.length, URI_LIST_ROOT_BYTES) ? 
+				uriListUnmarshallers : unmarshallers;
+		Unmarshaller unmarshaller = pool.borrow();
+		try {
+			Object unmarshaledObject = unmarshaller.unmarshal(new ByteArrayInputStream(representation));
+			pool.release(unmarshaller);
+			return unmarshaledObject;
+		} catch (JAXBException e) {
+			LOGGER.error("JAXB unmarshalling error!", e);
+		}
+		return null;
+	}
 
-			return toBeReturned;
+	/**
+	 * Converts an UTF-8 encoded resource representation into resource Java object.
+	 * Only the beginning of the stream is buffered to select the unmarshaller
+	 * from the root element of the representation.
+	 * 
+	 * @param inputStream
+	 *            - stream providing the representation
+	 * @return resource Java object
+	 */
+	@Override
+	public Object streamToObj(InputStream inputStream) {
+		BufferedInputStream bufferedStream = new BufferedInputStream(inputStream, ROOT_LOOKUP_SIZE);
+		byte[] start = new byte[ROOT_LOOKUP_SIZE];
+		int length = 0;
+		try {
+			bufferedStream.mark(ROOT_LOOKUP_SIZE);
+			int read;
+			while (length < start.length 
+					&& (read = bufferedStream.read(start, length, start.length - length)) >= 0) {
+				length += read;
+			}
+			bufferedStream.reset();
+		} catch (IOException e) {
+			LOGGER.error("Error reading the representation", e);
+			return null;
+		}
+		if (length == 0) {
+			return null;
+		}
+		UnmarshallerPool pool = contains(start, length, URI_LIST_ROOT_BYTES) ? uriListUnmarshallers : unmarshallers;
+		Unmarshaller unmarshaller = pool.borrow();
+		try {
+			Object unmarshaledObject = unmarshaller.unmarshal(bufferedStream);
+			pool.release(unmarshaller);
+			return unmarshaledObject;
 		} catch (JAXBException e) {
 			LOGGER.error("JAXB unmarshalling error!", e);
 		}
@@ -198,4 +303,123 @@ public class Mapper implements DataMapperService {
 		return mediaType;
 	}
 
+	private MarshallerPool getMarshallerPool(Object obj) {
+		return obj instanceof URIList ? uriListMarshallers : marshallers;
+	}
+
+	/**
+	 * Creates a marshaller configured for the media type of the mapper.
+	 * @param uriList - true for URIList objects, marshalled without root in JSON
+	 */
+	private Marshaller createMarshaller(boolean uriList) throws JAXBException {
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, !COMPACT_OUTPUT);
+		marshaller.setProperty(MarshallerProperties.MEDIA_TYPE,mediaType);
+		if (uriList) {
+			marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
+			marshaller.setProperty(MarshallerProperties.JSON_MARSHAL_EMPTY_COLLECTIONS, true);
+			marshaller.setProperty(MarshallerProperties.JSON_REDUCE_ANY_ARRAYS, false);
+		} else {
+			marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, true);
+			marshaller.setProperty(MarshallerProperties.JSON_MARSHAL_EMPTY_COLLECTIONS, false);
+			marshaller.setProperty(MarshallerProperties.JSON_REDUCE_ANY_ARRAYS, true);
+		}
+		marshaller.setProperty(MarshallerProperties.JSON_VALUE_WRAPPER, "val");
+		marshaller.setProperty(MarshallerProperties.NAMESPACE_PREFIX_MAPPER, NAMESPACES);
+		marshaller.setProperty(MarshallerProperties.JSON_NAMESPACE_SEPARATOR, ':');
+		return marshaller;
+	}
+
+	/**
+	 * Creates an unmarshaller configured for the media type of the mapper.
+	 * @param uriList - true for URIList representations
+	 */
+	private Unmarshaller createUnmarshaller(boolean uriList) throws JAXBException {
+		Unmarshaller unmarshaller = context.createUnmarshaller();
+		unmarshaller.setProperty(UnmarshallerProperties.MEDIA_TYPE, mediaType);
+		unmarshaller.setProperty(UnmarshallerProperties.JSON_INCLUDE_ROOT, true);
+		unmarshaller.setProperty(UnmarshallerProperties.JSON_WRAPPER_AS_ARRAY_NAME , uriList);
+		unmarshaller.setProperty(UnmarshallerProperties.JSON_VALUE_WRAPPER , "val");
+		unmarshaller.setProperty(MarshallerProperties.NAMESPACE_PREFIX_MAPPER, NAMESPACES);
+		unmarshaller.setProperty(MarshallerProperties.JSON_NAMESPACE_SEPARATOR, ':');
+		unmarshaller.setListener(FLEX_CONTAINER_LISTENER);
+		return unmarshaller;
+	}
+
+	private static boolean contains(byte[] data, int length, byte[] pattern) {
+		for (int i = 0; i <= length - pattern.length; i++) {
+			int j = 0;
+			while (j < pattern.length && data[i + j] == pattern[j]) {
+				j++;
+			}
+			if (j == pattern.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Bounded pool of configured marshallers, which are not thread safe.
+	 */
+	private final class MarshallerPool {
+
+		private final BlockingQueue<Marshaller> idle = new ArrayBlockingQueue<Marshaller>(POOL_SIZE);
+		private final boolean uriList;
+
+		MarshallerPool(boolean uriList) {
+			this.uriList = uriList;
+		}
+
+		/** @return an idle marshaller or a new one if there is none */
+		Marshaller borrow() {
+			Marshaller marshaller = idle.poll();
+			if (marshaller == null) {
+				try {
+					marshaller = createMarshaller(uriList);
+				} catch (JAXBException e) {
+					throw new IllegalStateException("JAXB marshaller creation error", e);
+				}
+			}
+			return marshaller;
+		}
+
+		/** Gives back a marshaller after a successful use, dropped if the pool is full */
+		void release(Marshaller marshaller) {
+			idle.offer(marshaller);
+		}
+	}
+
+	/**
+	 * Bounded pool of configured unmarshallers, which are not thread safe.
+	 */
+	private final class UnmarshallerPool {
+
+		private final BlockingQueue<Unmarshaller> idle = new ArrayBlockingQueue<Unmarshaller>(POOL_SIZE);
+		private final boolean uriList;
+
+		UnmarshallerPool(boolean uriList) {
+			this.uriList = uriList;
+		}
+
+		/** @return an idle unmarshaller or a new one if there is none */
+		Unmarshaller borrow() {
+			Unmarshaller unmarshaller = idle.poll();
+			if (unmarshaller == null) {
+				try {
+					unmarshaller = createUnmarshaller(uriList);
+				} catch (JAXBException e) {
+					throw new IllegalStateException("JAXB unmarshaller creation error", e);
+				}
+			}
+			return unmarshaller;
+		}
+
+		/** Gives back an unmarshaller after a successful use, dropped if the pool is full */
+		void release(Unmarshaller unmarshaller) {
+			idle.offer(unmarshaller);
+		}
+	}
+
 }
@@ -19,6 +19,8 @@
  *******************************************************************************/
 package org.eclipse.om2m.datamapping.service;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * Data Mapping Service to provide an binding between string representation of
@@ -45,6 +47,44 @@ public interface DataMapperService {
 	 */
 	public abstract Object stringToObj(String obj);
 
+	/**
+	 * Give the UTF-8 encoded representation of a oneM2M object.
+	 * 
+	 * @param obj
+	 *            Object to translate
+	 * @return the encoded representation of the object
+	 */
+	public abstract byte[] objToBytes(Object obj);
+
+	/**
+	 * Write the UTF-8 encoded representation of a oneM2M object.
+	 * 
+	 * @param obj
+	 *            Object to translate
+	 * @param outputStream
+	 *            Stream receiving the representation, not closed
+	 * @return true if the representation has been written
+	 */
+	public abstract boolean objToStream(Object obj, OutputStream outputStream);
+
+	/**
+	 * Give the corresponding object of an UTF-8 encoded representation.
+	 * 
+	 * @param representation
+	 *            Encoded representation to translate
+	 * @return Corresponding java object
+	 */
+	public abstract Object bytesToObj(byte[] representation);
+
+	/**
+	 * Give the corresponding object of an UTF-8 encoded representation.
+	 * 
+	 * @param inputStream
+	 *            Stream providing the representation, not closed
+	 * @return Corresponding java object
+	 */
+	public abstract Object streamToObj(InputStream inputStream);
+
 	/**
 	 * Give the type of data that handle the service.
 	 * 
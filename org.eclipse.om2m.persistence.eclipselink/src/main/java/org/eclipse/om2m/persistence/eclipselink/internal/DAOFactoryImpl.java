@@ -56,6 +56,7 @@ import org.eclipse.om2m.persistence.eclipselink.internal.dao.FlexContainerAnncDA
 import org.eclipse.om2m.persistence.eclipselink.internal.dao.FlexContainerDAO;
 import org.eclipse.om2m.persistence.eclipselink.internal.dao.GroupDAO;
 import org.eclipse.om2m.persistence.eclipselink.internal.dao.LabelDAO;
+import org.eclipse.om2m.persistence.eclipselink.internal.dao.LatestDAO;
 import org.eclipse.om2m.persistence.eclipselink.internal.dao.MgmtObjAnncDAO;
 import org.eclipse.om2m.persistence.eclipselink.internal.dao.MgmtObjDAO;
 import org.eclipse.om2m.persistence.eclipselink.internal.dao.NodeAnncDAO;
@@ -198,6 +199,11 @@ public class DAOFactoryImpl implements DAOFactory {
 		return new OldestDAO();
 	}
 
+	@Override
+	public DAO<ContentInstanceEntity> getLatestDAO() {
+		return new LatestDAO();
+	}
+
 	@Override
 	public DAO<NodeAnncEntity> getNodeAnncDAO() {
 		return new NodeAnncDAO();
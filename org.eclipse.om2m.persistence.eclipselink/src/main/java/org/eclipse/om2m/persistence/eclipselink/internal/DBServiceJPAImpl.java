@@ -19,22 +19,29 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.eclipselink.internal;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.eclipse.om2m.persistence.eclipselink.internal.util.DBUtilManagerImpl;
+import org.eclipse.om2m.persistence.eclipselink.internal.util.LabelIndexImpl;
 import org.eclipse.om2m.persistence.service.DAOFactory;
 import org.eclipse.om2m.persistence.service.DBConstants;
 import org.eclipse.om2m.persistence.service.DBService;
 import org.eclipse.om2m.persistence.service.DBTransaction;
 import org.eclipse.om2m.persistence.service.util.DBUtilManager;
 import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.server.ConnectionPool;
+import org.eclipse.persistence.sessions.server.Server;
 
 /**
  * Class handling the connection to the database using JPA - EclipseLink.
@@ -90,6 +97,27 @@ public class DBServiceJPAImpl implements DBService {
 			properties.put(PersistenceUnitProperties.JDBC_PASSWORD,
 					DBConstants.DB_PASSWORD);
 			properties.put(PersistenceUnitProperties.CACHE_SHARED_DEFAULT, DBConstants.DB_CACHE);
+			// changes are written on commit, grouped in JDBC batches
+			properties.put(PersistenceUnitProperties.BATCH_WRITING, DBConstants.DB_BATCH_WRITING);
+			properties.put(PersistenceUnitProperties.BATCH_WRITING_SIZE, String.valueOf(DBConstants.DB_BATCH_SIZE));
+			if (DBConstants.DB_STATEMENT_CACHE_SIZE > 0) {
+				properties.put(PersistenceUnitProperties.CACHE_STATEMENTS, "true");
+				properties.put(PersistenceUnitProperties.CACHE_STATEMENTS_SIZE,
+						String.valueOf(DBConstants.DB_STATEMENT_CACHE_SIZE));
+			}
+			// same settings for the write (default) and the read connection pools
+			for (String pool : new String[] {PersistenceUnitProperties.CONNECTION_POOL,
+					PersistenceUnitProperties.CONNECTION_POOL_READ}) {
+				properties.put(pool + PersistenceUnitProperties.CONNECTION_POOL_INITIAL,
+						String.valueOf(DBConstants.DB_POOL_MIN));
+				properties.put(pool + PersistenceUnitProperties.CONNECTION_POOL_MIN,
+						String.valueOf(DBConstants.DB_POOL_MIN));
+				properties.put(pool + PersistenceUnitProperties.CONNECTION_POOL_MAX,
+						String.valueOf(DBConstants.DB_POOL_MAX));
+				properties.put(pool + PersistenceUnitProperties.CONNECTION_POOL_WAIT,
+						String.valueOf(DBConstants.DB_POOL_WAIT));
+			}
+			properties.put(PersistenceUnitProperties.SESSION_CUSTOMIZER, DBSessionCustomizer.class.getName());
 			
 			if(DBConstants.DB_VERBOSE){
 				properties.put(PersistenceUnitProperties.LOGGING_LEVEL, "FINE");
@@ -117,20 +145,68 @@ public class DBServiceJPAImpl implements DBService {
 			EntityManager em = emf.createEntityManager();
 			em.getTransaction().begin();
 			em.close();
+			buildLabelIndex();
 		} else {
 			LOGGER.error("ERROR initializing Database: EntityManagerFactory is null!");
 		}
 	}
 
+	/**
+	 * Builds the label index from the labelled resources if it has not been
+	 * built yet, before the service is registered. The discoveries read the
+	 * resources rather than the index as long as it is not built.
+	 */
+	private void buildLabelIndex() {
+		EntityManager em = emf.createEntityManager();
+		try {
+			em.getTransaction().begin();
+			LabelIndexImpl labelIndex = new LabelIndexImpl(em);
+			if (!labelIndex.isBuilt()) {
+				LOGGER.info("Building the label index...");
+				labelIndex.build(labelIndex.findLabelled());
+				em.getTransaction().commit();
+				LOGGER.info("Label index built.");
+			}
+		} catch (PersistenceException e) {
+			LOGGER.error("Error building the label index", e);
+		} finally {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			em.close();
+		}
+	}
+
 	/**
 	 * Closes the connection to the database.
 	 */
 	public void close() {
 		if (emf != null) {
+			LOGGER.info("Closing database, connection pools: " + getConnectionPools());
 			emf.close();
 		}
 	}
 
+	/**
+	 * Retrieves the connection pools and their statistics.
+	 * 
+	 * @return the monitored connection pools
+	 */
+	public List<MonitoredConnectionPool> getConnectionPools() {
+		List<MonitoredConnectionPool> result = new ArrayList<MonitoredConnectionPool>();
+		if (emf == null) {
+			return result;
+		}
+		Server serverSession = JpaHelper.getServerSession(emf);
+		for (ConnectionPool pool : new ConnectionPool[] {serverSession.getDefaultConnectionPool(),
+				serverSession.getReadConnectionPool()}) {
+			if (pool instanceof MonitoredConnectionPool) {
+				result.add((MonitoredConnectionPool) pool);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Returns an EntityManager to access the database.
 	 * 
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.service.DBConstants;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.server.ConnectionPool;
+import org.eclipse.persistence.sessions.server.ServerSession;
+
+/**
+ * Customizes the EclipseLink session once configured from the persistence unit:
+ * connections are validated after a database error, the connection pools
+ * are replaced by {@link MonitoredConnectionPool}s and the removed resources
+ * are reported to the {@link LabelIndexListener}.
+ */
+public class DBSessionCustomizer implements SessionCustomizer {
+
+	@Override
+	public void customize(Session session) throws Exception {
+		LabelIndexListener labelIndexListener = new LabelIndexListener();
+		for (ClassDescriptor descriptor : session.getDescriptors().values()) {
+			if (ResourceEntity.class.isAssignableFrom(descriptor.getJavaClass())) {
+				descriptor.getEventManager().addListener(labelIndexListener);
+			}
+		}
+		if (session.getDatasourceLogin() instanceof DatabaseLogin) {
+			DatabaseLogin login = (DatabaseLogin) session.getDatasourceLogin();
+			// dead connections are detected with the ping query and replaced
+			login.setConnectionHealthValidatedOnError(true);
+			if (!DBConstants.DB_POOL_PING_SQL.isEmpty()) {
+				login.setPingSQL(DBConstants.DB_POOL_PING_SQL);
+			}
+		}
+		if (!(session instanceof ServerSession)) {
+			return;
+		}
+		ServerSession serverSession = (ServerSession) session;
+		// the read pool may be the default pool
+		Map<ConnectionPool, ConnectionPool> replacements = new IdentityHashMap<ConnectionPool, ConnectionPool>();
+		Map<String, ConnectionPool> pools = new HashMap<String, ConnectionPool>();
+		for (Map.Entry<String, ConnectionPool> pool : serverSession.getConnectionPools().entrySet()) {
+			pools.put(pool.getKey(), monitor(pool.getValue(), serverSession, replacements));
+		}
+		serverSession.setConnectionPools(pools);
+		serverSession.setReadConnectionPool(monitor(serverSession.getReadConnectionPool(), 
+				serverSession, replacements));
+	}
+
+	/**
+	 * Only the exclusive pools are replaced, the shared read pool never waits.
+	 */
+	private static ConnectionPool monitor(ConnectionPool pool, ServerSession serverSession,
+			Map<ConnectionPool, ConnectionPool> replacements) {
+		if (pool == null || pool.getClass() != ConnectionPool.class) {
+			return pool;
+		}
+		ConnectionPool replacement = replacements.get(pool);
+		if (replacement == null) {
+			replacement = new MonitoredConnectionPool(pool, serverSession);
+			replacements.put(pool, replacement);
+		}
+		return replacement;
+	}
+
+}
@@ -24,8 +24,17 @@ import javax.persistence.LockModeType;
 
 import org.eclipse.om2m.persistence.service.DBTransaction;
 
+/**
+ * JPA transaction. A transaction opened while another one is open in the same
+ * thread shares its EntityManager, see {@link EntityManagerContext}.
+ */
 public class DBTransactionJPAImpl implements DBTransaction {
 	
+	private EntityManagerContext context;
+
+	/** True if the context has been opened by this transaction */
+	private boolean owner;
+
 	private EntityManager em ;
 
 	/** Constructor */
@@ -35,25 +44,42 @@ public class DBTransactionJPAImpl implements DBTransaction {
 	@Override
 	public void open() {
 		if (em == null) {
-			em = DBServiceJPAImpl.createEntityManager();
+			context = EntityManagerContext.acquire();
+			owner = !context.isShared();
+			em = context.getEntityManager();
+		}
+		if (!em.getTransaction().isActive()) {
+			em.getTransaction().begin();
 		}
-		em.getTransaction().begin();
 	}
 
 	@Override
 	public void commit() {
+		LabelIndexListener.apply(em);
 		em.getTransaction().commit();
+		// the transaction goes on until it is closed, e.g. the enclosing one
+		// or a request committing again after its controller
+		em.getTransaction().begin();
 	}
 
 	@Override
 	public void close() {
-		em.close();
+		if (owner) {
+			context.close();
+		} else if (context != null && !context.isClosed()) {
+			context.release();
+		}
+		context = null;
+		owner = false;
 		em = null;
 	}
 
 	@Override
 	public void clear() {
-		em.clear();
+		// the entities of the enclosing transaction stay managed
+		if (!context.isShared()) {
+			em.clear();
+		}
 	}
 
 	public EntityManager getEm() {
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal;
+
+import javax.persistence.EntityManager;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.persistence.service.DBConstants;
+
+/**
+ * EntityManager bound to the thread which opened a transaction. The
+ * transactions opened by the same thread while it is bound, e.g. by the
+ * helpers called by a controller, share its EntityManager instead of
+ * creating their own.
+ */
+final class EntityManagerContext {
+
+	private static final Log LOGGER = LogFactory.getLog(EntityManagerContext.class);
+
+	/** Context bound to the thread */
+	private static final ThreadLocal<EntityManagerContext> CURRENT = new ThreadLocal<EntityManagerContext>();
+
+	/** Leak threshold in ns */
+	private static final long LEAK_THRESHOLD = DBConstants.DB_LEAK_THRESHOLD * 1000000L;
+
+	private final EntityManager em;
+	/** Context bound before this one, a leaked context is not shared */
+	private final EntityManagerContext previous;
+	private final long openTime = System.nanoTime();
+	/** Where the context has been opened, only kept in debug */
+	private final Throwable openTrace;
+	/** Number of open transactions using the context, accessed by the bound thread only */
+	private int holders = 1;
+	private volatile boolean closed;
+	private boolean leakReported;
+
+	private EntityManagerContext(EntityManager em, EntityManagerContext previous) {
+		this.em = em;
+		this.previous = previous;
+		this.openTrace = LEAK_THRESHOLD > 0 && LOGGER.isDebugEnabled() ? 
+				new Throwable("Transaction opened by " + Thread.currentThread().getName()) : null;
+	}
+
+	/**
+	 * Joins the context bound to the current thread or binds a new one.
+	 * @return the context to be released when the transaction is closed
+	 */
+	static EntityManagerContext acquire() {
+		EntityManagerContext current = CURRENT.get();
+		// contexts released by another thread
+		while (current != null && current.closed) {
+			current = current.previous;
+		}
+		if (current != null && !current.isLeaked()) {
+			current.holders++;
+			return current;
+		}
+		EntityManagerContext context = new EntityManagerContext(DBServiceJPAImpl.createEntityManager(), current);
+		CURRENT.set(context);
+		return context;
+	}
+
+	EntityManager getEntityManager() {
+		return em;
+	}
+
+	/**
+	 * @return true if other transactions use the context
+	 */
+	boolean isShared() {
+		return holders > 1;
+	}
+
+	/**
+	 * @return true if the context has been closed
+	 */
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Releases the context joined by a nested transaction.
+	 */
+	void release() {
+		if (--holders == 0) {
+			close();
+		}
+	}
+
+	/**
+	 * Closes the context when the transaction which opened it is closed,
+	 * nested transactions which have not been closed are abandoned. The
+	 * pending transaction is rolled back and the EntityManager is closed.
+	 */
+	void close() {
+		if (closed) {
+			return;
+		}
+		if (holders > 1) {
+			LOGGER.debug((holders - 1) + " nested transaction(s) not closed");
+		}
+		holders = 0;
+		closed = true;
+		if (CURRENT.get() == this) {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+		if (em.getTransaction().isActive()) {
+			em.getTransaction().rollback();
+		}
+		em.close();
+	}
+
+	/**
+	 * A context open for longer than the leak threshold is not shared, so
+	 * that a transaction which has never been closed does not retain the
+	 * entities read by the next ones.
+	 */
+	private boolean isLeaked() {
+		if (LEAK_THRESHOLD <= 0 || System.nanoTime() - openTime < LEAK_THRESHOLD) {
+			return false;
+		}
+		if (!leakReported) {
+			leakReported = true;
+			LOGGER.warn("Transaction open for more than " + DBConstants.DB_LEAK_THRESHOLD 
+					+ " ms in thread " + Thread.currentThread().getName() + ", possible leak", openTrace);
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.eclipselink.internal.util.LabelIndexImpl;
+import org.eclipse.persistence.descriptors.DescriptorEvent;
+import org.eclipse.persistence.descriptors.DescriptorEventAdapter;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.UnitOfWork;
+
+/**
+ * Removes the deleted resources from the label index, including the
+ * descendants removed along with their parent by cascade.
+ * <p>
+ * The resources are collected when they are removed from the EntityManager
+ * and removed from the index once for all before the transaction is
+ * committed, see {@link #apply(EntityManager)}.
+ */
+public class LabelIndexListener extends DescriptorEventAdapter {
+
+	/** Property of the unit of work holding the removed resources */
+	private static final String REMOVED = "org.eclipse.om2m.labelIndex.removed";
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void preRemove(DescriptorEvent event) {
+		if (!(event.getSource() instanceof ResourceEntity)) {
+			return;
+		}
+		ResourceEntity resource = (ResourceEntity) event.getSource();
+		// the labels are read now, their links are deleted with the resource
+		if (resource.getLabelsEntities().isEmpty()) {
+			return;
+		}
+		Session session = event.getSession();
+		List<ResourceEntity> removed = (List<ResourceEntity>) session.getProperty(REMOVED);
+		if (removed == null) {
+			removed = new ArrayList<ResourceEntity>();
+			session.setProperty(REMOVED, removed);
+		}
+		removed.add(resource);
+	}
+
+	/**
+	 * Removes the resources removed in the transaction from the label index.
+	 * @param em EntityManager of the transaction
+	 */
+	@SuppressWarnings("unchecked")
+	static void apply(EntityManager em) {
+		UnitOfWork unitOfWork = em.unwrap(UnitOfWork.class);
+		List<ResourceEntity> removed = (List<ResourceEntity>) unitOfWork.getProperty(REMOVED);
+		if (removed != null) {
+			unitOfWork.removeProperty(REMOVED);
+			new LabelIndexImpl(em).remove(removed);
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.persistence.exceptions.ConcurrencyException;
+import org.eclipse.persistence.exceptions.DatabaseException;
+import org.eclipse.persistence.internal.databaseaccess.Accessor;
+import org.eclipse.persistence.sessions.server.ConnectionPool;
+import org.eclipse.persistence.sessions.server.ServerSession;
+
+/**
+ * EclipseLink connection pool keeping statistics about the time spent
+ * waiting for a connection. Unlike the EclipseLink pool, which waits again
+ * after each wait timeout, the acquisition fails when no connection has been
+ * released within the wait timeout.
+ */
+public class MonitoredConnectionPool extends ConnectionPool {
+
+	private final AtomicLong acquiredCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	/** Sum of the times spent waiting for a connection, in ns */
+	private final AtomicLong totalWaitTime = new AtomicLong();
+	/** Longest time spent waiting for a connection, in ns */
+	private final AtomicLong maxWaitTime = new AtomicLong();
+
+	/**
+	 * Creates a pool with the same settings as the provided one.
+	 * @param pool pool configured by EclipseLink
+	 * @param owner server session of the pool
+	 */
+	public MonitoredConnectionPool(ConnectionPool pool, ServerSession owner) {
+		super(pool.getName(), pool.getLogin(), pool.getInitialNumberOfConnections(),
+				pool.getMinNumberOfConnections(), pool.getMaxNumberOfConnections(), owner);
+		setWaitTimeout(pool.getWaitTimeout());
+		setFailoverConnectionPools(pool.getFailoverConnectionPools());
+	}
+
+	@Override
+	public synchronized Accessor acquireConnection() throws ConcurrencyException {
+		long startTime = System.nanoTime();
+		long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(waitTimeout);
+		try {
+			while (isConnected && !isDead && connectionsAvailable.isEmpty()
+					&& connectionsUsed.size() >= maxNumberOfConnections) {
+				long remaining = deadline - System.nanoTime();
+				if (waitTimeout <= 0) {
+					wait();
+				} else if (remaining > 0) {
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				} else {
+					timeoutCount.incrementAndGet();
+					throw ConcurrencyException.waitFailureOnClientSession(new InterruptedException(
+							"No connection released in pool " + name + " within " + waitTimeout + " ms"));
+				}
+			}
+		} catch (InterruptedException e) {
+			throw ConcurrencyException.waitFailureOnClientSession(e);
+		}
+		// a connection is available or can be built, the pool does not wait
+		Accessor accessor = super.acquireConnection();
+		long waitTime = System.nanoTime() - startTime;
+		acquiredCount.incrementAndGet();
+		totalWaitTime.addAndGet(waitTime);
+		long max;
+		while (waitTime > (max = maxWaitTime.get()) && !maxWaitTime.compareAndSet(max, waitTime)) {
+			// retry
+		}
+		return accessor;
+	}
+
+	@Override
+	public synchronized void releaseConnection(Accessor connection) throws DatabaseException {
+		super.releaseConnection(connection);
+		// all the waiting threads check the pool, the first one gets the connection
+		notifyAll();
+	}
+
+	/** @return the number of connections currently used */
+	public int getUsedConnections() {
+		return getConnectionsUsed().size();
+	}
+
+	/** @return the number of acquired connections */
+	public long getAcquiredCount() {
+		return acquiredCount.get();
+	}
+
+	/** @return the number of acquisitions which timed out */
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+
+	/** @return the average time spent waiting for a connection, in ms */
+	public double getAverageWaitTime() {
+		long acquired = acquiredCount.get();
+		return acquired == 0 ? 0 : totalWaitTime.get() / 1e6 / acquired;
+	}
+
+	/** @return the longest time spent waiting for a connection, in ms */
+	public double getMaxWaitTime() {
+		return maxWaitTime.get() / 1e6;
+	}
+
+	@Override
+	public String toString() {
+		return "MonitoredConnectionPool [name=" + getName()
+				+ ", min=" + getMinNumberOfConnections()
+				+ ", max=" + getMaxNumberOfConnections()
+				+ ", total=" + getTotalNumberOfConnections()
+				+ ", used=" + getUsedConnections()
+				+ ", acquired=" + getAcquiredCount()
+				+ ", timeouts=" + getTimeoutCount()
+				+ String.format(", avgWaitMs=%.3f, maxWaitMs=%.3f]", 
+						getAverageWaitTime(), getMaxWaitTime());
+	}
+
+}
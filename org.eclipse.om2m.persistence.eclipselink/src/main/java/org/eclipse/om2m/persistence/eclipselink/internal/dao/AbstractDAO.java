@@ -25,6 +25,7 @@ import java.util.List;
 import org.eclipse.om2m.commons.entities.LabelEntity;
 import org.eclipse.om2m.commons.entities.ResourceEntity;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
+import org.eclipse.om2m.persistence.eclipselink.internal.util.LabelIndexImpl;
 import org.eclipse.om2m.persistence.service.DAO;
 import org.eclipse.om2m.persistence.service.DBTransaction;
 
@@ -36,6 +37,7 @@ public abstract class AbstractDAO<T> implements DAO<T>{
 		if (resource instanceof ResourceEntity) {
 			List<LabelEntity> lbls = processLabels(dbTransaction, ((ResourceEntity)resource).getLabelsEntities());
 			((ResourceEntity) resource).setLabelsEntities(lbls);
+			new LabelIndexImpl(transaction.getEm()).add((ResourceEntity) resource);
 		}
 		transaction.getEm().persist(resource);	
 	}
@@ -46,12 +48,37 @@ public abstract class AbstractDAO<T> implements DAO<T>{
 	@Override
 	public void update(DBTransaction dbTransaction, T resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		transaction.getEm().flush();	
+		if (resource instanceof ResourceEntity) {
+			processLabels(dbTransaction, (ResourceEntity) resource);
+		}
+		// changes of a managed entity are written on commit
+		if (!transaction.getEm().contains(resource)) {
+			transaction.getEm().merge(resource);
+		}
 	}
 
 	@Override
 	public abstract void delete(DBTransaction dbTransaction, T resource);
 
+	/**
+	 * Replaces the labels of an updated resource by the stored ones and
+	 * updates the label index if they have been set by the request.
+	 * @param dbTransaction current transaction
+	 * @param resource updated resource
+	 */
+	protected void processLabels(DBTransaction dbTransaction, ResourceEntity resource) {
+		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
+		// the labels read from the database are managed, the ones set by the request are not
+		boolean changed = false;
+		for (LabelEntity lbl : resource.getLabelsEntities()) {
+			changed |= !transaction.getEm().contains(lbl);
+		}
+		resource.setLabelsEntities(processLabels(dbTransaction, resource.getLabelsEntities()));
+		if (changed) {
+			new LabelIndexImpl(transaction.getEm()).update(resource);
+		}
+	}
+
 	protected List<LabelEntity> processLabels(DBTransaction dbTransaction, List<LabelEntity> toProcess) {
 		List<LabelEntity> result = new ArrayList<>();
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
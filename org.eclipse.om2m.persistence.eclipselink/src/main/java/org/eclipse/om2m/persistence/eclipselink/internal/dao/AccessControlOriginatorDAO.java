@@ -35,8 +35,9 @@ public class AccessControlOriginatorDAO extends AbstractDAO<AccessControlOrigina
 	@Override
 	public AccessControlOriginatorEntity find(DBTransaction dbTransaction, Object id) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		List<AccessControlOriginatorEntity> acoes = transaction.getEm().createQuery("select a from "
-				+ DBEntities.ACCESSCONTROLORIGINATOR_ENTITY + " a where a.originatorID =\'" + id + "\'")
+		List<AccessControlOriginatorEntity> acoes = transaction.getEm()
+				.createNamedQuery(DBEntities.ACO_FIND_BY_ORIGINATOR_ID, AccessControlOriginatorEntity.class)
+				.setParameter("originatorID", id)
 				.getResultList();
 		return acoes.isEmpty() ? null : acoes.get(0);
 	}
@@ -30,6 +30,7 @@ import org.eclipse.om2m.commons.entities.LabelEntity;
 import org.eclipse.om2m.commons.entities.MgmtObjEntity;
 import org.eclipse.om2m.commons.entities.NodeEntity;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
+import org.eclipse.om2m.persistence.eclipselink.internal.util.LabelIndexImpl;
 import org.eclipse.om2m.persistence.service.DBTransaction;
 
 /**
@@ -42,6 +43,7 @@ public class AccessControlPolicyDAO extends AbstractDAO<AccessControlPolicyEntit
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
 		List<LabelEntity> lbls = processLabels(dbTransaction, resource.getLabelsEntities());
 		resource.setLabelsEntities(lbls);
+		new LabelIndexImpl(transaction.getEm()).add(resource);
 		
 		// persist self privilege
 		for(AccessControlRuleEntity acre : resource.getSelfPrivileges()) {
@@ -67,8 +69,7 @@ public class AccessControlPolicyDAO extends AbstractDAO<AccessControlPolicyEntit
 	@Override
 	public void update(DBTransaction dbTransaction, AccessControlPolicyEntity resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		List<LabelEntity> lbls = processLabels(dbTransaction, resource.getLabelsEntities());
-		resource.setLabelsEntities(lbls);
+		processLabels(dbTransaction, resource);
 		transaction.getEm().merge(resource);
 	}
 
@@ -2,8 +2,6 @@ package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
 import java.util.List;
 
-import javax.persistence.Query;
-
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.entities.AeEntity;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
@@ -16,13 +14,12 @@ public class AeByAppIdDAO extends AbstractDAO<AeEntity> {
 	public AeEntity find(DBTransaction dbTransaction, Object id) {
 		AeEntity result = null;
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		String req = "SELECT r FROM " + DBEntities.AE_ENTITY
-				+ " r WHERE r.appID = '"
-				+ id + "'";
-		Query q = transaction.getEm().createQuery(req);
-		List<?> resultList = q.getResultList();
+		List<AeEntity> resultList = transaction.getEm()
+				.createNamedQuery(DBEntities.AE_FIND_BY_APP_ID, AeEntity.class)
+				.setParameter("appID", id)
+				.getResultList();
 		if (resultList.size() == 1) {
-			result = (AeEntity)resultList.get(0);
+			result = resultList.get(0);
 		}
 		return result;
 	}
@@ -65,8 +65,7 @@ public class AeDAO extends AbstractDAO<AeEntity> {
 	@Override
 	public void update(DBTransaction dbTransaction, AeEntity resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		List<LabelEntity> lbls = processLabels(dbTransaction, resource.getLabelsEntities());
-		resource.setLabelsEntities(lbls);
+		processLabels(dbTransaction, resource);
 		transaction.getEm().merge(resource);
 	}
 
@@ -2,8 +2,6 @@ package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
 import java.util.List;
 
-import javax.persistence.Query;
-
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.entities.ContainerEntity;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
@@ -15,13 +13,12 @@ public class ContainerByNameDAO extends AbstractDAO<ContainerEntity> {
 	public ContainerEntity find(DBTransaction dbTransaction, Object id) {
 		ContainerEntity result = null;
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		String req = "SELECT r FROM " + DBEntities.CONTAINER_ENTITY
-				+ " r WHERE r.name = '"
-				+ id + "'";
-		Query q = transaction.getEm().createQuery(req);
-		List<?> resultList = q.getResultList();
+		List<ContainerEntity> resultList = transaction.getEm()
+				.createNamedQuery(DBEntities.CNT_FIND_BY_NAME, ContainerEntity.class)
+				.setParameter("name", id)
+				.getResultList();
 		if (resultList.size() == 1) {
-			result = (ContainerEntity)resultList.get(0);
+			result = resultList.get(0);
 		}
 		return result;
 	}
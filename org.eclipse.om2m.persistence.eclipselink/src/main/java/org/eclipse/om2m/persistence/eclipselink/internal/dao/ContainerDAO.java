@@ -19,13 +19,10 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
-import java.util.List;
-
 import org.eclipse.om2m.commons.entities.AeAnncEntity;
 import org.eclipse.om2m.commons.entities.AeEntity;
 import org.eclipse.om2m.commons.entities.CSEBaseEntity;
 import org.eclipse.om2m.commons.entities.ContainerEntity;
-import org.eclipse.om2m.commons.entities.LabelEntity;
 import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
 import org.eclipse.om2m.commons.entities.RemoteCseAnncEntity;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
@@ -54,10 +51,8 @@ public class ContainerDAO extends AbstractDAO<ContainerEntity>{
 	@Override
 	public void update(DBTransaction dbTransaction, ContainerEntity resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		List<LabelEntity> lbls = processLabels(dbTransaction, resource.getLabelsEntities());
-		resource.setLabelsEntities(lbls);
+		processLabels(dbTransaction, resource);
 		transaction.getEm().merge(resource);
-		super.update(dbTransaction, resource);
 	}
 	
 }
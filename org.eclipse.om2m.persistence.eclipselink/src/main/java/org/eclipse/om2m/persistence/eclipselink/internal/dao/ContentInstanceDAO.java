@@ -19,6 +19,11 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
+import java.util.List;
+
+import javax.persistence.FlushModeType;
+
+import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.entities.ContainerAnncEntity;
 import org.eclipse.om2m.commons.entities.ContainerEntity;
 import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
@@ -26,7 +31,9 @@ import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
 import org.eclipse.om2m.persistence.service.DBTransaction;
 
 /**
- * DAO for the content instance entity
+ * DAO for the content instance entity. It also maintains the latest and
+ * oldest instance ids of the parent container so that they can be retrieved
+ * without loading the child collection.
  *
  */
 public class ContentInstanceDAO extends AbstractDAO<ContentInstanceEntity> {
@@ -36,8 +43,17 @@ public class ContentInstanceDAO extends AbstractDAO<ContentInstanceEntity> {
 			ContentInstanceEntity resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
 		super.create(dbTransaction, resource);
-		// evict cache of possible parent entities
-		transaction.getEm().getEntityManagerFactory().getCache().evict(ContainerEntity.class);
+		ContainerEntity container = resource.getParentContainer();
+		if (container != null) {
+			container.setLatestInstanceID(resource.getResourceID());
+			if (container.getOldestInstanceID() == null) {
+				// empty, or holding instances created before the ids were stored
+				String oldest = findNeighbour(transaction, resource, DBEntities.CIN_FIND_OLDEST_OTHER_ID);
+				container.setOldestInstanceID(oldest != null ? oldest : resource.getResourceID());
+			}
+			// evict cache of the parent entity
+			transaction.getEm().getEntityManagerFactory().getCache().evict(ContainerEntity.class, container.getResourceID());
+		}
 		// TODO do the same for the containerAnnc when implemented
 
 	}
@@ -51,11 +67,38 @@ public class ContentInstanceDAO extends AbstractDAO<ContentInstanceEntity> {
 	public void delete(DBTransaction dbTransaction,	ContentInstanceEntity resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
 		transaction.getEm().remove(resource);
-		// evict cache of possible parent entities
-		transaction.getEm().getEntityManagerFactory().getCache().evict(ContainerEntity.class);
+		ContainerEntity container = resource.getParentContainer();
+		if (container != null) {
+			String resourceID = resource.getResourceID();
+			if (resourceID.equals(container.getLatestInstanceID())) {
+				container.setLatestInstanceID(findNeighbour(transaction, resource, DBEntities.CIN_FIND_LATEST_OTHER_ID));
+			}
+			if (resourceID.equals(container.getOldestInstanceID())) {
+				container.setOldestInstanceID(findNeighbour(transaction, resource, DBEntities.CIN_FIND_OLDEST_OTHER_ID));
+			}
+			// evict cache of the parent entity
+			transaction.getEm().getEntityManagerFactory().getCache().evict(ContainerEntity.class, container.getResourceID());
+		}
 		transaction.getEm().getEntityManagerFactory().getCache().evict(ContainerAnncEntity.class);
 	}
 
-
+	/**
+	 * Retrieves the id of the first other sibling of a created or deleted content instance.
+	 * @param transaction current transaction
+	 * @param resource created or deleted content instance
+	 * @param queryName named query retrieving the oldest or latest other instance
+	 * @return the id of the sibling or null if the container has no other instance
+	 */
+	private static String findNeighbour(DBTransactionJPAImpl transaction, ContentInstanceEntity resource, String queryName) {
+		List<String> resultList = transaction.getEm()
+				.createNamedQuery(queryName, String.class)
+				.setParameter("parentID", resource.getParentID())
+				.setParameter("resourceID", resource.getResourceID())
+				.setMaxResults(1)
+				// the instance is excluded by the query, no need to write the pending changes first
+				.setFlushMode(FlushModeType.COMMIT)
+				.getResultList();
+		return resultList.isEmpty() ? null : resultList.get(0);
+	}
 
 }
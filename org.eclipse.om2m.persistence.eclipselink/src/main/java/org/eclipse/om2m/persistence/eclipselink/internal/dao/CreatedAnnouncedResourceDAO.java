@@ -1,7 +1,7 @@
 package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
 import javax.persistence.NoResultException;
-import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.entities.CreatedAnnouncedResourceEntity;
@@ -29,11 +29,12 @@ public class CreatedAnnouncedResourceDAO extends AbstractDAO<CreatedAnnouncedRes
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
 
 
-		Query q = transaction.getEm().createQuery(
-				"SELECT ar FROM " + DBEntities.ANNOUNCED_RESOURCE_ENTITY + " ar WHERE ar.localAnnounceableId=\""
-						+ localAnnounceableId + "\" AND ar.announceCseId=\"" + announceCseId + "\"");
+		TypedQuery<CreatedAnnouncedResourceEntity> q = transaction.getEm().createNamedQuery(
+				DBEntities.ANNC_FIND_BY_LOCAL_ID_AND_CSE, CreatedAnnouncedResourceEntity.class)
+				.setParameter("localAnnounceableId", localAnnounceableId)
+				.setParameter("announceCseId", announceCseId);
 		try {
-			are = (CreatedAnnouncedResourceEntity) q.getSingleResult();
+			are = q.getSingleResult();
 		} catch (NoResultException e) {
 			are = null;
 		}
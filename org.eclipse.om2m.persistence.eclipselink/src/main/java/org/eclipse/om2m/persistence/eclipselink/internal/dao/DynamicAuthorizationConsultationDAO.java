@@ -1,7 +1,5 @@
 package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
-import java.util.List;
-
 import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
 import org.eclipse.om2m.commons.entities.AeAnncEntity;
 import org.eclipse.om2m.commons.entities.AeEntity;
@@ -12,7 +10,6 @@ import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
 import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
 import org.eclipse.om2m.commons.entities.FlexContainerEntity;
 import org.eclipse.om2m.commons.entities.GroupEntity;
-import org.eclipse.om2m.commons.entities.LabelEntity;
 import org.eclipse.om2m.commons.entities.MgmtObjAnncEntity;
 import org.eclipse.om2m.commons.entities.MgmtObjEntity;
 import org.eclipse.om2m.commons.entities.NodeAnncEntity;
@@ -33,8 +30,7 @@ public class DynamicAuthorizationConsultationDAO extends AbstractDAO<DynamicAuth
 	@Override
 	public void update(DBTransaction dbTransaction, DynamicAuthorizationConsultationEntity resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		List<LabelEntity> lbls = processLabels(dbTransaction, resource.getLabelsEntities());
-		resource.setLabelsEntities(lbls);
+		processLabels(dbTransaction, resource);
 		transaction.getEm().merge(resource);
 	}
 
@@ -159,7 +155,6 @@ public class DynamicAuthorizationConsultationDAO extends AbstractDAO<DynamicAuth
 		}
 		
 		transaction.getEm().remove(resource);
-		transaction.getEm().flush();
 	}
 
 }
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal.dao;
+
+import java.util.List;
+
+import org.eclipse.om2m.commons.constants.DBEntities;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Retrieves the latest content instance of a container from the container id.
+ */
+public class LatestDAO extends AbstractDAO<ContentInstanceEntity> {
+
+	@Override
+	public void create(DBTransaction dbTransaction,
+			ContentInstanceEntity resource) {
+		// NOT AVAILABLE
+	}
+	
+	@Override
+	public ContentInstanceEntity find(DBTransaction dbTransaction, Object id) {
+		ContentInstanceEntity result = null;
+
+		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
+		List<ContentInstanceEntity> resultList = transaction.getEm()
+				.createNamedQuery(DBEntities.CIN_FIND_LATEST, ContentInstanceEntity.class)
+				.setParameter("parentID", id)
+				.setMaxResults(1).getResultList();
+		if (resultList.size() == 1) {
+			result = resultList.get(0);
+		}
+		return result;
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction,	ContentInstanceEntity resource) {
+	}
+}
\ No newline at end of file
@@ -7,8 +7,6 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
-import java.util.List;
-
 import org.eclipse.om2m.commons.entities.LabelEntity;
 import org.eclipse.om2m.commons.entities.NodeAnncEntity;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
@@ -40,10 +38,8 @@ public class NodeAnncDAO extends AbstractDAO<NodeAnncEntity>{
 	@Override
 	public void update(DBTransaction dbTransaction, NodeAnncEntity resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		List<LabelEntity> lbls = processLabels(dbTransaction, resource.getLabelsEntities());
-		resource.setLabelsEntities(lbls);
+		processLabels(dbTransaction, resource);
 		transaction.getEm().merge(resource);
-		super.update(dbTransaction, resource);
 //		List<LabelEntity> lbls = processLabels(dbTransaction, resource.getLabelsEntities());
 //		resource.setLabelsEntities(lbls);
 //		super.update(dbTransaction, resource);
@@ -16,8 +16,6 @@ package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
 import java.util.List;
 
-import javax.persistence.Query;
-
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
@@ -40,11 +38,10 @@ public class OldestDAO extends AbstractDAO<ContentInstanceEntity> {
 		ContentInstanceEntity result = null;
 
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		String req = "SELECT r FROM " + DBEntities.CONTENTINSTANCE_ENTITY
-				+ " r WHERE r.parentID = '"+ id + "' ORDER BY r.creationTime";
-		
-		Query q = transaction.getEm().createQuery(req);
-		List<ContentInstanceEntity> resultList = q.setMaxResults(1).getResultList();
+		List<ContentInstanceEntity> resultList = transaction.getEm()
+				.createNamedQuery(DBEntities.CIN_FIND_OLDEST, ContentInstanceEntity.class)
+				.setParameter("parentID", id)
+				.setMaxResults(1).getResultList();
 		if (resultList.size() == 1) {
 			result = resultList.get(0);
 		}
@@ -37,7 +37,6 @@ public class PollingChannelDAO extends AbstractDAO<PollingChannelEntity> {
 	@Override
 	public void update(DBTransaction dbTransaction,
 			PollingChannelEntity resource) {
-		resource.setLabelsEntities(processLabels(dbTransaction, resource.getLabelsEntities()));
 		super.update(dbTransaction, resource);
 	}
 
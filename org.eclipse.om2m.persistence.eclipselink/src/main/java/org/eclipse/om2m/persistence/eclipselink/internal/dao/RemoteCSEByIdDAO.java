@@ -21,8 +21,6 @@ package org.eclipse.om2m.persistence.eclipselink.internal.dao;
 
 import java.util.List;
 
-import javax.persistence.Query;
-
 import org.eclipse.om2m.commons.constants.DBEntities;
 import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
@@ -39,11 +37,10 @@ public class RemoteCSEByIdDAO extends AbstractDAO<RemoteCSEEntity> {
 	public RemoteCSEEntity find(DBTransaction dbTransaction, Object id) {
 		RemoteCSEEntity result = null;
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		String req = "SELECT r FROM " + DBEntities.REMOTECSE_ENTITY
-				+ " r WHERE r.remoteCseId = '"
-				+ id + "'";
-		Query q = transaction.getEm().createQuery(req);
-		List<RemoteCSEEntity> resultList = q.getResultList();
+		List<RemoteCSEEntity> resultList = transaction.getEm()
+				.createNamedQuery(DBEntities.CSR_FIND_BY_CSE_ID, RemoteCSEEntity.class)
+				.setParameter("remoteCseId", id)
+				.getResultList();
 		if (resultList.size() == 1) {
 			result = resultList.get(0);
 		}
@@ -45,7 +45,7 @@ public class RemoteCSEDAO extends AbstractDAO<RemoteCSEEntity> {
 	
 	@Override
 	public void update(DBTransaction dbTransaction, RemoteCSEEntity resource) {
-		resource.setLabelsEntities(processLabels(dbTransaction, resource.getLabelsEntities()));
+		processLabels(dbTransaction, resource);
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
 		transaction.getEm().merge(resource);
 	}
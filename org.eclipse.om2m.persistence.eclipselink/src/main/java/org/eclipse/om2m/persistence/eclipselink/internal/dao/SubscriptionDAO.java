@@ -37,8 +37,6 @@ public class SubscriptionDAO extends AbstractDAO<SubscriptionEntity> {
 	
 	@Override
 	public void update(DBTransaction dbTransaction, SubscriptionEntity resource) {
-		List<LabelEntity> lbls = processLabels(dbTransaction, resource.getLabelsEntities());
-		resource.setLabelsEntities(lbls);
 		super.update(dbTransaction, resource);
 	}
 	
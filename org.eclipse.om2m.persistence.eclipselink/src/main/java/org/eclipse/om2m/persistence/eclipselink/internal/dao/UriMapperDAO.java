@@ -35,12 +35,38 @@ public class UriMapperDAO extends AbstractDAO<UriMapperEntity>{
 	@Override
 	public void delete(DBTransaction dbTransaction, UriMapperEntity resource) {
 		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
-		// Delete the entry of the current entity
-		String req = "DELETE FROM "+DBEntities.URI_MAPPER_ENTITY+" U WHERE U.hierarchicalUri LIKE '"+resource.getHierarchicalUri()+"'";
-		// Delete all children of the current entity
-		transaction.getEm().createQuery(req).executeUpdate();
-		req = "DELETE FROM "+DBEntities.URI_MAPPER_ENTITY+" U WHERE U.hierarchicalUri LIKE '"+resource.getHierarchicalUri()+"/%'";
-		transaction.getEm().createQuery(req).executeUpdate();
+		// Delete the entry of the current entity and the ones of all its children
+		transaction.getEm().createNamedQuery(DBEntities.URI_MAPPER_DELETE_SUBTREE)
+				.setParameter("hierarchicalUri", resource.getHierarchicalUri())
+				.setParameter("descendants", descendantsPattern(resource.getHierarchicalUri()))
+				.executeUpdate();
+	}
+
+	/**
+	 * Builds the LIKE pattern matching the hierarchical uris of the descendants
+	 * of a resource, the special characters of the uri being escaped.
+	 * @param hierarchicalUri of the resource
+	 * @return the pattern to be used with {@link DBEntities#LIKE_ESCAPE}
+	 */
+	public static String descendantsPattern(String hierarchicalUri) {
+		return escapeLike(hierarchicalUri) + "/%";
+	}
+
+	/**
+	 * Escapes the special characters of a LIKE pattern.
+	 * @param value literal part of a pattern
+	 * @return the escaped value, to be used with {@link DBEntities#LIKE_ESCAPE}
+	 */
+	public static String escapeLike(String value) {
+		StringBuilder pattern = new StringBuilder(value.length() + 2);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '%' || c == '_' || DBEntities.LIKE_ESCAPE.indexOf(c) >= 0) {
+				pattern.append(DBEntities.LIKE_ESCAPE);
+			}
+			pattern.append(c);
+		}
+		return pattern.toString();
 	}
 	
 }
@@ -20,40 +20,119 @@
 package org.eclipse.om2m.persistence.eclipselink.internal.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import javax.persistence.Query;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
 
 import org.eclipse.om2m.commons.constants.DBEntities;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.AeAnncEntity;
+import org.eclipse.om2m.commons.entities.AeEntity;
+import org.eclipse.om2m.commons.entities.AreaNwkDeviceInfoAnncEntity;
+import org.eclipse.om2m.commons.entities.AreaNwkDeviceInfoEntity;
+import org.eclipse.om2m.commons.entities.AreaNwkInfoAnncEntity;
+import org.eclipse.om2m.commons.entities.AreaNwkInfoEntity;
+import org.eclipse.om2m.commons.entities.CSEBaseEntity;
+import org.eclipse.om2m.commons.entities.ContainerAnncEntity;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.DeviceInfoAnncEntity;
+import org.eclipse.om2m.commons.entities.DeviceInfoEntity;
+import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerEntity;
+import org.eclipse.om2m.commons.entities.GroupEntity;
+import org.eclipse.om2m.commons.entities.NodeAnncEntity;
+import org.eclipse.om2m.commons.entities.NodeEntity;
+import org.eclipse.om2m.commons.entities.PollingChannelEntity;
+import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
+import org.eclipse.om2m.commons.entities.RemoteCseAnncEntity;
+import org.eclipse.om2m.commons.entities.RequestEntity;
+import org.eclipse.om2m.commons.entities.ScheduleEntity;
+import org.eclipse.om2m.commons.entities.SubscriptionEntity;
 import org.eclipse.om2m.commons.entities.UriMapperEntity;
 import org.eclipse.om2m.commons.resource.FilterCriteria;
 import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
+import org.eclipse.om2m.persistence.eclipselink.internal.dao.UriMapperDAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.CompiledFilter;
+import org.eclipse.om2m.persistence.service.util.CompiledFilter.Condition;
 import org.eclipse.om2m.persistence.service.util.ComplexFindUtil;
+import org.eclipse.om2m.persistence.service.util.LabelIndex;
+import org.eclipse.om2m.persistence.service.util.PostingList;
 
 public class ComplexFindUtilImpl implements ComplexFindUtil {
 
+	/** Entity classes by resource type, the resources are stored in one table per class */
+	private static final Map<Integer, List<Class<?>>> ENTITY_CLASSES = new HashMap<>();
+
+	static {
+		register(ResourceType.ACCESS_CONTROL_POLICY, AccessControlPolicyEntity.class);
+		register(ResourceType.AE, AeEntity.class);
+		register(ResourceType.AE_ANNC, AeAnncEntity.class);
+		register(ResourceType.CONTAINER, ContainerEntity.class);
+		register(ResourceType.CONTAINER_ANNC, ContainerAnncEntity.class);
+		register(ResourceType.CONTENT_INSTANCE, ContentInstanceEntity.class);
+		register(ResourceType.CSE_BASE, CSEBaseEntity.class);
+		register(ResourceType.DYNAMIC_AUTHORIZATION_CONSULTATION, DynamicAuthorizationConsultationEntity.class);
+		register(ResourceType.FLEXCONTAINER, FlexContainerEntity.class);
+		register(ResourceType.FLEXCONTAINER_ANNC, FlexContainerAnncEntity.class);
+		register(ResourceType.GROUP, GroupEntity.class);
+		register(ResourceType.MGMT_OBJ, AreaNwkInfoEntity.class, AreaNwkDeviceInfoEntity.class,
+				DeviceInfoEntity.class);
+		register(ResourceType.MGMT_OBJ_ANNC, AreaNwkInfoAnncEntity.class, AreaNwkDeviceInfoAnncEntity.class,
+				DeviceInfoAnncEntity.class);
+		register(ResourceType.NODE, NodeEntity.class);
+		register(ResourceType.NODE_ANNC, NodeAnncEntity.class);
+		register(ResourceType.POLLING_CHANNEL, PollingChannelEntity.class);
+		register(ResourceType.REMOTE_CSE, RemoteCSEEntity.class);
+		register(ResourceType.REMOTE_CSE_ANNC, RemoteCseAnncEntity.class);
+		register(ResourceType.REQUEST, RequestEntity.class);
+		register(ResourceType.SCHEDULE, ScheduleEntity.class);
+		register(ResourceType.SUBSCRIPTION, SubscriptionEntity.class);
+	}
+
+	private static void register(int resourceType, Class<?>... classes) {
+		ENTITY_CLASSES.put(resourceType, Arrays.<Class<?>>asList(classes));
+	}
+
 	@Override
 	public List<UriMapperEntity> getChildUrisDis(String rootUri, FilterCriteria filter) {
 		DBTransactionJPAImpl transaction = new DBTransactionJPAImpl();
 		transaction.open();
 		
-		String req = "SELECT uri.hierarchicalUri FROM " + DBEntities.URI_MAPPER_ENTITY + 
-				" uri WHERE uri.nonHierarchicalUri = '" + rootUri + "'"  ; 
-		Query q = transaction.getEm().createQuery(req);
-		List<String> resultList = q.getResultList();
+		List<UriMapperEntity> resultList = transaction.getEm()
+				.createNamedQuery(DBEntities.URI_MAPPER_FIND_BY_NHURI, UriMapperEntity.class)
+				.setParameter("nonHierarchicalUri", rootUri)
+				.getResultList();
 		if(resultList.size() != 1){
+			transaction.close();
 			return new ArrayList<>();
 		}
-		String hierarchicalUri = resultList.get(0);
+		String hierarchicalUri = resultList.get(0).getHierarchicalUri();
 		
-		req = "SELECT uri FROM " + DBEntities.URI_MAPPER_ENTITY
-				+ " uri WHERE uri.hierarchicalUri LIKE '"
-				+ hierarchicalUri + "%'";
+		TypedQuery<UriMapperEntity> q;
 		if (filter.getResourceType() != null){
-			req += " AND uri.resourceType = '" + filter.getResourceType() + "'"; 
+			q = transaction.getEm().createNamedQuery(DBEntities.URI_MAPPER_FIND_SUBTREE_BY_TYPE, UriMapperEntity.class)
+					.setParameter("resourceType", filter.getResourceType().intValue());
+		} else {
+			q = transaction.getEm().createNamedQuery(DBEntities.URI_MAPPER_FIND_SUBTREE, UriMapperEntity.class);
 		}
-		
-		q = transaction.getEm().createQuery(req);
+		q.setParameter("hierarchicalUri", hierarchicalUri)
+				.setParameter("descendants", UriMapperDAO.descendantsPattern(hierarchicalUri));
 		
 		if (filter.getLimit() != null && filter.getLimit().intValue() > 0){
 			q.setMaxResults(filter.getLimit().intValue());
@@ -63,4 +142,253 @@ public class ComplexFindUtilImpl implements ComplexFindUtil {
 		transaction.close();
 		return resultListEntities;
 	}
+
+	@Override
+	public List<UriMapperEntity> getDiscoveryCandidates(DBTransaction dbTransaction, String rootUri,
+			CompiledFilter filter, String after, int count) {
+		EntityManager em = ((DBTransactionJPAImpl) dbTransaction).getEm();
+		List<UriMapperEntity> candidates = new ArrayList<>();
+		List<UriMapperEntity> roots = em.createNamedQuery(DBEntities.URI_MAPPER_FIND_BY_NHURI, UriMapperEntity.class)
+				.setParameter("nonHierarchicalUri", rootUri)
+				.getResultList();
+		if (roots.size() != 1) {
+			return candidates;
+		}
+		String hierarchicalUri = roots.get(0).getHierarchicalUri();
+		boolean filtered = filter.hasResourceCriteria();
+		// few resources hold the labels: the discovery starts from them
+		// instead of reading the whole subtree, once the index is built
+		List<UriMapperEntity> labelled = null;
+		if (!filter.getLabels().isEmpty()) {
+			LabelIndexImpl index = new LabelIndexImpl(em);
+			if (filter.getLabelMatches() == null && index.isBuilt() && index.estimate(filter.getLabels(), filter.getResourceType(),
+					filter.isAllLabels()) <= LabelIndex.DRIVING_LIMIT) {
+				filter.setLabelMatches(index.find(filter.getLabels(), filter.getResourceType(), filter.isAllLabels()));
+			}
+			if (filter.getLabelMatches() != null) {
+				labelled = findLabelled(dbTransaction, hierarchicalUri, filter.getLabelMatches());
+			}
+		}
+		String last = after == null ? "" : after;
+		while (candidates.size() < count) {
+			int pageSize = count - candidates.size();
+			List<UriMapperEntity> page = labelled != null ? nextPage(labelled, last, pageSize)
+					: findSubtreePage(em, hierarchicalUri, filter, last, pageSize);
+			if (page.isEmpty()) {
+				break;
+			}
+			last = page.get(page.size() - 1).getHierarchicalUri();
+			// the attributes and policies are held by the tables of the resources,
+			// they are read with one query per resource class of the page
+			Map<String, UriMapperEntity> byId = new LinkedHashMap<>();
+			for (UriMapperEntity mapping : page) {
+				if (filter.isWithinLevel(hierarchicalUri, mapping.getHierarchicalUri())) {
+					byId.put(mapping.getNonHierarchicalUri(), mapping);
+				}
+			}
+			Set<String> matching = filtered ? new HashSet<String>() : byId.keySet();
+			for (Map.Entry<Integer, List<String>> entry : groupByType(byId.values()).entrySet()) {
+				List<Class<?>> classes = ENTITY_CLASSES.get(entry.getKey());
+				if (classes == null) {
+					continue;
+				}
+				for (Class<?> entityClass : classes) {
+					EntityType<?> entityType = em.getMetamodel().entity(entityClass);
+					List<String> ids = entry.getValue();
+					if (filtered) {
+						ids = findMatching(em, entityType, ids, filter);
+						matching.addAll(ids);
+					}
+					setAccessControlPolicyIDs(em, entityType, ids, byId);
+				}
+			}
+			for (UriMapperEntity mapping : page) {
+				if (matching.contains(mapping.getNonHierarchicalUri())) {
+					candidates.add(mapping);
+				}
+			}
+			if (page.size() < pageSize) {
+				break;
+			}
+		}
+		return candidates;
+	}
+
+	private static List<UriMapperEntity> findSubtreePage(EntityManager em, String hierarchicalUri,
+			CompiledFilter filter, String after, int pageSize) {
+		TypedQuery<UriMapperEntity> q;
+		if (filter.getResourceType() != null) {
+			q = em.createNamedQuery(DBEntities.URI_MAPPER_FIND_SUBTREE_PAGE_BY_TYPE, UriMapperEntity.class)
+					.setParameter("resourceType", filter.getResourceType().intValue());
+		} else {
+			q = em.createNamedQuery(DBEntities.URI_MAPPER_FIND_SUBTREE_PAGE, UriMapperEntity.class);
+		}
+		return q.setParameter("hierarchicalUri", hierarchicalUri)
+				.setParameter("descendants", UriMapperDAO.descendantsPattern(hierarchicalUri))
+				.setParameter("after", after)
+				.setMaxResults(pageSize)
+				.getResultList();
+	}
+
+	/**
+	 * @return the mappings of the resources of the subtree holding the
+	 *         labels, in hierarchical uri order
+	 */
+	private List<UriMapperEntity> findLabelled(DBTransaction dbTransaction, String hierarchicalUri,
+			PostingList labelMatches) {
+		List<UriMapperEntity> labelled = new ArrayList<>();
+		List<String> ids = labelMatches.toList();
+		Set<String> idSet = new HashSet<>(ids);
+		for (UriMapperEntity mapping : new UriMapperUtilImpl().findAll(dbTransaction, ids)) {
+			String uri = mapping.getHierarchicalUri();
+			if (idSet.contains(mapping.getNonHierarchicalUri())
+					&& (uri.equals(hierarchicalUri) || uri.startsWith(hierarchicalUri + "/"))) {
+				labelled.add(mapping);
+			}
+		}
+		Collections.sort(labelled, new Comparator<UriMapperEntity>() {
+			@Override
+			public int compare(UriMapperEntity a, UriMapperEntity b) {
+				return a.getHierarchicalUri().compareTo(b.getHierarchicalUri());
+			}
+		});
+		return labelled;
+	}
+
+	private static List<UriMapperEntity> nextPage(List<UriMapperEntity> sorted, String after, int pageSize) {
+		List<UriMapperEntity> page = new ArrayList<>();
+		for (UriMapperEntity mapping : sorted) {
+			if (page.size() == pageSize) {
+				break;
+			}
+			if (mapping.getHierarchicalUri().compareTo(after) > 0) {
+				page.add(mapping);
+			}
+		}
+		return page;
+	}
+
+	private static Map<Integer, List<String>> groupByType(Collection<UriMapperEntity> page) {
+		Map<Integer, List<String>> idsByType = new HashMap<>();
+		for (UriMapperEntity mapping : page) {
+			List<String> ids = idsByType.get(mapping.getResourceType());
+			if (ids == null) {
+				ids = new ArrayList<>();
+				idsByType.put(mapping.getResourceType(), ids);
+			}
+			ids.add(mapping.getNonHierarchicalUri());
+		}
+		return idsByType;
+	}
+
+	/**
+	 * @return the ids of the resources of a class matching the labels and
+	 *         conditions of the filter, none if the class does not hold the
+	 *         attribute of a condition. The labels are checked again when
+	 *         the ids have been read from the label index.
+	 */
+	private static List<String> findMatching(EntityManager em, EntityType<?> entityType, List<String> ids,
+			CompiledFilter filter) {
+		for (Condition condition : filter.getConditions()) {
+			if (!hasAttribute(entityType, condition.getAttribute())) {
+				return Collections.emptyList();
+			}
+		}
+		StringBuilder jpql = new StringBuilder("SELECT DISTINCT r.resourceID FROM ").append(entityType.getName())
+				.append(" r");
+		if (!filter.getLabels().isEmpty()) {
+			jpql.append(" JOIN r.labelsEntities l");
+		}
+		jpql.append(" WHERE r.resourceID IN :ids");
+		if (!filter.getLabels().isEmpty()) {
+			jpql.append(" AND l.label IN :labels");
+		}
+		// one joined row per label, a resource holding all the labels has as many rows
+		boolean allLabels = filter.isAllLabels() && filter.getLabels().size() > 1;
+		Map<String, Object> parameters = new HashMap<>();
+		for (Condition condition : filter.getConditions()) {
+			String parameter = "c" + parameters.size();
+			String attribute = "r." + condition.getAttribute();
+			switch (condition.getOperator()) {
+			case LESS:
+				jpql.append(" AND ").append(attribute).append(" < :").append(parameter);
+				break;
+			case GREATER:
+				jpql.append(" AND ").append(attribute).append(" > :").append(parameter);
+				break;
+			case GREATER_OR_EQUAL:
+				jpql.append(" AND ").append(attribute).append(" >= :").append(parameter);
+				break;
+			case MEDIA_TYPE:
+				// the media type alone or followed by the encoding
+				jpql.append(" AND (").append(attribute).append(" IN :").append(parameter);
+				for (String mediaType : condition.getValues()) {
+					String prefix = parameter + "_" + parameters.size();
+					jpql.append(" OR ").append(attribute).append(" LIKE :").append(prefix)
+							.append(" ESCAPE '").append(DBEntities.LIKE_ESCAPE).append("'");
+					parameters.put(prefix, UriMapperDAO.escapeLike(mediaType + ":") + "%");
+				}
+				jpql.append(")");
+				break;
+			default:
+				jpql.append(" AND ").append(attribute).append(" = :").append(parameter);
+				break;
+			}
+			parameters.put(parameter, condition.getValue());
+		}
+		if (allLabels) {
+			jpql.append(" GROUP BY r.resourceID HAVING COUNT(DISTINCT l.label) = :labelCount");
+		}
+		TypedQuery<String> q = em.createQuery(jpql.toString(), String.class).setParameter("ids", ids);
+		if (!filter.getLabels().isEmpty()) {
+			q.setParameter("labels", filter.getLabels());
+		}
+		if (allLabels) {
+			q.setParameter("labelCount", (long) filter.getLabels().size());
+		}
+		for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+			q.setParameter(parameter.getKey(), parameter.getValue());
+		}
+		return q.getResultList();
+	}
+
+	/**
+	 * Reads the ids of the policies of the resources of a class, if the
+	 * class holds its own policies.
+	 */
+	private static void setAccessControlPolicyIDs(EntityManager em, EntityType<?> entityType, List<String> ids,
+			Map<String, UriMapperEntity> byId) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		if (AccessControlPolicyEntity.class.equals(entityType.getJavaType())) {
+			// a policy is checked with its own privileges
+			for (String id : ids) {
+				byId.get(id).setAccessControlPolicyIDs(Collections.singletonList(id));
+			}
+			return;
+		}
+		if (!hasAttribute(entityType, "accessControlPolicies")) {
+			return;
+		}
+		for (String id : ids) {
+			byId.get(id).setAccessControlPolicyIDs(new ArrayList<String>());
+		}
+		List<Object[]> rows = em.createQuery("SELECT r.resourceID, a.resourceID FROM " + entityType.getName()
+				+ " r JOIN r.accessControlPolicies a WHERE r.resourceID IN :ids", Object[].class)
+				.setParameter("ids", ids)
+				.getResultList();
+		for (Object[] row : rows) {
+			byId.get(row[0]).getAccessControlPolicyIDs().add((String) row[1]);
+		}
+	}
+
+	private static boolean hasAttribute(EntityType<?> entityType, String name) {
+		for (Attribute<?, ?> attribute : entityType.getAttributes()) {
+			if (attribute.getName().equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -24,6 +24,8 @@ import org.eclipse.om2m.persistence.service.util.AnnouncedResourceUtil;
 import org.eclipse.om2m.persistence.service.util.ComplexFindUtil;
 import org.eclipse.om2m.persistence.service.util.DBUtilManager;
 import org.eclipse.om2m.persistence.service.util.DynamicAuthorizationConsultationUtil;
+import org.eclipse.om2m.persistence.service.util.RetentionUtil;
+import org.eclipse.om2m.persistence.service.util.UriMapperUtil;
 
 
 public class DBUtilManagerImpl implements DBUtilManager{
@@ -42,5 +44,15 @@ public class DBUtilManagerImpl implements DBUtilManager{
 	public DynamicAuthorizationConsultationUtil getDynamicAuthorizationConsultationUtil() {
 		return new DynamicAuthorizationConsultationUtilImpl();
 	}
-	
+
+	@Override
+	public RetentionUtil getRetentionUtil() {
+		return new RetentionUtilImpl();
+	}
+
+	@Override
+	public UriMapperUtil getUriMapperUtil() {
+		return new UriMapperUtilImpl();
+	}
+
 }
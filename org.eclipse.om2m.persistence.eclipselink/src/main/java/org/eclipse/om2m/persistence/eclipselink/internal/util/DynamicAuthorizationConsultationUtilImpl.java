@@ -42,9 +42,9 @@ public class DynamicAuthorizationConsultationUtilImpl implements DynamicAuthoriz
 		transaction.open();
 
 		// prepare and execute request request
-		String req = "SELECT uri FROM " + DBEntities.URI_MAPPER_ENTITY + " uri WHERE uri.nonHierarchicalUri = '"
-				+ nonHierarchicalUri + "'";
-		TypedQuery<UriMapperEntity> q = transaction.getEm().createQuery(req, UriMapperEntity.class);
+		TypedQuery<UriMapperEntity> q = transaction.getEm()
+				.createNamedQuery(DBEntities.URI_MAPPER_FIND_BY_NHURI, UriMapperEntity.class)
+				.setParameter("nonHierarchicalUri", nonHierarchicalUri);
 
 		// retrieve result
 		UriMapperEntity uriMapperEntity = q.getSingleResult();
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal.util;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+
+import org.eclipse.om2m.commons.constants.DBEntities;
+import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.LabelPostingEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.eclipselink.internal.DBServiceJPAImpl;
+import org.eclipse.om2m.persistence.service.util.LabelIndex;
+import org.eclipse.om2m.persistence.service.util.PostingList;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+
+/**
+ * Label index stored in the table of the {@link LabelPostingEntity}, the
+ * segments are locked with SELECT ... FOR UPDATE. The segments changed by
+ * the transaction are written before a segment is looked up, so that the
+ * key ranges read from the database are the current ones. The first segment
+ * of a list, with nothing to lock before it exists, is created apart.
+ */
+public class LabelIndexImpl extends LabelIndex {
+
+	/** Number of times a locked segment is looked up again when it has been merged meanwhile */
+	private static final int LOCK_ATTEMPTS = 3;
+
+	private final EntityManager em;
+
+	/**
+	 * @param em entity manager of the transaction
+	 */
+	public LabelIndexImpl(EntityManager em) {
+		this.em = em;
+	}
+
+	@Override
+	protected LabelPostingEntity findSegment(String label, int resourceType, String key) {
+		List<LabelPostingEntity> segments = segmentQuery(label, resourceType, key).getResultList();
+		return segments.isEmpty() ? null : segments.get(0);
+	}
+
+	@Override
+	protected LabelPostingEntity lockSegment(String label, int resourceType, String key) {
+		for (int attempt = 1;; attempt++) {
+			// a segment deleted by a merge while waiting for its lock is not
+			// returned, the segment that took its ids is looked up again
+			List<LabelPostingEntity> segments = segmentQuery(label, resourceType, key)
+					.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+					.setHint(QueryHints.REFRESH, HintValues.TRUE)
+					.getResultList();
+			if (!segments.isEmpty() || attempt == LOCK_ATTEMPTS) {
+				return segments.isEmpty() ? null : segments.get(0);
+			}
+		}
+	}
+
+	@Override
+	protected LabelPostingEntity createHead(String label, int resourceType) {
+		for (int attempt = 1;; attempt++) {
+			insertHead(label, resourceType);
+			// locked like an existing segment, whichever transaction created it
+			LabelPostingEntity head = lockSegment(label, resourceType, "");
+			if (head != null) {
+				return head;
+			}
+			if (attempt == LOCK_ATTEMPTS) {
+				throw new PersistenceException("Cannot create the label index of " + label + " for type " + resourceType);
+			}
+		}
+	}
+
+	/**
+	 * Inserts the empty first segment of a list in its own transaction,
+	 * committed at once. The unique index on the label, type and lower key
+	 * rejects the segment when a concurrent transaction has just created it.
+	 */
+	private static void insertHead(String label, int resourceType) {
+		EntityManager headEm = DBServiceJPAImpl.createEntityManager();
+		try {
+			LabelPostingEntity head = new LabelPostingEntity(label, resourceType, "", null);
+			head.setSize(0);
+			head.setData(PostingList.EMPTY.toBytes());
+			headEm.getTransaction().begin();
+			headEm.persist(head);
+			headEm.getTransaction().commit();
+		} catch (PersistenceException e) {
+			// already created, or not and the lock finds no segment
+		} finally {
+			if (headEm.getTransaction().isActive()) {
+				headEm.getTransaction().rollback();
+			}
+			headEm.close();
+		}
+	}
+
+	private TypedQuery<LabelPostingEntity> segmentQuery(String label, int resourceType, String key) {
+		return em.createNamedQuery(DBEntities.LABEL_POSTING_FIND_SEGMENT, LabelPostingEntity.class)
+				.setParameter("label", label)
+				.setParameter("resourceType", resourceType)
+				.setParameter("key", key);
+	}
+
+	@Override
+	protected List<LabelPostingEntity> findSegmentsContaining(int resourceType, String key) {
+		return em.createNamedQuery(DBEntities.LABEL_POSTING_FIND_CONTAINING, LabelPostingEntity.class)
+				.setParameter("resourceType", resourceType)
+				.setParameter("key", key)
+				.getResultList();
+	}
+
+	@Override
+	protected List<LabelPostingEntity> findSegments(String label, BigInteger resourceType) {
+		TypedQuery<LabelPostingEntity> q;
+		if (resourceType == null) {
+			q = em.createNamedQuery(DBEntities.LABEL_POSTING_FIND_BY_LABEL, LabelPostingEntity.class);
+		} else {
+			q = em.createNamedQuery(DBEntities.LABEL_POSTING_FIND_BY_LABEL_AND_TYPE, LabelPostingEntity.class)
+					.setParameter("resourceType", resourceType.intValue());
+		}
+		return q.setParameter("label", label).getResultList();
+	}
+
+	@Override
+	protected long count(String label, BigInteger resourceType) {
+		TypedQuery<Number> q;
+		if (resourceType == null) {
+			q = em.createNamedQuery(DBEntities.LABEL_POSTING_COUNT, Number.class);
+		} else {
+			q = em.createNamedQuery(DBEntities.LABEL_POSTING_COUNT_BY_TYPE, Number.class)
+					.setParameter("resourceType", resourceType.intValue());
+		}
+		Number count = q.setParameter("label", label).getSingleResult();
+		return count == null ? 0 : count.longValue();
+	}
+
+	@Override
+	protected void insert(LabelPostingEntity segment) {
+		em.persist(segment);
+	}
+
+	@Override
+	protected void update(LabelPostingEntity segment) {
+		// the segment is managed, written on commit
+	}
+
+	@Override
+	protected void delete(LabelPostingEntity segment) {
+		em.remove(segment);
+	}
+
+	@Override
+	protected void deleteAll() {
+		em.createNamedQuery(DBEntities.LABEL_POSTING_DELETE_ALL).executeUpdate();
+	}
+
+	/**
+	 * Reads the ids, types and labels of all the labelled resources, one
+	 * query per root entity class holding labels, not the whole resources.
+	 * @return a resource per label of a labelled resource
+	 */
+	public List<ResourceEntity> findLabelled() {
+		List<ResourceEntity> resources = new ArrayList<ResourceEntity>();
+		for (EntityType<?> entityType : em.getMetamodel().getEntities()) {
+			// the subclasses are read with their root class
+			if (!ResourceEntity.class.isAssignableFrom(entityType.getJavaType())
+					|| entityType.getSupertype() instanceof EntityType || !hasLabels(entityType)) {
+				continue;
+			}
+			List<Object[]> rows = em.createQuery("SELECT r.resourceID, r.resourceType, l.label FROM "
+					+ entityType.getName() + " r JOIN r.labelsEntities l", Object[].class).getResultList();
+			for (Object[] row : rows) {
+				ResourceEntity resource = new ResourceEntity();
+				resource.setResourceID((String) row[0]);
+				resource.setResourceType((BigInteger) row[1]);
+				resource.getLabelsEntities().add(new LabelEntity((String) row[2]));
+				resources.add(resource);
+			}
+		}
+		return resources;
+	}
+
+	private static boolean hasLabels(EntityType<?> entityType) {
+		for (Attribute<?, ?> attribute : entityType.getAttributes()) {
+			if (attribute.getName().equals("labelsEntities")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
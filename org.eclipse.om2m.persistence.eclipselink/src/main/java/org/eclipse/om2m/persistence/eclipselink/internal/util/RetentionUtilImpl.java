@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.FlushModeType;
+import javax.persistence.TypedQuery;
+
+import org.eclipse.om2m.commons.constants.DBEntities;
+import org.eclipse.om2m.commons.entities.ContainerAnncEntity;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.RetentionUtil;
+
+public class RetentionUtilImpl implements RetentionUtil {
+
+	@Override
+	public List<ContentInstanceEntity> findOldest(DBTransaction dbTransaction, String containerID,
+			String createdBefore, int limit) {
+		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
+		TypedQuery<ContentInstanceEntity> query;
+		if (createdBefore == null) {
+			query = transaction.getEm().createNamedQuery(DBEntities.CIN_FIND_OLDEST, ContentInstanceEntity.class);
+		} else {
+			query = transaction.getEm().createNamedQuery(DBEntities.CIN_FIND_OLDEST_BEFORE, ContentInstanceEntity.class)
+					.setParameter("creationTime", createdBefore);
+		}
+		return query.setParameter("parentID", containerID).setMaxResults(limit).getResultList();
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, ContainerEntity container, List<ContentInstanceEntity> instances) {
+		if (instances.isEmpty()) {
+			return;
+		}
+		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
+		List<String> resourceIDs = new ArrayList<>(instances.size());
+		for (ContentInstanceEntity instance : instances) {
+			transaction.getEm().remove(instance);
+			resourceIDs.add(instance.getResourceID());
+		}
+		// the latest and oldest ids are looked up once for all the deleted instances
+		if (resourceIDs.contains(container.getLatestInstanceID())) {
+			container.setLatestInstanceID(findNeighbour(transaction, container, resourceIDs, DBEntities.CIN_FIND_LATEST_OTHER_IDS));
+		}
+		if (resourceIDs.contains(container.getOldestInstanceID())) {
+			container.setOldestInstanceID(findNeighbour(transaction, container, resourceIDs, DBEntities.CIN_FIND_OLDEST_OTHER_IDS));
+		}
+		// evict cache of the parent entity
+		transaction.getEm().getEntityManagerFactory().getCache().evict(ContainerEntity.class, container.getResourceID());
+		transaction.getEm().getEntityManagerFactory().getCache().evict(ContainerAnncEntity.class);
+	}
+
+	@Override
+	public List<String> findContainersWithMaxInstanceAge(DBTransaction dbTransaction) {
+		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
+		return transaction.getEm().createNamedQuery(DBEntities.CNT_FIND_WITH_MAX_INSTANCE_AGE, String.class)
+				.getResultList();
+	}
+
+	/**
+	 * Retrieves the id of the first remaining content instance of a container.
+	 * @param transaction current transaction
+	 * @param container parent container
+	 * @param resourceIDs ids of the deleted instances
+	 * @param queryName named query retrieving the new oldest or latest instance
+	 * @return the id of the instance or null if the container is empty
+	 */
+	private static String findNeighbour(DBTransactionJPAImpl transaction, ContainerEntity container,
+			List<String> resourceIDs, String queryName) {
+		List<String> resultList = transaction.getEm()
+				.createNamedQuery(queryName, String.class)
+				.setParameter("parentID", container.getResourceID())
+				.setParameter("resourceIDs", resourceIDs)
+				.setMaxResults(1)
+				// the deleted instances are excluded by the query, no need to write the pending changes first
+				.setFlushMode(FlushModeType.COMMIT)
+				.getResultList();
+		return resultList.isEmpty() ? null : resultList.get(0);
+	}
+
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.eclipselink.internal.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.om2m.commons.constants.DBEntities;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.persistence.eclipselink.internal.DBTransactionJPAImpl;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.UriMapperUtil;
+
+public class UriMapperUtilImpl implements UriMapperUtil {
+
+	/** Maximum number of uris of a query, bound parameters are limited by the databases */
+	private static final int MAX_URIS = 500;
+
+	@Override
+	public List<UriMapperEntity> findAll(DBTransaction dbTransaction, Collection<String> uris) {
+		DBTransactionJPAImpl transaction = (DBTransactionJPAImpl) dbTransaction;
+		List<UriMapperEntity> result = new ArrayList<>();
+		List<String> list = new ArrayList<>(uris);
+		for (int start = 0; start < list.size(); start += MAX_URIS) {
+			List<String> batch = list.subList(start, Math.min(start + MAX_URIS, list.size()));
+			result.addAll(transaction.getEm().createNamedQuery(DBEntities.URI_MAPPER_FIND_ALL, UriMapperEntity.class)
+					.setParameter("uris", batch).getResultList());
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.persistence.service.DBService;
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+public class Activator implements BundleActivator {
+
+	private static final Log LOGGER = LogFactory.getLog(Activator.class);
+
+	private ServiceRegistration<DBService> serviceRegistration;
+
+	@Override
+	public void start(BundleContext context) throws Exception {
+		LOGGER.info("start in-memory persistence bundle");
+		DBServiceImpl.getInstance().init();
+		serviceRegistration = context.registerService(DBService.class, DBServiceImpl.getInstance(), null);
+	}
+
+	@Override
+	public void stop(BundleContext context) throws Exception {
+		LOGGER.info("stop in-memory persistence bundle");
+		if (serviceRegistration != null) {
+			serviceRegistration.unregister();
+			serviceRegistration = null;
+		}
+		DBServiceImpl.getInstance().close();
+	}
+
+}
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory;
+
+import org.eclipse.om2m.commons.entities.AccessControlOriginatorEntity;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.AeAnncEntity;
+import org.eclipse.om2m.commons.entities.AeEntity;
+import org.eclipse.om2m.commons.entities.CSEBaseEntity;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.CreatedAnnouncedResourceEntity;
+import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerEntity;
+import org.eclipse.om2m.commons.entities.GroupEntity;
+import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.MgmtObjAnncEntity;
+import org.eclipse.om2m.commons.entities.MgmtObjEntity;
+import org.eclipse.om2m.commons.entities.NodeAnncEntity;
+import org.eclipse.om2m.commons.entities.NodeEntity;
+import org.eclipse.om2m.commons.entities.PollingChannelEntity;
+import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
+import org.eclipse.om2m.commons.entities.RequestEntity;
+import org.eclipse.om2m.commons.entities.SubscriptionEntity;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.persistence.inmemory.dao.AccessControlOriginatorDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.AeByAppIdDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.ContainerByNameDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.ContentInstanceDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.DescContainerByParentDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.LabelDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.LatestDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.OldestDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.RemoteCSEByIdDAO;
+import org.eclipse.om2m.persistence.inmemory.dao.UriMapperDAO;
+import org.eclipse.om2m.persistence.inmemory.util.AnnouncedResourceUtilImpl;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DAOFactory;
+
+public class DAOFactoryImpl implements DAOFactory {
+
+	@Override
+	public DAO<AccessControlPolicyEntity> getAccessControlPolicyDAO() {
+		return new DAOImpl<AccessControlPolicyEntity>(AccessControlPolicyEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<AeEntity> getAeDAO() {
+		return new DAOImpl<AeEntity>(AeEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<ContainerEntity> getContainerDAO() {
+		return new DAOImpl<ContainerEntity>(ContainerEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<FlexContainerEntity> getFlexContainerDAO() {
+		return new DAOImpl<FlexContainerEntity>(FlexContainerEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<ContentInstanceEntity> getContentInstanceDAO() {
+		return new ContentInstanceDAO();
+	}
+
+	@Override
+	public DAO<CSEBaseEntity> getCSEBaseDAO() {
+		return new DAOImpl<CSEBaseEntity>(CSEBaseEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<GroupEntity> getGroupDAO() {
+		return new DAOImpl<GroupEntity>(GroupEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<LabelEntity> getLabelDAO() {
+		return new LabelDAO();
+	}
+
+	@Override
+	public DAO<NodeEntity> getNodeDAO() {
+		return new DAOImpl<NodeEntity>(NodeEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<MgmtObjEntity> getMgmtObjDAO() {
+		return new DAOImpl<MgmtObjEntity>(MgmtObjEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<UriMapperEntity> getUriMapperEntity() {
+		return new UriMapperDAO();
+	}
+
+	@Override
+	public DAO<PollingChannelEntity> getPollingChannelDAO() {
+		return new DAOImpl<PollingChannelEntity>(PollingChannelEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<RemoteCSEEntity> getRemoteCSEDAO() {
+		return new DAOImpl<RemoteCSEEntity>(RemoteCSEEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<RemoteCSEEntity> getRemoteCSEbyCseIdDAO() {
+		return new RemoteCSEByIdDAO();
+	}
+
+	@Override
+	public DAO<RequestEntity> getRequestEntityDAO() {
+		return new DAOImpl<RequestEntity>(RequestEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<SubscriptionEntity> getSubsciptionDAO() {
+		return new DAOImpl<SubscriptionEntity>(SubscriptionEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<AccessControlOriginatorEntity> getAccessControlOriginatorDAO() {
+		return new AccessControlOriginatorDAO();
+	}
+
+	@Override
+	public DAO<AeAnncEntity> getAeAnncDAO() {
+		return new DAOImpl<AeAnncEntity>(AeAnncEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<CreatedAnnouncedResourceEntity> getAnnouncedResourceDAO() {
+		return new AnnouncedResourceUtilImpl();
+	}
+
+	@Override
+	public DAO<FlexContainerAnncEntity> getFlexContainerAnncDAO() {
+		return new DAOImpl<FlexContainerAnncEntity>(FlexContainerAnncEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<DynamicAuthorizationConsultationEntity> getDynamicAuthorizationDAO() {
+		return new DAOImpl<DynamicAuthorizationConsultationEntity>(DynamicAuthorizationConsultationEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<ContentInstanceEntity> getOldestDAO() {
+		return new OldestDAO();
+	}
+
+	@Override
+	public DAO<ContentInstanceEntity> getLatestDAO() {
+		return new LatestDAO();
+	}
+
+	@Override
+	public DAO<NodeAnncEntity> getNodeAnncDAO() {
+		return new DAOImpl<NodeAnncEntity>(NodeAnncEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<MgmtObjAnncEntity> getMgmtObjAnncDAO() {
+		return new DAOImpl<MgmtObjAnncEntity>(MgmtObjAnncEntity.class) {
+		};
+	}
+
+	@Override
+	public DAO<ContainerEntity> getContainerByResourceNameDAO() {
+		return new ContainerByNameDAO();
+	}
+
+	@Override
+	public DAO<ContainerEntity> getDescContainerByParentDAO() {
+		return new DescContainerByParentDAO();
+	}
+
+	@Override
+	public DAO<AeEntity> getAeByAppIdDAO() {
+		return new AeByAppIdDAO();
+	}
+
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory;
+
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.store.MemoryStore;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * DAO of a resource type. The changes are kept by the transaction and
+ * applied to the store when it is committed.
+ *
+ * @param <T> resource entity class
+ */
+public class DAOImpl<T extends ResourceEntity> implements DAO<T> {
+
+	private final Class<T> entityClass;
+
+	public DAOImpl(Class<T> entityClass) {
+		this.entityClass = entityClass;
+	}
+
+	protected static MemoryStore getStore() {
+		return DBServiceImpl.getInstance().getStore();
+	}
+
+	protected static DBTransactionImpl getTransaction(DBTransaction dbTransaction) {
+		return (DBTransactionImpl) dbTransaction;
+	}
+
+	@Override
+	public void create(DBTransaction dbTransaction, T resource) {
+		getTransaction(dbTransaction).create(resource);
+	}
+
+	@Override
+	public T find(DBTransaction dbTransaction, Object id) {
+		return id instanceof String ? getTransaction(dbTransaction).find((String) id, entityClass) : null;
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, T resource) {
+		getTransaction(dbTransaction).update(resource);
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, T resource) {
+		getTransaction(dbTransaction).delete(resource);
+	}
+
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.persistence.inmemory.store.LogBatch;
+import org.eclipse.om2m.persistence.inmemory.store.MemoryStore;
+import org.eclipse.om2m.persistence.inmemory.store.WriteAheadLog;
+import org.eclipse.om2m.persistence.inmemory.util.DBUtilManagerImpl;
+import org.eclipse.om2m.persistence.service.DAOFactory;
+import org.eclipse.om2m.persistence.service.DBConstants;
+import org.eclipse.om2m.persistence.service.DBService;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.lock.LocalLockManager;
+import org.eclipse.om2m.persistence.service.lock.LockManager;
+import org.eclipse.om2m.persistence.service.util.DBUtilManager;
+
+/**
+ * Database service keeping the resources in memory, for the edge nodes
+ * without database and for the test suites and benchmarks.
+ * <p>
+ * The resources are lost when the CSE stops unless a log directory is set
+ * with {@link DBConstants#DB_MEMORY_LOG}: the committed changes are then
+ * appended to a write-ahead log and read back at startup.
+ */
+public class DBServiceImpl implements DBService {
+
+	private static final Log LOGGER = LogFactory.getLog(DBServiceImpl.class);
+
+	private static final DBServiceImpl INSTANCE = new DBServiceImpl();
+
+	private final MemoryStore store = new MemoryStore();
+
+	private final LockManager lockManager = new LocalLockManager();
+
+	private final DAOFactory daoFactory = new DAOFactoryImpl();
+
+	private final DBUtilManager dbUtilManager = new DBUtilManagerImpl();
+
+	/** Null when the resources are kept in memory only */
+	private WriteAheadLog log;
+
+	public static DBServiceImpl getInstance() {
+		return INSTANCE;
+	}
+
+	private DBServiceImpl() {
+	}
+
+	protected void init() {
+		if (DBConstants.DB_MEMORY_LOG.isEmpty()) {
+			LOGGER.info("in-memory database without log, the resources are lost on shutdown");
+			return;
+		}
+		File directory = new File(DBConstants.DB_MEMORY_LOG);
+		WriteAheadLog writeAheadLog = new WriteAheadLog(directory, DBConstants.DB_MEMORY_LOG_SYNC,
+				DBConstants.DB_MEMORY_SNAPSHOT_SIZE);
+		try {
+			if (DBConstants.DB_RESET) {
+				writeAheadLog.delete();
+			}
+			writeAheadLog.recover(store);
+		} catch (IOException e) {
+			throw new IllegalStateException("unable to read the log of the in-memory database in " + directory, e);
+		}
+		log = writeAheadLog;
+	}
+
+	protected void close() {
+		if (log != null) {
+			try {
+				log.close();
+			} catch (IOException e) {
+				LOGGER.error("Error closing the log of the in-memory database", e);
+			}
+			log = null;
+		}
+	}
+
+	@Override
+	public DBTransaction getDbTransaction() {
+		return new DBTransactionImpl();
+	}
+
+	@Override
+	public DAOFactory getDAOFactory() {
+		return daoFactory;
+	}
+
+	@Override
+	public DBUtilManager getDBUtilManager() {
+		return dbUtilManager;
+	}
+
+	public MemoryStore getStore() {
+		return store;
+	}
+
+	public LockManager getLockManager() {
+		return lockManager;
+	}
+
+	/**
+	 * Appends the changes of a transaction to the log, if any.
+	 * @param batch changes of the transaction
+	 */
+	void write(LogBatch batch) {
+		WriteAheadLog writeAheadLog = log;
+		if (writeAheadLog == null) {
+			return;
+		}
+		try {
+			writeAheadLog.append(batch);
+		} catch (IOException e) {
+			throw new IllegalStateException("unable to write the log of the in-memory database", e);
+		}
+	}
+
+}
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.store.LogBatch;
+import org.eclipse.om2m.persistence.inmemory.store.MemoryStore;
+import org.eclipse.om2m.persistence.inmemory.store.ResourceCopy;
+import org.eclipse.om2m.persistence.service.DBConstants;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Transaction of the in-memory database.
+ * <p>
+ * The resources read by the transaction are copies of the stored ones, and
+ * the resources it creates, writes or deletes are kept aside: the changes
+ * are applied to the store and written to the log on commit, and dropped
+ * when the transaction is closed without commit. The queries of the utils
+ * read the stored resources, the changes of the transaction excepted.
+ * <p>
+ * The announced resources and the originators are still applied at once,
+ * they are logged when the transaction ends.
+ */
+public class DBTransactionImpl implements DBTransaction {
+
+	private static final Log LOGGER = LogFactory.getLog(DBTransactionImpl.class);
+
+	private final String owner = UUID.randomUUID().toString();
+	private final Set<String> lockedObjects = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final LogBatch batch = new LogBatch();
+
+	/** Copies of the stored resources read by the transaction, by resource id */
+	private final Map<String, ResourceCopy> copies = new HashMap<String, ResourceCopy>();
+
+	/** Stored resources by copy */
+	private final Map<Object, ResourceEntity> originals = new IdentityHashMap<Object, ResourceEntity>();
+
+	/** Resources created by the transaction, by resource id */
+	private final Map<String, ResourceEntity> created = new LinkedHashMap<String, ResourceEntity>();
+
+	/** Other instances of stored resources written by the transaction, by resource id */
+	private final Map<String, ResourceEntity> replaced = new LinkedHashMap<String, ResourceEntity>();
+
+	/** Resources deleted by the transaction, by resource id */
+	private final Map<String, ResourceEntity> deleted = new LinkedHashMap<String, ResourceEntity>();
+
+	@Override
+	public void open() {
+		// nothing to do
+	}
+
+	@Override
+	public void commit() {
+		try {
+			apply();
+			write();
+		} finally {
+			unlockAll();
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			discard();
+			write();
+		} finally {
+			unlockAll();
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		// the copies are dropped with their changes, as the entities of a JPA persistence context
+		copies.clear();
+		originals.clear();
+	}
+
+	@Override
+	public void lock(Object object) {
+		if (!(object instanceof ResourceEntity)) {
+			throw new IllegalArgumentException("only resources can be locked");
+		}
+		String resourceId = ((ResourceEntity) object).getResourceID();
+		if (lockedObjects.contains(resourceId)) {
+			// already held, the transaction is shared by the helpers of a request
+			return;
+		}
+		boolean acquired;
+		try {
+			acquired = DBServiceImpl.getInstance().getLockManager().lock(resourceId, owner,
+					DBConstants.DB_LOCK_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			acquired = false;
+		}
+		if (!acquired) {
+			throw new RuntimeException("unable to acquire lock for resource " + resourceId + " by transaction " + owner);
+		}
+		lockedObjects.add(resourceId);
+		synchronized (this) {
+			// the copy may have been read before the changes of the previous owner
+			ResourceCopy copy = copies.get(resourceId);
+			if (copy != null) {
+				copy.refresh();
+			}
+		}
+	}
+
+	@Override
+	public void unlock(Object object) {
+		if (object instanceof ResourceEntity) {
+			unlock(((ResourceEntity) object).getResourceID());
+		}
+	}
+
+	/**
+	 * @return the changes of the transaction not written yet
+	 */
+	public LogBatch getBatch() {
+		return batch;
+	}
+
+	/**
+	 * Retrieves a resource as seen by the transaction: the resource it has
+	 * created or written, a copy of the stored one, null if it has deleted it.
+	 * @param resourceID id of the resource
+	 * @param type expected class of the resource
+	 * @return the resource or null if it does not exist or has another class
+	 */
+	public synchronized <T> T find(String resourceID, Class<T> type) {
+		if (resourceID == null || deleted.containsKey(resourceID)) {
+			return null;
+		}
+		ResourceEntity entity = created.get(resourceID);
+		if (entity == null) {
+			entity = replaced.get(resourceID);
+		}
+		if (entity == null) {
+			ResourceCopy copy = copies.get(resourceID);
+			if (copy == null) {
+				ResourceEntity stored = getStore().get(resourceID);
+				if (!type.isInstance(stored)) {
+					return null;
+				}
+				copy = new ResourceCopy(stored);
+				copies.put(resourceID, copy);
+				originals.put(copy.getCopy(), stored);
+			}
+			entity = copy.getCopy();
+		}
+		return type.isInstance(entity) ? type.cast(entity) : null;
+	}
+
+	/**
+	 * @param hierarchicalURI hierarchical uri of a resource
+	 * @return the id of the resource as seen by the transaction or null
+	 */
+	public synchronized String getResourceID(String hierarchicalURI) {
+		if (hierarchicalURI == null) {
+			return null;
+		}
+		for (ResourceEntity entity : created.values()) {
+			if (hierarchicalURI.equals(entity.getHierarchicalURI())) {
+				return entity.getResourceID();
+			}
+		}
+		String resourceID = getStore().getResourceID(hierarchicalURI);
+		return resourceID == null || deleted.containsKey(resourceID) ? null : resourceID;
+	}
+
+	/**
+	 * @return the ids of the resources deleted by the transaction
+	 */
+	public synchronized Set<String> getDeletedIDs() {
+		return Collections.unmodifiableSet(deleted.keySet());
+	}
+
+	/**
+	 * @param entity resource created by the transaction
+	 */
+	public synchronized void create(ResourceEntity entity) {
+		deleted.remove(entity.getResourceID());
+		created.put(entity.getResourceID(), entity);
+	}
+
+	/**
+	 * Records a written resource. The changes of the copies and of the
+	 * created resources are found on commit, another instance of a stored
+	 * resource replaces it.
+	 * @param entity resource written by the transaction
+	 */
+	public synchronized void update(ResourceEntity entity) {
+		String resourceID = entity.getResourceID();
+		if (originals.containsKey(entity) || created.get(resourceID) == entity) {
+			return;
+		}
+		replaced.put(resourceID, entity);
+	}
+
+	/**
+	 * @param entity resource deleted by the transaction with its descendants
+	 */
+	public synchronized void delete(ResourceEntity entity) {
+		String resourceID = entity.getResourceID();
+		replaced.remove(resourceID);
+		if (created.remove(resourceID) != null && getStore().get(resourceID) == null) {
+			// created and deleted by the transaction
+			return;
+		}
+		deleted.put(resourceID, entity);
+	}
+
+	/**
+	 * Applies the changes of the transaction to the store and collects them
+	 * in the batch. The copies stay valid, with their changes applied.
+	 */
+	private synchronized void apply() {
+		MemoryStore store = getStore();
+		for (Iterator<ResourceCopy> it = copies.values().iterator(); it.hasNext();) {
+			ResourceCopy copy = it.next();
+			ResourceEntity original = copy.getOriginal();
+			String resourceID = original.getResourceID();
+			if (deleted.containsKey(resourceID) || replaced.containsKey(resourceID)
+					|| store.get(resourceID) != original) {
+				// deleted or replaced, by this transaction or by another one
+				originals.remove(copy.getCopy());
+				it.remove();
+			} else if (copy.apply(originals)) {
+				store.put(original);
+				batch.put(original);
+			}
+		}
+		for (ResourceEntity entity : created.values()) {
+			ResourceCopy.resolve(entity, originals);
+			store.put(entity);
+			store.link(entity);
+			batch.put(entity);
+			// the parent is often modified with its new child (count of instances...)
+			putParent(store, entity);
+		}
+		for (ResourceEntity entity : replaced.values()) {
+			ResourceCopy.resolve(entity, originals);
+			store.put(entity);
+			batch.put(entity);
+		}
+		for (ResourceEntity entity : deleted.values()) {
+			for (ResourceEntity removed : store.remove(entity)) {
+				batch.delete(removed.getResourceID());
+			}
+			putParent(store, entity);
+		}
+		created.clear();
+		replaced.clear();
+		deleted.clear();
+	}
+
+	/**
+	 * Drops the changes of the transaction not committed.
+	 */
+	private synchronized void discard() {
+		copies.clear();
+		originals.clear();
+		created.clear();
+		replaced.clear();
+		deleted.clear();
+	}
+
+	private void putParent(MemoryStore store, ResourceEntity entity) {
+		ResourceEntity parent = store.get(entity.getParentID());
+		if (parent != null) {
+			batch.put(parent);
+		}
+	}
+
+	private static MemoryStore getStore() {
+		return DBServiceImpl.getInstance().getStore();
+	}
+
+	private void write() {
+		if (!batch.isEmpty()) {
+			DBServiceImpl.getInstance().write(batch);
+			batch.clear();
+		}
+	}
+
+	private void unlockAll() {
+		for (String lockedResourceId : lockedObjects) {
+			unlock(lockedResourceId);
+		}
+	}
+
+	private void unlock(String resourceId) {
+		if (lockedObjects.remove(resourceId)) {
+			LOGGER.debug("unlock " + resourceId + " by transaction " + owner);
+			DBServiceImpl.getInstance().getLockManager().unlock(resourceId, owner);
+		}
+	}
+
+}
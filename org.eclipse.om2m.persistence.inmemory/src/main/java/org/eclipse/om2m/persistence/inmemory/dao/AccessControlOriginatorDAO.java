@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.dao;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.AccessControlOriginatorEntity;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.AccessControlRuleEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.DBTransactionImpl;
+import org.eclipse.om2m.persistence.inmemory.store.MemoryStore;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Originators registered by the CSE or listed in the rules of an access
+ * control policy.
+ */
+public class AccessControlOriginatorDAO implements DAO<AccessControlOriginatorEntity> {
+
+	@Override
+	public void create(DBTransaction dbTransaction, AccessControlOriginatorEntity resource) {
+		DBServiceImpl.getInstance().getStore().putOriginator(resource);
+		((DBTransactionImpl) dbTransaction).getBatch().putOriginator(resource);
+	}
+
+	@Override
+	public AccessControlOriginatorEntity find(DBTransaction dbTransaction, Object id) {
+		MemoryStore store = DBServiceImpl.getInstance().getStore();
+		AccessControlOriginatorEntity originator = store.getOriginator((String) id);
+		if (originator != null) {
+			return originator;
+		}
+		for (ResourceEntity acp : store.getByType(ResourceType.ACCESS_CONTROL_POLICY)) {
+			originator = find((AccessControlPolicyEntity) acp, id);
+			if (originator != null) {
+				return originator;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, AccessControlOriginatorEntity resource) {
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, AccessControlOriginatorEntity resource) {
+		if (DBServiceImpl.getInstance().getStore().removeOriginator(resource.getOriginatorID()) != null) {
+			((DBTransactionImpl) dbTransaction).getBatch().deleteOriginator(resource.getOriginatorID());
+		}
+	}
+
+	private static AccessControlOriginatorEntity find(AccessControlPolicyEntity acp, Object id) {
+		for (AccessControlRuleEntity rule : acp.getPrivileges()) {
+			for (AccessControlOriginatorEntity originator : rule.getAccessControlOriginators()) {
+				if (id.equals(originator.getOriginatorID())) {
+					return originator;
+				}
+			}
+		}
+		for (AccessControlRuleEntity rule : acp.getSelfPrivileges()) {
+			for (AccessControlOriginatorEntity originator : rule.getAccessControlOriginators()) {
+				if (id.equals(originator.getOriginatorID())) {
+					return originator;
+				}
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.dao;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.DBTransactionImpl;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Retrieves a container from its resource name, if the name is unique.
+ */
+public class ContainerByNameDAO implements DAO<ContainerEntity> {
+
+	@Override
+	public void create(DBTransaction dbTransaction, ContainerEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+	@Override
+	public ContainerEntity find(DBTransaction dbTransaction, Object id) {
+		ContainerEntity result = null;
+		for (ResourceEntity container : DBServiceImpl.getInstance().getStore().getByType(ResourceType.CONTAINER)) {
+			if (container.getName() != null && container.getName().equals(id)) {
+				if (result != null) {
+					return null;
+				}
+				result = (ContainerEntity) container;
+			}
+		}
+		return result == null ? null
+				: ((DBTransactionImpl) dbTransaction).find(result.getResourceID(), ContainerEntity.class);
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, ContainerEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, ContainerEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.dao;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DAOImpl;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Content instance DAO, maintains the latest and oldest instance ids of the
+ * parent container.
+ */
+public class ContentInstanceDAO extends DAOImpl<ContentInstanceEntity> {
+
+	public ContentInstanceDAO() {
+		super(ContentInstanceEntity.class);
+	}
+
+	@Override
+	public void create(DBTransaction dbTransaction, ContentInstanceEntity resource) {
+		super.create(dbTransaction, resource);
+		ContainerEntity container = getContainer(dbTransaction, resource);
+		if (container != null) {
+			container.setLatestInstanceID(resource.getResourceID());
+			if (container.getOldestInstanceID() == null) {
+				// empty, or holding instances created before the ids were stored
+				String oldest = findNeighbour(dbTransaction, resource, false);
+				container.setOldestInstanceID(oldest != null ? oldest : resource.getResourceID());
+			}
+		}
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, ContentInstanceEntity resource) {
+		super.delete(dbTransaction, resource);
+		ContainerEntity container = getContainer(dbTransaction, resource);
+		if (container != null) {
+			String resourceID = resource.getResourceID();
+			if (resourceID.equals(container.getLatestInstanceID())) {
+				container.setLatestInstanceID(findNeighbour(dbTransaction, resource, true));
+			}
+			if (resourceID.equals(container.getOldestInstanceID())) {
+				container.setOldestInstanceID(findNeighbour(dbTransaction, resource, false));
+			}
+		}
+	}
+
+	private static ContainerEntity getContainer(DBTransaction dbTransaction, ContentInstanceEntity resource) {
+		ContainerEntity container = getTransaction(dbTransaction).find(resource.getParentID(), ContainerEntity.class);
+		return container != null ? container : resource.getParentContainer();
+	}
+
+	/**
+	 * Retrieves the id of the first other sibling of a created or deleted
+	 * content instance, skipping the instances deleted by the transaction. The
+	 * instances created by the transaction are stored on commit only.
+	 * @param dbTransaction current transaction
+	 * @param resource created or deleted content instance
+	 * @param latest true for the latest other instance, false for the oldest one
+	 * @return the id of the sibling or null if the container has no other instance
+	 */
+	private static String findNeighbour(DBTransaction dbTransaction, ContentInstanceEntity resource, boolean latest) {
+		ResourceEntity neighbour = getStore().getChild(resource.getParentID(), ResourceType.CONTENT_INSTANCE, latest,
+				getTransaction(dbTransaction).getDeletedIDs());
+		return neighbour == null ? null : neighbour.getResourceID();
+	}
+
+}
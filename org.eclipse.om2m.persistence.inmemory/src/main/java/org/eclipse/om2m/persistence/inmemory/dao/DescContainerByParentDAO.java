@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.dao;
+
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.DBTransactionImpl;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Retrieves the DESCRIPTOR container of a resource from the resource id.
+ */
+public class DescContainerByParentDAO implements DAO<ContainerEntity> {
+
+	private static final String DESC = "DESCRIPTOR";
+
+	@Override
+	public void create(DBTransaction dbTransaction, ContainerEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+	@Override
+	public ContainerEntity find(DBTransaction dbTransaction, Object id) {
+		for (ResourceEntity child : DBServiceImpl.getInstance().getStore().getChildren((String) id)) {
+			if (child instanceof ContainerEntity && DESC.equals(child.getName())) {
+				return ((DBTransactionImpl) dbTransaction).find(child.getResourceID(), ContainerEntity.class);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, ContainerEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, ContainerEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+}
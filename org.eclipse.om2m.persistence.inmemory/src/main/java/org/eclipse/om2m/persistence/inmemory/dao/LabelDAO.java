@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.dao;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.AeAnncEntity;
+import org.eclipse.om2m.commons.entities.AeEntity;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerEntity;
+import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.MgmtObjAnncEntity;
+import org.eclipse.om2m.commons.entities.MgmtObjEntity;
+import org.eclipse.om2m.commons.entities.NodeAnncEntity;
+import org.eclipse.om2m.commons.entities.NodeEntity;
+import org.eclipse.om2m.commons.entities.PollingChannelEntity;
+import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.SubscriptionEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Labels, built from the label index of the resources. The labels are
+ * created and deleted with the resources having them.
+ */
+public class LabelDAO implements DAO<LabelEntity> {
+
+	@Override
+	public void create(DBTransaction dbTransaction, LabelEntity resource) {
+		// nothing to do
+	}
+
+	@Override
+	public LabelEntity find(DBTransaction dbTransaction, Object id) {
+		LabelEntity labelEntity = new LabelEntity((String) id);
+		for (ResourceEntity resource : DBServiceImpl.getInstance().getStore().getByLabel((String) id)) {
+			switch (resource.getResourceType().intValue()) {
+			case ResourceType.AE:
+				labelEntity.getLinkedAe().add((AeEntity) resource);
+				break;
+			case ResourceType.AE_ANNC:
+				labelEntity.getLinkedAeA().add((AeAnncEntity) resource);
+				break;
+			case ResourceType.CONTENT_INSTANCE:
+				labelEntity.getLinkedCin().add((ContentInstanceEntity) resource);
+				break;
+			case ResourceType.CONTAINER:
+				labelEntity.getLinkedCnt().add((ContainerEntity) resource);
+				break;
+			case ResourceType.REMOTE_CSE:
+				labelEntity.getLinkedCsr().add((RemoteCSEEntity) resource);
+				break;
+			case ResourceType.FLEXCONTAINER:
+				labelEntity.getLinkedFcnt().add((FlexContainerEntity) resource);
+				break;
+			case ResourceType.FLEXCONTAINER_ANNC:
+				labelEntity.getLinkedFcntA().add((FlexContainerAnncEntity) resource);
+				break;
+			case ResourceType.ACCESS_CONTROL_POLICY:
+				labelEntity.getLinkedACP().add((AccessControlPolicyEntity) resource);
+				break;
+			case ResourceType.SUBSCRIPTION:
+				labelEntity.getLinkedSub().add((SubscriptionEntity) resource);
+				break;
+			case ResourceType.POLLING_CHANNEL:
+				labelEntity.getLinkedPch().add((PollingChannelEntity) resource);
+				break;
+			case ResourceType.NODE:
+				labelEntity.getLinkedNodes().add((NodeEntity) resource);
+				break;
+			case ResourceType.NODE_ANNC:
+				labelEntity.getLinkedNodesA().add((NodeAnncEntity) resource);
+				break;
+			case ResourceType.MGMT_OBJ:
+				labelEntity.addMgmtObj((MgmtObjEntity) resource);
+				break;
+			case ResourceType.MGMT_OBJ_ANNC:
+				labelEntity.addMgmtObjA((MgmtObjAnncEntity) resource);
+				break;
+			default:
+				// no linked list for the other types (CSE base, groups...)
+				break;
+			}
+		}
+		return labelEntity;
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, LabelEntity resource) {
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, LabelEntity resource) {
+	}
+
+}
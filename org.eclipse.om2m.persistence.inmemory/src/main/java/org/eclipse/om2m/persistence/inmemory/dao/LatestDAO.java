@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.dao;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.DBTransactionImpl;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Retrieves the latest content instance of a container from the container id.
+ */
+public class LatestDAO implements DAO<ContentInstanceEntity> {
+
+	@Override
+	public void create(DBTransaction dbTransaction, ContentInstanceEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+	@Override
+	public ContentInstanceEntity find(DBTransaction dbTransaction, Object id) {
+		DBTransactionImpl transaction = (DBTransactionImpl) dbTransaction;
+		ResourceEntity latest = DBServiceImpl.getInstance().getStore().getChild((String) id,
+				ResourceType.CONTENT_INSTANCE, true, transaction.getDeletedIDs());
+		return latest == null ? null : transaction.find(latest.getResourceID(), ContentInstanceEntity.class);
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, ContentInstanceEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, ContentInstanceEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.dao;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.DBTransactionImpl;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Retrieves a remote CSE from its CSE id.
+ */
+public class RemoteCSEByIdDAO implements DAO<RemoteCSEEntity> {
+
+	@Override
+	public void create(DBTransaction dbTransaction, RemoteCSEEntity resource) {
+	}
+
+	@Override
+	public RemoteCSEEntity find(DBTransaction dbTransaction, Object id) {
+		for (ResourceEntity csr : DBServiceImpl.getInstance().getStore().getByType(ResourceType.REMOTE_CSE)) {
+			if (csr instanceof RemoteCSEEntity && id != null && id.equals(((RemoteCSEEntity) csr).getRemoteCseId())) {
+				return ((DBTransactionImpl) dbTransaction).find(csr.getResourceID(), RemoteCSEEntity.class);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, RemoteCSEEntity resource) {
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, RemoteCSEEntity resource) {
+	}
+
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.dao;
+
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.persistence.inmemory.DBTransactionImpl;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Uri mappings, read from the hierarchical uri index of the resources. The
+ * mappings are created and deleted with their resources.
+ */
+public class UriMapperDAO implements DAO<UriMapperEntity> {
+
+	@Override
+	public void create(DBTransaction dbTransaction, UriMapperEntity resource) {
+		// nothing to do
+	}
+
+	@Override
+	public UriMapperEntity find(DBTransaction dbTransaction, Object id) {
+		DBTransactionImpl transaction = (DBTransactionImpl) dbTransaction;
+		ResourceEntity resource = transaction.find(transaction.getResourceID((String) id), ResourceEntity.class);
+		if (resource == null) {
+			return null;
+		}
+		UriMapperEntity uriMapperEntity = new UriMapperEntity();
+		uriMapperEntity.setHierarchicalUri((String) id);
+		uriMapperEntity.setNonHierarchicalUri(resource.getResourceID());
+		uriMapperEntity.setResourceType(resource.getResourceType());
+		return uriMapperEntity;
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, UriMapperEntity resource) {
+		// nothing to do
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, UriMapperEntity resource) {
+		// nothing to do
+	}
+
+}
@@ -0,0 +1,370 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.store;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * Binary encoding of the entities written to the log.
+ * <p>
+ * The fields are written by name with their values. A resource referenced
+ * by another entity is written as its resource id, references are resolved
+ * once all the resources are read back. The other objects (rules, meta
+ * information...) are written inline.
+ */
+final class EntityCodec {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** Maximum depth of the inline objects, guards against cycles */
+	private static final int MAX_DEPTH = 16;
+
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte INTEGER = 2;
+	private static final byte LONG = 3;
+	private static final byte BOOLEAN = 4;
+	private static final byte BIG_INTEGER = 5;
+	private static final byte DOUBLE = 6;
+	private static final byte FLOAT = 7;
+	private static final byte SHORT = 8;
+	private static final byte BYTE = 9;
+	private static final byte ENUM = 10;
+	private static final byte LIST = 11;
+	private static final byte REFERENCE = 12;
+	private static final byte LABEL = 13;
+	private static final byte OBJECT = 14;
+
+	/**
+	 * Reference to a resource read from the log, placeholder of the resource
+	 * in the lists until it is resolved.
+	 */
+	static final class Reference {
+		final String resourceID;
+
+		Reference(String resourceID) {
+			this.resourceID = resourceID;
+		}
+	}
+
+	/**
+	 * Field or list holding references to be resolved.
+	 */
+	static final class Unresolved {
+		final Object owner;
+		final Field field;
+		final Reference reference;
+		final List<Object> list;
+
+		Unresolved(Object owner, Field field, Reference reference) {
+			this.owner = owner;
+			this.field = field;
+			this.reference = reference;
+			this.list = null;
+		}
+
+		Unresolved(List<Object> list) {
+			this.owner = null;
+			this.field = null;
+			this.reference = null;
+			this.list = list;
+		}
+
+		/**
+		 * Replaces the references by the resources, the ones of the missing
+		 * resources are dropped.
+		 * @param store store holding the resources
+		 */
+		void resolve(MemoryStore store) {
+			if (list == null) {
+				ResourceEntity target = store.get(reference.resourceID);
+				if (field.getType().isInstance(target)) {
+					try {
+						field.set(owner, target);
+					} catch (IllegalAccessException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				return;
+			}
+			for (ListIterator<Object> iterator = list.listIterator(); iterator.hasNext();) {
+				Object element = iterator.next();
+				if (element instanceof Reference) {
+					ResourceEntity target = store.get(((Reference) element).resourceID);
+					if (target == null) {
+						iterator.remove();
+					} else {
+						iterator.set(target);
+					}
+				}
+			}
+		}
+	}
+
+	private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+
+	/**
+	 * Writes a resource with all its persistent fields.
+	 * @param out output
+	 * @param entity resource to be written
+	 */
+	void writeResource(DataOutput out, ResourceEntity entity) throws IOException {
+		writeObject(out, entity, 0);
+	}
+
+	/**
+	 * Writes any other entity (announced resource, originator...).
+	 * @param out output
+	 * @param entity entity to be written
+	 */
+	void writeEntity(DataOutput out, Object entity) throws IOException {
+		writeObject(out, entity, 0);
+	}
+
+	/**
+	 * Reads an entity written by {@link #writeResource(DataOutput, ResourceEntity)}
+	 * or {@link #writeEntity(DataOutput, Object)}.
+	 * @param in input
+	 * @param unresolved receives the references to be resolved
+	 * @return the entity
+	 */
+	Object readEntity(DataInput in, List<Unresolved> unresolved) throws IOException {
+		if (in.readByte() != OBJECT) {
+			throw new IOException("entity expected");
+		}
+		return readObject(in, unresolved);
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		// not writeUTF, limited to 64 KB
+		byte[] bytes = value.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	private void writeObject(DataOutput out, Object object, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new IOException("too deep object graph, cycle through " + object.getClass().getName());
+		}
+		EntityMetadata metadata = EntityMetadata.of(object.getClass());
+		out.writeByte(OBJECT);
+		writeString(out, object.getClass().getName());
+		out.writeInt(metadata.getFields().size());
+		for (Field field : metadata.getFields()) {
+			writeString(out, field.getName());
+			try {
+				writeValue(out, field.get(object), depth);
+			} catch (IllegalAccessException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
+	private void writeValue(DataOutput out, Object value, int depth) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof BigInteger) {
+			byte[] bytes = ((BigInteger) value).toByteArray();
+			out.writeByte(BIG_INTEGER);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) value);
+		} else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		} else if (value instanceof Enum) {
+			out.writeByte(ENUM);
+			writeString(out, ((Enum<?>) value).getDeclaringClass().getName());
+			writeString(out, ((Enum<?>) value).name());
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			// copy, the list may be modified by another request
+			Object[] elements = list.toArray();
+			out.writeByte(LIST);
+			out.writeInt(elements.length);
+			for (Object element : elements) {
+				writeValue(out, element, depth);
+			}
+		} else if (value instanceof ResourceEntity) {
+			String resourceID = ((ResourceEntity) value).getResourceID();
+			if (resourceID == null) {
+				out.writeByte(NULL);
+			} else {
+				out.writeByte(REFERENCE);
+				writeString(out, resourceID);
+			}
+		} else if (value instanceof LabelEntity) {
+			out.writeByte(LABEL);
+			writeString(out, ((LabelEntity) value).getLabel());
+		} else if (value.getClass().isArray() || value instanceof Map) {
+			throw new IOException("unsupported value type " + value.getClass().getName());
+		} else {
+			writeObject(out, value, depth + 1);
+		}
+	}
+
+	private Object readObject(DataInput in, List<Unresolved> unresolved) throws IOException {
+		String className = readString(in);
+		EntityMetadata metadata = EntityMetadata.of(getClass(className));
+		Object object;
+		try {
+			object = metadata.newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("unable to instantiate " + className, e);
+		}
+		int fieldCount = in.readInt();
+		for (int i = 0; i < fieldCount; i++) {
+			String name = readString(in);
+			Object value = readValue(in, unresolved);
+			Field field = metadata.getField(name);
+			if (field == null) {
+				// field removed since the log has been written
+				continue;
+			}
+			try {
+				if (value instanceof Reference) {
+					unresolved.add(new Unresolved(object, field, (Reference) value));
+				} else if (value != null || !field.getType().isPrimitive()) {
+					field.set(object, value);
+				}
+			} catch (IllegalAccessException | IllegalArgumentException e) {
+				throw new IOException("unable to set " + className + "." + name, e);
+			}
+		}
+		return object;
+	}
+
+	private Object readValue(DataInput in, List<Unresolved> unresolved) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case INTEGER:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case BOOLEAN:
+			return in.readBoolean();
+		case BIG_INTEGER:
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new BigInteger(bytes);
+		case DOUBLE:
+			return in.readDouble();
+		case FLOAT:
+			return in.readFloat();
+		case SHORT:
+			return in.readShort();
+		case BYTE:
+			return in.readByte();
+		case ENUM:
+			return readEnum(in);
+		case LIST:
+			int size = in.readInt();
+			List<Object> list = new ArrayList<Object>(size);
+			boolean references = false;
+			for (int i = 0; i < size; i++) {
+				Object element = readValue(in, unresolved);
+				references |= element instanceof Reference;
+				list.add(element);
+			}
+			if (references) {
+				unresolved.add(new Unresolved(list));
+			}
+			return list;
+		case REFERENCE:
+			return new Reference(readString(in));
+		case LABEL:
+			return new LabelEntity(readString(in));
+		case OBJECT:
+			return readObject(in, unresolved);
+		default:
+			throw new IOException("unknown value tag " + tag);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readEnum(DataInput in) throws IOException {
+		Class enumClass = getClass(readString(in));
+		String name = readString(in);
+		try {
+			return Enum.valueOf(enumClass, name);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("unknown constant " + name + " of " + enumClass.getName(), e);
+		}
+	}
+
+	private Class<?> getClass(String className) throws IOException {
+		Class<?> type = classes.get(className);
+		if (type == null) {
+			try {
+				// entities and their values are classes of the commons bundle
+				type = Class.forName(className, false, ResourceEntity.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				throw new IOException("unknown class " + className, e);
+			}
+			classes.put(className, type);
+		}
+		return type;
+	}
+
+}
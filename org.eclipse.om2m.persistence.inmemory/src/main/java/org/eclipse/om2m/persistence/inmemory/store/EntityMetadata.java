@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.store;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.Transient;
+
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * Persistent fields of an entity class, read once by reflection.
+ * <p>
+ * The lists of child resources (childContainers, subscriptions...) are kept
+ * apart: they are the inverse side of the parent id of the children, so they
+ * are not written to the log but rebuilt from the parent ids.
+ */
+final class EntityMetadata {
+
+	/** Prefix of the lists of child resources */
+	private static final String CHILD_PREFIX = "child";
+
+	/** Lists of child resources not named with the child prefix */
+	private static final Set<String> CHILD_LISTS = new HashSet<String>(Arrays.asList(
+			"subscriptions", "pollingChannels", "flexContainerAnncs"));
+
+	private static final ConcurrentMap<Class<?>, EntityMetadata> METADATA = new ConcurrentHashMap<Class<?>, EntityMetadata>();
+
+	private final Constructor<?> constructor;
+
+	/** Persistent fields by name, child lists excluded */
+	private final Map<String, Field> fields = new LinkedHashMap<String, Field>();
+
+	/** Lists of child resources and the type of their elements */
+	private final Map<Field, Class<?>> childLists = new LinkedHashMap<Field, Class<?>>();
+
+	/** List of child resources by child class, null values for the classes without list */
+	private final ConcurrentMap<Class<?>, Object> childListByClass = new ConcurrentHashMap<Class<?>, Object>();
+
+	private EntityMetadata(Class<?> type) {
+		Constructor<?> noArgConstructor = null;
+		try {
+			noArgConstructor = type.getDeclaredConstructor();
+			noArgConstructor.setAccessible(true);
+		} catch (NoSuchMethodException e) {
+			// cannot be read back from the log, reported by newInstance
+		}
+		this.constructor = noArgConstructor;
+		boolean resource = ResourceEntity.class.isAssignableFrom(type);
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+						|| field.isAnnotationPresent(Transient.class) || fields.containsKey(field.getName())) {
+					continue;
+				}
+				field.setAccessible(true);
+				Class<?> elementType = resource ? childElementType(field) : null;
+				if (elementType != null) {
+					childLists.put(field, elementType);
+				} else {
+					fields.put(field.getName(), field);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param type entity class
+	 * @return the metadata of the class
+	 */
+	static EntityMetadata of(Class<?> type) {
+		EntityMetadata metadata = METADATA.get(type);
+		if (metadata == null) {
+			metadata = new EntityMetadata(type);
+			EntityMetadata previous = METADATA.putIfAbsent(type, metadata);
+			if (previous != null) {
+				metadata = previous;
+			}
+		}
+		return metadata;
+	}
+
+	/**
+	 * @return the persistent fields, child lists excluded
+	 */
+	Collection<Field> getFields() {
+		return fields.values();
+	}
+
+	/**
+	 * @param name name of the field
+	 * @return the persistent field or null if the class has no such field
+	 */
+	Field getField(String name) {
+		return fields.get(name);
+	}
+
+	/**
+	 * @return the lists of child resources
+	 */
+	Set<Field> getChildLists() {
+		return childLists.keySet();
+	}
+
+	/**
+	 * Finds the list holding the children of a given class, the one with the
+	 * most specific element type when several lists accept the child.
+	 * @param childType class of the child resource
+	 * @return the child list or null if the class has no list for this child
+	 */
+	Field getChildList(Class<?> childType) {
+		Object cached = childListByClass.get(childType);
+		if (cached == null) {
+			Field found = null;
+			Class<?> foundType = null;
+			for (Map.Entry<Field, Class<?>> entry : childLists.entrySet()) {
+				Class<?> elementType = entry.getValue();
+				if (elementType.isAssignableFrom(childType)
+						&& (foundType == null || foundType.isAssignableFrom(elementType))) {
+					found = entry.getKey();
+					foundType = elementType;
+				}
+			}
+			cached = found == null ? Boolean.FALSE : found;
+			childListByClass.put(childType, cached);
+		}
+		return cached instanceof Field ? (Field) cached : null;
+	}
+
+	/**
+	 * @return a new instance of the class
+	 */
+	Object newInstance() throws ReflectiveOperationException {
+		if (constructor == null) {
+			throw new InstantiationException("no constructor without argument");
+		}
+		return constructor.newInstance();
+	}
+
+	/**
+	 * Reads a list field without creating it.
+	 * @param owner object holding the field
+	 * @param field list field
+	 * @return the list of the field or an empty list
+	 */
+	@SuppressWarnings("unchecked")
+	static List<Object> readList(Object owner, Field field) {
+		try {
+			Object value = field.get(owner);
+			return value instanceof List ? (List<Object>) value : Collections.emptyList();
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Replaces the list of a list field.
+	 * @param owner object holding the field
+	 * @param field list field
+	 * @param list new list
+	 */
+	static void setList(Object owner, Field field, List<Object> list) {
+		try {
+			field.set(owner, list);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the element type of a list of child resources or null if the
+	 *         field is not such a list
+	 */
+	private static Class<?> childElementType(Field field) {
+		String name = field.getName();
+		if (!List.class.isAssignableFrom(field.getType())
+				|| !(name.startsWith(CHILD_PREFIX) || CHILD_LISTS.contains(name))) {
+			return null;
+		}
+		Type genericType = field.getGenericType();
+		if (!(genericType instanceof ParameterizedType)) {
+			return null;
+		}
+		Type argument = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+		if (argument instanceof Class && ResourceEntity.class.isAssignableFrom((Class<?>) argument)) {
+			return (Class<?>) argument;
+		}
+		return null;
+	}
+
+}
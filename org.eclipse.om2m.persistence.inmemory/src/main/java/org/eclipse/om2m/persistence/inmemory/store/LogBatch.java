@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.om2m.commons.entities.AccessControlOriginatorEntity;
+import org.eclipse.om2m.commons.entities.CreatedAnnouncedResourceEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * Changes of a transaction to be written to the log.
+ * <p>
+ * Only the ids of the changed entities are collected, their state is read
+ * when the batch is written so an entity changed several times in a
+ * transaction is written once.
+ */
+public class LogBatch {
+
+	static final byte PUT_RESOURCE = 1;
+	static final byte DELETE_RESOURCE = 2;
+	static final byte PUT_ANNOUNCED = 3;
+	static final byte DELETE_ANNOUNCED = 4;
+	static final byte PUT_ORIGINATOR = 5;
+	static final byte DELETE_ORIGINATOR = 6;
+
+	/** Number of attempts to encode an entity modified meanwhile by another request */
+	private static final int ENCODE_ATTEMPTS = 3;
+
+	/** Changed resources by id, null for the deleted ones */
+	private final Map<String, ResourceEntity> resources = new LinkedHashMap<String, ResourceEntity>();
+
+	private final Map<Long, CreatedAnnouncedResourceEntity> announcedResources = new LinkedHashMap<Long, CreatedAnnouncedResourceEntity>();
+
+	private final Map<String, AccessControlOriginatorEntity> originators = new LinkedHashMap<String, AccessControlOriginatorEntity>();
+
+	public synchronized void put(ResourceEntity entity) {
+		resources.put(entity.getResourceID(), entity);
+	}
+
+	public synchronized void delete(String resourceID) {
+		resources.put(resourceID, null);
+	}
+
+	public synchronized void putAnnounced(CreatedAnnouncedResourceEntity announced) {
+		announcedResources.put(announced.getId(), announced);
+	}
+
+	public synchronized void deleteAnnounced(long id) {
+		announcedResources.put(id, null);
+	}
+
+	public synchronized void putOriginator(AccessControlOriginatorEntity originator) {
+		originators.put(originator.getOriginatorID(), originator);
+	}
+
+	public synchronized void deleteOriginator(String originatorID) {
+		originators.put(originatorID, null);
+	}
+
+	public synchronized boolean isEmpty() {
+		return resources.isEmpty() && announcedResources.isEmpty() && originators.isEmpty();
+	}
+
+	public synchronized void clear() {
+		resources.clear();
+		announcedResources.clear();
+		originators.clear();
+	}
+
+	/**
+	 * Encodes the current state of the changed entities.
+	 * @param codec entity codec
+	 * @return the encoded batch
+	 */
+	synchronized byte[] encode(EntityCodec codec) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(resources.size() + announcedResources.size() + originators.size());
+		for (Map.Entry<String, ResourceEntity> entry : resources.entrySet()) {
+			if (entry.getValue() == null) {
+				out.writeByte(DELETE_RESOURCE);
+				EntityCodec.writeString(out, entry.getKey());
+			} else {
+				out.writeByte(PUT_RESOURCE);
+				out.write(encode(codec, entry.getValue()));
+			}
+		}
+		for (Map.Entry<Long, CreatedAnnouncedResourceEntity> entry : announcedResources.entrySet()) {
+			if (entry.getValue() == null) {
+				out.writeByte(DELETE_ANNOUNCED);
+				out.writeLong(entry.getKey());
+			} else {
+				out.writeByte(PUT_ANNOUNCED);
+				out.write(encode(codec, entry.getValue()));
+			}
+		}
+		for (Map.Entry<String, AccessControlOriginatorEntity> entry : originators.entrySet()) {
+			if (entry.getValue() == null) {
+				out.writeByte(DELETE_ORIGINATOR);
+				EntityCodec.writeString(out, entry.getKey());
+			} else {
+				out.writeByte(PUT_ORIGINATOR);
+				out.write(encode(codec, entry.getValue()));
+			}
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Encodes one entity. The entities are shared by the requests, the
+	 * encoding is retried if the entity is modified while it is read.
+	 * @param codec entity codec
+	 * @param entity resource or other entity
+	 * @return the encoded entity
+	 */
+	static byte[] encode(EntityCodec codec, Object entity) throws IOException {
+		for (int attempt = 1;; attempt++) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			try {
+				if (entity instanceof ResourceEntity) {
+					codec.writeResource(out, (ResourceEntity) entity);
+				} else {
+					codec.writeEntity(out, entity);
+				}
+				out.flush();
+				return bytes.toByteArray();
+			} catch (ConcurrentModificationException e) {
+				if (attempt == ENCODE_ATTEMPTS) {
+					throw new IOException("entity modified while written", e);
+				}
+			}
+		}
+	}
+
+}
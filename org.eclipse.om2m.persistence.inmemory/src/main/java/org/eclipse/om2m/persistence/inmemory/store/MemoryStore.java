@@ -0,0 +1,627 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.store;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.AccessControlOriginatorEntity;
+import org.eclipse.om2m.commons.entities.CreatedAnnouncedResourceEntity;
+import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * In-memory storage of the resources.
+ * <p>
+ * The entities are stored as live object graphs, like in the shared cache of
+ * a JPA provider: a child holds its parent and a parent lists its children.
+ * Secondary indexes retrieve the resources by parent, type, label and
+ * hierarchical uri without scanning the whole store.
+ * <p>
+ * The lists of the stored entities are read without lock by the requests,
+ * so they are copied on write: a new list replaces the one being changed.
+ */
+public class MemoryStore {
+
+	/** Number of the last children of a list checked before linking a new child */
+	private static final int LINK_CHECK = 16;
+
+	/** Character following '/' in the natural ordering of strings */
+	private static final char AFTER_SEPARATOR = (char) ('/' + 1);
+
+	/** Stored resource and the values it is indexed with */
+	private static final class Node {
+		final ResourceEntity entity;
+		/** Insertion order, children are listed in this order */
+		final long sequence;
+		String parentID;
+		Integer type;
+		String hierarchicalURI;
+		Set<String> labels = Collections.emptySet();
+
+		Node(ResourceEntity entity, long sequence) {
+			this.entity = entity;
+			this.sequence = sequence;
+		}
+	}
+
+	private static final Comparator<Node> SEQUENCE_ORDER = new Comparator<Node>() {
+		@Override
+		public int compare(Node n1, Node n2) {
+			return n1.sequence < n2.sequence ? -1 : (n1.sequence == n2.sequence ? 0 : 1);
+		}
+	};
+
+	private final AtomicLong sequences = new AtomicLong();
+
+	/** Resources by resource id */
+	private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<String, Node>();
+
+	/** Children in insertion order by parent id */
+	private final ConcurrentMap<String, ConcurrentSkipListMap<Long, ResourceEntity>> children = new ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ResourceEntity>>();
+
+	/** Resources by resource type */
+	private final ConcurrentMap<Integer, ConcurrentMap<String, ResourceEntity>> types = new ConcurrentHashMap<Integer, ConcurrentMap<String, ResourceEntity>>();
+
+	/** Resources by label */
+	private final ConcurrentMap<String, ConcurrentMap<String, ResourceEntity>> labels = new ConcurrentHashMap<String, ConcurrentMap<String, ResourceEntity>>();
+
+	/** Resource ids by hierarchical uri, sorted to retrieve whole subtrees */
+	private final ConcurrentSkipListMap<String, String> hierarchicalURIs = new ConcurrentSkipListMap<String, String>();
+
+	private final AtomicLong announcedIds = new AtomicLong();
+
+	private final ConcurrentMap<Long, CreatedAnnouncedResourceEntity> announcedResources = new ConcurrentHashMap<Long, CreatedAnnouncedResourceEntity>();
+
+	/** Registered originators by originator id */
+	private final ConcurrentMap<String, AccessControlOriginatorEntity> originators = new ConcurrentHashMap<String, AccessControlOriginatorEntity>();
+
+	/**
+	 * @param resourceID id of the resource
+	 * @return the stored resource or null
+	 */
+	public ResourceEntity get(String resourceID) {
+		Node node = resourceID == null ? null : nodes.get(resourceID);
+		return node == null ? null : node.entity;
+	}
+
+	/**
+	 * @param resourceID id of the resource
+	 * @param type expected class of the resource
+	 * @return the stored resource or null if it does not exist or has another class
+	 */
+	public <T> T get(String resourceID, Class<T> type) {
+		ResourceEntity entity = get(resourceID);
+		return type.isInstance(entity) ? type.cast(entity) : null;
+	}
+
+	/**
+	 * Stores a resource or updates the indexes of a stored one.
+	 * @param entity resource to be stored
+	 * @return true if the resource was not stored yet
+	 */
+	public boolean put(ResourceEntity entity) {
+		String resourceID = entity.getResourceID();
+		if (resourceID == null) {
+			throw new IllegalArgumentException("resource without id");
+		}
+		boolean created = false;
+		Node node = nodes.get(resourceID);
+		if (node == null) {
+			Node newNode = new Node(entity, sequences.incrementAndGet());
+			node = nodes.putIfAbsent(resourceID, newNode);
+			if (node == null) {
+				node = newNode;
+				created = true;
+			}
+		}
+		if (node.entity != entity) {
+			// another instance of the resource, e.g. deserialized: replaces the stored one
+			Node replacement = new Node(entity, node.sequence);
+			synchronized (node) {
+				replacement.parentID = node.parentID;
+				replacement.type = node.type;
+				replacement.hierarchicalURI = node.hierarchicalURI;
+				replacement.labels = node.labels;
+				nodes.put(resourceID, replacement);
+			}
+			node = replacement;
+		}
+		index(node);
+		return created;
+	}
+
+	/**
+	 * Adds a stored resource to the child list of its parent if it is not listed yet.
+	 * Only the last children of the list are checked, new children being appended.
+	 * The list is replaced by a new one, not modified.
+	 * @param child stored resource
+	 */
+	public void link(ResourceEntity child) {
+		ResourceEntity parent = get(child.getParentID());
+		if (parent == null) {
+			return;
+		}
+		Field childList = EntityMetadata.of(parent.getClass()).getChildList(child.getClass());
+		if (childList == null) {
+			return;
+		}
+		synchronized (parent) {
+			List<Object> list = EntityMetadata.readList(parent, childList);
+			for (int i = list.size() - 1; i >= 0 && i >= list.size() - LINK_CHECK; i--) {
+				if (list.get(i) == child) {
+					return;
+				}
+			}
+			List<Object> linked = new ArrayList<Object>(list.size() + 1);
+			linked.addAll(list);
+			linked.add(child);
+			EntityMetadata.setList(parent, childList, linked);
+		}
+	}
+
+	/**
+	 * Removes a resource and all its descendants.
+	 * @param entity resource to be removed
+	 * @return the removed resources, descendants first
+	 */
+	public List<ResourceEntity> remove(ResourceEntity entity) {
+		List<ResourceEntity> removed = new ArrayList<ResourceEntity>();
+		Node node = nodes.get(entity.getResourceID());
+		if (node == null) {
+			return removed;
+		}
+		removeSubtree(node, removed);
+		unlink(node);
+
+		Map<Object, Boolean> removedSet = new IdentityHashMap<Object, Boolean>();
+		boolean referenced = false;
+		for (ResourceEntity removedEntity : removed) {
+			removedSet.put(removedEntity, Boolean.TRUE);
+			int type = removedEntity.getResourceType() == null ? -1 : removedEntity.getResourceType().intValue();
+			referenced |= type == ResourceType.ACCESS_CONTROL_POLICY
+					|| type == ResourceType.DYNAMIC_AUTHORIZATION_CONSULTATION;
+		}
+		// references from the resources linked to the removed ones (back references of the policies...)
+		for (ResourceEntity removedEntity : removed) {
+			for (Field field : EntityMetadata.of(removedEntity.getClass()).getFields()) {
+				for (Object linked : EntityMetadata.readList(removedEntity, field)) {
+					if (linked instanceof ResourceEntity && !removedSet.containsKey(linked)) {
+						removeReferences(linked, removedSet);
+					}
+				}
+			}
+		}
+		// policies are referenced by resources they do not know about
+		if (referenced) {
+			for (Node other : nodes.values()) {
+				removeReferences(other.entity, removedSet);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * @param parentID id of the parent resource
+	 * @return the children in insertion order
+	 */
+	public Collection<ResourceEntity> getChildren(String parentID) {
+		ConcurrentSkipListMap<Long, ResourceEntity> parentChildren = parentID == null ? null : children.get(parentID);
+		if (parentChildren == null) {
+			return Collections.emptyList();
+		}
+		return parentChildren.values();
+	}
+
+	/**
+	 * Retrieves the first or the last inserted child of a given type.
+	 * @param parentID id of the parent resource
+	 * @param type resource type of the child
+	 * @param latest true for the last inserted child, false for the first one
+	 * @param excludedIDs ids of the children to be skipped, may be null
+	 * @return the child or null if the parent has no such child
+	 */
+	public ResourceEntity getChild(String parentID, int type, boolean latest, Collection<String> excludedIDs) {
+		ConcurrentSkipListMap<Long, ResourceEntity> parentChildren = parentID == null ? null : children.get(parentID);
+		if (parentChildren == null) {
+			return null;
+		}
+		Collection<ResourceEntity> ordered = latest ? parentChildren.descendingMap().values() : parentChildren.values();
+		for (ResourceEntity child : ordered) {
+			if (child.getResourceType() != null && child.getResourceType().intValue() == type
+					&& (excludedIDs == null || !excludedIDs.contains(child.getResourceID()))) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param type resource type
+	 * @return the resources of this type
+	 */
+	public Collection<ResourceEntity> getByType(int type) {
+		ConcurrentMap<String, ResourceEntity> resources = types.get(type);
+		if (resources == null) {
+			return Collections.emptyList();
+		}
+		return resources.values();
+	}
+
+	/**
+	 * @param label label of the resources
+	 * @return the resources having this label
+	 */
+	public Collection<ResourceEntity> getByLabel(String label) {
+		ConcurrentMap<String, ResourceEntity> resources = label == null ? null : labels.get(label);
+		if (resources == null) {
+			return Collections.emptyList();
+		}
+		return resources.values();
+	}
+
+	/**
+	 * @param hierarchicalURI hierarchical uri of a resource
+	 * @return the resource id or null if no resource has this uri
+	 */
+	public String getResourceID(String hierarchicalURI) {
+		return hierarchicalURI == null ? null : hierarchicalURIs.get(hierarchicalURI);
+	}
+
+	/**
+	 * @param hierarchicalURI hierarchical uri of the root resource
+	 * @return resource id by hierarchical uri of the root resource and of all its descendants
+	 */
+	public Map<String, String> getSubtree(String hierarchicalURI) {
+		Map<String, String> subtree = new LinkedHashMap<String, String>();
+		String rootID = hierarchicalURIs.get(hierarchicalURI);
+		if (rootID != null) {
+			subtree.put(hierarchicalURI, rootID);
+		}
+		subtree.putAll(hierarchicalURIs.subMap(hierarchicalURI + "/", true,
+				hierarchicalURI + AFTER_SEPARATOR, false));
+		return subtree;
+	}
+
+	/**
+	 * @param hierarchicalURI hierarchical uri of the root resource
+	 * @param after hierarchical uri from which the descendants are read,
+	 *            excluded, null to read all of them
+	 * @return a sorted view of the resource ids by hierarchical uri of the
+	 *         descendants of the root resource following after
+	 */
+	public NavigableMap<String, String> getDescendants(String hierarchicalURI, String after) {
+		String first = hierarchicalURI + "/";
+		String end = hierarchicalURI + AFTER_SEPARATOR;
+		if (after == null || after.compareTo(first) < 0) {
+			return hierarchicalURIs.subMap(first, true, end, false);
+		}
+		if (after.compareTo(end) >= 0) {
+			return new TreeMap<String, String>();
+		}
+		return hierarchicalURIs.subMap(after, false, end, false);
+	}
+
+	/**
+	 * @return all the resources in insertion order
+	 */
+	public List<ResourceEntity> getAll() {
+		List<Node> all = new ArrayList<Node>(nodes.values());
+		Collections.sort(all, SEQUENCE_ORDER);
+		List<ResourceEntity> entities = new ArrayList<ResourceEntity>(all.size());
+		for (Node node : all) {
+			entities.add(node.entity);
+		}
+		return entities;
+	}
+
+	/**
+	 * @return the number of stored resources
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Stores an announced resource, a new id is given to the new ones.
+	 * @param announced announced resource
+	 */
+	public void putAnnounced(CreatedAnnouncedResourceEntity announced) {
+		if (announced.getId() == 0) {
+			announced.setId(announcedIds.incrementAndGet());
+		} else {
+			long current;
+			do {
+				current = announcedIds.get();
+			} while (announced.getId() > current && !announcedIds.compareAndSet(current, announced.getId()));
+		}
+		announcedResources.put(announced.getId(), announced);
+	}
+
+	/**
+	 * @param id id of the announced resource
+	 * @return the announced resource or null
+	 */
+	public CreatedAnnouncedResourceEntity getAnnounced(long id) {
+		return announcedResources.get(id);
+	}
+
+	/**
+	 * @param id id of the announced resource
+	 * @return the removed announced resource or null
+	 */
+	public CreatedAnnouncedResourceEntity removeAnnounced(long id) {
+		return announcedResources.remove(id);
+	}
+
+	/**
+	 * @return the announced resources
+	 */
+	public Collection<CreatedAnnouncedResourceEntity> getAnnouncedResources() {
+		return announcedResources.values();
+	}
+
+	/**
+	 * @param originator registered originator
+	 */
+	public void putOriginator(AccessControlOriginatorEntity originator) {
+		originators.put(originator.getOriginatorID(), originator);
+	}
+
+	/**
+	 * @param originatorID id of the originator
+	 * @return the registered originator or null
+	 */
+	public AccessControlOriginatorEntity getOriginator(String originatorID) {
+		return originatorID == null ? null : originators.get(originatorID);
+	}
+
+	/**
+	 * @param originatorID id of the originator
+	 * @return the removed originator or null
+	 */
+	public AccessControlOriginatorEntity removeOriginator(String originatorID) {
+		return originatorID == null ? null : originators.remove(originatorID);
+	}
+
+	/**
+	 * @return the registered originators
+	 */
+	public Collection<AccessControlOriginatorEntity> getOriginators() {
+		return originators.values();
+	}
+
+	/**
+	 * Removes everything.
+	 */
+	public void clear() {
+		nodes.clear();
+		children.clear();
+		types.clear();
+		labels.clear();
+		hierarchicalURIs.clear();
+		announcedResources.clear();
+		originators.clear();
+	}
+
+	private void removeSubtree(Node node, List<ResourceEntity> removed) {
+		String resourceID = node.entity.getResourceID();
+		ConcurrentSkipListMap<Long, ResourceEntity> nodeChildren = children.get(resourceID);
+		if (nodeChildren != null) {
+			for (ResourceEntity child : nodeChildren.values()) {
+				Node childNode = nodes.get(child.getResourceID());
+				if (childNode != null && childNode.entity == child) {
+					removeSubtree(childNode, removed);
+				}
+			}
+			children.remove(resourceID);
+		}
+		if (nodes.remove(resourceID, node)) {
+			synchronized (node) {
+				unindex(node);
+			}
+			removed.add(node.entity);
+		}
+	}
+
+	/**
+	 * Removes a resource from the child list of its parent, the list is replaced.
+	 */
+	private void unlink(Node node) {
+		ResourceEntity parent = get(node.parentID);
+		if (parent == null) {
+			return;
+		}
+		Field childList = EntityMetadata.of(parent.getClass()).getChildList(node.entity.getClass());
+		if (childList == null) {
+			return;
+		}
+		synchronized (parent) {
+			List<Object> list = EntityMetadata.readList(parent, childList);
+			for (int i = list.size() - 1; i >= 0; i--) {
+				if (list.get(i) == node.entity) {
+					List<Object> unlinked = new ArrayList<Object>(list);
+					unlinked.remove(i);
+					EntityMetadata.setList(parent, childList, unlinked);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the references to removed resources from the lists of an entity,
+	 * the lists are replaced.
+	 */
+	private static void removeReferences(Object entity, Map<Object, Boolean> removed) {
+		for (Field field : EntityMetadata.of(entity.getClass()).getFields()) {
+			synchronized (entity) {
+				List<Object> list = EntityMetadata.readList(entity, field);
+				if (list.isEmpty() || !(list.get(0) instanceof ResourceEntity)) {
+					continue;
+				}
+				List<Object> remaining = new ArrayList<Object>(list.size());
+				for (Object element : list) {
+					if (!removed.containsKey(element)) {
+						remaining.add(element);
+					}
+				}
+				if (remaining.size() < list.size()) {
+					EntityMetadata.setList(entity, field, remaining);
+				}
+			}
+		}
+	}
+
+	private void index(Node node) {
+		ResourceEntity entity = node.entity;
+		synchronized (node) {
+			if (nodes.get(entity.getResourceID()) != node) {
+				// removed or replaced meanwhile
+				return;
+			}
+			String parentID = entity.getParentID();
+			if (node.parentID == null ? parentID != null : !node.parentID.equals(parentID)) {
+				removeChild(node);
+				node.parentID = parentID;
+				if (parentID != null) {
+					ConcurrentSkipListMap<Long, ResourceEntity> parentChildren = children.get(parentID);
+					if (parentChildren == null) {
+						ConcurrentSkipListMap<Long, ResourceEntity> newChildren = new ConcurrentSkipListMap<Long, ResourceEntity>();
+						parentChildren = children.putIfAbsent(parentID, newChildren);
+						if (parentChildren == null) {
+							parentChildren = newChildren;
+						}
+					}
+					parentChildren.put(node.sequence, entity);
+				}
+			} else if (parentID != null) {
+				// the instance may have been replaced
+				ConcurrentSkipListMap<Long, ResourceEntity> parentChildren = children.get(parentID);
+				if (parentChildren != null) {
+					parentChildren.put(node.sequence, entity);
+				}
+			}
+
+			Integer type = entity.getResourceType() == null ? null : entity.getResourceType().intValue();
+			if (node.type != null) {
+				removeFrom(types, node.type, entity.getResourceID());
+			}
+			node.type = type;
+			if (type != null) {
+				addTo(types, type, entity);
+			}
+
+			String hierarchicalURI = entity.getHierarchicalURI();
+			if (node.hierarchicalURI != null && !node.hierarchicalURI.equals(hierarchicalURI)) {
+				hierarchicalURIs.remove(node.hierarchicalURI, entity.getResourceID());
+			}
+			node.hierarchicalURI = hierarchicalURI;
+			if (hierarchicalURI != null) {
+				hierarchicalURIs.put(hierarchicalURI, entity.getResourceID());
+			}
+
+			Set<String> entityLabels = getLabels(entity);
+			for (String label : node.labels) {
+				if (!entityLabels.contains(label)) {
+					removeFrom(labels, label, entity.getResourceID());
+				}
+			}
+			for (String label : entityLabels) {
+				addTo(labels, label, entity);
+			}
+			node.labels = entityLabels;
+		}
+	}
+
+	private void unindex(Node node) {
+		removeChild(node);
+		if (node.type != null) {
+			removeFrom(types, node.type, node.entity.getResourceID());
+		}
+		if (node.hierarchicalURI != null) {
+			hierarchicalURIs.remove(node.hierarchicalURI, node.entity.getResourceID());
+		}
+		for (String label : node.labels) {
+			removeFrom(labels, label, node.entity.getResourceID());
+		}
+	}
+
+	private void removeChild(Node node) {
+		if (node.parentID != null) {
+			ConcurrentSkipListMap<Long, ResourceEntity> parentChildren = children.get(node.parentID);
+			if (parentChildren != null) {
+				parentChildren.remove(node.sequence);
+			}
+		}
+	}
+
+	private static <K> void addTo(ConcurrentMap<K, ConcurrentMap<String, ResourceEntity>> index, K key,
+			ResourceEntity entity) {
+		ConcurrentMap<String, ResourceEntity> resources = index.get(key);
+		if (resources == null) {
+			ConcurrentMap<String, ResourceEntity> newResources = new ConcurrentHashMap<String, ResourceEntity>();
+			resources = index.putIfAbsent(key, newResources);
+			if (resources == null) {
+				resources = newResources;
+			}
+		}
+		resources.put(entity.getResourceID(), entity);
+	}
+
+	private static <K> void removeFrom(ConcurrentMap<K, ConcurrentMap<String, ResourceEntity>> index, K key,
+			String resourceID) {
+		ConcurrentMap<String, ResourceEntity> resources = index.get(key);
+		if (resources != null) {
+			resources.remove(resourceID);
+		}
+	}
+
+	private static Set<String> getLabels(ResourceEntity entity) {
+		List<LabelEntity> labelEntities = entity.getLabelsEntities();
+		if (labelEntities == null || labelEntities.isEmpty()) {
+			return Collections.emptySet();
+		}
+		Set<String> entityLabels = new HashSet<String>();
+		for (LabelEntity label : labelEntities) {
+			if (label.getLabel() != null) {
+				entityLabels.add(label.getLabel());
+			}
+		}
+		return entityLabels;
+	}
+
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.store;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * Copy of a stored resource read by a transaction.
+ * <p>
+ * The requests change the resources they read in place, the copy keeps
+ * these changes from the other requests until the transaction is committed.
+ * The copy is shallow: its lists are new lists holding the same elements,
+ * the related resources are the stored ones or the copies of the same
+ * transaction. The values of the fields are recorded when the resource is
+ * copied so that only the changed fields are written back, like the change
+ * detection of a JPA provider.
+ */
+public final class ResourceCopy {
+
+	private final ResourceEntity original;
+
+	private final ResourceEntity copy;
+
+	private final Field[] fields;
+
+	/** Values of the persistent fields when copied or last applied, lists copied */
+	private final Object[] values;
+
+	/**
+	 * @param original stored resource
+	 */
+	public ResourceCopy(ResourceEntity original) {
+		EntityMetadata metadata = EntityMetadata.of(original.getClass());
+		Collection<Field> persistentFields = metadata.getFields();
+		this.original = original;
+		this.fields = persistentFields.toArray(new Field[persistentFields.size()]);
+		this.values = new Object[fields.length];
+		try {
+			this.copy = (ResourceEntity) metadata.newInstance();
+			synchronized (original) {
+				for (int i = 0; i < fields.length; i++) {
+					Object value = fields[i].get(original);
+					fields[i].set(copy, copyOf(value));
+					values[i] = copyOf(value);
+				}
+				for (Field childList : metadata.getChildLists()) {
+					childList.set(copy, copyOf(childList.get(original)));
+				}
+			}
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("unable to copy " + original.getResourceID(), e);
+		}
+	}
+
+	/**
+	 * @return the stored resource
+	 */
+	public ResourceEntity getOriginal() {
+		return original;
+	}
+
+	/**
+	 * @return the copy given to the transaction
+	 */
+	public ResourceEntity getCopy() {
+		return copy;
+	}
+
+	/**
+	 * Writes the fields changed in the copy to the stored resource. The
+	 * lists of the stored resource are replaced, not modified, so that the
+	 * requests reading them are not disturbed. The lists of child resources
+	 * are not written, they follow the parent ids of the children.
+	 * @param originals stored resources by copy, the copies referred to by
+	 *            the changed fields are replaced by the stored resources
+	 * @return true if a field has changed
+	 */
+	public boolean apply(Map<Object, ResourceEntity> originals) {
+		boolean changed = false;
+		try {
+			synchronized (original) {
+				for (int i = 0; i < fields.length; i++) {
+					Object value = fields[i].get(copy);
+					if (isChanged(value, values[i])) {
+						fields[i].set(original, resolve(value, originals));
+						values[i] = copyOf(value);
+						changed = true;
+					}
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		return changed;
+	}
+
+	/**
+	 * Reads again the fields not changed in the copy from the stored
+	 * resource, e.g. once the resource is locked by the transaction.
+	 */
+	public void refresh() {
+		try {
+			synchronized (original) {
+				for (int i = 0; i < fields.length; i++) {
+					if (!isChanged(fields[i].get(copy), values[i])) {
+						Object value = fields[i].get(original);
+						fields[i].set(copy, copyOf(value));
+						values[i] = copyOf(value);
+					}
+				}
+				for (Field childList : EntityMetadata.of(original.getClass()).getChildLists()) {
+					childList.set(copy, copyOf(childList.get(original)));
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Replaces the copies a new resource refers to by the stored resources,
+	 * before the new resource is stored.
+	 * @param entity new resource
+	 * @param originals stored resources by copy
+	 */
+	public static void resolve(ResourceEntity entity, Map<Object, ResourceEntity> originals) {
+		if (originals.isEmpty()) {
+			return;
+		}
+		EntityMetadata metadata = EntityMetadata.of(entity.getClass());
+		try {
+			for (Field field : metadata.getFields()) {
+				Object value = field.get(entity);
+				if (refersTo(value, originals)) {
+					field.set(entity, resolve(value, originals));
+				}
+			}
+			for (Field childList : metadata.getChildLists()) {
+				Object value = childList.get(entity);
+				if (refersTo(value, originals)) {
+					childList.set(entity, resolve(value, originals));
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean isChanged(Object value, Object recorded) {
+		return value == null ? recorded != null : !value.equals(recorded);
+	}
+
+	private static Object copyOf(Object value) {
+		return value instanceof List ? new ArrayList<Object>((List<?>) value) : value;
+	}
+
+	private static boolean refersTo(Object value, Map<Object, ResourceEntity> originals) {
+		if (value instanceof List) {
+			for (Object element : (List<?>) value) {
+				if (element != null && originals.containsKey(element)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return value != null && originals.containsKey(value);
+	}
+
+	private static Object resolve(Object value, Map<Object, ResourceEntity> originals) {
+		if (value instanceof List) {
+			List<Object> resolved = new ArrayList<Object>(((List<?>) value).size());
+			for (Object element : (List<?>) value) {
+				resolved.add(original(element, originals));
+			}
+			return resolved;
+		}
+		return original(value, originals);
+	}
+
+	private static Object original(Object value, Map<Object, ResourceEntity> originals) {
+		ResourceEntity stored = value == null ? null : originals.get(value);
+		return stored == null ? value : stored;
+	}
+
+}
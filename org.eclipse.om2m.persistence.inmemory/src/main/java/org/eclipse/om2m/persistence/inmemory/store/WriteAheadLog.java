@@ -0,0 +1,455 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eclipse.om2m.commons.entities.AccessControlOriginatorEntity;
+import org.eclipse.om2m.commons.entities.CreatedAnnouncedResourceEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * Write-ahead log of the in-memory store.
+ * <p>
+ * Each committed transaction appends a checksummed record holding the state
+ * of the entities it changed. When the log grows past the snapshot size, it is
+ * sealed into a segment and a snapshot of the whole store is written in the
+ * background, then the sealed segments are deleted.
+ * <p>
+ * At startup, the snapshot then the segments then the current log are read
+ * back. A record torn by a crash at the end of the log is discarded.
+ */
+public class WriteAheadLog {
+
+	private static final Log LOGGER = LogFactory.getLog(WriteAheadLog.class);
+
+	private static final String SNAPSHOT = "snapshot";
+	private static final String LOG = "log";
+	/** Prefix of the sealed segments, followed by their number */
+	private static final String SEGMENT = "log-";
+	private static final String TEMPORARY = ".tmp";
+
+	/** Number of entities per record of the snapshot */
+	private static final int SNAPSHOT_BATCH = 1000;
+
+	private final File directory;
+	private final boolean sync;
+	private final long snapshotSize;
+	private final EntityCodec codec = new EntityCodec();
+
+	private final ExecutorService compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "om2m-memory-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private MemoryStore store;
+	private FileOutputStream file;
+	private DataOutputStream out;
+	private long size;
+	private int lastSegment;
+	private boolean compacting;
+
+	/**
+	 * @param directory directory of the log files, created if needed
+	 * @param sync true to force the records to the disk on each append
+	 * @param snapshotSize size of the log after which a snapshot is written, in bytes
+	 */
+	public WriteAheadLog(File directory, boolean sync, long snapshotSize) {
+		this.directory = directory;
+		this.sync = sync;
+		this.snapshotSize = snapshotSize;
+	}
+
+	/**
+	 * Deletes the log files.
+	 */
+	public synchronized void delete() throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File logFile : files) {
+			String name = logFile.getName();
+			if ((name.equals(SNAPSHOT) || name.equals(LOG) || name.startsWith(SEGMENT) || name.endsWith(TEMPORARY))
+					&& !logFile.delete()) {
+				throw new IOException("unable to delete " + logFile);
+			}
+		}
+	}
+
+	/**
+	 * Loads the content of the log files in the store then opens the log for appending.
+	 * @param store empty store
+	 */
+	public synchronized void recover(MemoryStore store) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("unable to create the log directory " + directory);
+		}
+		this.store = store;
+		Recovery recovery = new Recovery();
+		recovery.read(new File(directory, SNAPSHOT), false);
+		for (File segment : getSegments()) {
+			recovery.read(segment, false);
+		}
+		File logFile = new File(directory, LOG);
+		long validSize = recovery.read(logFile, true);
+		if (logFile.exists() && logFile.length() > validSize) {
+			LOGGER.warn("Discarding " + (logFile.length() - validSize) + " bytes of incomplete record at the end of "
+					+ logFile);
+			try (RandomAccessFile truncated = new RandomAccessFile(logFile, "rw")) {
+				truncated.setLength(validSize);
+			}
+		}
+		recovery.load(store);
+		open();
+		LOGGER.info("Recovered " + store.size() + " resources from " + directory);
+	}
+
+	/**
+	 * Appends the changes of a transaction.
+	 * @param batch changes of the transaction
+	 */
+	public void append(LogBatch batch) throws IOException {
+		byte[] payload = batch.encode(codec);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		synchronized (this) {
+			if (out == null) {
+				throw new IOException("log closed");
+			}
+			out.writeInt(payload.length);
+			out.writeInt((int) crc.getValue());
+			out.write(payload);
+			out.flush();
+			if (sync) {
+				file.getFD().sync();
+			}
+			size += payload.length + 8;
+			if (size > snapshotSize && !compacting) {
+				seal();
+			}
+		}
+	}
+
+	/**
+	 * Closes the log, waiting for the snapshot being written if any.
+	 */
+	public void close() throws IOException {
+		compactor.shutdown();
+		try {
+			compactor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (out != null) {
+				out.close();
+				out = null;
+			}
+		}
+	}
+
+	private void open() throws IOException {
+		File logFile = new File(directory, LOG);
+		file = new FileOutputStream(logFile, true);
+		out = new DataOutputStream(new BufferedOutputStream(file));
+		size = logFile.length();
+	}
+
+	/**
+	 * Seals the current log into a segment and writes a snapshot in the background.
+	 * Called with the lock of the log held.
+	 */
+	private void seal() throws IOException {
+		out.close();
+		final int segment = lastSegment + 1;
+		File sealed = new File(directory, SEGMENT + segment);
+		Files.move(new File(directory, LOG).toPath(), sealed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		lastSegment = segment;
+		open();
+		compacting = true;
+		compactor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					writeSnapshot(segment);
+				} catch (IOException | RuntimeException e) {
+					LOGGER.error("Error writing the snapshot of the in-memory database, the log is kept", e);
+				} finally {
+					synchronized (WriteAheadLog.this) {
+						compacting = false;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Writes the current state of the store, then deletes the segments it replaces.
+	 * The changes made meanwhile are also in the current log, replayed after the snapshot.
+	 * @param segment last sealed segment
+	 */
+	private void writeSnapshot(int segment) throws IOException {
+		long start = System.currentTimeMillis();
+		File temporary = new File(directory, SNAPSHOT + TEMPORARY);
+		try (FileOutputStream snapshotFile = new FileOutputStream(temporary)) {
+			DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(snapshotFile));
+			List<byte[]> entities = new ArrayList<byte[]>(SNAPSHOT_BATCH);
+			for (ResourceEntity entity : store.getAll()) {
+				entities.add(encodeOperation(LogBatch.PUT_RESOURCE, entity));
+				if (entities.size() == SNAPSHOT_BATCH) {
+					writeRecord(snapshotOut, entities);
+				}
+			}
+			for (CreatedAnnouncedResourceEntity announced : store.getAnnouncedResources()) {
+				entities.add(encodeOperation(LogBatch.PUT_ANNOUNCED, announced));
+			}
+			for (AccessControlOriginatorEntity originator : store.getOriginators()) {
+				entities.add(encodeOperation(LogBatch.PUT_ORIGINATOR, originator));
+			}
+			writeRecord(snapshotOut, entities);
+			snapshotOut.flush();
+			snapshotFile.getFD().sync();
+		}
+		Files.move(temporary.toPath(), new File(directory, SNAPSHOT).toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		for (File sealed : getSegments()) {
+			if (segmentNumber(sealed) <= segment && !sealed.delete()) {
+				LOGGER.warn("Unable to delete " + sealed);
+			}
+		}
+		LOGGER.info("Snapshot of " + store.size() + " resources written in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private byte[] encodeOperation(byte operation, Object entity) throws IOException {
+		byte[] encoded = LogBatch.encode(codec, entity);
+		byte[] withOperation = new byte[encoded.length + 1];
+		withOperation[0] = operation;
+		System.arraycopy(encoded, 0, withOperation, 1, encoded.length);
+		return withOperation;
+	}
+
+	private static void writeRecord(DataOutputStream out, List<byte[]> operations) throws IOException {
+		int length = 4;
+		for (byte[] operation : operations) {
+			length += operation.length;
+		}
+		byte[] payload = new byte[length];
+		payload[0] = (byte) (operations.size() >>> 24);
+		payload[1] = (byte) (operations.size() >>> 16);
+		payload[2] = (byte) (operations.size() >>> 8);
+		payload[3] = (byte) operations.size();
+		int position = 4;
+		for (byte[] operation : operations) {
+			System.arraycopy(operation, 0, payload, position, operation.length);
+			position += operation.length;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		out.writeInt(payload.length);
+		out.writeInt((int) crc.getValue());
+		out.write(payload);
+		operations.clear();
+	}
+
+	/**
+	 * @return the sealed segments, oldest first
+	 */
+	private List<File> getSegments() {
+		List<File> segments = new ArrayList<File>();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File segment : files) {
+				if (segmentNumber(segment) > 0) {
+					segments.add(segment);
+				}
+			}
+		}
+		Collections.sort(segments, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Integer.compare(segmentNumber(f1), segmentNumber(f2));
+			}
+		});
+		if (!segments.isEmpty()) {
+			lastSegment = Math.max(lastSegment, segmentNumber(segments.get(segments.size() - 1)));
+		}
+		return segments;
+	}
+
+	private static int segmentNumber(File segment) {
+		String name = segment.getName();
+		if (!name.startsWith(SEGMENT)) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(name.substring(SEGMENT.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * State rebuilt from the log files. The references between resources are
+	 * resolved once all the files are read.
+	 */
+	private final class Recovery {
+
+		private final Map<String, ResourceEntity> resources = new LinkedHashMap<String, ResourceEntity>();
+		/** References to be resolved by resource holding them */
+		private final Map<String, List<EntityCodec.Unresolved>> unresolved = new LinkedHashMap<String, List<EntityCodec.Unresolved>>();
+		private final Map<Long, CreatedAnnouncedResourceEntity> announcedResources = new LinkedHashMap<Long, CreatedAnnouncedResourceEntity>();
+		private final Map<String, AccessControlOriginatorEntity> originators = new LinkedHashMap<String, AccessControlOriginatorEntity>();
+
+		/**
+		 * Applies the records of a file.
+		 * @param logFile file to be read
+		 * @param tolerateTail true if an incomplete record may end the file
+		 * @return the size of the valid records
+		 */
+		long read(File logFile, boolean tolerateTail) throws IOException {
+			if (!logFile.exists()) {
+				return 0;
+			}
+			long position = 0;
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+				while (true) {
+					byte[] payload;
+					try {
+						int length = in.readInt();
+						int checksum = in.readInt();
+						if (length < 4 || length > logFile.length() - position - 8) {
+							throw new EOFException("invalid record length " + length);
+						}
+						payload = new byte[length];
+						in.readFully(payload);
+						CRC32 crc = new CRC32();
+						crc.update(payload);
+						if ((int) crc.getValue() != checksum) {
+							throw new EOFException("invalid record checksum");
+						}
+					} catch (EOFException e) {
+						if (position < logFile.length() && !tolerateTail) {
+							throw new IOException("corrupted record at " + position + " of " + logFile, e);
+						}
+						return position;
+					}
+					apply(payload);
+					position += payload.length + 8;
+				}
+			}
+		}
+
+		private void apply(byte[] payload) throws IOException {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+			int operations = in.readInt();
+			for (int i = 0; i < operations; i++) {
+				byte operation = in.readByte();
+				switch (operation) {
+				case LogBatch.PUT_RESOURCE:
+					List<EntityCodec.Unresolved> references = new ArrayList<EntityCodec.Unresolved>();
+					ResourceEntity entity = (ResourceEntity) codec.readEntity(in, references);
+					// keeps the position of a resource already read
+					resources.put(entity.getResourceID(), entity);
+					unresolved.put(entity.getResourceID(), references);
+					break;
+				case LogBatch.DELETE_RESOURCE:
+					String resourceID = EntityCodec.readString(in);
+					resources.remove(resourceID);
+					unresolved.remove(resourceID);
+					break;
+				case LogBatch.PUT_ANNOUNCED:
+					CreatedAnnouncedResourceEntity announced = (CreatedAnnouncedResourceEntity) codec.readEntity(in,
+							new ArrayList<EntityCodec.Unresolved>());
+					announcedResources.put(announced.getId(), announced);
+					break;
+				case LogBatch.DELETE_ANNOUNCED:
+					announcedResources.remove(in.readLong());
+					break;
+				case LogBatch.PUT_ORIGINATOR:
+					AccessControlOriginatorEntity originator = (AccessControlOriginatorEntity) codec.readEntity(in,
+							new ArrayList<EntityCodec.Unresolved>());
+					originators.put(originator.getOriginatorID(), originator);
+					break;
+				case LogBatch.DELETE_ORIGINATOR:
+					originators.remove(EntityCodec.readString(in));
+					break;
+				default:
+					throw new IOException("unknown log operation " + operation);
+				}
+			}
+		}
+
+		/**
+		 * Stores the rebuilt state, resolves the references and links the children to their parents.
+		 * @param store empty store
+		 */
+		void load(MemoryStore store) {
+			for (ResourceEntity entity : resources.values()) {
+				store.put(entity);
+			}
+			for (List<EntityCodec.Unresolved> references : unresolved.values()) {
+				for (EntityCodec.Unresolved reference : references) {
+					reference.resolve(store);
+				}
+			}
+			for (ResourceEntity entity : resources.values()) {
+				store.link(entity);
+			}
+			for (CreatedAnnouncedResourceEntity announced : announcedResources.values()) {
+				store.putAnnounced(announced);
+			}
+			for (AccessControlOriginatorEntity originator : originators.values()) {
+				store.putOriginator(originator);
+			}
+		}
+	}
+
+}
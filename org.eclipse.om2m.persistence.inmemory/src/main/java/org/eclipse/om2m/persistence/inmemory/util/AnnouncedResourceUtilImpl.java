@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.util;
+
+import org.eclipse.om2m.commons.entities.CreatedAnnouncedResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.DBTransactionImpl;
+import org.eclipse.om2m.persistence.inmemory.store.MemoryStore;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.AnnouncedResourceUtil;
+
+public class AnnouncedResourceUtilImpl implements AnnouncedResourceUtil {
+
+	@Override
+	public void create(DBTransaction dbTransaction, CreatedAnnouncedResourceEntity resource) {
+		DBServiceImpl.getInstance().getStore().putAnnounced(resource);
+		((DBTransactionImpl) dbTransaction).getBatch().putAnnounced(resource);
+	}
+
+	@Override
+	public CreatedAnnouncedResourceEntity find(DBTransaction dbTransaction, Object id) {
+		return id instanceof Long ? DBServiceImpl.getInstance().getStore().getAnnounced((Long) id) : null;
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, CreatedAnnouncedResourceEntity resource) {
+		create(dbTransaction, resource);
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, CreatedAnnouncedResourceEntity resource) {
+		MemoryStore store = DBServiceImpl.getInstance().getStore();
+		for (CreatedAnnouncedResourceEntity announced : store.getAnnouncedResources()) {
+			if (announced.getId() == resource.getId()
+					|| (equals(announced.getLocalAnnounceableId(), resource.getLocalAnnounceableId())
+							&& equals(announced.getRemoteAnnouncedId(), resource.getRemoteAnnouncedId()))) {
+				store.removeAnnounced(announced.getId());
+				((DBTransactionImpl) dbTransaction).getBatch().deleteAnnounced(announced.getId());
+			}
+		}
+	}
+
+	@Override
+	public CreatedAnnouncedResourceEntity find(DBTransaction dbTransaction, String localAnnounceableId,
+			String announceCseId) {
+		for (CreatedAnnouncedResourceEntity announced : DBServiceImpl.getInstance().getStore()
+				.getAnnouncedResources()) {
+			if (equals(announced.getLocalAnnounceableId(), localAnnounceableId)
+					&& equals(announced.getAnnounceCseId(), announceCseId)) {
+				return announced;
+			}
+		}
+		return null;
+	}
+
+	private static boolean equals(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
+
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.commons.resource.FilterCriteria;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.store.MemoryStore;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.CompiledFilter;
+import org.eclipse.om2m.persistence.service.util.ComplexFindUtil;
+
+public class ComplexFindUtilImpl implements ComplexFindUtil {
+
+	private static final ComplexFindUtilImpl INSTANCE = new ComplexFindUtilImpl();
+
+	/** Getter of the policies by resource class, the class itself for the classes without policies */
+	private static final ConcurrentMap<Class<?>, Object> ACP_GETTERS = new ConcurrentHashMap<Class<?>, Object>();
+
+	private ComplexFindUtilImpl() {
+	}
+
+	public static ComplexFindUtilImpl getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public List<UriMapperEntity> getChildUrisDis(String rootUri, FilterCriteria filter) {
+		List<UriMapperEntity> uris = new ArrayList<>();
+		MemoryStore store = DBServiceImpl.getInstance().getStore();
+		ResourceEntity root = store.get(rootUri);
+		if (root == null || root.getHierarchicalURI() == null) {
+			return uris;
+		}
+		int resourceType = filter.getResourceType() == null ? -1 : filter.getResourceType().intValue();
+		int limit = filter.getLimit() != null && filter.getLimit().intValue() > 0 ? filter.getLimit().intValue()
+				: Integer.MAX_VALUE;
+		// the root resource and its descendants, from the sorted hierarchical uris
+		for (Map.Entry<String, String> entry : store.getSubtree(root.getHierarchicalURI()).entrySet()) {
+			ResourceEntity resource = store.get(entry.getValue());
+			if (resource == null || resource.getResourceType() == null
+					|| (resourceType != -1 && resource.getResourceType().intValue() != resourceType)) {
+				continue;
+			}
+			UriMapperEntity uriMapperEntity = new UriMapperEntity();
+			uriMapperEntity.setHierarchicalUri(entry.getKey());
+			uriMapperEntity.setNonHierarchicalUri(entry.getValue());
+			uriMapperEntity.setResourceType(resource.getResourceType());
+			uris.add(uriMapperEntity);
+			if (uris.size() == limit) {
+				break;
+			}
+		}
+		return uris;
+	}
+
+	@Override
+	public List<UriMapperEntity> getDiscoveryCandidates(DBTransaction transaction, String rootUri,
+			CompiledFilter filter, String after, int count) {
+		List<UriMapperEntity> uris = new ArrayList<>();
+		MemoryStore store = DBServiceImpl.getInstance().getStore();
+		ResourceEntity root = store.get(rootUri);
+		if (root == null || root.getHierarchicalURI() == null || count <= 0) {
+			return uris;
+		}
+		String rootURI = root.getHierarchicalURI();
+		if (after == null || after.compareTo(rootURI) < 0) {
+			addCandidate(uris, rootURI, root, filter);
+		}
+		for (Map.Entry<String, String> entry : store.getDescendants(rootURI, after).entrySet()) {
+			if (uris.size() == count) {
+				break;
+			}
+			if (filter.isWithinLevel(rootURI, entry.getKey())) {
+				addCandidate(uris, entry.getKey(), store.get(entry.getValue()), filter);
+			}
+		}
+		return uris;
+	}
+
+	private static void addCandidate(List<UriMapperEntity> uris, String hierarchicalURI, ResourceEntity resource,
+			CompiledFilter filter) {
+		if (resource == null || resource.getResourceType() == null || !filter.matches(resource)) {
+			return;
+		}
+		UriMapperEntity uriMapperEntity = new UriMapperEntity();
+		uriMapperEntity.setHierarchicalUri(hierarchicalURI);
+		uriMapperEntity.setNonHierarchicalUri(resource.getResourceID());
+		uriMapperEntity.setResourceType(resource.getResourceType());
+		uriMapperEntity.setAccessControlPolicyIDs(getAccessControlPolicyIDs(resource));
+		uris.add(uriMapperEntity);
+	}
+
+	/**
+	 * @return the ids of the policies of the resource, null if its class
+	 *         does not hold policies
+	 */
+	private static List<String> getAccessControlPolicyIDs(ResourceEntity resource) {
+		if (resource.getResourceType().intValue() == ResourceType.ACCESS_CONTROL_POLICY) {
+			// a policy is checked with its own privileges
+			return Collections.singletonList(resource.getResourceID());
+		}
+		Object getter = ACP_GETTERS.get(resource.getClass());
+		if (getter == null) {
+			try {
+				getter = resource.getClass().getMethod("getAccessControlPolicies");
+			} catch (NoSuchMethodException e) {
+				getter = resource.getClass();
+			}
+			ACP_GETTERS.put(resource.getClass(), getter);
+		}
+		if (!(getter instanceof Method)) {
+			return null;
+		}
+		try {
+			List<String> acpIDs = new ArrayList<>();
+			for (Object acp : (List<?>) ((Method) getter).invoke(resource)) {
+				acpIDs.add(((AccessControlPolicyEntity) acp).getResourceID());
+			}
+			return acpIDs;
+		} catch (IllegalAccessException | InvocationTargetException | ClassCastException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.util;
+
+import org.eclipse.om2m.persistence.service.util.AnnouncedResourceUtil;
+import org.eclipse.om2m.persistence.service.util.ComplexFindUtil;
+import org.eclipse.om2m.persistence.service.util.DBUtilManager;
+import org.eclipse.om2m.persistence.service.util.DynamicAuthorizationConsultationUtil;
+import org.eclipse.om2m.persistence.service.util.RetentionUtil;
+import org.eclipse.om2m.persistence.service.util.UriMapperUtil;
+
+public class DBUtilManagerImpl implements DBUtilManager {
+
+	private final AnnouncedResourceUtil announcedResourceUtil = new AnnouncedResourceUtilImpl();
+
+	@Override
+	public ComplexFindUtil getComplexFindUtil() {
+		return ComplexFindUtilImpl.getInstance();
+	}
+
+	@Override
+	public AnnouncedResourceUtil getAnnouncedResourceUtil() {
+		return announcedResourceUtil;
+	}
+
+	@Override
+	public DynamicAuthorizationConsultationUtil getDynamicAuthorizationConsultationUtil() {
+		return DynamicAuthorizationConsultationUtilImpl.getInstance();
+	}
+
+	@Override
+	public RetentionUtil getRetentionUtil() {
+		return RetentionUtilImpl.getInstance();
+	}
+
+	@Override
+	public UriMapperUtil getUriMapperUtil() {
+		return UriMapperUtilImpl.getInstance();
+	}
+
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.service.util.DynamicAuthorizationConsultationUtil;
+
+public class DynamicAuthorizationConsultationUtilImpl implements DynamicAuthorizationConsultationUtil {
+
+	private static final DynamicAuthorizationConsultationUtilImpl INSTANCE = new DynamicAuthorizationConsultationUtilImpl();
+
+	private static final String GETTER = "getDynamicAuthorizationConsultations";
+
+	/** Getter of the dynamic authorization consultations by resource class, FALSE for the classes without */
+	private final ConcurrentMap<Class<?>, Object> getters = new ConcurrentHashMap<>();
+
+	public static DynamicAuthorizationConsultationUtilImpl getInstance() {
+		return INSTANCE;
+	}
+
+	private DynamicAuthorizationConsultationUtilImpl() {
+	}
+
+	@Override
+	public List<DynamicAuthorizationConsultationEntity> getDynamicAuthorizationConsultations(
+			String nonHierarchicalUri) {
+		List<DynamicAuthorizationConsultationEntity> daces = new ArrayList<>();
+		ResourceEntity resource = DBServiceImpl.getInstance().getStore().get(nonHierarchicalUri);
+		if (resource != null) {
+			daces.addAll(getDynamicAuthorizationConsultations(resource));
+			if (daces.isEmpty()) {
+				// load DACES from its parents
+				daces.addAll(getDynamicAuthorizationConsultations(resource.getParentID()));
+			}
+		}
+		return daces;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<DynamicAuthorizationConsultationEntity> getDynamicAuthorizationConsultations(ResourceEntity resource) {
+		Object getter = getters.get(resource.getClass());
+		if (getter == null) {
+			try {
+				getter = resource.getClass().getMethod(GETTER);
+			} catch (NoSuchMethodException e) {
+				getter = Boolean.FALSE;
+			}
+			getters.put(resource.getClass(), getter);
+		}
+		if (!(getter instanceof Method)) {
+			return new ArrayList<>();
+		}
+		try {
+			List<DynamicAuthorizationConsultationEntity> daces = (List<DynamicAuthorizationConsultationEntity>) ((Method) getter)
+					.invoke(resource);
+			return daces == null ? new ArrayList<DynamicAuthorizationConsultationEntity>() : daces;
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
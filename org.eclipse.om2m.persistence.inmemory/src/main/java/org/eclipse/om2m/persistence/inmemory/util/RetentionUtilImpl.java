@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.DBTransactionImpl;
+import org.eclipse.om2m.persistence.inmemory.dao.ContentInstanceDAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.RetentionUtil;
+
+public class RetentionUtilImpl implements RetentionUtil {
+
+	private static final RetentionUtilImpl INSTANCE = new RetentionUtilImpl();
+
+	private final ContentInstanceDAO contentInstanceDAO = new ContentInstanceDAO();
+
+	private RetentionUtilImpl() {
+	}
+
+	public static RetentionUtilImpl getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public List<ContentInstanceEntity> findOldest(DBTransaction transaction, String containerID,
+			String createdBefore, int limit) {
+		List<ContentInstanceEntity> instances = new ArrayList<>();
+		Set<String> deletedIDs = ((DBTransactionImpl) transaction).getDeletedIDs();
+		// children in insertion order, thus in creation order
+		for (ResourceEntity child : DBServiceImpl.getInstance().getStore().getChildren(containerID)) {
+			if (instances.size() == limit) {
+				break;
+			}
+			if (!(child instanceof ContentInstanceEntity) || deletedIDs.contains(child.getResourceID())) {
+				continue;
+			}
+			if (createdBefore != null && (child.getCreationTime() == null
+					|| child.getCreationTime().compareTo(createdBefore) >= 0)) {
+				break;
+			}
+			instances.add((ContentInstanceEntity) child);
+		}
+		return instances;
+	}
+
+	@Override
+	public void delete(DBTransaction transaction, ContainerEntity container, List<ContentInstanceEntity> instances) {
+		for (ContentInstanceEntity instance : instances) {
+			contentInstanceDAO.delete(transaction, instance);
+		}
+	}
+
+	@Override
+	public List<String> findContainersWithMaxInstanceAge(DBTransaction transaction) {
+		List<String> resourceIDs = new ArrayList<>();
+		for (ResourceEntity resource : DBServiceImpl.getInstance().getStore().getByType(ResourceType.CONTAINER)) {
+			ContainerEntity container = (ContainerEntity) resource;
+			if (container.getMaxInstanceAge() != null && container.getMaxInstanceAge().signum() > 0) {
+				resourceIDs.add(container.getResourceID());
+			}
+		}
+		return resourceIDs;
+	}
+
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.inmemory.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.persistence.inmemory.DBServiceImpl;
+import org.eclipse.om2m.persistence.inmemory.store.MemoryStore;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.UriMapperUtil;
+
+public class UriMapperUtilImpl implements UriMapperUtil {
+
+	private static final UriMapperUtilImpl INSTANCE = new UriMapperUtilImpl();
+
+	private UriMapperUtilImpl() {
+	}
+
+	public static UriMapperUtilImpl getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public List<UriMapperEntity> findAll(DBTransaction transaction, Collection<String> uris) {
+		MemoryStore store = DBServiceImpl.getInstance().getStore();
+		List<UriMapperEntity> result = new ArrayList<>();
+		for (String uri : uris) {
+			ResourceEntity resource = store.get(uri);
+			if (resource == null) {
+				String resourceID = store.getResourceID(uri);
+				resource = resourceID == null ? null : store.get(resourceID);
+			}
+			if (resource != null && resource.getHierarchicalURI() != null) {
+				UriMapperEntity entity = new UriMapperEntity();
+				entity.setHierarchicalUri(resource.getHierarchicalURI());
+				entity.setNonHierarchicalUri(resource.getResourceID());
+				entity.setResourceType(resource.getResourceType());
+				result.add(entity);
+			}
+		}
+		return result;
+	}
+
+}
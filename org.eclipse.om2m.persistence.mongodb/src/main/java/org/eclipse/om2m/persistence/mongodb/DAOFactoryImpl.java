@@ -32,9 +32,12 @@ import org.eclipse.om2m.commons.entities.UriMapperEntity;
 import org.eclipse.om2m.persistence.mongodb.dao.AccessControlOriginatorEntityDAO;
 import org.eclipse.om2m.persistence.mongodb.dao.AeByAppIdDAO;
 import org.eclipse.om2m.persistence.mongodb.dao.ContainerByNameDAO;
+import org.eclipse.om2m.persistence.mongodb.dao.ContentInstanceEntityDAO;
 import org.eclipse.om2m.persistence.mongodb.dao.CreatedAnnouncedResourceEntityDao;
 import org.eclipse.om2m.persistence.mongodb.dao.DescContainerByParentDAO;
 import org.eclipse.om2m.persistence.mongodb.dao.LabelEntityDao;
+import org.eclipse.om2m.persistence.mongodb.dao.LatestDAO;
+import org.eclipse.om2m.persistence.mongodb.dao.OldestDAO;
 import org.eclipse.om2m.persistence.mongodb.dao.RemoteCSEByIdDAO;
 import org.eclipse.om2m.persistence.mongodb.dao.UriMapperEntityDAO;
 import org.eclipse.om2m.persistence.service.DAO;
@@ -69,8 +72,7 @@ public class DAOFactoryImpl implements DAOFactory {
 
 	@Override
 	public DAO<ContentInstanceEntity> getContentInstanceDAO() {
-		return new DAOImpl<ContentInstanceEntity>(ContentInstanceEntity.class) {
-		};
+		return new ContentInstanceEntityDAO();
 	}
 
 	@Override
@@ -166,8 +168,12 @@ public class DAOFactoryImpl implements DAOFactory {
 
 	@Override
 	public DAO<ContentInstanceEntity> getOldestDAO() {
-		return new DAOImpl<ContentInstanceEntity>(ContentInstanceEntity.class) {
-		};
+		return new OldestDAO();
+	}
+
+	@Override
+	public DAO<ContentInstanceEntity> getLatestDAO() {
+		return new LatestDAO();
 	}
 
 	@Override
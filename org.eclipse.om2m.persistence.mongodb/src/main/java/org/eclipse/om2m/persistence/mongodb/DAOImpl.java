@@ -7,21 +7,38 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.mongodb;
 
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Projections.include;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.om2m.commons.entities.LabelEntity;
 import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.mongodb.util.HierarchicalUriFilters;
+import org.eclipse.om2m.persistence.mongodb.util.LabelIndexImpl;
 import org.eclipse.om2m.persistence.service.DAO;
 import org.eclipse.om2m.persistence.service.DBTransaction;
 
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 
 public abstract class DAOImpl<T extends ResourceEntity> implements DAO<T> {
 
 	private static final Log LOGGER = LogFactory.getLog(DAOImpl.class);
 
+	private static final String LABELS = "LabelsEntities";
+	private static final String LABEL = "label";
 	
 	private final Class clazz;
 	
@@ -35,13 +52,21 @@ public abstract class DAOImpl<T extends ResourceEntity> implements DAO<T> {
 		// convert transaction
 		DBTransactionImpl dbTransactionImpl = (DBTransactionImpl) dbTransaction;
 
-		String json = DBServiceImpl.getInstance().getGson().toJson(resource);
+		DBServiceImpl dbService = DBServiceImpl.getInstance();
+		new LabelIndexImpl(dbTransactionImpl).add(resource);
+		if (dbService.hasCodec(clazz)) {
+			// encoded directly by the codec of the entity
+			dbService.getResourceCollection((Class<T>) clazz).insertOne(resource);
+			return;
+		}
+
+		String json = dbService.getGson().toJson(resource);
 		
 		// convert resource as a Document
 		Document newOject = Document.parse(json);
 
 		// insert document
-		DBServiceImpl.getInstance().getResourceCollection().insertOne(newOject);
+		dbService.getResourceCollection().insertOne(newOject);
 		
 
 	}
@@ -51,13 +76,20 @@ public abstract class DAOImpl<T extends ResourceEntity> implements DAO<T> {
 		// convert transaction
 		DBTransactionImpl dbTransactionImpl = (DBTransactionImpl) dbTransaction;
 
+		DBServiceImpl dbService = DBServiceImpl.getInstance();
+		if (dbService.hasCodec(clazz)) {
+			// decoded once read, the children are loaded out of the driver
+			return (T) dbService.decode(dbService.getRawResourceCollection().find(eq("ResourceID", id)).first(),
+					clazz);
+		}
+
 		// find
-		Document doc = DBServiceImpl.getInstance().getResourceCollection().find(eq("ResourceID", id)).first();
+		Document doc = dbService.getResourceCollection().find(eq("ResourceID", id)).first();
 
 		// convert
 		Object toBeReturned = null;
 		if (doc != null) {
-			toBeReturned = DBServiceImpl.getInstance().getGson().fromJson(doc.toJson(), clazz);
+			toBeReturned = dbService.getGson().fromJson(doc.toJson(), clazz);
 		}
 
 		return (T) toBeReturned;
@@ -68,15 +100,28 @@ public abstract class DAOImpl<T extends ResourceEntity> implements DAO<T> {
 		// convert transaction
 		DBTransactionImpl dbTransactionImpl = (DBTransactionImpl) dbTransaction;
 
+		DBServiceImpl dbService = DBServiceImpl.getInstance();
+		// the label index is rewritten only when the labels change
+		Set<String> storedLabels = findLabels(resource.getResourceID());
+		if (storedLabels != null && !storedLabels.equals(getLabels(resource))) {
+			new LabelIndexImpl(dbTransactionImpl).update(resource);
+		}
+		if (dbService.hasCodec(clazz)) {
+			// replaces nothing if the resource does not exist
+			dbService.getResourceCollection((Class<T>) clazz).replaceOne(eq("ResourceID", resource.getResourceID()),
+					resource);
+			return;
+		}
+
 		// find it first
-		Document doc = DBServiceImpl.getInstance().getResourceCollection().find(eq("ResourceID", resource.getResourceID()))
+		Document doc = dbService.getResourceCollection().find(eq("ResourceID", resource.getResourceID()))
 				.first();
 
 		// update
 		if (doc != null) {
-			String json = DBServiceImpl.getInstance().getGson().toJson(resource);
+			String json = dbService.getGson().toJson(resource);
 			Document newDoc = Document.parse(json);
-			DBServiceImpl.getInstance().getResourceCollection().replaceOne(eq("ResourceID", resource.getResourceID()), newDoc);
+			dbService.getResourceCollection().replaceOne(eq("ResourceID", resource.getResourceID()), newDoc);
 			
 		}
 
@@ -86,20 +131,89 @@ public abstract class DAOImpl<T extends ResourceEntity> implements DAO<T> {
 	public void delete(DBTransaction dbTransaction, T resource) {
 
 		// delete also all this child !
-		delete(resource.getResourceID());
+		delete(new LabelIndexImpl((DBTransactionImpl) dbTransaction), resource.getResourceID());
 	}
 
-	private void delete(Object id) {
-		// delete the resource
-		DBServiceImpl.getInstance().getResourceCollection().deleteMany(eq("ResourceID", id));
+	private void delete(LabelIndexImpl labelIndex, Object id) {
+		MongoCollection<Document> collection = DBServiceImpl.getInstance().getResourceCollection();
+		Document doc = collection.find(eq("ResourceID", id))
+				.projection(include(HierarchicalUriFilters.HIERARCHICAL_URI)).first();
+		String hierarchicalUri = doc == null ? null : doc.getString(HierarchicalUriFilters.HIERARCHICAL_URI);
+		if (hierarchicalUri != null) {
+			// the resource and all its descendants at once
+			Bson filter = or(eq("ResourceID", id), HierarchicalUriFilters.descendants(hierarchicalUri));
+			labelIndex.remove(findLabelled(filter));
+			collection.deleteMany(filter);
+			return;
+		}
+
+		// no hierarchical uri, walk the children
+		labelIndex.remove(findLabelled(eq("ResourceID", id)));
+		collection.deleteMany(eq("ResourceID", id));
+		List<Object> children = new ArrayList<>();
+		for (MongoCursor<Document> cursor = collection.find(eq("ParentID", id))
+				.projection(include("ResourceID")).iterator(); cursor.hasNext();) {
+			children.add(cursor.next().get("ResourceID"));
+		}
+		for (Object idChild : children) {
+			delete(labelIndex, idChild);
+		}
+	}
+
+	/**
+	 * Reads the ids, types and labels of the labelled resources to be
+	 * removed from or added to the label index, not the whole resources.
+	 * @param filter filter of the resources
+	 * @return the labelled resources
+	 */
+	static List<ResourceEntity> findLabelled(Bson filter) {
+		List<ResourceEntity> resources = new ArrayList<>();
+		for (MongoCursor<Document> cursor = DBServiceImpl.getInstance().getResourceCollection()
+				.find(and(filter, exists(LABELS + ".0")))
+				.projection(include("ResourceID", "ResourceType", LABELS + "." + LABEL)).iterator(); cursor.hasNext();) {
+			Document doc = cursor.next();
+			ResourceEntity resource = new ResourceEntity();
+			resource.setResourceID(doc.getString("ResourceID"));
+			Integer resourceType = doc.getInteger("ResourceType");
+			resource.setResourceType(resourceType == null ? null : BigInteger.valueOf(resourceType));
+			for (String label : getLabels(doc)) {
+				resource.getLabelsEntities().add(new LabelEntity(label));
+			}
+			resources.add(resource);
+		}
+		return resources;
+	}
+
+	/**
+	 * @return the labels stored with a resource, null if the resource does not exist
+	 */
+	private static Set<String> findLabels(String resourceID) {
+		Document doc = DBServiceImpl.getInstance().getResourceCollection().find(eq("ResourceID", resourceID))
+				.projection(include(LABELS + "." + LABEL)).first();
+		return doc == null ? null : getLabels(doc);
+	}
+
+	private static Set<String> getLabels(Document doc) {
+		Set<String> labels = new HashSet<>();
+		Object entities = doc.get(LABELS);
+		if (entities instanceof List) {
+			for (Object entity : (List<?>) entities) {
+				if (entity instanceof Document && ((Document) entity).getString(LABEL) != null) {
+					labels.add(((Document) entity).getString(LABEL));
+				}
+			}
+		}
+		return labels;
+	}
 
-		// delete also all this child
-		for (MongoCursor cursor = DBServiceImpl.getInstance().getResourceCollection().find(eq("ParentID", id)).iterator(); cursor
-				.hasNext();) {
-			Document doc = (Document) cursor.next();
-			Object idChild = doc.get("ResourceID");
-			delete(idChild);
+	private static Set<String> getLabels(ResourceEntity resource) {
+		Set<String> labels = new HashSet<>();
+		for (LabelEntity label : resource.getLabelsEntities()) {
+			if (label != null && label.getLabel() != null) {
+				labels.add(label.getLabel());
+			}
 		}
+		return labels;
 	}
 
 }
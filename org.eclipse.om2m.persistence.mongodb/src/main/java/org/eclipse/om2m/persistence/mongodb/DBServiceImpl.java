@@ -3,29 +3,30 @@ package org.eclipse.om2m.persistence.mongodb;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 import org.eclipse.om2m.commons.constants.Constants;
 import org.eclipse.om2m.commons.constants.DBEntities;
-import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
-import org.eclipse.om2m.commons.entities.AeAnncEntity;
-import org.eclipse.om2m.commons.entities.AeEntity;
-import org.eclipse.om2m.commons.entities.CSEBaseEntity;
-import org.eclipse.om2m.commons.entities.ContainerEntity;
-import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
-import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
-import org.eclipse.om2m.commons.entities.FlexContainerEntity;
-import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
-import org.eclipse.om2m.commons.entities.SubscriptionEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.mongodb.lock.MongoLockManager;
+import org.eclipse.om2m.persistence.mongodb.resource.ResourceCodecProvider;
 import org.eclipse.om2m.persistence.mongodb.resource.ResourceSerializerDeserializer;
 import org.eclipse.om2m.persistence.mongodb.util.DBUtilManagerImpl;
+import org.eclipse.om2m.persistence.mongodb.util.LabelIndexImpl;
 import org.eclipse.om2m.persistence.service.DAOFactory;
 import org.eclipse.om2m.persistence.service.DBConstants;
 import org.eclipse.om2m.persistence.service.DBService;
 import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.lock.LocalLockManager;
+import org.eclipse.om2m.persistence.service.lock.LockManager;
 import org.eclipse.om2m.persistence.service.util.DBUtilManager;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.IndexOptions;
@@ -34,11 +35,27 @@ import com.mongodb.client.model.Indexes;
 public class DBServiceImpl implements DBService {
 
 	private MongoCollection<Document> resourceCollection;
+	private MongoCollection<RawBsonDocument> rawResourceCollection;
 	private MongoCollection<Document> announceCollection;
+	private MongoCollection<Document> labelPostingCollection;
+
+	/** Default codecs and the resource entity codecs */
+	private static final CodecRegistry CODEC_REGISTRY = CodecRegistries.fromRegistries(
+			MongoClient.getDefaultCodecRegistry(), CodecRegistries.fromProviders(new ResourceCodecProvider()));
+
+	private static final String RESOURCE_ID = "ResourceID";
+	private static final String HIERARCHICAL_URI = "HierarchicalURI";
+	private static final String PARENT_ID = "ParentID";
+	private static final String RESOURCE_TYPE = "ResourceType";
+	private static final String CREATION_TIME = "CreationTime";
+	private static final String LABEL = "Label";
+	private static final String LOWER_KEY = "LowerKey";
 
-	private GsonBuilder gsonBuilder;
 	private Gson gson;
 
+	/** Local until the database is initialized */
+	private volatile LockManager lockManager = new LocalLockManager();
+
 	private static final Log LOGGER = LogFactory.getLog(DBServiceImpl.class);
 
 	private static final DBServiceImpl INSTANCE = new DBServiceImpl();
@@ -59,60 +76,110 @@ public class DBServiceImpl implements DBService {
 		LOGGER.info("mongoDB database=" + database);
 
 		// resource collection
-		resourceCollection = database.getCollection("om2m_resource");
+		resourceCollection = database.getCollection("om2m_resource").withCodecRegistry(CODEC_REGISTRY);
+		rawResourceCollection = resourceCollection.withDocumentClass(RawBsonDocument.class);
 		LOGGER.info("mongoDB collection=" + resourceCollection);
 
 		// announce collection
 		announceCollection = database.getCollection("om2m_announce");
 
-		if (DBConstants.DB_RESET) {
+		// label index collection
+		labelPostingCollection = database.getCollection("om2m_label_posting");
 
+		if (DBConstants.DB_RESET) {
 			LOGGER.info("delete all");
 			resourceCollection.deleteMany(new Document());
 			resourceCollection.dropIndexes();
-			try {
-				Document doc = new Document();
-				doc.put("HierarchicalURI", 100);
-				// resourceCollection.createIndex(Indexes.ascending("ResourceID",
-				// "HierarchicalURI"),
-				// new IndexOptions().unique(true));
-				resourceCollection.createIndex(Indexes.ascending(
-						"ResourceID"/* , "HierarchicalURI" */)/*
-																 * , new
-																 * IndexOptions(
-																 * ).unique(
-																 * true)
-																 */);
-				resourceCollection.createIndex(Indexes.ascending(/* "ResourceID", */ "HierarchicalURI"),
-						new IndexOptions().unique(true)/*.weights(doc)*/);
-			} catch (Exception e) {
-				e.printStackTrace();
-				LOGGER.error("Can't delete all ", e); //dgo
-			}
-
 			announceCollection.deleteMany(new Document());
 			announceCollection.dropIndexes();
-			announceCollection.createIndex(Indexes.ascending(DBEntities.LOCAL_RESOURCE_ID, DBEntities.ANNOUNCE_CSE_ID,
-					DBEntities.REMOTE_RESOURCE_ID), new IndexOptions().unique(true));
+			labelPostingCollection.deleteMany(new Document());
+			labelPostingCollection.dropIndexes();
+		}
+
+		// created only if they do not exist yet
+		createIndexes();
+
+		if (DBConstants.DB_LOCK_SHARED) {
+			MongoCollection<Document> lockCollection = database.getCollection("om2m_lock");
+			if (DBConstants.DB_RESET) {
+				lockCollection.deleteMany(new Document());
+			}
+			lockManager = new MongoLockManager(lockCollection, DBConstants.DB_LOCK_LEASE);
+		}
+
+		gson = createGson();
+
+		buildLabelIndex();
+	}
+
+	/**
+	 * Builds the label index from the labelled resources if it has not been
+	 * built yet, before the service is registered. The discoveries read the
+	 * resources rather than the index as long as it is not built.
+	 */
+	private void buildLabelIndex() {
+		DBTransactionImpl transaction = new DBTransactionImpl();
+		try {
+			LabelIndexImpl labelIndex = new LabelIndexImpl(transaction);
+			if (!labelIndex.isBuilt()) {
+				LOGGER.info("build label index");
+				labelIndex.build(DAOImpl.findLabelled(new Document()));
+				LOGGER.info("label index built");
+			}
+		} catch (MongoException e) {
+			LOGGER.error("Can't build the label index", e);
+		} finally {
+			transaction.close();
+		}
+	}
+
+	/**
+	 * Creates the indexes of the lookups made by the DAOs and utilities:
+	 * <ul>
+	 * <li>ResourceID for the lookups by id and the $in child loading</li>
+	 * <li>HierarchicalURI for the uri mapping and the anchored prefix queries of
+	 * discovery and subtree deletion</li>
+	 * <li>ParentID, ResourceType and CreationTime for the children of a given
+	 * type, sorted by creation time (oldest and latest content instances)</li>
+	 * <li>ResourceType and HierarchicalURI for the discovery of a given type</li>
+	 * <li>Label, ResourceType and LowerKey for the segments of the label index,
+	 * ResourceType and LowerKey for the segments holding a given resource</li>
+	 * </ul>
+	 */
+	private void createIndexes() {
+		createIndex(resourceCollection, Indexes.ascending(RESOURCE_ID), new IndexOptions());
+		createIndex(resourceCollection, Indexes.ascending(HIERARCHICAL_URI), new IndexOptions().unique(true));
+		createIndex(resourceCollection, Indexes.ascending(PARENT_ID, RESOURCE_TYPE, CREATION_TIME),
+				new IndexOptions());
+		createIndex(resourceCollection, Indexes.ascending(RESOURCE_TYPE, HIERARCHICAL_URI), new IndexOptions());
+		createIndex(announceCollection, Indexes.ascending(DBEntities.LOCAL_RESOURCE_ID, DBEntities.ANNOUNCE_CSE_ID,
+				DBEntities.REMOTE_RESOURCE_ID), new IndexOptions().unique(true));
+		createIndex(labelPostingCollection, Indexes.ascending(LABEL, RESOURCE_TYPE, LOWER_KEY),
+				new IndexOptions().unique(true));
+		createIndex(labelPostingCollection, Indexes.ascending(RESOURCE_TYPE, LOWER_KEY), new IndexOptions());
+	}
+
+	private static void createIndex(MongoCollection<Document> collection, Bson keys, IndexOptions options) {
+		try {
+			collection.createIndex(keys, options);
+		} catch (MongoException e) {
+			// e.g. a unique index on a database filled by a former version
+			LOGGER.error("Can't create index " + keys + " on " + collection.getNamespace(), e);
 		}
+	}
 
-		gsonBuilder = new GsonBuilder();
-		gsonBuilder.registerTypeAdapter(CSEBaseEntity.class, new ResourceSerializerDeserializer<CSEBaseEntity>());
-		gsonBuilder.registerTypeAdapter(AccessControlPolicyEntity.class,
-				new ResourceSerializerDeserializer<AccessControlPolicyEntity>());
-		gsonBuilder.registerTypeAdapter(AeEntity.class, new ResourceSerializerDeserializer<AeEntity>());
-		gsonBuilder.registerTypeAdapter(FlexContainerEntity.class,
-				new ResourceSerializerDeserializer<FlexContainerEntity>());
-		gsonBuilder.registerTypeAdapter(ContainerEntity.class, new ResourceSerializerDeserializer<ContainerEntity>());
-		gsonBuilder.registerTypeAdapter(SubscriptionEntity.class,
-				new ResourceSerializerDeserializer<SubscriptionEntity>());
-		gsonBuilder.registerTypeAdapter(RemoteCSEEntity.class, new ResourceSerializerDeserializer<RemoteCSEEntity>());
-		gsonBuilder.registerTypeAdapter(AeAnncEntity.class, new ResourceSerializerDeserializer<AeAnncEntity>());
-		gsonBuilder.registerTypeAdapter(FlexContainerAnncEntity.class,
-				new ResourceSerializerDeserializer<FlexContainerAnncEntity>());
-		gsonBuilder.registerTypeAdapter(DynamicAuthorizationConsultationEntity.class,
-				new ResourceSerializerDeserializer<DynamicAuthorizationConsultationEntity>());
-		gson = gsonBuilder.create();
+	/**
+	 * Creates the Gson instance serializing the resource entities, still used
+	 * for the entities without codec.
+	 * @return a new Gson instance
+	 */
+	@SuppressWarnings("rawtypes")
+	public static Gson createGson() {
+		GsonBuilder gsonBuilder = new GsonBuilder();
+		for (Class<? extends ResourceEntity> entityClass : ResourceCodecProvider.ENTITY_CLASSES) {
+			gsonBuilder.registerTypeAdapter(entityClass, new ResourceSerializerDeserializer());
+		}
+		return gsonBuilder.create();
 	}
 
 	@Override
@@ -134,10 +201,64 @@ public class DBServiceImpl implements DBService {
 		return resourceCollection;
 	}
 
+	/**
+	 * Resource collection returning the documents as read from the database,
+	 * to be decoded with {@link #decode(RawBsonDocument, Class)} out of the driver.
+	 * @return the resource collection
+	 */
+	public MongoCollection<RawBsonDocument> getRawResourceCollection() {
+		return rawResourceCollection;
+	}
+
+	/**
+	 * Resource collection encoding the entities with their codec.
+	 * @param clazz entity class, see {@link #hasCodec(Class)}
+	 * @return the resource collection
+	 */
+	public <T> MongoCollection<T> getResourceCollection(Class<T> clazz) {
+		return resourceCollection.withDocumentClass(clazz);
+	}
+
+	/**
+	 * @param clazz entity class
+	 * @return true if the entities of this class are encoded with a codec
+	 */
+	public boolean hasCodec(Class<?> clazz) {
+		return ResourceCodecProvider.isResource(clazz);
+	}
+
+	/**
+	 * Decodes a document read from the resource collection.
+	 * @param document document read, may be null
+	 * @param clazz entity class, see {@link #hasCodec(Class)}
+	 * @return the entity or null
+	 */
+	public <T> T decode(RawBsonDocument document, Class<T> clazz) {
+		return document == null ? null : document.decode(CODEC_REGISTRY.get(clazz));
+	}
+
+	public CodecRegistry getCodecRegistry() {
+		return CODEC_REGISTRY;
+	}
+
 	public MongoCollection<Document> getAnnounceCollection() {
 		return announceCollection;
 	}
 
+	/**
+	 * @return the collection of the label index segments
+	 */
+	public MongoCollection<Document> getLabelPostingCollection() {
+		return labelPostingCollection;
+	}
+
+	/**
+	 * @return the manager of the resource locks of the transactions
+	 */
+	public LockManager getLockManager() {
+		return lockManager;
+	}
+
 	public Gson getGson() {
 		return gson;
 	}
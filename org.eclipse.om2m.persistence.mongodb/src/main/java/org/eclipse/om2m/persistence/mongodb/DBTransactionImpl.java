@@ -7,21 +7,21 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.mongodb;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.persistence.service.DBConstants;
 import org.eclipse.om2m.persistence.service.DBTransaction;
 
 public class DBTransactionImpl implements DBTransaction {
 	
 	private static final Log LOGGER = LogFactory.getLog(DBTransactionImpl.class);
 
-	private static final Set<String> GLOBAL_LOCKED_OBJECTS = new HashSet<>();
-
 	private final UUID uuid;
 	private final Set<String> lockedObjects;
 
@@ -29,7 +29,7 @@ public class DBTransactionImpl implements DBTransaction {
 
 	public DBTransactionImpl() {
 		uuid = UUID.randomUUID();
-		lockedObjects = new HashSet<>();
+		lockedObjects = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 	}
 
 	@Override
@@ -40,18 +40,19 @@ public class DBTransactionImpl implements DBTransaction {
 	@Override
 	public void commit() {
 		LOGGER.info("commit() for trasaction " + uuid);
-		Set<String> currentLockedObjects = new HashSet<>();
-		synchronized (lockedObjects) {
-			currentLockedObjects.addAll(lockedObjects);
-		}
-		
-		for(String lockedResourceId : currentLockedObjects) {
-			unlock(lockedResourceId);
-		}
+		unlockAll();
 	}
 
 	@Override
 	public void close() {
+		// locks of a transaction closed without commit, e.g. after a failure
+		unlockAll();
+	}
+
+	private void unlockAll() {
+		for (String lockedResourceId : lockedObjects) {
+			unlock(lockedResourceId);
+		}
 	}
 
 	@Override
@@ -69,19 +70,7 @@ public class DBTransactionImpl implements DBTransaction {
 
 		if (resourceEntityToBeLocked != null) {
 			// handle lock
-			String resourceId = resourceEntityToBeLocked.getResourceID();
-
-			LOGGER.info("request lock for " + resourceId + " by transaction " + uuid);
-			
-			// add global lock (blocking call for 10s max
-			if (addGlobalLock(resourceId)) {
-				synchronized (lockedObjects) {
-					lockedObjects.add(resourceId);
-				}
-			} else {
-				throw new RuntimeException("unable to acquire lock for resource " + resourceId + " by transaction " + uuid);
-			}
-
+			lock(resourceEntityToBeLocked.getResourceID());
 		} else {
 			// does nothing ?
 			throw new RuntimeException();
@@ -89,6 +78,35 @@ public class DBTransactionImpl implements DBTransaction {
 
 	}
 
+	/**
+	 * Locks a resource id or any other key (label index segment...) until
+	 * the transaction is committed or closed.
+	 * @param resourceId key to lock
+	 */
+	public void lock(String resourceId) {
+		LOGGER.info("request lock for " + resourceId + " by transaction " + uuid);
+		
+		if (lockedObjects.contains(resourceId)) {
+			// already held, the transaction is shared by the helpers of a request
+			return;
+		}
+
+		// waits for DB_LOCK_TIMEOUT at most, fails at once on a deadlock
+		boolean acquired;
+		try {
+			acquired = DBServiceImpl.getInstance().getLockManager().lock(resourceId, uuid.toString(),
+					DBConstants.DB_LOCK_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			acquired = false;
+		}
+		if (acquired) {
+			lockedObjects.add(resourceId);
+		} else {
+			throw new RuntimeException("unable to acquire lock for resource " + resourceId + " by transaction " + uuid);
+		}
+	}
+
 	@Override
 	public void unlock(Object object) {
 		LOGGER.info("unlock object=" + object + " for transaction " + uuid);
@@ -106,10 +124,8 @@ public class DBTransactionImpl implements DBTransaction {
 	
 	private void unlock(String resourceId) {
 		LOGGER.debug("try to unlock " + resourceId + " by transaction " + uuid);
-		synchronized (lockedObjects) {
-			 if (lockedObjects.remove(resourceId)) {
-				 removeGlobalLock(resourceId);
-			 }
+		if (lockedObjects.remove(resourceId)) {
+			DBServiceImpl.getInstance().getLockManager().unlock(resourceId, uuid.toString());
 		}
 	}
 
@@ -121,47 +137,4 @@ public class DBTransactionImpl implements DBTransaction {
 		this.childToBeLoaded = childToBeLoaded;
 	}
 
-	/**
-	 * Check if a global lock exists for the provided resourceId
-	 * 
-	 * @param resourceId
-	 * @return true if a lock exists for this resourceId
-	 */
-	private static boolean isExistingLock(final String resourceId) {
-		synchronized (GLOBAL_LOCKED_OBJECTS) {
-			return GLOBAL_LOCKED_OBJECTS.contains(resourceId);
-		}
-	}
-
-	private synchronized static boolean addGlobalLock(final String resourceId) {
-		synchronized (GLOBAL_LOCKED_OBJECTS) {
-
-			long initialTime = System.currentTimeMillis();
-			while (System.currentTimeMillis() < initialTime + 10000) {
-				if (GLOBAL_LOCKED_OBJECTS.contains(resourceId)) {
-					try {
-						GLOBAL_LOCKED_OBJECTS.wait(1000);
-					} catch (InterruptedException e) {
-						return false;
-					}
-				}
-
-				if (!GLOBAL_LOCKED_OBJECTS.contains(resourceId)) {
-					GLOBAL_LOCKED_OBJECTS.add(resourceId);
-					return true;
-				}
-			}
-
-		}
-
-		return false;
-	}
-
-	private synchronized static void removeGlobalLock(final String resourceId) {
-		synchronized (GLOBAL_LOCKED_OBJECTS) {
-			GLOBAL_LOCKED_OBJECTS.remove(resourceId);
-			GLOBAL_LOCKED_OBJECTS.notifyAll();
-		}
-	}
-
 }
@@ -3,7 +3,7 @@ package org.eclipse.om2m.persistence.mongodb.dao;
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
 
-import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.eclipse.om2m.commons.entities.AeEntity;
 import org.eclipse.om2m.commons.entities.ContainerEntity;
 import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
@@ -19,11 +19,11 @@ public class AeByAppIdDAO implements DAO<AeEntity> {
 
 	@Override
 	public AeEntity find(DBTransaction dbTransaction, Object id)  {
-		Document doc = DBServiceImpl.getInstance().getResourceCollection().find(and(eq("api", id), eq("ty", 2))).first();
+		RawBsonDocument doc = DBServiceImpl.getInstance().getRawResourceCollection().find(and(eq("api", id), eq("ty", 2))).first();
 		
 		AeEntity toBeReturned = null;
 		if (doc != null) {
-			toBeReturned = DBServiceImpl.getInstance().getGson().fromJson(doc.toJson(), AeEntity.class);
+			toBeReturned = DBServiceImpl.getInstance().decode(doc, AeEntity.class);
 		}
 		
 		return toBeReturned;
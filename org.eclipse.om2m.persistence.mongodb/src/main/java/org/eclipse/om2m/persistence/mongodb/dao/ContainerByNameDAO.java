@@ -3,7 +3,7 @@ package org.eclipse.om2m.persistence.mongodb.dao;
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
 
-import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.eclipse.om2m.commons.entities.ContainerEntity;
 import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
 import org.eclipse.om2m.persistence.service.DAO;
@@ -18,11 +18,11 @@ public class ContainerByNameDAO implements DAO<ContainerEntity> {
 
 	@Override
 	public ContainerEntity find(DBTransaction dbTransaction, Object id)  {
-		Document doc = DBServiceImpl.getInstance().getResourceCollection().find(and(eq("rn", id), eq("ty", 3))).first();
+		RawBsonDocument doc = DBServiceImpl.getInstance().getRawResourceCollection().find(and(eq("rn", id), eq("ty", 3))).first();
 		
 		ContainerEntity toBeReturned = null;
 		if (doc != null) {
-			toBeReturned = DBServiceImpl.getInstance().getGson().fromJson(doc.toJson(), ContainerEntity.class);
+			toBeReturned = DBServiceImpl.getInstance().decode(doc, ContainerEntity.class);
 		}
 		
 		return toBeReturned;
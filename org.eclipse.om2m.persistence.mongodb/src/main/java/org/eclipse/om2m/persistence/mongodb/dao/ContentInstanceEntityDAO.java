@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.dao;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.ne;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.persistence.mongodb.DAOImpl;
+import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+
+/**
+ * DAO for the content instance entity. It also maintains the latest and
+ * oldest instance ids of the parent container document.
+ */
+public class ContentInstanceEntityDAO extends DAOImpl<ContentInstanceEntity> {
+
+	private static final String LATEST_INSTANCE_ID = "LatestInstanceID";
+	private static final String OLDEST_INSTANCE_ID = "OldestInstanceID";
+
+	public ContentInstanceEntityDAO() {
+		super(ContentInstanceEntity.class);
+	}
+
+	@Override
+	public void create(DBTransaction dbTransaction, ContentInstanceEntity resource) {
+		super.create(dbTransaction, resource);
+
+		String resourceID = resource.getResourceID();
+		Bson parent = eq("ResourceID", resource.getParentID());
+		DBServiceImpl.getInstance().getResourceCollection().updateOne(parent,
+				Updates.set(LATEST_INSTANCE_ID, resourceID));
+
+		ContainerEntity container = resource.getParentContainer();
+		String oldest = container == null ? null : container.getOldestInstanceID();
+		if (oldest == null) {
+			Document doc = DBServiceImpl.getInstance().getResourceCollection().find(parent)
+					.projection(Projections.include(OLDEST_INSTANCE_ID)).first();
+			oldest = doc == null ? null : doc.getString(OLDEST_INSTANCE_ID);
+		}
+		if (oldest == null) {
+			// empty, or holding instances created before the ids were stored
+			oldest = findNeighbour(resource, Sorts.ascending("CreationTime"));
+			if (oldest == null) {
+				oldest = resourceID;
+			}
+			DBServiceImpl.getInstance().getResourceCollection().updateOne(and(parent, eq(OLDEST_INSTANCE_ID, null)),
+					Updates.set(OLDEST_INSTANCE_ID, oldest));
+		}
+
+		if (container != null) {
+			container.setLatestInstanceID(resourceID);
+			if (container.getOldestInstanceID() == null) {
+				container.setOldestInstanceID(oldest);
+			}
+		}
+	}
+
+	@Override
+	public ContentInstanceEntity find(DBTransaction dbTransaction, Object id) {
+		ContentInstanceEntity cin = super.find(dbTransaction, id);
+		if (cin != null && cin.getParentID() != null) {
+			// the parent container provides the access control policies
+			RawBsonDocument doc = DBServiceImpl.getInstance().getRawResourceCollection()
+					.find(and(eq("ResourceID", cin.getParentID()), eq("ResourceType", ResourceType.CONTAINER))).first();
+			if (doc != null) {
+				cin.setParentContainer(DBServiceImpl.getInstance().decode(doc, ContainerEntity.class));
+			}
+		}
+		return cin;
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, ContentInstanceEntity resource) {
+		super.delete(dbTransaction, resource);
+
+		Document parent = DBServiceImpl.getInstance().getResourceCollection()
+				.find(eq("ResourceID", resource.getParentID()))
+				.projection(Projections.include(LATEST_INSTANCE_ID, OLDEST_INSTANCE_ID)).first();
+		if (parent == null) {
+			return;
+		}
+		String resourceID = resource.getResourceID();
+		ContainerEntity container = resource.getParentContainer();
+		if (resourceID.equals(parent.getString(LATEST_INSTANCE_ID))) {
+			String latest = findNeighbour(resource, Sorts.descending("CreationTime"));
+			updateParent(resource, LATEST_INSTANCE_ID, latest);
+			if (container != null) {
+				container.setLatestInstanceID(latest);
+			}
+		}
+		if (resourceID.equals(parent.getString(OLDEST_INSTANCE_ID))) {
+			String oldest = findNeighbour(resource, Sorts.ascending("CreationTime"));
+			updateParent(resource, OLDEST_INSTANCE_ID, oldest);
+			if (container != null) {
+				container.setOldestInstanceID(oldest);
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the id of the first other sibling of a created or deleted content instance.
+	 * @param resource created or deleted content instance
+	 * @param sort ascending for the oldest other instance, descending for the latest one
+	 * @return the id of the sibling or null if the container has no other instance
+	 */
+	private static String findNeighbour(ContentInstanceEntity resource, Bson sort) {
+		Document doc = DBServiceImpl.getInstance().getResourceCollection()
+				.find(and(eq("ParentID", resource.getParentID()), eq("ResourceType", ResourceType.CONTENT_INSTANCE),
+						ne("ResourceID", resource.getResourceID())))
+				.sort(sort).projection(Projections.include("ResourceID")).first();
+		return doc == null ? null : doc.getString("ResourceID");
+	}
+
+	private static void updateParent(ContentInstanceEntity resource, String field, String value) {
+		DBServiceImpl.getInstance().getResourceCollection().updateOne(eq("ResourceID", resource.getParentID()),
+				value == null ? Updates.unset(field) : Updates.set(field, value));
+	}
+
+}
@@ -3,7 +3,7 @@ package org.eclipse.om2m.persistence.mongodb.dao;
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
 
-import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.eclipse.om2m.commons.entities.ContainerEntity;
 import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
 import org.eclipse.om2m.persistence.service.DAO;
@@ -20,11 +20,11 @@ public class DescContainerByParentDAO implements DAO<ContainerEntity> {
 
 	@Override
 	public ContainerEntity find(DBTransaction dbTransaction, Object id)  {
-		Document doc = DBServiceImpl.getInstance().getResourceCollection().find(and(eq("pi", id), eq("ty", 3), eq("rn", DESC))).first();
+		RawBsonDocument doc = DBServiceImpl.getInstance().getRawResourceCollection().find(and(eq("pi", id), eq("ty", 3), eq("rn", DESC))).first();
 		
 		ContainerEntity toBeReturned = null;
 		if (doc != null) {
-			toBeReturned = DBServiceImpl.getInstance().getGson().fromJson(doc.toJson(), ContainerEntity.class);
+			toBeReturned = DBServiceImpl.getInstance().decode(doc, ContainerEntity.class);
 		}
 		
 		return toBeReturned;
@@ -7,11 +7,18 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.mongodb.dao;
 
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.eclipse.om2m.commons.constants.ResourceType;
 import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
 import org.eclipse.om2m.commons.entities.AeAnncEntity;
@@ -29,8 +36,11 @@ import org.eclipse.om2m.commons.entities.NodeAnncEntity;
 import org.eclipse.om2m.commons.entities.NodeEntity;
 import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
 import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
+import org.eclipse.om2m.persistence.mongodb.DBTransactionImpl;
+import org.eclipse.om2m.persistence.mongodb.util.LabelIndexImpl;
 import org.eclipse.om2m.persistence.service.DAO;
 import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.PostingList;
 
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCursor;
@@ -39,6 +49,9 @@ public class LabelEntityDao implements DAO<LabelEntity> {
 	
 	private static final Log LOGGER = LogFactory.getLog(LabelEntityDao.class);
 
+	/** Number of resources read per query */
+	private static final int CHUNK_SIZE = 500;
+
 	@Override
 	public void create(DBTransaction dbTransaction, LabelEntity resource) {
 		// nothing to do
@@ -49,83 +62,103 @@ public class LabelEntityDao implements DAO<LabelEntity> {
 		LOGGER.info("LabelEntityDAO.find(id=" + id + ")");
 		
 		//{"LabelsEntities" : {"label":"object.type/module"}}
-		LabelEntity labelEntity = null;
+		LabelEntity labelEntity = new LabelEntity((String) id);
 		
-		FindIterable<Document> elements = DBServiceImpl.getInstance().getResourceCollection().find(eq("LabelsEntities", eq("label", id)));
-		
-		if (elements != null) {
-			labelEntity = new LabelEntity((String) id);
+		LabelIndexImpl labelIndex = new LabelIndexImpl((DBTransactionImpl) dbTransaction);
+		if (!labelIndex.isBuilt()) {
+			// the resources are read by label until the index is built
+			addResources(labelEntity, DBServiceImpl.getInstance().getRawResourceCollection()
+					.find(eq("LabelsEntities.label", id)));
+			return labelEntity;
+		}
+
+		// the ids are read from the label index, the resources by chunks of ids
+		PostingList ids = labelIndex.find(Collections.singletonList((String) id), null, true);
+		List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+		for (Iterator<String> i = ids.iterator(); i.hasNext();) {
+			chunk.add(i.next());
+			if (chunk.size() < CHUNK_SIZE && i.hasNext()) {
+				continue;
+			}
+			addResources(labelEntity, DBServiceImpl.getInstance().getRawResourceCollection()
+					.find(and(in("ResourceID", chunk), eq("LabelsEntities.label", id))));
+			chunk = new ArrayList<>(CHUNK_SIZE);
+		}
+		return labelEntity;
+	}
+
+	/**
+	 * Adds the resources found to the resources linked to a label.
+	 */
+	private static void addResources(LabelEntity labelEntity, FindIterable<RawBsonDocument> elements) {
+		for(MongoCursor<RawBsonDocument> cursor = elements.iterator(); cursor.hasNext();) {
+			RawBsonDocument element = cursor.next();
 			
-			for(MongoCursor<Document> cursor = elements.iterator(); cursor.hasNext();) {
-				Document element = cursor.next();
-				
-				Integer resourceType = element.getInteger("ResourceType");
-				
-				switch (resourceType) {
-				case ResourceType.AE:
-					AeEntity aeEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), AeEntity.class);
-					labelEntity.getLinkedAe().add(aeEntity);
-					break;
-				case ResourceType.AE_ANNC:
-					AeAnncEntity aeAnncEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), AeAnncEntity.class);
-					labelEntity.getLinkedAeA().add(aeAnncEntity);
-					break;
-				case(ResourceType.CONTENT_INSTANCE):
-					ContentInstanceEntity contentInstanceEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), ContentInstanceEntity.class);
-					labelEntity.getLinkedCin().add(contentInstanceEntity);
-					break;
-				case(ResourceType.CONTAINER):
-					ContainerEntity containerEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), ContainerEntity.class);
-					labelEntity.getLinkedCnt().add(containerEntity);
-					break;
-				case(ResourceType.GROUP):
-					GroupEntity groupEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), GroupEntity.class);
+			int resourceType = element.getInt32("ResourceType").getValue();
+			
+			switch (resourceType) {
+			case ResourceType.AE:
+				AeEntity aeEntity = DBServiceImpl.getInstance().decode(element, AeEntity.class);
+				labelEntity.getLinkedAe().add(aeEntity);
+				break;
+			case ResourceType.AE_ANNC:
+				AeAnncEntity aeAnncEntity = DBServiceImpl.getInstance().decode(element, AeAnncEntity.class);
+				labelEntity.getLinkedAeA().add(aeAnncEntity);
+				break;
+			case(ResourceType.CONTENT_INSTANCE):
+				ContentInstanceEntity contentInstanceEntity = DBServiceImpl.getInstance().decode(element, ContentInstanceEntity.class);
+				labelEntity.getLinkedCin().add(contentInstanceEntity);
+				break;
+			case(ResourceType.CONTAINER):
+				ContainerEntity containerEntity = DBServiceImpl.getInstance().decode(element, ContainerEntity.class);
+				labelEntity.getLinkedCnt().add(containerEntity);
+				break;
+			case(ResourceType.GROUP):
+				GroupEntity groupEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), GroupEntity.class);
 //					labelEntity.getLinkedGroup().add(groupEntity);
-					break;
-				case(ResourceType.REMOTE_CSE):
-					RemoteCSEEntity remoteCseEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), RemoteCSEEntity.class);
-					labelEntity.getLinkedCsr().add(remoteCseEntity);
-					break;
-				case(ResourceType.CSE_BASE):
-					CSEBaseEntity cseBaseEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), CSEBaseEntity.class);
+				break;
+			case(ResourceType.REMOTE_CSE):
+				RemoteCSEEntity remoteCseEntity = DBServiceImpl.getInstance().decode(element, RemoteCSEEntity.class);
+				labelEntity.getLinkedCsr().add(remoteCseEntity);
+				break;
+			case(ResourceType.CSE_BASE):
+				CSEBaseEntity cseBaseEntity = DBServiceImpl.getInstance().decode(element, CSEBaseEntity.class);
 //					labelEntity.getLinkedCsb();
-					break;
-				case (ResourceType.FLEXCONTAINER):
-					FlexContainerEntity flexContainerEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), FlexContainerEntity.class);
-					labelEntity.getLinkedFcnt().add(flexContainerEntity);
+				break;
+			case (ResourceType.FLEXCONTAINER):
+				FlexContainerEntity flexContainerEntity = DBServiceImpl.getInstance().decode(element, FlexContainerEntity.class);
+				labelEntity.getLinkedFcnt().add(flexContainerEntity);
 //					result.addAll(labelEntity.getLinkedFcnt());
-					break;
-				case (ResourceType.FLEXCONTAINER_ANNC):
-					FlexContainerAnncEntity flexContainerAnncEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), FlexContainerAnncEntity.class);
-					labelEntity.getLinkedFcntA().add(flexContainerAnncEntity);
-					break;
-				case (ResourceType.ACCESS_CONTROL_POLICY):
-					AccessControlPolicyEntity accessControlPolicyEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), AccessControlPolicyEntity.class);
-					labelEntity.getLinkedACP().add(accessControlPolicyEntity);
-					break;
-				case(ResourceType.NODE):
-					NodeEntity nodeEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), NodeEntity.class);
-					labelEntity.getLinkedNodes().add(nodeEntity);
-					break;
-				case(ResourceType.NODE_ANNC):
-					NodeAnncEntity nodeAnncEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), NodeAnncEntity.class);
-					labelEntity.getLinkedNodesA().add(nodeAnncEntity);
-					break;
-				case(ResourceType.MGMT_OBJ): 
-					MgmtObjEntity mgmtObjEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), MgmtObjEntity.class);
-					labelEntity.addMgmtObj(mgmtObjEntity);
-					break;
-				case(ResourceType.MGMT_OBJ_ANNC): 
-					MgmtObjAnncEntity mgmtObjAnncEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), MgmtObjAnncEntity.class);
-					labelEntity.addMgmtObjA(mgmtObjAnncEntity);
-					break;
-				default:
-					break;
-				}
-				
+				break;
+			case (ResourceType.FLEXCONTAINER_ANNC):
+				FlexContainerAnncEntity flexContainerAnncEntity = DBServiceImpl.getInstance().decode(element, FlexContainerAnncEntity.class);
+				labelEntity.getLinkedFcntA().add(flexContainerAnncEntity);
+				break;
+			case (ResourceType.ACCESS_CONTROL_POLICY):
+				AccessControlPolicyEntity accessControlPolicyEntity = DBServiceImpl.getInstance().decode(element, AccessControlPolicyEntity.class);
+				labelEntity.getLinkedACP().add(accessControlPolicyEntity);
+				break;
+			case(ResourceType.NODE):
+				NodeEntity nodeEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), NodeEntity.class);
+				labelEntity.getLinkedNodes().add(nodeEntity);
+				break;
+			case(ResourceType.NODE_ANNC):
+				NodeAnncEntity nodeAnncEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), NodeAnncEntity.class);
+				labelEntity.getLinkedNodesA().add(nodeAnncEntity);
+				break;
+			case(ResourceType.MGMT_OBJ): 
+				MgmtObjEntity mgmtObjEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), MgmtObjEntity.class);
+				labelEntity.addMgmtObj(mgmtObjEntity);
+				break;
+			case(ResourceType.MGMT_OBJ_ANNC): 
+				MgmtObjAnncEntity mgmtObjAnncEntity = DBServiceImpl.getInstance().getGson().fromJson(element.toJson(), MgmtObjAnncEntity.class);
+				labelEntity.addMgmtObjA(mgmtObjAnncEntity);
+				break;
+			default:
+				break;
 			}
+			
 		}
-		return labelEntity;
 	}
 
 	@Override
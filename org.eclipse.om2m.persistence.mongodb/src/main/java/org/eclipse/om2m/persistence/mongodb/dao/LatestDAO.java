@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.dao;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+
+import org.bson.RawBsonDocument;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
+import org.eclipse.om2m.persistence.service.DAO;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+import com.mongodb.client.model.Sorts;
+
+/**
+ * Retrieves the latest content instance of a container.
+ */
+public class LatestDAO implements DAO<ContentInstanceEntity> {
+
+	@Override
+	public void create(DBTransaction dbTransaction, ContentInstanceEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+	@Override
+	public ContentInstanceEntity find(DBTransaction dbTransaction, Object id) {
+		RawBsonDocument doc = DBServiceImpl.getInstance().getRawResourceCollection().find(and(eq("ParentID", id), eq("ResourceType", ResourceType.CONTENT_INSTANCE)))
+				.sort(Sorts.descending("CreationTime")).first();
+
+		ContentInstanceEntity toBeReturned = null;
+		if (doc != null) {
+			toBeReturned = DBServiceImpl.getInstance().decode(doc, ContentInstanceEntity.class);
+		}
+
+		return toBeReturned;
+	}
+
+	@Override
+	public void update(DBTransaction dbTransaction, ContentInstanceEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+	@Override
+	public void delete(DBTransaction dbTransaction, ContentInstanceEntity resource) throws RuntimeException {
+		throw new RuntimeException("Not implemented");
+	}
+
+}
@@ -9,7 +9,7 @@ package org.eclipse.om2m.persistence.mongodb.dao;
 
 import static com.mongodb.client.model.Filters.eq;
 
-import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
 import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
 import org.eclipse.om2m.persistence.service.DAO;
@@ -24,12 +24,12 @@ public class RemoteCSEByIdDAO implements DAO<RemoteCSEEntity> {
 	@Override
 	public RemoteCSEEntity find(DBTransaction dbTransaction, Object id) {
 		// find
-		Document doc = DBServiceImpl.getInstance().getResourceCollection().find(eq("RemoteCseId", id)).first();
+		RawBsonDocument doc = DBServiceImpl.getInstance().getRawResourceCollection().find(eq("RemoteCseId", id)).first();
 
 		// convert
 		RemoteCSEEntity toBeReturned = null;
 		if (doc != null) {
-			toBeReturned = DBServiceImpl.getInstance().getGson().fromJson(doc.toJson(), RemoteCSEEntity.class);
+			toBeReturned = DBServiceImpl.getInstance().decode(doc, RemoteCSEEntity.class);
 		}
 
 		return toBeReturned;
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.lock;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.set;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bson.Document;
+import org.eclipse.om2m.persistence.service.lock.LocalLockManager;
+import org.eclipse.om2m.persistence.service.lock.LockManager;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+
+/**
+ * Lock manager shared by the CSE instances using the same database. Each
+ * lock is a document of the lock collection identified by the resource id.
+ * <p>
+ * The transactions of this instance first queue on a {@link LocalLockManager},
+ * so only one of them at a time polls the database for a given resource, and
+ * local deadlocks are still detected. Locks are leases: a lock left by a
+ * stopped instance can be taken over once expired, and is eventually removed
+ * by the TTL index. Deadlocks across instances end with the lock timeout.
+ */
+public class MongoLockManager implements LockManager {
+
+	private static final Log LOGGER = LogFactory.getLog(MongoLockManager.class);
+
+	private static final String ID = "_id";
+	private static final String OWNER = "owner";
+	private static final String EXPIRES = "expires";
+
+	/** Bounds of the delay between two attempts, in ms */
+	private static final long MIN_BACKOFF = 2;
+	private static final long MAX_BACKOFF = 100;
+
+	private final LocalLockManager localLocks = new LocalLockManager();
+	private final MongoCollection<Document> locks;
+	private final long lease;
+
+	/** Prefix of the owners, distinguishes the transactions of several instances */
+	private final String instanceId = UUID.randomUUID().toString();
+
+	/**
+	 * @param locks collection of the lock documents
+	 * @param lease duration of a lock, in ms, after which it can be taken over
+	 */
+	public MongoLockManager(MongoCollection<Document> locks, long lease) {
+		this.locks = locks;
+		this.lease = lease;
+		try {
+			locks.createIndex(Indexes.ascending(EXPIRES), new IndexOptions().expireAfter(0L, TimeUnit.SECONDS));
+		} catch (MongoException e) {
+			LOGGER.error("Can't create the TTL index of the locks", e);
+		}
+	}
+
+	@Override
+	public boolean lock(String resourceId, String owner, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		if (!localLocks.lock(resourceId, owner, timeout)) {
+			return false;
+		}
+		boolean acquired = false;
+		try {
+			long backoff = MIN_BACKOFF;
+			while (!(acquired = tryLock(resourceId, owner))) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				Thread.sleep(Math.min(backoff, remaining));
+				backoff = Math.min(backoff * 2, MAX_BACKOFF);
+			}
+			return true;
+		} finally {
+			if (!acquired) {
+				localLocks.unlock(resourceId, owner);
+			}
+		}
+	}
+
+	@Override
+	public void unlock(String resourceId, String owner) {
+		try {
+			locks.deleteOne(and(eq(ID, resourceId), eq(OWNER, getOwnerId(owner))));
+		} finally {
+			localLocks.unlock(resourceId, owner);
+		}
+	}
+
+	/**
+	 * Creates the lock document, or takes over an expired one.
+	 */
+	private boolean tryLock(String resourceId, String owner) {
+		long now = System.currentTimeMillis();
+		Date expires = new Date(now + lease);
+		String ownerId = getOwnerId(owner);
+		try {
+			locks.insertOne(new Document(ID, resourceId).append(OWNER, ownerId).append(EXPIRES, expires));
+			return true;
+		} catch (MongoWriteException e) {
+			if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+				throw e;
+			}
+		}
+		Document expired = locks.findOneAndUpdate(and(eq(ID, resourceId), lt(EXPIRES, new Date(now))),
+				combine(set(OWNER, ownerId), set(EXPIRES, expires)));
+		if (expired != null) {
+			LOGGER.warn("Expired lock of " + resourceId + " held by " + expired.get(OWNER) + " taken over");
+			return true;
+		}
+		return false;
+	}
+
+	private String getOwnerId(String owner) {
+		return instanceId + "/" + owner;
+	}
+
+}
@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.resource;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * Reads and writes the values that are not resources (labels, access control
+ * rules, lists of strings...) with the layout of the default Gson serialization
+ * used so far: objects are documents of their non static and non transient
+ * fields, null fields are omitted and numbers are stored as parsed from JSON
+ * (int32, int64 if larger, double if decimal).
+ */
+final class GsonCompatibleValues {
+
+	private static final Log LOGGER = LogFactory.getLog(GsonCompatibleValues.class);
+
+	/** Returned by the read methods when the value does not fit the expected type */
+	static final Object SKIPPED = new Object();
+
+	private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+	private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+	/** Serialized fields by class */
+	private static final ConcurrentMap<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+
+	private GsonCompatibleValues() {
+		// static only
+	}
+
+	/**
+	 * Writes a value, the name has already been written if it is a document field.
+	 * @param writer BSON writer
+	 * @param value value to write, null is written as null
+	 */
+	static void writeValue(BsonWriter writer, Object value) {
+		if (value == null) {
+			writer.writeNull();
+		} else if (value instanceof String) {
+			writer.writeString((String) value);
+		} else if (value instanceof Boolean) {
+			writer.writeBoolean((Boolean) value);
+		} else if (value instanceof Number) {
+			writeNumber(writer, (Number) value);
+		} else if (value instanceof Character) {
+			writer.writeString(value.toString());
+		} else if (value instanceof Enum) {
+			writer.writeString(((Enum<?>) value).name());
+		} else if (value instanceof Collection) {
+			writer.writeStartArray();
+			for (Object element : (Collection<?>) value) {
+				writeValue(writer, element);
+			}
+			writer.writeEndArray();
+		} else if (value.getClass().isArray()) {
+			writer.writeStartArray();
+			for (int i = 0; i < Array.getLength(value); i++) {
+				writeValue(writer, Array.get(value, i));
+			}
+			writer.writeEndArray();
+		} else if (value instanceof Map) {
+			writer.writeStartDocument();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (entry.getValue() != null) {
+					writer.writeName(String.valueOf(entry.getKey()));
+					writeValue(writer, entry.getValue());
+				}
+			}
+			writer.writeEndDocument();
+		} else if (ResourceCodecProvider.isResource(value.getClass())) {
+			ResourceCodec.writeResource(writer, (ResourceEntity) value);
+		} else {
+			writeObject(writer, value);
+		}
+	}
+
+	private static void writeNumber(BsonWriter writer, Number number) {
+		if (number instanceof Double || number instanceof Float) {
+			writer.writeDouble(number.doubleValue());
+		} else if (number instanceof BigDecimal) {
+			BigDecimal decimal = (BigDecimal) number;
+			if (decimal.scale() <= 0) {
+				writeInteger(writer, decimal.toBigInteger());
+			} else {
+				writer.writeDouble(decimal.doubleValue());
+			}
+		} else if (number instanceof BigInteger) {
+			writeInteger(writer, (BigInteger) number);
+		} else {
+			writeInteger(writer, number.longValue());
+		}
+	}
+
+	/**
+	 * Writes an integer as int32 if possible, as int64 otherwise.
+	 */
+	static void writeInteger(BsonWriter writer, long value) {
+		if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+			writer.writeInt32((int) value);
+		} else {
+			writer.writeInt64(value);
+		}
+	}
+
+	static void writeInteger(BsonWriter writer, BigInteger value) {
+		if (value.compareTo(MIN_LONG) >= 0 && value.compareTo(MAX_LONG) <= 0) {
+			writeInteger(writer, value.longValue());
+		} else {
+			writer.writeDouble(value.doubleValue());
+		}
+	}
+
+	private static void writeObject(BsonWriter writer, Object value) {
+		writer.writeStartDocument();
+		for (Field field : getFields(value.getClass())) {
+			Object fieldValue;
+			try {
+				fieldValue = field.get(value);
+			} catch (IllegalAccessException e) {
+				LOGGER.debug("Unreadable field " + field, e);
+				continue;
+			}
+			if (fieldValue != null) {
+				writer.writeName(field.getName());
+				writeValue(writer, fieldValue);
+			}
+		}
+		writer.writeEndDocument();
+	}
+
+	/**
+	 * Reads the current value as the expected type.
+	 * @param reader BSON reader positioned on the value
+	 * @param type expected type
+	 * @param loadChildren true to load the children of the nested resources
+	 * @return the value, null or {@link #SKIPPED} if it does not fit the type
+	 */
+	static Object readValue(BsonReader reader, Type type, boolean loadChildren) {
+		Class<?> rawType = getRawType(type);
+		switch (reader.getCurrentBsonType()) {
+		case NULL:
+			reader.readNull();
+			return null;
+		case STRING:
+			return fromString(reader.readString(), rawType);
+		case BOOLEAN:
+			boolean bool = reader.readBoolean();
+			if (rawType == Boolean.class || rawType == boolean.class || rawType == Object.class) {
+				return bool;
+			}
+			return rawType == String.class ? Boolean.toString(bool) : SKIPPED;
+		case INT32:
+			return convertNumber(reader.readInt32(), rawType);
+		case INT64:
+			return convertNumber(reader.readInt64(), rawType);
+		case DOUBLE:
+			return convertNumber(reader.readDouble(), rawType);
+		case DECIMAL128:
+			return convertNumber(reader.readDecimal128().bigDecimalValue(), rawType);
+		case ARRAY:
+			return readArray(reader, type, rawType, loadChildren);
+		case DOCUMENT:
+			if (Map.class.isAssignableFrom(rawType) || rawType == Object.class) {
+				return readMap(reader, loadChildren);
+			}
+			if (ResourceCodecProvider.isResource(rawType)) {
+				return ResourceCodec.readResource(reader, loadChildren);
+			}
+			return readObject(reader, rawType, loadChildren);
+		default:
+			reader.skipValue();
+			return SKIPPED;
+		}
+	}
+
+	private static Object readArray(BsonReader reader, Type type, Class<?> rawType, boolean loadChildren) {
+		if (!Collection.class.isAssignableFrom(rawType) && rawType != Object.class) {
+			reader.skipValue();
+			return SKIPPED;
+		}
+		Type elementType = getElementType(type);
+		List<Object> list = new ArrayList<Object>();
+		reader.readStartArray();
+		while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			Object element = readValue(reader, elementType, loadChildren);
+			if (element != SKIPPED) {
+				list.add(element);
+			}
+		}
+		reader.readEndArray();
+		return list;
+	}
+
+	private static Map<String, Object> readMap(BsonReader reader, boolean loadChildren) {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		reader.readStartDocument();
+		while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			String name = reader.readName();
+			Object value = readValue(reader, Object.class, loadChildren);
+			if (value != SKIPPED) {
+				map.put(name, value);
+			}
+		}
+		reader.readEndDocument();
+		return map;
+	}
+
+	private static Object readObject(BsonReader reader, Class<?> rawType, boolean loadChildren) {
+		Object object;
+		try {
+			Constructor<?> constructor = rawType.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			object = constructor.newInstance();
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Cannot instantiate " + rawType, e);
+			reader.skipValue();
+			return SKIPPED;
+		}
+		Field[] fields = getFields(rawType);
+		reader.readStartDocument();
+		while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			Field field = getField(fields, reader.readName());
+			if (field == null) {
+				reader.skipValue();
+				continue;
+			}
+			Object value = readValue(reader, field.getGenericType(), loadChildren);
+			if (value == SKIPPED || (value == null && field.getType().isPrimitive())) {
+				continue;
+			}
+			try {
+				field.set(object, value);
+			} catch (IllegalAccessException | IllegalArgumentException e) {
+				LOGGER.debug("Cannot set field " + field, e);
+			}
+		}
+		reader.readEndDocument();
+		return object;
+	}
+
+	private static Object fromString(String value, Class<?> rawType) {
+		if (rawType == String.class || rawType == Object.class || rawType == CharSequence.class) {
+			return value;
+		}
+		if (rawType == Boolean.class || rawType == boolean.class) {
+			return Boolean.parseBoolean(value);
+		}
+		if (rawType == Character.class || rawType == char.class) {
+			return value.isEmpty() ? SKIPPED : value.charAt(0);
+		}
+		if (rawType.isEnum()) {
+			for (Object constant : rawType.getEnumConstants()) {
+				if (((Enum<?>) constant).name().equals(value)) {
+					return constant;
+				}
+			}
+			return null;
+		}
+		try {
+			return convertNumber(new BigDecimal(value), rawType);
+		} catch (NumberFormatException e) {
+			return SKIPPED;
+		}
+	}
+
+	/**
+	 * Converts a stored number to the expected type.
+	 * @param number stored number
+	 * @param rawType expected type
+	 * @return the converted number or {@link #SKIPPED}
+	 */
+	static Object convertNumber(Number number, Class<?> rawType) {
+		if (rawType == String.class) {
+			return number.toString();
+		}
+		if (rawType == Object.class) {
+			return number.doubleValue();
+		}
+		if (rawType == Number.class) {
+			return number;
+		}
+		if (rawType == double.class || rawType == Double.class) {
+			return number.doubleValue();
+		}
+		if (rawType == float.class || rawType == Float.class) {
+			return number.floatValue();
+		}
+		if (rawType == BigDecimal.class) {
+			return number instanceof BigDecimal ? number : new BigDecimal(number.toString());
+		}
+		BigInteger integer = toBigInteger(number);
+		if (integer == null) {
+			return SKIPPED;
+		}
+		if (rawType == BigInteger.class) {
+			return integer;
+		}
+		if (rawType == long.class || rawType == Long.class) {
+			return integer.longValue();
+		}
+		if (rawType == int.class || rawType == Integer.class) {
+			return integer.intValue();
+		}
+		if (rawType == short.class || rawType == Short.class) {
+			return integer.shortValue();
+		}
+		if (rawType == byte.class || rawType == Byte.class) {
+			return integer.byteValue();
+		}
+		return SKIPPED;
+	}
+
+	/**
+	 * @return the integer value or null if the number is not an integer
+	 */
+	private static BigInteger toBigInteger(Number number) {
+		if (number instanceof Integer || number instanceof Long) {
+			return BigInteger.valueOf(number.longValue());
+		}
+		try {
+			BigDecimal decimal = number instanceof BigDecimal ? (BigDecimal) number
+					: new BigDecimal(number.doubleValue());
+			return decimal.toBigIntegerExact();
+		} catch (ArithmeticException | NumberFormatException e) {
+			return null;
+		}
+	}
+
+	static Class<?> getRawType(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		}
+		if (type instanceof ParameterizedType) {
+			return getRawType(((ParameterizedType) type).getRawType());
+		}
+		if (type instanceof WildcardType) {
+			return getRawType(((WildcardType) type).getUpperBounds()[0]);
+		}
+		if (type instanceof GenericArrayType) {
+			return Object[].class;
+		}
+		return Object.class;
+	}
+
+	private static Type getElementType(Type collectionType) {
+		if (collectionType instanceof ParameterizedType) {
+			Type[] arguments = ((ParameterizedType) collectionType).getActualTypeArguments();
+			if (arguments.length == 1) {
+				return arguments[0];
+			}
+		}
+		return Object.class;
+	}
+
+	private static Field getField(Field[] fields, String name) {
+		for (Field field : fields) {
+			if (field.getName().equals(name)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Fields serialized by Gson: the ones of the class then of its super classes,
+	 * except the static, transient and synthetic ones.
+	 */
+	private static Field[] getFields(Class<?> clazz) {
+		Field[] fields = FIELDS.get(clazz);
+		if (fields != null) {
+			return fields;
+		}
+		List<Field> list = new ArrayList<Field>();
+		for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+			for (Field field : current.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+					continue;
+				}
+				field.setAccessible(true);
+				list.add(field);
+			}
+		}
+		fields = list.toArray(new Field[list.size()]);
+		FIELDS.putIfAbsent(clazz, fields);
+		return fields;
+	}
+
+}
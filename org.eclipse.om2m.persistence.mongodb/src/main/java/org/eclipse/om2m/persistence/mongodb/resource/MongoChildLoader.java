@@ -7,15 +7,18 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.mongodb.resource;
 
-import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.eclipse.om2m.commons.constants.ResourceType;
 import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
 import org.eclipse.om2m.commons.entities.AeAnncEntity;
@@ -32,45 +35,91 @@ import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.mongodb.client.MongoCursor;
 
 public class MongoChildLoader<T extends ResourceEntity> {
 
-	public List<? extends ResourceEntity> loadChilds(T t, JsonArray json) {
+	/** Maximum number of ids of a single $in query */
+	private static final int BATCH_SIZE = 500;
 
-		List toBeReturned = new ArrayList<>();
-		Class clazz = null;
+	public List<? extends ResourceEntity> loadChilds(T t, JsonArray json) {
 
+		List<Reference> references = new ArrayList<>();
 		for (Iterator<JsonElement> iterator = json.iterator(); iterator.hasNext();) {
 			JsonObject jsonObject = (JsonObject) iterator.next();
 
 			String resourceId = jsonObject.get("ResourceID").getAsString();
 			BigInteger resourceType = jsonObject.get("ResourceType").getAsBigInteger();
+			references.add(new Reference(resourceId, resourceType.intValue()));
+		}
 
-			Class objectClass = getEntityClass(resourceType.intValue());
-			if (objectClass == null) {
+		List toBeReturned = new ArrayList<>();
+		Map<String, RawBsonDocument> docs = findAll(references);
+		for (Reference reference : references) {
+			Class objectClass = getEntityClass(reference.resourceType);
+			RawBsonDocument raw = docs.get(reference.resourceId);
+			if (objectClass == null || raw == null) {
 				continue;
 			}
-
-			Document doc = DBServiceImpl.getInstance().getResourceCollection().find(eq("ResourceID", resourceId)).first();
-
-			if (doc != null) {
-				for (Iterator<Entry<String, Object>> it = doc.entrySet().iterator(); it.hasNext();) {
-					Entry<String, Object> entry = it.next();
-					if (entry.getKey().startsWith("#")) {
-						it.remove();
-					}
+			Document doc = raw.decode(DBServiceImpl.getInstance().getCodecRegistry().get(Document.class));
+			for (Iterator<Entry<String, Object>> it = doc.entrySet().iterator(); it.hasNext();) {
+				Entry<String, Object> entry = it.next();
+				if (entry.getKey().startsWith("#")) {
+					it.remove();
 				}
+			}
+
+			Object object = DBServiceImpl.getInstance().getGson().fromJson(doc.toJson(), objectClass);
+			toBeReturned.add(object);
+		}
 
-				Object object = DBServiceImpl.getInstance().getGson().fromJson(doc.toJson(), objectClass);
-				toBeReturned.add(object);
+		return toBeReturned;
+	}
 
+	/**
+	 * Loads the referenced resources without their own children.
+	 * @param references id and type of the resources
+	 * @return the resources found, in the order of the references
+	 */
+	static List<ResourceEntity> loadChilds(List<Reference> references) {
+		List<ResourceEntity> toBeReturned = new ArrayList<>();
+		Map<String, RawBsonDocument> docs = findAll(references);
+		for (Reference reference : references) {
+			Class objectClass = getEntityClass(reference.resourceType);
+			RawBsonDocument doc = docs.get(reference.resourceId);
+			if (objectClass != null && doc != null) {
+				toBeReturned.add((ResourceEntity) doc.decode(new ResourceCodec(objectClass, false)));
 			}
 		}
-
 		return toBeReturned;
 	}
 
-	private Class getEntityClass(int resourceType) {
+	/**
+	 * Reads the referenced resources of a known type with $in queries
+	 * instead of one query per resource.
+	 * @param references id and type of the resources
+	 * @return the documents found by resource id
+	 */
+	private static Map<String, RawBsonDocument> findAll(List<Reference> references) {
+		Map<String, RawBsonDocument> docs = new HashMap<>();
+		List<String> ids = new ArrayList<>();
+		for (Reference reference : references) {
+			if (getEntityClass(reference.resourceType) != null) {
+				ids.add(reference.resourceId);
+			}
+		}
+		for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+			List<String> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+			for (MongoCursor<RawBsonDocument> cursor = DBServiceImpl.getInstance().getRawResourceCollection()
+					.find(in("ResourceID", batch)).iterator(); cursor.hasNext();) {
+				RawBsonDocument doc = cursor.next();
+				docs.put(doc.getString("ResourceID").getValue(), doc);
+			}
+		}
+		return docs;
+	}
+
+	private static Class getEntityClass(int resourceType) {
 		switch (resourceType) {
 		case ResourceType.AE:
 			return AeEntity.class;
@@ -95,4 +144,17 @@ public class MongoChildLoader<T extends ResourceEntity> {
 		}
 	}
 
+	/**
+	 * Reference to a child resource.
+	 */
+	static final class Reference {
+		private final String resourceId;
+		private final int resourceType;
+
+		Reference(String resourceId, int resourceType) {
+			this.resourceId = resourceId;
+			this.resourceType = resourceType;
+		}
+	}
+
 }
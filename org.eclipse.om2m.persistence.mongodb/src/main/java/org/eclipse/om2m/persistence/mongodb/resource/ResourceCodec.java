@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.resource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * Encodes and decodes a resource entity directly from and to BSON, with the
+ * document layout of {@link ResourceSerializerDeserializer}: one field per
+ * getter of the entity, named after the getter, and the lists of resources
+ * stored as references in a field prefixed by '#'.
+ * <p>
+ * Referenced resources are loaded when the codec loads the children, the
+ * loaded children do not load theirs.
+ *
+ * @param <T> entity class
+ */
+public class ResourceCodec<T extends ResourceEntity> implements Codec<T> {
+
+	private static final Log LOGGER = LogFactory.getLog(ResourceCodec.class);
+
+	private static final String RESOURCE_ID = "ResourceID";
+	private static final String RESOURCE_TYPE = "ResourceType";
+	private static final String REFERENCES_PREFIX = "#";
+
+	/** Properties by entity class */
+	private static final ConcurrentMap<Class<?>, Properties> PROPERTIES = new ConcurrentHashMap<Class<?>, Properties>();
+
+	private final Class<T> clazz;
+	private final boolean loadChildren;
+
+	/**
+	 * @param clazz entity class
+	 * @param loadChildren true to load the referenced resources
+	 */
+	public ResourceCodec(Class<T> clazz, boolean loadChildren) {
+		this.clazz = clazz;
+		this.loadChildren = loadChildren;
+	}
+
+	@Override
+	public Class<T> getEncoderClass() {
+		return clazz;
+	}
+
+	@Override
+	public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+		writeResource(writer, value);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T decode(BsonReader reader, DecoderContext decoderContext) {
+		return (T) readResource(reader, loadChildren);
+	}
+
+	/**
+	 * Writes the document of a resource.
+	 * @param writer BSON writer
+	 * @param resource entity to write
+	 */
+	static void writeResource(BsonWriter writer, ResourceEntity resource) {
+		writer.writeStartDocument();
+		for (Property property : getProperties(resource.getClass()).getters.values()) {
+			Object value;
+			try {
+				value = property.getter.invoke(resource);
+			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+				LOGGER.debug("Property " + property.name + " not written", e);
+				continue;
+			}
+			if (property.references) {
+				writeReferences(writer, property.name, (List<?>) value);
+			} else if (value != null) {
+				writer.writeName(property.name);
+				GsonCompatibleValues.writeValue(writer, value);
+			}
+		}
+		writer.writeEndDocument();
+	}
+
+	/**
+	 * Writes the id and the type of the referenced resources. The property is
+	 * not written if one of them has no id or no type.
+	 */
+	private static void writeReferences(BsonWriter writer, String name, List<?> resources) {
+		if (resources != null) {
+			for (Object resource : resources) {
+				if (resource != null && (((ResourceEntity) resource).getResourceID() == null
+						|| ((ResourceEntity) resource).getResourceType() == null)) {
+					return;
+				}
+			}
+		}
+		writer.writeStartArray(name);
+		if (resources != null) {
+			for (Object resource : resources) {
+				if (resource != null) {
+					ResourceEntity entity = (ResourceEntity) resource;
+					writer.writeStartDocument();
+					writer.writeString(RESOURCE_ID, entity.getResourceID());
+					writer.writeName(RESOURCE_TYPE);
+					GsonCompatibleValues.writeInteger(writer, entity.getResourceType());
+					writer.writeEndDocument();
+				}
+			}
+		}
+		writer.writeEndArray();
+	}
+
+	/**
+	 * Reads the document of a resource. The entity class is given by the
+	 * resource type of the document.
+	 * @param reader BSON reader positioned on the document
+	 * @param loadChildren true to load the referenced resources
+	 * @return the entity or null if the resource type is not handled
+	 */
+	static ResourceEntity readResource(BsonReader reader, boolean loadChildren) {
+		reader.readStartDocument();
+		BigInteger resourceType = readResourceType(reader);
+		ResourceEntity resource = resourceType == null ? null
+				: ResourceSerializerDeserializer.newEntity(resourceType);
+		if (resource == null) {
+			while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+				reader.skipName();
+				reader.skipValue();
+			}
+			reader.readEndDocument();
+			return null;
+		}
+		resource.setResourceType(resourceType);
+		Properties properties = getProperties(resource.getClass());
+		while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			String name = reader.readName();
+			BsonType type = reader.getCurrentBsonType();
+			if (name.equals(RESOURCE_TYPE)) {
+				reader.skipValue();
+			} else if (name.startsWith(REFERENCES_PREFIX)) {
+				Method setter = properties.getSetter(name.substring(REFERENCES_PREFIX.length()));
+				if (type != BsonType.ARRAY || setter == null || !loadChildren) {
+					reader.skipValue();
+				} else {
+					set(resource, setter, MongoChildLoader.loadChilds(readReferences(reader)));
+				}
+			} else {
+				Method setter = properties.getSetter(name);
+				if (setter == null || !isStoredType(type)) {
+					reader.skipValue();
+				} else if (type == BsonType.STRING) {
+					set(resource, setter, reader.readString());
+				} else if (type == BsonType.BOOLEAN) {
+					set(resource, setter, reader.readBoolean());
+				} else {
+					Object value = GsonCompatibleValues.readValue(reader, setter.getGenericParameterTypes()[0],
+							loadChildren);
+					if (value != GsonCompatibleValues.SKIPPED) {
+						set(resource, setter, value);
+					}
+				}
+			}
+		}
+		reader.readEndDocument();
+		return resource;
+	}
+
+	/**
+	 * @return true for the types read back by {@link ResourceSerializerDeserializer}
+	 */
+	private static boolean isStoredType(BsonType type) {
+		switch (type) {
+		case STRING:
+		case BOOLEAN:
+		case INT32:
+		case INT64:
+		case DOUBLE:
+		case ARRAY:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Finds the resource type then goes back to the beginning of the document.
+	 */
+	private static BigInteger readResourceType(BsonReader reader) {
+		reader.mark();
+		try {
+			while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+				if (!reader.readName().equals(RESOURCE_TYPE)) {
+					reader.skipValue();
+					continue;
+				}
+				Object value = GsonCompatibleValues.readValue(reader, BigInteger.class, false);
+				return value instanceof BigInteger ? (BigInteger) value : null;
+			}
+			return null;
+		} finally {
+			reader.reset();
+		}
+	}
+
+	private static List<MongoChildLoader.Reference> readReferences(BsonReader reader) {
+		List<MongoChildLoader.Reference> references = new ArrayList<MongoChildLoader.Reference>();
+		reader.readStartArray();
+		while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			if (reader.getCurrentBsonType() != BsonType.DOCUMENT) {
+				reader.skipValue();
+				continue;
+			}
+			String resourceID = null;
+			Object resourceType = null;
+			reader.readStartDocument();
+			while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+				String name = reader.readName();
+				if (name.equals(RESOURCE_ID) && reader.getCurrentBsonType() == BsonType.STRING) {
+					resourceID = reader.readString();
+				} else if (name.equals(RESOURCE_TYPE)) {
+					resourceType = GsonCompatibleValues.readValue(reader, BigInteger.class, false);
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.readEndDocument();
+			if (resourceID != null && resourceType instanceof BigInteger) {
+				references.add(new MongoChildLoader.Reference(resourceID, ((BigInteger) resourceType).intValue()));
+			}
+		}
+		reader.readEndArray();
+		return references;
+	}
+
+	private static void set(ResourceEntity resource, Method setter, Object value) {
+		try {
+			setter.invoke(resource, value);
+		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			LOGGER.debug("Exception setter=" + setter.getName() + " - " + setter.getParameterTypes()[0]
+					+ " - value: " + value, e);
+		}
+	}
+
+	private static Properties getProperties(Class<?> clazz) {
+		Properties properties = PROPERTIES.get(clazz);
+		if (properties == null) {
+			properties = new Properties(clazz);
+			PROPERTIES.putIfAbsent(clazz, properties);
+		}
+		return properties;
+	}
+
+	/**
+	 * Getters and setters of an entity class, looked up once.
+	 */
+	private static final class Properties {
+
+		/** Written properties by name, in the order of the first getter of each name */
+		private final Map<String, Property> getters = new LinkedHashMap<String, Property>();
+
+		/** First method named set + property name */
+		private final Map<String, Method> setters = new HashMap<String, Method>();
+
+		Properties(Class<?> clazz) {
+			for (Method method : clazz.getMethods()) {
+				String methodName = method.getName();
+				if (methodName.startsWith("set") && !setters.containsKey(methodName.substring(3))) {
+					setters.put(methodName.substring(3), method);
+				}
+				if (!(methodName.startsWith("get") || methodName.startsWith("is"))
+						|| methodName.equals("getClass") || method.getParameterTypes().length != 0) {
+					continue;
+				}
+				String name = methodName.substring(methodName.startsWith("get") ? 3 : 2);
+				Property property = Property.of(name, method);
+				if (property != null) {
+					getters.put(property.name, property);
+				}
+			}
+		}
+
+		Method getSetter(String name) {
+			Method setter = setters.get(name);
+			return setter == null || setter.getParameterTypes().length != 1 ? null : setter;
+		}
+	}
+
+	/**
+	 * Property written from a getter.
+	 */
+	private static final class Property {
+
+		private final String name;
+		private final Method getter;
+		/** True for a list of resources written as references */
+		private final boolean references;
+
+		private Property(String name, Method getter, boolean references) {
+			this.name = name;
+			this.getter = getter;
+			this.references = references;
+		}
+
+		/**
+		 * @return the property or null if the getter is not written
+		 */
+		static Property of(String name, Method getter) {
+			Class<?> returnType = getter.getReturnType();
+			if (isSuperPrimitive(returnType)) {
+				return new Property(name, getter, false);
+			}
+			if (!List.class.equals(returnType)) {
+				return null;
+			}
+			Type type = getter.getGenericReturnType();
+			if (!(type instanceof ParameterizedType)
+					|| ((ParameterizedType) type).getActualTypeArguments().length == 0) {
+				return null;
+			}
+			Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+			if (elementType instanceof Class && ResourceEntity.class.isAssignableFrom((Class<?>) elementType)) {
+				return new Property(REFERENCES_PREFIX + name, getter, true);
+			}
+			return new Property(name, getter, false);
+		}
+
+		private static boolean isSuperPrimitive(Class<?> clazz) {
+			return clazz.isPrimitive() || clazz.getName().startsWith("java.lang.")
+					|| clazz.getName().startsWith("java.math.");
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.eclipse.om2m.commons.entities.AccessControlPolicyEntity;
+import org.eclipse.om2m.commons.entities.AeAnncEntity;
+import org.eclipse.om2m.commons.entities.AeEntity;
+import org.eclipse.om2m.commons.entities.CSEBaseEntity;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
+import org.eclipse.om2m.commons.entities.FlexContainerEntity;
+import org.eclipse.om2m.commons.entities.RemoteCSEEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.entities.SubscriptionEntity;
+
+/**
+ * Provides a {@link ResourceCodec} for each entity class serialized by
+ * {@link ResourceSerializerDeserializer}.
+ */
+public class ResourceCodecProvider implements CodecProvider {
+
+	/** Entity classes with the resource document layout */
+	public static final List<Class<? extends ResourceEntity>> ENTITY_CLASSES = Collections
+			.unmodifiableList(Arrays.<Class<? extends ResourceEntity>> asList(CSEBaseEntity.class,
+					AccessControlPolicyEntity.class, AeEntity.class, FlexContainerEntity.class,
+					ContainerEntity.class, ContentInstanceEntity.class, SubscriptionEntity.class,
+					RemoteCSEEntity.class, AeAnncEntity.class, FlexContainerAnncEntity.class,
+					DynamicAuthorizationConsultationEntity.class));
+
+	/**
+	 * @param clazz entity class
+	 * @return true if the entity class has the resource document layout
+	 */
+	public static boolean isResource(Class<?> clazz) {
+		return ENTITY_CLASSES.contains(clazz);
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+		if (isResource(clazz)) {
+			return new ResourceCodec(clazz, true);
+		}
+		return null;
+	}
+
+}
@@ -25,6 +25,7 @@ import org.eclipse.om2m.commons.entities.AeEntity;
 import org.eclipse.om2m.commons.entities.CSEBaseEntity;
 import org.eclipse.om2m.commons.entities.ContainerAnncEntity;
 import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
 import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
 import org.eclipse.om2m.commons.entities.FlexContainerAnncEntity;
 import org.eclipse.om2m.commons.entities.FlexContainerEntity;
@@ -152,7 +153,7 @@ public class ResourceSerializerDeserializer<T extends ResourceEntity> implements
 
 		// retrieve resource type
 		BigInteger resourceType = jsonObject.get("ResourceType").getAsBigInteger();
-		t = create(resourceType);
+		t = (T) newEntity(resourceType);
 
 		if (t == null) {
 			return t;
@@ -248,36 +249,44 @@ public class ResourceSerializerDeserializer<T extends ResourceEntity> implements
 		return null;
 	}
 
-	private final T create(BigInteger type) {
-		T t = null;
+	/**
+	 * Creates the entity of a resource type.
+	 * @param type resource type
+	 * @return a new entity or null if the type is not handled
+	 */
+	static ResourceEntity newEntity(BigInteger type) {
+		ResourceEntity t = null;
 
 		switch (type.intValue()) {
 		case ResourceType.AE:
-			t = (T) new AeEntity();
+			t = new AeEntity();
 			break;
 		case ResourceType.CSE_BASE:
-			t = (T) new CSEBaseEntity();
+			t = new CSEBaseEntity();
 			break;
 		case ResourceType.ACCESS_CONTROL_POLICY:
-			t = (T) new AccessControlPolicyEntity();
+			t = new AccessControlPolicyEntity();
 			break;
 		case ResourceType.FLEXCONTAINER:
-			t = (T) new FlexContainerEntity();
+			t = new FlexContainerEntity();
 			break;
 		case ResourceType.CONTAINER:
-			t = (T) new ContainerEntity();
+			t = new ContainerEntity();
+			break;
+		case ResourceType.CONTENT_INSTANCE:
+			t = new ContentInstanceEntity();
 			break;
 		case ResourceType.REMOTE_CSE:
-			t = (T) new RemoteCSEEntity();
+			t = new RemoteCSEEntity();
 			break;
 		case ResourceType.AE_ANNC:
-			t = (T) new AeAnncEntity();
+			t = new AeAnncEntity();
 			break;
 		case ResourceType.FLEXCONTAINER_ANNC:
-			t = (T) new FlexContainerAnncEntity();
+			t = new FlexContainerAnncEntity();
 			break;
 		case ResourceType.DYNAMIC_AUTHORIZATION_CONSULTATION:
-			t = (T) new DynamicAuthorizationConsultationEntity();
+			t = new DynamicAuthorizationConsultationEntity();
 			break;
 
 		}
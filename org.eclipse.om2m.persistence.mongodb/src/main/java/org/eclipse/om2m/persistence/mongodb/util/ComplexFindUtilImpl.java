@@ -7,31 +7,52 @@
  *******************************************************************************/
 package org.eclipse.om2m.persistence.mongodb.util;
 
+import static com.mongodb.client.model.Filters.all;
 import static com.mongodb.client.model.Filters.eq;
 import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.or;
 import static com.mongodb.client.model.Filters.regex;
+import static com.mongodb.client.model.Projections.excludeId;
+import static com.mongodb.client.model.Projections.fields;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.ascending;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.eclipse.om2m.commons.constants.ResourceType;
 import org.eclipse.om2m.commons.entities.UriMapperEntity;
 import org.eclipse.om2m.commons.resource.FilterCriteria;
 import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
+import org.eclipse.om2m.persistence.mongodb.DBTransactionImpl;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.CompiledFilter;
+import org.eclipse.om2m.persistence.service.util.CompiledFilter.Condition;
 import org.eclipse.om2m.persistence.service.util.ComplexFindUtil;
+import org.eclipse.om2m.persistence.service.util.LabelIndex;
 
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Indexes;
 
 public class ComplexFindUtilImpl implements ComplexFindUtil {
 
 	private static final ComplexFindUtilImpl INSTANCE = new ComplexFindUtilImpl();
 
 	private static final String RESOURCE_ID = "ResourceID";
-	private static final String HIERARCHICAL_URI = "HierarchicalURI";
+	private static final String HIERARCHICAL_URI = HierarchicalUriFilters.HIERARCHICAL_URI;
 	private static final String RESOURCE_TYPE = "ResourceType";
+	private static final String LABELS = "LabelsEntities.label";
+	private static final String ACCESS_CONTROL_POLICIES = "#AccessControlPolicies";
 
 	private ComplexFindUtilImpl() {
 	}
@@ -47,7 +68,7 @@ public class ComplexFindUtilImpl implements ComplexFindUtil {
 
 		// retrieve rootUri document
 		Document rootDocument = DBServiceImpl.getInstance().getResourceCollection().find(eq(RESOURCE_ID, rootUri))
-				.first();
+				.projection(include(HIERARCHICAL_URI)).first();
 
 		// rootUri exists ?
 		if (rootDocument == null) {
@@ -63,13 +84,16 @@ public class ComplexFindUtilImpl implements ComplexFindUtil {
 			return uris;
 		}
 
-		Bson requestFilter = regex(HIERARCHICAL_URI, Pattern.compile(hierarchicalUri + "*"));
+		// the root resource and its descendants
+		Bson requestFilter = HierarchicalUriFilters.subtree(hierarchicalUri);
 		if (filter.getResourceType() != null) {
 			requestFilter = and(requestFilter, eq(RESOURCE_TYPE, filter.getResourceType().intValue()));
 		}
 		
+		// only the mapping is read, not the whole resources
 		FindIterable<Document> elements = DBServiceImpl.getInstance().getResourceCollection()
-				.find(requestFilter);
+				.find(requestFilter)
+				.projection(fields(include(HIERARCHICAL_URI, RESOURCE_ID, RESOURCE_TYPE), excludeId()));
 		for (MongoCursor<Document> cursor = elements.iterator(); cursor.hasNext();) {
 			Document element = cursor.next();
 
@@ -88,4 +112,125 @@ public class ComplexFindUtilImpl implements ComplexFindUtil {
 		return uris;
 	}
 
+	@Override
+	public List<UriMapperEntity> getDiscoveryCandidates(DBTransaction transaction, String rootUri,
+			CompiledFilter filter, String after, int count) {
+		List<UriMapperEntity> uris = new ArrayList<>();
+		Document rootDocument = DBServiceImpl.getInstance().getResourceCollection().find(eq(RESOURCE_ID, rootUri))
+				.projection(include(HIERARCHICAL_URI)).first();
+		if (rootDocument == null || rootDocument.getString(HIERARCHICAL_URI) == null) {
+			return uris;
+		}
+
+		// all the criteria in one query resolved on the HierarchicalURI index
+		List<Bson> filters = new ArrayList<>();
+		filters.add(HierarchicalUriFilters.subtree(rootDocument.getString(HIERARCHICAL_URI), filter.getLevel()));
+		if (after != null) {
+			filters.add(gt(HIERARCHICAL_URI, after));
+		}
+		if (filter.getResourceType() != null) {
+			filters.add(eq(RESOURCE_TYPE, filter.getResourceType().intValue()));
+		}
+		if (!filter.getLabels().isEmpty()) {
+			filters.add(filter.isAllLabels() ? all(LABELS, filter.getLabels()) : in(LABELS, filter.getLabels()));
+			// few resources hold the labels: read from the label index once
+			// built, the labels are still checked by the query
+			LabelIndexImpl index = new LabelIndexImpl((DBTransactionImpl) transaction);
+			if (filter.getLabelMatches() == null && index.isBuilt() && index.estimate(filter.getLabels(), filter.getResourceType(),
+					filter.isAllLabels()) <= LabelIndex.DRIVING_LIMIT) {
+				filter.setLabelMatches(index.find(filter.getLabels(), filter.getResourceType(), filter.isAllLabels()));
+			}
+			if (filter.getLabelMatches() != null) {
+				if (filter.getLabelMatches().isEmpty()) {
+					return uris;
+				}
+				filters.add(in(RESOURCE_ID, filter.getLabelMatches().toList()));
+			}
+		}
+		for (Condition condition : filter.getConditions()) {
+			filters.add(toBson(condition));
+		}
+		FindIterable<Document> elements = DBServiceImpl.getInstance().getResourceCollection()
+				.find(and(filters))
+				.projection(fields(include(HIERARCHICAL_URI, RESOURCE_ID, RESOURCE_TYPE,
+						ACCESS_CONTROL_POLICIES + "." + RESOURCE_ID), excludeId()))
+				.sort(ascending(HIERARCHICAL_URI))
+				.limit(count);
+		if (filter.getLabelMatches() != null) {
+			// the matching ids rather than the subtree, sorted in memory
+			elements.modifiers(new Document("$hint", Indexes.ascending(RESOURCE_ID)));
+		}
+		for (MongoCursor<Document> cursor = elements.iterator(); cursor.hasNext();) {
+			Document element = cursor.next();
+			UriMapperEntity uriMapperEntity = new UriMapperEntity();
+			uriMapperEntity.setHierarchicalUri(element.getString(HIERARCHICAL_URI));
+			uriMapperEntity.setNonHierarchicalUri(element.getString(RESOURCE_ID));
+			uriMapperEntity.setResourceType(element.getInteger(RESOURCE_TYPE));
+			uriMapperEntity.setAccessControlPolicyIDs(getAccessControlPolicyIDs(element));
+			uris.add(uriMapperEntity);
+		}
+		return uris;
+	}
+
+	/**
+	 * Translates a condition of a compiled filter. The documents hold the
+	 * properties of the entities capitalized (creationTime is CreationTime),
+	 * a missing property does not match the comparison operators.
+	 */
+	private static Bson toBson(Condition condition) {
+		String attribute = condition.getAttribute();
+		String property = Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
+		switch (condition.getOperator()) {
+		case LESS:
+			return lt(property, toBsonValue(condition.getValue()));
+		case GREATER:
+			return gt(property, toBsonValue(condition.getValue()));
+		case GREATER_OR_EQUAL:
+			return gte(property, toBsonValue(condition.getValue()));
+		case MEDIA_TYPE:
+			List<Bson> mediaTypes = new ArrayList<>();
+			for (String mediaType : condition.getValues()) {
+				mediaTypes.add(eq(property, mediaType));
+				mediaTypes.add(regex(property, Pattern.compile("^" + Pattern.quote(mediaType + ":"))));
+			}
+			return or(mediaTypes);
+		default:
+			return eq(property, toBsonValue(condition.getValue()));
+		}
+	}
+
+	/**
+	 * @return the value as written by the resource codec, the integers as
+	 *         int64 or double when out of range
+	 */
+	private static Object toBsonValue(Object value) {
+		if (value instanceof BigInteger) {
+			BigInteger integer = (BigInteger) value;
+			return integer.bitLength() < 64 ? (Object) integer.longValue() : (Object) integer.doubleValue();
+		}
+		return value;
+	}
+
+	/**
+	 * @return the ids of the policies referenced by the document, null if it
+	 *         does not hold policies
+	 */
+	private static List<String> getAccessControlPolicyIDs(Document element) {
+		if (Integer.valueOf(ResourceType.ACCESS_CONTROL_POLICY).equals(element.getInteger(RESOURCE_TYPE))) {
+			// a policy is checked with its own privileges
+			return Collections.singletonList(element.getString(RESOURCE_ID));
+		}
+		Object references = element.get(ACCESS_CONTROL_POLICIES);
+		if (!(references instanceof List)) {
+			return null;
+		}
+		List<String> acpIDs = new ArrayList<>();
+		for (Object reference : (List<?>) references) {
+			if (reference instanceof Document && ((Document) reference).getString(RESOURCE_ID) != null) {
+				acpIDs.add(((Document) reference).getString(RESOURCE_ID));
+			}
+		}
+		return acpIDs;
+	}
+
 }
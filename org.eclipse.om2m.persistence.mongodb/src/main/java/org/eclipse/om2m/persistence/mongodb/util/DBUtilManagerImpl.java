@@ -11,6 +11,8 @@ import org.eclipse.om2m.persistence.service.util.AnnouncedResourceUtil;
 import org.eclipse.om2m.persistence.service.util.ComplexFindUtil;
 import org.eclipse.om2m.persistence.service.util.DBUtilManager;
 import org.eclipse.om2m.persistence.service.util.DynamicAuthorizationConsultationUtil;
+import org.eclipse.om2m.persistence.service.util.RetentionUtil;
+import org.eclipse.om2m.persistence.service.util.UriMapperUtil;
 
 public class DBUtilManagerImpl implements DBUtilManager {
 
@@ -29,4 +31,14 @@ public class DBUtilManagerImpl implements DBUtilManager {
 		return DynamicAuthorizationConsultationUtilImpl.getInstance();
 	}
 
+	@Override
+	public RetentionUtil getRetentionUtil() {
+		return RetentionUtilImpl.getInstance();
+	}
+
+	@Override
+	public UriMapperUtil getUriMapperUtil() {
+		return UriMapperUtilImpl.getInstance();
+	}
+
 }
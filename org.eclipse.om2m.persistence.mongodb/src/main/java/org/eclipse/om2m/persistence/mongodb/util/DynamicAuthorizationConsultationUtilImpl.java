@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.eclipse.om2m.commons.entities.DynamicAuthorizationConsultationEntity;
 import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
 import org.eclipse.om2m.persistence.service.util.DynamicAuthorizationConsultationUtil;
@@ -44,9 +45,9 @@ public class DynamicAuthorizationConsultationUtilImpl implements DynamicAuthoriz
 				Document daceRefDoc = (Document) daceRef;
 				
 				// load doc for each dace ref
-				Document daceDoc = DBServiceImpl.getInstance().getResourceCollection().find(eq("ResourceID", daceRefDoc.get("ResourceID"))).first();
+				RawBsonDocument daceDoc = DBServiceImpl.getInstance().getRawResourceCollection().find(eq("ResourceID", daceRefDoc.get("ResourceID"))).first();
 				
-				daces.add(DBServiceImpl.getInstance().getGson().fromJson(daceDoc.toJson(), DynamicAuthorizationConsultationEntity.class));
+				daces.add(DBServiceImpl.getInstance().decode(daceDoc, DynamicAuthorizationConsultationEntity.class));
 			}
 			
 			if (daces.isEmpty()) {
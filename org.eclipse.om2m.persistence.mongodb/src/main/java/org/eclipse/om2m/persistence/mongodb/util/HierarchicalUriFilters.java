@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.util;
+
+import static com.mongodb.client.model.Filters.regex;
+
+import java.util.regex.Pattern;
+
+import org.bson.conversions.Bson;
+
+/**
+ * Filters on the hierarchical uri of the resources. The uri of a resource is
+ * the prefix of the uris of all its descendants, so a subtree is selected by
+ * an anchored prefix regex which is resolved on the HierarchicalURI index.
+ */
+public final class HierarchicalUriFilters {
+
+	public static final String HIERARCHICAL_URI = "HierarchicalURI";
+
+	private HierarchicalUriFilters() {
+		// static only
+	}
+
+	/**
+	 * @param hierarchicalUri uri of the root resource
+	 * @return a filter matching the resource and all its descendants
+	 */
+	public static Bson subtree(String hierarchicalUri) {
+		return regex(HIERARCHICAL_URI, Pattern.compile("^" + escape(hierarchicalUri) + "(/|$)"));
+	}
+
+	/**
+	 * @param hierarchicalUri uri of the root resource
+	 * @param level maximum number of levels below the root, -1 for no limit
+	 * @return a filter matching the resource and its descendants down to the level
+	 */
+	public static Bson subtree(String hierarchicalUri, int level) {
+		if (level < 0) {
+			return subtree(hierarchicalUri);
+		}
+		return regex(HIERARCHICAL_URI, Pattern.compile("^" + escape(hierarchicalUri) + "(/[^/]+){0," + level + "}$"));
+	}
+
+	/**
+	 * @param hierarchicalUri uri of the root resource
+	 * @return a filter matching the descendants of the resource only
+	 */
+	public static Bson descendants(String hierarchicalUri) {
+		return regex(HIERARCHICAL_URI, Pattern.compile("^" + escape(hierarchicalUri) + "/"));
+	}
+
+	/**
+	 * Escapes the regex characters with a backslash rather than with \Q...\E,
+	 * the server only extracts index bounds from plain or backslash escaped prefixes.
+	 */
+	private static String escape(String value) {
+		StringBuilder escaped = new StringBuilder(value.length() + 8);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (!Character.isLetterOrDigit(c) && c != '/' && c != '_' && c != '-') {
+				escaped.append('\\');
+			}
+			escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.util;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Sorts.ascending;
+import static com.mongodb.client.model.Sorts.descending;
+import static com.mongodb.client.model.Sorts.orderBy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.eclipse.om2m.commons.entities.LabelPostingEntity;
+import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
+import org.eclipse.om2m.persistence.mongodb.DBTransactionImpl;
+import org.eclipse.om2m.persistence.service.util.LabelIndex;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Updates;
+
+/**
+ * Label index stored in the om2m_label_posting collection, a segment being
+ * identified by its label, resource type and lower key. The segments are
+ * locked with the lock manager of the transactions under the same key.
+ */
+public class LabelIndexImpl extends LabelIndex {
+
+	private static final String LABEL = "Label";
+	private static final String RESOURCE_TYPE = "ResourceType";
+	private static final String LOWER_KEY = "LowerKey";
+	private static final String UPPER_KEY = "UpperKey";
+	private static final String SIZE = "Size";
+	private static final String DATA = "Data";
+
+	/** Prefix of the lock keys of the segments */
+	private static final String LOCK_PREFIX = "labelIndex/";
+
+	/** Number of times a locked segment is looked up again when it has been merged meanwhile */
+	private static final int LOCK_ATTEMPTS = 3;
+
+	private final DBTransactionImpl transaction;
+
+	/**
+	 * @param transaction transaction holding the locks of the segments
+	 */
+	public LabelIndexImpl(DBTransactionImpl transaction) {
+		this.transaction = transaction;
+	}
+
+	private static MongoCollection<Document> getCollection() {
+		return DBServiceImpl.getInstance().getLabelPostingCollection();
+	}
+
+	@Override
+	protected LabelPostingEntity findSegment(String label, int resourceType, String key) {
+		Document doc = getCollection()
+				.find(and(eq(LABEL, label), eq(RESOURCE_TYPE, resourceType), lte(LOWER_KEY, key)))
+				.sort(descending(LOWER_KEY)).first();
+		return doc == null ? null : toSegment(doc);
+	}
+
+	@Override
+	protected LabelPostingEntity lockSegment(String label, int resourceType, String key) {
+		LabelPostingEntity segment = findSegment(label, resourceType, key);
+		for (int attempt = 1;; attempt++) {
+			// the first segment of a list has the empty lower key, also locked
+			// while the list is created
+			String lowerKey = segment == null ? "" : segment.getLowerKey();
+			transaction.lock(LOCK_PREFIX + label + "/" + resourceType + "/" + lowerKey);
+			// read again, the segment may have been split or merged while
+			// waiting for its lock
+			LabelPostingEntity locked = findSegment(label, resourceType, key);
+			String lockedKey = locked == null ? "" : locked.getLowerKey();
+			if (lockedKey.equals(lowerKey) || attempt == LOCK_ATTEMPTS) {
+				return locked;
+			}
+			segment = locked;
+		}
+	}
+
+	@Override
+	protected List<LabelPostingEntity> findSegmentsContaining(int resourceType, String key) {
+		return toSegments(getCollection().find(and(eq(RESOURCE_TYPE, resourceType), lte(LOWER_KEY, key),
+				or(eq(UPPER_KEY, null), gt(UPPER_KEY, key)))));
+	}
+
+	@Override
+	protected List<LabelPostingEntity> findSegments(String label, BigInteger resourceType) {
+		return toSegments(getCollection().find(filter(label, resourceType))
+				.sort(orderBy(ascending(RESOURCE_TYPE), ascending(LOWER_KEY))));
+	}
+
+	@Override
+	protected long count(String label, BigInteger resourceType) {
+		// summed by the server, the segments are not read
+		Document sum = getCollection().aggregate(Arrays.asList(Aggregates.match(filter(label, resourceType)),
+				Aggregates.group(null, Accumulators.sum(SIZE, "$" + SIZE)))).first();
+		Object size = sum == null ? null : sum.get(SIZE);
+		return size instanceof Number ? ((Number) size).longValue() : 0;
+	}
+
+	@Override
+	protected void insert(LabelPostingEntity segment) {
+		getCollection().insertOne(new Document(LABEL, segment.getLabel())
+				.append(RESOURCE_TYPE, segment.getResourceType())
+				.append(LOWER_KEY, segment.getLowerKey())
+				.append(UPPER_KEY, segment.getUpperKey())
+				.append(SIZE, segment.getSize())
+				.append(DATA, new Binary(segment.getData())));
+	}
+
+	@Override
+	protected void update(LabelPostingEntity segment) {
+		getCollection().updateOne(identity(segment), Updates.combine(Updates.set(UPPER_KEY, segment.getUpperKey()),
+				Updates.set(SIZE, segment.getSize()), Updates.set(DATA, new Binary(segment.getData()))));
+	}
+
+	@Override
+	protected void delete(LabelPostingEntity segment) {
+		getCollection().deleteOne(identity(segment));
+	}
+
+	@Override
+	protected void deleteAll() {
+		getCollection().deleteMany(new Document());
+	}
+
+	private static Bson filter(String label, BigInteger resourceType) {
+		return resourceType == null ? eq(LABEL, label)
+				: and(eq(LABEL, label), eq(RESOURCE_TYPE, resourceType.intValue()));
+	}
+
+	/**
+	 * @return the filter of a segment, its lower key never changes
+	 */
+	private static Bson identity(LabelPostingEntity segment) {
+		return and(eq(LABEL, segment.getLabel()), eq(RESOURCE_TYPE, segment.getResourceType()),
+				eq(LOWER_KEY, segment.getLowerKey()));
+	}
+
+	private static List<LabelPostingEntity> toSegments(Iterable<Document> docs) {
+		List<LabelPostingEntity> segments = new ArrayList<LabelPostingEntity>();
+		for (Document doc : docs) {
+			segments.add(toSegment(doc));
+		}
+		return segments;
+	}
+
+	private static LabelPostingEntity toSegment(Document doc) {
+		LabelPostingEntity segment = new LabelPostingEntity(doc.getString(LABEL), doc.getInteger(RESOURCE_TYPE),
+				doc.getString(LOWER_KEY), doc.getString(UPPER_KEY));
+		segment.setSize(doc.getInteger(SIZE));
+		segment.setData(((Binary) doc.get(DATA)).getData());
+		return segment;
+	}
+
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.util;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.nin;
+import static com.mongodb.client.model.Projections.include;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
+import org.eclipse.om2m.persistence.mongodb.DBTransactionImpl;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.RetentionUtil;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+
+public class RetentionUtilImpl implements RetentionUtil {
+
+	private static final RetentionUtilImpl INSTANCE = new RetentionUtilImpl();
+
+	private static final String RESOURCE_ID = "ResourceID";
+	private static final String RESOURCE_TYPE = "ResourceType";
+	private static final String PARENT_ID = "ParentID";
+	private static final String CREATION_TIME = "CreationTime";
+	private static final String LATEST_INSTANCE_ID = "LatestInstanceID";
+	private static final String OLDEST_INSTANCE_ID = "OldestInstanceID";
+	/** References of the container to its content instances */
+	private static final String CHILD_CONTENT_INSTANCES = "#ChildContentInstances";
+
+	private RetentionUtilImpl() {
+	}
+
+	public static RetentionUtilImpl getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public List<ContentInstanceEntity> findOldest(DBTransaction transaction, String containerID,
+			String createdBefore, int limit) {
+		Bson filter = and(eq(PARENT_ID, containerID), eq(RESOURCE_TYPE, ResourceType.CONTENT_INSTANCE));
+		if (createdBefore != null) {
+			filter = and(filter, lt(CREATION_TIME, createdBefore));
+		}
+		List<ContentInstanceEntity> instances = new ArrayList<>();
+		try (MongoCursor<RawBsonDocument> cursor = DBServiceImpl.getInstance().getRawResourceCollection()
+				.find(filter).sort(Sorts.ascending(CREATION_TIME)).limit(limit).iterator()) {
+			while (cursor.hasNext()) {
+				instances.add(DBServiceImpl.getInstance().decode(cursor.next(), ContentInstanceEntity.class));
+			}
+		}
+		return instances;
+	}
+
+	@Override
+	public void delete(DBTransaction transaction, ContainerEntity container, List<ContentInstanceEntity> instances) {
+		if (instances.isEmpty()) {
+			return;
+		}
+		List<String> resourceIDs = new ArrayList<>(instances.size());
+		for (ContentInstanceEntity instance : instances) {
+			resourceIDs.add(instance.getResourceID());
+		}
+		new LabelIndexImpl((DBTransactionImpl) transaction).remove(instances);
+		// content instances have no children, a single deleteMany
+		DBServiceImpl.getInstance().getResourceCollection().deleteMany(in(RESOURCE_ID, resourceIDs));
+
+		List<Bson> updates = new ArrayList<>();
+		updates.add(Updates.pullByFilter(new Document(CHILD_CONTENT_INSTANCES,
+				new Document(RESOURCE_ID, new Document("$in", resourceIDs)))));
+		if (resourceIDs.contains(container.getLatestInstanceID())) {
+			String latest = findNeighbour(container, resourceIDs, Sorts.descending(CREATION_TIME));
+			container.setLatestInstanceID(latest);
+			updates.add(latest == null ? Updates.unset(LATEST_INSTANCE_ID) : Updates.set(LATEST_INSTANCE_ID, latest));
+		}
+		if (resourceIDs.contains(container.getOldestInstanceID())) {
+			String oldest = findNeighbour(container, resourceIDs, Sorts.ascending(CREATION_TIME));
+			container.setOldestInstanceID(oldest);
+			updates.add(oldest == null ? Updates.unset(OLDEST_INSTANCE_ID) : Updates.set(OLDEST_INSTANCE_ID, oldest));
+		}
+		DBServiceImpl.getInstance().getResourceCollection().updateOne(eq(RESOURCE_ID, container.getResourceID()),
+				Updates.combine(updates));
+	}
+
+	@Override
+	public List<String> findContainersWithMaxInstanceAge(DBTransaction transaction) {
+		List<String> resourceIDs = new ArrayList<>();
+		try (MongoCursor<Document> cursor = DBServiceImpl.getInstance().getResourceCollection()
+				.find(and(eq(RESOURCE_TYPE, ResourceType.CONTAINER), gt("MaxInstanceAge", 0)))
+				.projection(include(RESOURCE_ID)).iterator()) {
+			while (cursor.hasNext()) {
+				resourceIDs.add(cursor.next().getString(RESOURCE_ID));
+			}
+		}
+		return resourceIDs;
+	}
+
+	/**
+	 * Retrieves the id of the first remaining content instance of a container.
+	 * @param container parent container
+	 * @param resourceIDs ids of the deleted instances
+	 * @param sort ascending for the new oldest instance, descending for the new latest one
+	 * @return the id of the instance or null if the container is empty
+	 */
+	private static String findNeighbour(ContainerEntity container, List<String> resourceIDs, Bson sort) {
+		Document doc = DBServiceImpl.getInstance().getResourceCollection()
+				.find(and(eq(PARENT_ID, container.getResourceID()), eq(RESOURCE_TYPE, ResourceType.CONTENT_INSTANCE),
+						nin(RESOURCE_ID, resourceIDs)))
+				.sort(sort).projection(include(RESOURCE_ID)).first();
+		return doc == null ? null : doc.getString(RESOURCE_ID);
+	}
+
+}
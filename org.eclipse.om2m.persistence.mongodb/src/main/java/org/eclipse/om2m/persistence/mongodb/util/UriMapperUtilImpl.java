@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.mongodb.util;
+
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Projections.include;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bson.Document;
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.persistence.mongodb.DBServiceImpl;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+import org.eclipse.om2m.persistence.service.util.UriMapperUtil;
+
+public class UriMapperUtilImpl implements UriMapperUtil {
+
+	private static final UriMapperUtilImpl INSTANCE = new UriMapperUtilImpl();
+
+	private static final String RESOURCE_ID = "ResourceID";
+	private static final String RESOURCE_TYPE = "ResourceType";
+	private static final String HIERARCHICAL_URI = "HierarchicalURI";
+
+	private UriMapperUtilImpl() {
+	}
+
+	public static UriMapperUtilImpl getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public List<UriMapperEntity> findAll(DBTransaction transaction, Collection<String> uris) {
+		List<UriMapperEntity> result = new ArrayList<>();
+		if (uris.isEmpty()) {
+			return result;
+		}
+		// only the mapping fields are read
+		for (Document doc : DBServiceImpl.getInstance().getResourceCollection()
+				.find(or(in(HIERARCHICAL_URI, uris), in(RESOURCE_ID, uris)))
+				.projection(include(HIERARCHICAL_URI, RESOURCE_ID, RESOURCE_TYPE))) {
+			UriMapperEntity entity = new UriMapperEntity();
+			entity.setHierarchicalUri(doc.getString(HIERARCHICAL_URI));
+			entity.setNonHierarchicalUri(doc.getString(RESOURCE_ID));
+			entity.setResourceType(doc.getInteger(RESOURCE_TYPE));
+			result.add(entity);
+		}
+		return result;
+	}
+
+}
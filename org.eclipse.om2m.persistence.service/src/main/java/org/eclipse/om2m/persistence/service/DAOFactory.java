@@ -97,6 +97,8 @@ public interface DAOFactory {
 
 	public abstract DAO<ContentInstanceEntity> getOldestDAO();
 
+	public abstract DAO<ContentInstanceEntity> getLatestDAO();
+
 	public abstract DAO<NodeAnncEntity> getNodeAnncDAO();
 
 	public abstract DAO<MgmtObjAnncEntity> getMgmtObjAnncDAO();
@@ -45,6 +45,62 @@ public class DBConstants {
 	public static final String DB_CACHE = System.getProperty(
 			"org.eclipse.om2m.dbCache", "true");
 
+	/** JDBC batch writing mode (JDBC, Buffered, Oracle-JDBC or None) */
+	public static final String DB_BATCH_WRITING = System.getProperty(
+			"org.eclipse.om2m.dbBatchWriting", "JDBC");
+
+	/** Maximum number of statements in a JDBC batch */
+	public static final int DB_BATCH_SIZE = Integer.getInteger(
+			"org.eclipse.om2m.dbBatchSize", 100);
+
+	/** Number of prepared statements cached per connection, 0 to disable the cache */
+	public static final int DB_STATEMENT_CACHE_SIZE = Integer.getInteger(
+			"org.eclipse.om2m.dbStatementCacheSize", 50);
+
+	/** Minimum number of pooled JDBC connections, for writes and for reads */
+	public static final int DB_POOL_MIN = Integer.getInteger(
+			"org.eclipse.om2m.dbPoolMin", 2);
+
+	/** Maximum number of pooled JDBC connections, for writes and for reads */
+	public static final int DB_POOL_MAX = Integer.getInteger(
+			"org.eclipse.om2m.dbPoolMax", 32);
+
+	/** Maximum time to wait for a pooled connection, in ms */
+	public static final int DB_POOL_WAIT = Integer.getInteger(
+			"org.eclipse.om2m.dbPoolWait", 10000);
+
+	/** Query validating a connection after an error, empty to use the one of the database platform */
+	public static final String DB_POOL_PING_SQL = System.getProperty(
+			"org.eclipse.om2m.dbPoolPingSql", "");
+
+	/** Time after which a transaction still open is reported as leaked, in ms, 0 to disable */
+	public static final long DB_LEAK_THRESHOLD = Long.getLong(
+			"org.eclipse.om2m.dbLeakThreshold", 60000L);
+
+	/** Maximum time to wait for the lock of a resource, in ms */
+	public static final long DB_LOCK_TIMEOUT = Long.getLong(
+			"org.eclipse.om2m.dbLockTimeout", 10000L);
+
+	/** Store the locks of the resources in the database to share them between several CSE instances */
+	public static final boolean DB_LOCK_SHARED = Boolean.valueOf(System.getProperty(
+			"org.eclipse.om2m.dbLockShared", "false"));
+
+	/** Time after which a lock stored in the database can be taken over, in ms */
+	public static final long DB_LOCK_LEASE = Long.getLong(
+			"org.eclipse.om2m.dbLockLease", 60000L);
+
+	/** Directory of the write-ahead log of the in-memory database, empty to keep the data in memory only */
+	public static final String DB_MEMORY_LOG = System.getProperty(
+			"org.eclipse.om2m.dbMemoryLog", "");
+
+	/** Force the write-ahead log of the in-memory database to the disk on each commit */
+	public static final boolean DB_MEMORY_LOG_SYNC = Boolean.valueOf(System.getProperty(
+			"org.eclipse.om2m.dbMemoryLogSync", "true"));
+
+	/** Size of the write-ahead log after which a snapshot of the in-memory database is written, in bytes */
+	public static final long DB_MEMORY_SNAPSHOT_SIZE = Long.getLong(
+			"org.eclipse.om2m.dbMemorySnapshotSize", 64L * 1024 * 1024);
+
 	/** Set the logging to a verbose mode */
 	public static final boolean DB_VERBOSE = Boolean.valueOf(System
 			.getProperty("org.eclipse.om2m.dbVerbose", "false"));
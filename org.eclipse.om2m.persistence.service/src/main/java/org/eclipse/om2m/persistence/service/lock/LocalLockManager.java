@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.service.lock;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock manager of a single CSE instance.
+ * <p>
+ * Resources are spread over stripes so that locking unrelated resources does
+ * not contend on a single monitor. A released lock is handed over to the
+ * transaction waiting for it for the longest time, which is the only one woken up.
+ * <p>
+ * Deadlocks are detected on the waits-for graph: a transaction about to wait
+ * for a resource fails if the owner of the resource waits, directly or not,
+ * for a resource held by the transaction.
+ */
+public class LocalLockManager implements LockManager {
+
+	/** Number of stripes, a power of 2 */
+	private static final int STRIPES = 64;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	/** Resource id to owner, read by the deadlock detection without locking the stripes */
+	private final ConcurrentMap<String, String> owners = new ConcurrentHashMap<String, String>();
+
+	/** Waiting owner to the resource id it waits for */
+	private final ConcurrentMap<String, String> waits = new ConcurrentHashMap<String, String>();
+
+	public LocalLockManager() {
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	@Override
+	public boolean lock(String resourceId, String owner, long timeout) throws InterruptedException {
+		Stripe stripe = getStripe(resourceId);
+		stripe.lock.lockInterruptibly();
+		try {
+			Entry entry = stripe.entries.get(resourceId);
+			if (entry == null) {
+				stripe.entries.put(resourceId, new Entry(owner));
+				owners.put(resourceId, owner);
+				return true;
+			}
+			if (owner.equals(entry.owner)) {
+				return true;
+			}
+
+			waits.put(owner, resourceId);
+			Waiter waiter = null;
+			try {
+				checkDeadlock(resourceId, owner);
+				waiter = new Waiter(owner, stripe.lock.newCondition());
+				entry.waiters.add(waiter);
+				long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+				while (!owner.equals(entry.owner) && nanos > 0) {
+					nanos = waiter.condition.awaitNanos(nanos);
+				}
+				return owner.equals(entry.owner);
+			} catch (InterruptedException e) {
+				if (owner.equals(entry.owner)) {
+					// handed over just before the interruption, passed on to
+					// the next waiter (the stripe lock is reentrant)
+					unlock(resourceId, owner);
+				}
+				throw e;
+			} finally {
+				waits.remove(owner);
+				if (waiter != null && !owner.equals(entry.owner)) {
+					entry.waiters.remove(waiter);
+				}
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	@Override
+	public void unlock(String resourceId, String owner) {
+		Stripe stripe = getStripe(resourceId);
+		stripe.lock.lock();
+		try {
+			Entry entry = stripe.entries.get(resourceId);
+			if (entry == null || !owner.equals(entry.owner)) {
+				return;
+			}
+			Waiter next = entry.waiters.poll();
+			if (next == null) {
+				stripe.entries.remove(resourceId);
+				owners.remove(resourceId);
+				return;
+			}
+			// handed over, a newcomer cannot take it before the waiter wakes up
+			entry.owner = next.owner;
+			owners.put(resourceId, next.owner);
+			next.condition.signal();
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Follows the owners of the awaited resources, starting from the
+	 * resource the owner is about to wait for.
+	 */
+	private void checkDeadlock(String resourceId, String owner) {
+		String awaited = resourceId;
+		// bounded by the number of waiting transactions
+		for (int depth = 0; awaited != null && depth <= waits.size(); depth++) {
+			String holder = owners.get(awaited);
+			if (holder == null) {
+				return;
+			}
+			if (holder.equals(owner)) {
+				throw new LockException("deadlock detected: transaction " + owner + " waiting for " + resourceId);
+			}
+			awaited = waits.get(holder);
+		}
+	}
+
+	private Stripe getStripe(String resourceId) {
+		int hash = resourceId.hashCode();
+		return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+	}
+
+	/**
+	 * Number of locked resources, for monitoring.
+	 * @return the number of locks currently held
+	 */
+	public int size() {
+		return owners.size();
+	}
+
+	private static final class Stripe {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	}
+
+	/**
+	 * Lock of a resource and the transactions waiting for it, in arrival order.
+	 */
+	private static final class Entry {
+		private String owner;
+		private final Deque<Waiter> waiters = new ArrayDeque<Waiter>();
+
+		Entry(String owner) {
+			this.owner = owner;
+		}
+	}
+
+	private static final class Waiter {
+		private final String owner;
+		private final Condition condition;
+
+		Waiter(String owner, Condition condition) {
+			this.owner = owner;
+			this.condition = condition;
+		}
+	}
+
+}
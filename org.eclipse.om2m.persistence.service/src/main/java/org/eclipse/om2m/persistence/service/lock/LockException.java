@@ -0,0 +1,21 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.service.lock;
+
+/**
+ * Thrown when a lock cannot be acquired without a deadlock.
+ */
+public class LockException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public LockException(String message) {
+		super(message);
+	}
+
+}
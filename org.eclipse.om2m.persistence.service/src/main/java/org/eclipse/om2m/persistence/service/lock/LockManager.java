@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.service.lock;
+
+/**
+ * Exclusive locks on resources, owned by a transaction rather than by a thread.
+ */
+public interface LockManager {
+
+	/**
+	 * Acquires the lock of a resource, waiting until it is released by its
+	 * current owner. Acquiring a lock already held by the owner succeeds at once.
+	 * @param resourceId id of the resource to lock
+	 * @param owner id of the locking transaction
+	 * @param timeout maximum time to wait, in ms
+	 * @return true if the lock is acquired, false on timeout
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @throws LockException if waiting would deadlock with other transactions
+	 */
+	boolean lock(String resourceId, String owner, long timeout) throws InterruptedException;
+
+	/**
+	 * Releases the lock of a resource, does nothing if it is not held by the owner.
+	 * @param resourceId id of the locked resource
+	 * @param owner id of the transaction holding the lock
+	 */
+	void unlock(String resourceId, String owner);
+
+}
@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.service.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.om2m.commons.constants.FilterOperation;
+import org.eclipse.om2m.commons.constants.ShortName;
+import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+import org.eclipse.om2m.commons.exceptions.BadRequestException;
+import org.eclipse.om2m.commons.resource.Attribute;
+import org.eclipse.om2m.commons.resource.FilterCriteria;
+
+/**
+ * Filter criteria of a discovery compiled into conditions on the attributes
+ * of the resource entities.
+ * <p>
+ * The backends translate the same conditions into their own queries so that
+ * a discovery selects the same resources whatever the database. A resource
+ * whose class does not hold the attribute of a condition, or whose attribute
+ * is not set, does not match the condition. {@link #matches(ResourceEntity)}
+ * is the reference evaluation of the conditions on an entity.
+ * <p>
+ * The filter operation applies to the labels: a resource holds all of them
+ * (AND, the default) or one of them (OR). The other criteria are always
+ * combined with AND.
+ * <p>
+ * The limit, offset and continuation token are left to the discovery.
+ */
+public final class CompiledFilter {
+
+	/**
+	 * Comparison of an attribute with the value of a condition.
+	 */
+	public enum Operator {
+		EQUAL,
+		LESS,
+		GREATER,
+		GREATER_OR_EQUAL,
+		/** Media type of a contentInfo, with or without its encoding suffix, in a list of types */
+		MEDIA_TYPE
+	}
+
+	/**
+	 * Condition on one attribute of the resources.
+	 */
+	public static final class Condition {
+
+		private final String attribute;
+		private final Operator operator;
+		private final Object value;
+
+		Condition(String attribute, Operator operator, Object value) {
+			this.attribute = attribute;
+			this.operator = operator;
+			this.value = value;
+		}
+
+		/**
+		 * @return the name of the attribute in the entity classes (creationTime, stateTag...)
+		 */
+		public String getAttribute() {
+			return attribute;
+		}
+
+		public Operator getOperator() {
+			return operator;
+		}
+
+		/**
+		 * @return a String, BigInteger or Boolean, the list of media types
+		 *         for {@link Operator#MEDIA_TYPE}
+		 */
+		public Object getValue() {
+			return value;
+		}
+
+		/**
+		 * @return the media types of a {@link Operator#MEDIA_TYPE} condition
+		 */
+		@SuppressWarnings("unchecked")
+		public List<String> getValues() {
+			return (List<String>) value;
+		}
+
+		/**
+		 * @param actual value of the attribute of a resource, may be null
+		 * @return true if the value matches the condition
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public boolean matches(Object actual) {
+			if (actual == null) {
+				return false;
+			}
+			switch (operator) {
+			case EQUAL:
+				return value.equals(actual);
+			case MEDIA_TYPE:
+				for (String mediaType : getValues()) {
+					if (actual.equals(mediaType) || actual.toString().startsWith(mediaType + ":")) {
+						return true;
+					}
+				}
+				return false;
+			default:
+				if (!value.getClass().isInstance(actual)) {
+					return false;
+				}
+				int comparison = ((Comparable) actual).compareTo(value);
+				return operator == Operator.LESS ? comparison < 0
+						: operator == Operator.GREATER ? comparison > 0 : comparison >= 0;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return attribute + " " + operator + " " + value;
+		}
+	}
+
+	/** Attributes accepted by the attribute criterion, by short name */
+	private static final Map<String, String> ATTRIBUTES = new HashMap<String, String>();
+
+	/** Type of the attribute values, String when not listed */
+	private static final Map<String, Class<?>> ATTRIBUTE_TYPES = new HashMap<String, Class<?>>();
+
+	static {
+		attribute(ShortName.RESOURCE_NAME, "name", String.class);
+		attribute(ShortName.RESOURCE_ID, "resourceID", String.class);
+		attribute(ShortName.PARENT_ID, "parentID", String.class);
+		attribute(ShortName.RESOURCE_TYPE, "resourceType", BigInteger.class);
+		attribute(ShortName.CREATION_TIME, "creationTime", String.class);
+		attribute(ShortName.LAST_MODIFIED_TIME, "lastModifiedTime", String.class);
+		attribute(ShortName.EXPIRATION_TIME, "expirationTime", String.class);
+		attribute(ShortName.STATETAG, "stateTag", BigInteger.class);
+		attribute(ShortName.CREATOR, "creator", String.class);
+		attribute(ShortName.ONTOLOGY_REF, "ontologyRef", String.class);
+		attribute(ShortName.APP_ID, "appID", String.class);
+		attribute(ShortName.AE_ID, "aeid", String.class);
+		attribute(ShortName.REQUEST_REACHABILITY, "requestReachability", Boolean.class);
+		attribute(ShortName.MAX_NR_OF_INSTANCES, "maxNrOfInstances", BigInteger.class);
+		attribute(ShortName.MAX_BYTE_SIZE, "maxByteSize", BigInteger.class);
+		attribute(ShortName.MAX_INSTANCE_AGE, "maxInstanceAge", BigInteger.class);
+		attribute(ShortName.CURRENT_NUMBER_OF_INSTANCES, "currentNrOfInstances", BigInteger.class);
+		attribute(ShortName.CURRENT_BYTE_SIZE, "currentByteSize", BigInteger.class);
+		attribute(ShortName.CONTAINER_DEFINITION, "containerDefinition", String.class);
+		attribute(ShortName.CONTENT_INFO, "contentInfo", String.class);
+		attribute(ShortName.CONTENT_SIZE, "contentSize", BigInteger.class);
+		attribute(ShortName.CONTENT, "content", String.class);
+	}
+
+	private static void attribute(String shortName, String attribute, Class<?> type) {
+		ATTRIBUTES.put(shortName, attribute);
+		ATTRIBUTE_TYPES.put(attribute, type);
+	}
+
+	/** Getters of the attributes by class and attribute, FALSE for the classes without the attribute */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> GETTERS = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Object>>();
+
+	private final BigInteger resourceType;
+	private final List<String> labels;
+	private final boolean allLabels;
+	private final int level;
+	private final List<Condition> conditions;
+
+	/** Ids of the resources holding the labels, read once from the label index */
+	private PostingList labelMatches;
+
+	private CompiledFilter(FilterCriteria filter, List<Condition> conditions) {
+		this.resourceType = filter.getResourceType();
+		this.labels = Collections.unmodifiableList(new ArrayList<String>(new LinkedHashSet<String>(filter.getLabels())));
+		this.allLabels = !FilterOperation.OR.equals(filter.getFilterOperation());
+		this.level = filter.getLevel() == null ? -1
+				: filter.getLevel().bitLength() < 32 ? filter.getLevel().intValue() : Integer.MAX_VALUE;
+		this.conditions = Collections.unmodifiableList(conditions);
+	}
+
+	/**
+	 * Compiles the criteria of a filter.
+	 * @param filter filter criteria of a discovery
+	 * @return the compiled filter
+	 * @throws BadRequestException if an attribute criterion is not supported
+	 *             or its value does not fit the attribute, or if the filter
+	 *             operation is unknown
+	 */
+	public static CompiledFilter compile(FilterCriteria filter) {
+		if (filter.getFilterOperation() != null && !FilterOperation.AND.equals(filter.getFilterOperation())
+				&& !FilterOperation.OR.equals(filter.getFilterOperation())) {
+			throw new BadRequestException("Unknown filter operation: " + filter.getFilterOperation());
+		}
+		List<Condition> conditions = new ArrayList<Condition>();
+		add(conditions, "creationTime", Operator.LESS, filter.getCreatedBefore());
+		add(conditions, "creationTime", Operator.GREATER, filter.getCreatedAfter());
+		add(conditions, "lastModifiedTime", Operator.GREATER, filter.getModifiedSince());
+		add(conditions, "lastModifiedTime", Operator.LESS, filter.getUnmodifiedSince());
+		add(conditions, "stateTag", Operator.LESS, filter.getStateTagSmaller());
+		add(conditions, "stateTag", Operator.GREATER, filter.getStateTagBigger());
+		add(conditions, "expirationTime", Operator.LESS, filter.getExpireBefore());
+		add(conditions, "expirationTime", Operator.GREATER, filter.getExpireAfter());
+		add(conditions, "contentSize", Operator.GREATER_OR_EQUAL, filter.getSizeAbove());
+		add(conditions, "contentSize", Operator.LESS, filter.getSizeBelow());
+		if (!filter.getContentType().isEmpty()) {
+			add(conditions, "contentInfo", Operator.MEDIA_TYPE,
+					Collections.unmodifiableList(new ArrayList<String>(filter.getContentType())));
+		}
+		for (Attribute attribute : filter.getAttribute()) {
+			String name = ATTRIBUTES.get(attribute.getName());
+			if (name == null) {
+				throw new BadRequestException("Unsupported attribute filter criterion: " + attribute.getName());
+			}
+			if (attribute.getValue() == null) {
+				throw new BadRequestException("Missing value of the attribute filter criterion: " + attribute.getName());
+			}
+			add(conditions, name, Operator.EQUAL, convert(attribute, ATTRIBUTE_TYPES.get(name)));
+		}
+		return new CompiledFilter(filter, conditions);
+	}
+
+	private static void add(List<Condition> conditions, String attribute, Operator operator, Object value) {
+		if (value != null) {
+			conditions.add(new Condition(attribute, operator, value));
+		}
+	}
+
+	private static Object convert(Attribute attribute, Class<?> type) {
+		String value = attribute.getValue().toString().trim();
+		if (type == BigInteger.class) {
+			try {
+				return new BigInteger(value);
+			} catch (NumberFormatException e) {
+				throw new BadRequestException("Integer expected for the attribute filter criterion: "
+						+ attribute.getName());
+			}
+		}
+		if (type == Boolean.class) {
+			if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+				throw new BadRequestException("Boolean expected for the attribute filter criterion: "
+						+ attribute.getName());
+			}
+			return Boolean.valueOf(value);
+		}
+		return attribute.getValue().toString();
+	}
+
+	/**
+	 * @return the requested resource type, null for any type
+	 */
+	public BigInteger getResourceType() {
+		return resourceType;
+	}
+
+	/**
+	 * @return the labels of the label criterion, without duplicates, empty for
+	 *         no label criterion
+	 */
+	public List<String> getLabels() {
+		return labels;
+	}
+
+	/**
+	 * @return true if a resource must hold all the labels, false for one of them
+	 */
+	public boolean isAllLabels() {
+		return allLabels;
+	}
+
+	/**
+	 * @return the ids of the resources holding the labels, null until read by
+	 *         the backend
+	 */
+	public PostingList getLabelMatches() {
+		return labelMatches;
+	}
+
+	/**
+	 * Keeps the ids of the resources holding the labels for the next pages of the discovery.
+	 * @param labelMatches ids read from the label index
+	 */
+	public void setLabelMatches(PostingList labelMatches) {
+		this.labelMatches = labelMatches;
+	}
+
+	/**
+	 * @return the maximum number of levels below the discovery root, -1 for no limit
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return the conditions on the attributes of the resources
+	 */
+	public List<Condition> getConditions() {
+		return conditions;
+	}
+
+	/**
+	 * @return true if labels or attribute conditions restrict the discovery,
+	 *         which then depends on the stored resources and not only on
+	 *         their uris and types
+	 */
+	public boolean hasResourceCriteria() {
+		return !labels.isEmpty() || !conditions.isEmpty();
+	}
+
+	/**
+	 * @param rootUri hierarchical uri of the discovery root
+	 * @param hierarchicalUri hierarchical uri of the root or one of its descendants
+	 * @return true if the resource is not deeper than the level criterion
+	 */
+	public boolean isWithinLevel(String rootUri, String hierarchicalUri) {
+		if (level < 0) {
+			return true;
+		}
+		int depth = 0;
+		for (int i = rootUri.length(); i < hierarchicalUri.length(); i++) {
+			if (hierarchicalUri.charAt(i) == '/' && ++depth > level) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Evaluates the resource type, labels and conditions on an entity.
+	 * @param resource resource entity
+	 * @return true if the resource matches the filter
+	 */
+	public boolean matches(ResourceEntity resource) {
+		if (resourceType != null && !resourceType.equals(resource.getResourceType())) {
+			return false;
+		}
+		if (!labels.isEmpty() && !hasLabels(resource)) {
+			return false;
+		}
+		for (Condition condition : conditions) {
+			if (!condition.matches(getAttribute(resource, condition.getAttribute()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean hasLabels(ResourceEntity resource) {
+		Set<String> held = new HashSet<String>();
+		for (LabelEntity label : resource.getLabelsEntities()) {
+			if (labels.contains(label.getLabel())) {
+				if (!allLabels) {
+					return true;
+				}
+				held.add(label.getLabel());
+			}
+		}
+		return allLabels && held.size() == labels.size();
+	}
+
+	/**
+	 * @return the value of an attribute of an entity, null if its class does not hold the attribute
+	 */
+	private static Object getAttribute(Object entity, String attribute) {
+		ConcurrentMap<String, Object> getters = GETTERS.get(entity.getClass());
+		if (getters == null) {
+			getters = new ConcurrentHashMap<String, Object>();
+			ConcurrentMap<String, Object> previous = GETTERS.putIfAbsent(entity.getClass(), getters);
+			if (previous != null) {
+				getters = previous;
+			}
+		}
+		Object getter = getters.get(attribute);
+		if (getter == null) {
+			getter = findGetter(entity.getClass(), attribute);
+			getters.put(attribute, getter);
+		}
+		if (!(getter instanceof Method)) {
+			return null;
+		}
+		try {
+			return ((Method) getter).invoke(entity);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			return null;
+		}
+	}
+
+	private static Object findGetter(Class<?> type, String attribute) {
+		String property = Character.toUpperCase(attribute.charAt(0)) + attribute.substring(1);
+		for (String prefix : new String[] { "get", "is" }) {
+			try {
+				return type.getMethod(prefix + property);
+			} catch (NoSuchMethodException e) {
+				// next prefix
+			}
+		}
+		return Boolean.FALSE;
+	}
+
+}
@@ -23,9 +23,27 @@ import java.util.List;
 
 import org.eclipse.om2m.commons.entities.UriMapperEntity;
 import org.eclipse.om2m.commons.resource.FilterCriteria;
+import org.eclipse.om2m.persistence.service.DBTransaction;
 
 public interface ComplexFindUtil {
 
 	public abstract List<UriMapperEntity> getChildUrisDis(String rootUri, FilterCriteria filter);
+
+	/**
+	 * Finds a page of discovery candidates: the root resource and its
+	 * descendants matching the compiled filter, in hierarchical uri order.
+	 * <p>
+	 * The ids of the access control policies of the candidates are set when
+	 * they can be read along with the mappings, null otherwise.
+	 * @param transaction current transaction
+	 * @param rootUri non-hierarchical uri of the root resource
+	 * @param filter compiled discovery filter
+	 * @param after hierarchical uri of the last candidate of the previous
+	 *            page, excluded, null for the first page
+	 * @param count maximum number of candidates
+	 * @return the candidates, fewer than count for the last page
+	 */
+	public abstract List<UriMapperEntity> getDiscoveryCandidates(DBTransaction transaction, String rootUri,
+			CompiledFilter filter, String after, int count);
 	
 }
@@ -27,4 +27,8 @@ public interface DBUtilManager {
 	
 	public abstract DynamicAuthorizationConsultationUtil getDynamicAuthorizationConsultationUtil();
 	
+	public abstract RetentionUtil getRetentionUtil();
+	
+	public abstract UriMapperUtil getUriMapperUtil();
+	
 }
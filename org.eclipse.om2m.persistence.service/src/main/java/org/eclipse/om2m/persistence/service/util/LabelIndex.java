@@ -0,0 +1,524 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.service.util;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.om2m.commons.entities.LabelEntity;
+import org.eclipse.om2m.commons.entities.LabelPostingEntity;
+import org.eclipse.om2m.commons.entities.ResourceEntity;
+
+/**
+ * Posting lists of the labels: for each label and resource type, the sorted
+ * ids of the resources holding the label, stored compressed in segments of
+ * at most {@link #SEGMENT_SIZE} ids (see {@link LabelPostingEntity}).
+ * <p>
+ * The lists are built from the labelled resources at startup when they have
+ * not been built yet, e.g. on a database filled by a former version, a
+ * segment with no label and no resource type recording that they have been.
+ * They are then maintained incrementally by the DAOs when a resource is
+ * created, updated or deleted: only the segment holding the id of the
+ * resource is rewritten, a full segment is split in two and a nearly empty
+ * one is merged with the next. A segment is locked until the end of the
+ * transaction before it is rewritten, the segments are locked in label,
+ * type and key order so that the resources with the same labels can be
+ * written concurrently.
+ * <p>
+ * A discovery by labels, once the lists have been built, intersects (AND) or unites (OR) the lists of its
+ * labels, restricted to a resource type when the discovery has one, without
+ * reading the resources. A list much larger than the ids it is intersected
+ * with is probed segment by segment. The ids found are candidates checked
+ * against the stored resources: the resources deleted along with their
+ * parent may remain in the lists without being discovered.
+ * <p>
+ * The backends store the segments. The segment size and the number of
+ * matching resources under which a discovery starts from the lists can be
+ * configured with the system properties
+ * org.eclipse.om2m.labelIndex.segmentSize and
+ * org.eclipse.om2m.labelIndex.drivingLimit.
+ */
+public abstract class LabelIndex {
+
+	/** Maximum number of ids of a segment, a fuller segment is split in two */
+	public static final int SEGMENT_SIZE = Math.max(4, Integer.getInteger("org.eclipse.om2m.labelIndex.segmentSize", 512));
+
+	/**
+	 * Maximum number of resources matching the labels of a discovery for the
+	 * discovery to start from the posting lists instead of the subtree
+	 */
+	public static final int DRIVING_LIMIT = Math.max(0, Integer.getInteger("org.eclipse.om2m.labelIndex.drivingLimit", 1000));
+
+	/** A list this many times larger than the ids it is intersected with is probed rather than read */
+	private static final int PROBE_RATIO = 8;
+
+	/** Label and resource type of the segment recording that the lists have been built */
+	private static final String BUILT_LABEL = "";
+	private static final int BUILT_TYPE = -1;
+
+	/** Backends whose lists have been found built, they remain built */
+	private static final Set<Class<?>> BUILT = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	/**
+	 * @param label label of the resources
+	 * @param resourceType type of the resources
+	 * @param key key of an id
+	 * @return the segment of the list of the label and type covering the key,
+	 *         null if the list has no segment
+	 */
+	protected abstract LabelPostingEntity findSegment(String label, int resourceType, String key);
+
+	/**
+	 * Same as {@link #findSegment(String, int, String)}, the segment being
+	 * locked until the end of the transaction and read again if it has been
+	 * changed meanwhile.
+	 */
+	protected abstract LabelPostingEntity lockSegment(String label, int resourceType, String key);
+
+	/**
+	 * @param resourceType type of the resources
+	 * @param key key of an id
+	 * @return the segments covering the key of all the lists of the type
+	 */
+	protected abstract List<LabelPostingEntity> findSegmentsContaining(int resourceType, String key);
+
+	/**
+	 * @param label label of the resources
+	 * @param resourceType type of the resources, null for all the types
+	 * @return the segments of the lists of the label in resource type and key order
+	 */
+	protected abstract List<LabelPostingEntity> findSegments(String label, BigInteger resourceType);
+
+	/**
+	 * @param label label of the resources
+	 * @param resourceType type of the resources, null for all the types
+	 * @return the number of ids of the lists of the label
+	 */
+	protected abstract long count(String label, BigInteger resourceType);
+
+	protected abstract void insert(LabelPostingEntity segment);
+
+	protected abstract void update(LabelPostingEntity segment);
+
+	protected abstract void delete(LabelPostingEntity segment);
+
+	/**
+	 * Deletes all the segments of all the lists.
+	 */
+	protected abstract void deleteAll();
+
+	/**
+	 * Creates the empty first segment of the list of a label and type, the
+	 * list having no segment yet. The lock taken by
+	 * {@link #lockSegment(String, int, String)} on the missing first segment
+	 * must keep the list from being created concurrently, otherwise the
+	 * backend overrides this method.
+	 * @return the first segment, locked until the end of the transaction
+	 */
+	protected LabelPostingEntity createHead(String label, int resourceType) {
+		LabelPostingEntity segment = new LabelPostingEntity(label, resourceType, "", null);
+		write(segment, PostingList.EMPTY);
+		insert(segment);
+		return segment;
+	}
+
+	/**
+	 * @return true if the lists hold all the labelled resources, false until
+	 *         they have been built from the resources stored before
+	 */
+	public boolean isBuilt() {
+		if (BUILT.contains(getClass())) {
+			return true;
+		}
+		if (findSegment(BUILT_LABEL, BUILT_TYPE, "") == null) {
+			return false;
+		}
+		BUILT.add(getClass());
+		return true;
+	}
+
+	/**
+	 * Builds the lists from all the labelled resources, replacing the
+	 * segments written so far, then records that they have been built. The
+	 * segments are half full like the halves of a split one. Nothing is done
+	 * if the lists have been built meanwhile.
+	 * @param resources labelled resources, with their id, type and labels
+	 */
+	public void build(Iterable<? extends ResourceEntity> resources) {
+		if (lockSegment(BUILT_LABEL, BUILT_TYPE, "") != null) {
+			return;
+		}
+		deleteAll();
+		Map<String, Map<Integer, List<String>>> lists = new TreeMap<String, Map<Integer, List<String>>>();
+		for (ResourceEntity resource : resources) {
+			if (resource.getResourceType() == null) {
+				continue;
+			}
+			for (String label : getLabels(resource)) {
+				Map<Integer, List<String>> byType = lists.get(label);
+				if (byType == null) {
+					byType = new TreeMap<Integer, List<String>>();
+					lists.put(label, byType);
+				}
+				List<String> ids = byType.get(resource.getResourceType().intValue());
+				if (ids == null) {
+					ids = new ArrayList<String>();
+					byType.put(resource.getResourceType().intValue(), ids);
+				}
+				ids.add(resource.getResourceID());
+			}
+		}
+		int fill = Math.max(1, SEGMENT_SIZE / 2);
+		for (Map.Entry<String, Map<Integer, List<String>>> label : lists.entrySet()) {
+			for (Map.Entry<Integer, List<String>> type : label.getValue().entrySet()) {
+				List<String> ids = PostingList.of(type.getValue()).toList();
+				for (int from = 0; from < ids.size(); from += fill) {
+					int to = Math.min(ids.size(), from + fill);
+					LabelPostingEntity segment = new LabelPostingEntity(label.getKey(), type.getKey(),
+							from == 0 ? "" : PostingList.key(ids.get(from)),
+							to == ids.size() ? null : PostingList.key(ids.get(to)));
+					write(segment, PostingList.of(ids.subList(from, to)));
+					insert(segment);
+				}
+			}
+		}
+		LabelPostingEntity built = new LabelPostingEntity(BUILT_LABEL, BUILT_TYPE, "", null);
+		write(built, PostingList.EMPTY);
+		insert(built);
+	}
+
+	/**
+	 * Adds a new resource to the lists of its labels.
+	 * @param resource created resource
+	 */
+	public void add(ResourceEntity resource) {
+		if (resource.getResourceType() == null) {
+			return;
+		}
+		for (String label : getLabels(resource)) {
+			add(label, resource.getResourceType().intValue(), resource.getResourceID());
+		}
+	}
+
+	/**
+	 * Updates the lists of the labels added to or removed from a resource.
+	 * @param resource updated resource
+	 */
+	public void update(ResourceEntity resource) {
+		if (resource.getResourceType() == null) {
+			return;
+		}
+		int resourceType = resource.getResourceType().intValue();
+		Set<String> labels = getLabels(resource);
+		Set<String> indexed = getIndexedLabels(resourceType, resource.getResourceID());
+		Set<String> changed = new TreeSet<String>(labels);
+		changed.addAll(indexed);
+		for (String label : changed) {
+			if (!labels.contains(label)) {
+				remove(label, resourceType, Collections.singleton(resource.getResourceID()));
+			} else if (!indexed.contains(label)) {
+				add(label, resourceType, resource.getResourceID());
+			}
+		}
+	}
+
+	/**
+	 * Removes a deleted resource from the lists of its labels.
+	 * @param resource deleted resource
+	 */
+	public void remove(ResourceEntity resource) {
+		remove(Collections.singletonList(resource));
+	}
+
+	/**
+	 * Removes deleted resources from the lists of their labels, each segment
+	 * being rewritten once.
+	 * @param resources deleted resources
+	 */
+	public void remove(List<? extends ResourceEntity> resources) {
+		// ids to remove by label and type, in lock order
+		Map<String, Map<Integer, Set<String>>> removed = new TreeMap<String, Map<Integer, Set<String>>>();
+		for (ResourceEntity resource : resources) {
+			if (resource.getResourceType() == null) {
+				continue;
+			}
+			for (String label : getLabels(resource)) {
+				Map<Integer, Set<String>> byType = removed.get(label);
+				if (byType == null) {
+					byType = new TreeMap<Integer, Set<String>>();
+					removed.put(label, byType);
+				}
+				Set<String> ids = byType.get(resource.getResourceType().intValue());
+				if (ids == null) {
+					ids = new TreeSet<String>(PostingList.ORDER);
+					byType.put(resource.getResourceType().intValue(), ids);
+				}
+				ids.add(resource.getResourceID());
+			}
+		}
+		for (Map.Entry<String, Map<Integer, Set<String>>> label : removed.entrySet()) {
+			for (Map.Entry<Integer, Set<String>> type : label.getValue().entrySet()) {
+				remove(label.getKey(), type.getKey(), type.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Removes a deleted resource from all the lists holding it.
+	 * @param resourceType type of the deleted resource
+	 * @param resourceID id of the deleted resource
+	 */
+	public void remove(int resourceType, String resourceID) {
+		for (String label : getIndexedLabels(resourceType, resourceID)) {
+			remove(label, resourceType, Collections.singleton(resourceID));
+		}
+	}
+
+	/**
+	 * @param labels labels of a discovery
+	 * @param resourceType type of the resources, null for all the types
+	 * @param all true for the resources holding all the labels, false for one of them
+	 * @return an upper bound of the number of resources holding the labels
+	 */
+	public long estimate(List<String> labels, BigInteger resourceType, boolean all) {
+		long estimate = all ? Long.MAX_VALUE : 0;
+		for (String label : labels) {
+			long count = count(label, resourceType);
+			estimate = all ? Math.min(estimate, count) : estimate + count;
+		}
+		return labels.isEmpty() ? 0 : estimate;
+	}
+
+	/**
+	 * @param labels labels of a discovery
+	 * @param resourceType type of the resources, null for all the types
+	 * @param all true for the resources holding all the labels, false for one of them
+	 * @return the ids of the resources holding the labels
+	 */
+	public PostingList find(List<String> labels, BigInteger resourceType, boolean all) {
+		if (labels.isEmpty()) {
+			return PostingList.EMPTY;
+		}
+		if (!all) {
+			List<PostingList> lists = new ArrayList<PostingList>(labels.size());
+			for (String label : labels) {
+				lists.add(read(label, resourceType));
+			}
+			return PostingList.or(lists);
+		}
+		// the smallest list first, the others are read or probed
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		String smallest = null;
+		for (String label : labels) {
+			long count = count(label, resourceType);
+			counts.put(label, count);
+			if (smallest == null || count < counts.get(smallest)) {
+				smallest = label;
+			}
+		}
+		PostingList result = read(smallest, resourceType);
+		for (String label : labels) {
+			if (result.isEmpty()) {
+				break;
+			}
+			if (label.equals(smallest)) {
+				continue;
+			}
+			if (resourceType != null && counts.get(label) > PROBE_RATIO * (long) result.size()) {
+				result = probe(label, resourceType.intValue(), result);
+			} else {
+				List<PostingList> lists = new ArrayList<PostingList>(2);
+				lists.add(result);
+				lists.add(read(label, resourceType));
+				result = PostingList.and(lists);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the ids of the lists of a label
+	 */
+	private PostingList read(String label, BigInteger resourceType) {
+		List<PostingList> types = new ArrayList<PostingList>();
+		List<PostingList> segments = new ArrayList<PostingList>();
+		int currentType = 0;
+		for (LabelPostingEntity segment : findSegments(label, resourceType)) {
+			if (!segments.isEmpty() && segment.getResourceType() != currentType) {
+				types.add(PostingList.concat(segments));
+				segments = new ArrayList<PostingList>();
+			}
+			currentType = segment.getResourceType();
+			segments.add(PostingList.fromBytes(segment.getData()));
+		}
+		if (!segments.isEmpty()) {
+			types.add(PostingList.concat(segments));
+		}
+		// the ids of different types are interleaved
+		return PostingList.or(types);
+	}
+
+	/**
+	 * @return the ids held by the list of a label, read segment by segment
+	 */
+	private PostingList probe(String label, int resourceType, PostingList ids) {
+		PostingList.Builder builder = new PostingList.Builder();
+		LabelPostingEntity segment = null;
+		PostingList segmentIds = PostingList.EMPTY;
+		for (String id : ids) {
+			String key = PostingList.key(id);
+			if (segment == null || !isInSegment(segment, key)) {
+				segment = findSegment(label, resourceType, key);
+				if (segment == null) {
+					break;
+				}
+				segmentIds = PostingList.fromBytes(segment.getData());
+			}
+			if (segmentIds.contains(id)) {
+				builder.add(id);
+			}
+		}
+		return builder.build();
+	}
+
+	private void add(String label, int resourceType, String resourceID) {
+		String key = PostingList.key(resourceID);
+		LabelPostingEntity segment = lockSegment(label, resourceType, key);
+		if (segment == null) {
+			segment = createHead(label, resourceType);
+		}
+		PostingList ids = PostingList.fromBytes(segment.getData()).with(resourceID);
+		if (ids.size() == segment.getSize()) {
+			return;
+		}
+		if (ids.size() <= SEGMENT_SIZE) {
+			write(segment, ids);
+			update(segment);
+			return;
+		}
+		// the upper half moves to a new segment, inserted first so that the
+		// ids remain readable from one segment at least
+		PostingList[] halves = ids.split();
+		LabelPostingEntity next = new LabelPostingEntity(label, resourceType, PostingList.key(halves[1].first()),
+				segment.getUpperKey());
+		write(next, halves[1]);
+		insert(next);
+		segment.setUpperKey(next.getLowerKey());
+		write(segment, halves[0]);
+		update(segment);
+	}
+
+	/**
+	 * Removes ids from the list of a label and type.
+	 * @param ids ids in {@link PostingList#ORDER}
+	 */
+	private void remove(String label, int resourceType, Set<String> ids) {
+		Iterator<String> iterator = ids.iterator();
+		String next = iterator.hasNext() ? iterator.next() : null;
+		while (next != null) {
+			LabelPostingEntity segment = lockSegment(label, resourceType, PostingList.key(next));
+			if (segment == null) {
+				return;
+			}
+			// all the ids of the segment are removed at once
+			PostingList segmentIds = PostingList.fromBytes(segment.getData());
+			do {
+				segmentIds = segmentIds.without(next);
+				next = iterator.hasNext() ? iterator.next() : null;
+			} while (next != null && isInSegment(segment, PostingList.key(next)));
+			if (segmentIds.size() != segment.getSize()) {
+				remove(segment, segmentIds);
+			}
+		}
+	}
+
+	/**
+	 * Writes a segment whose ids have been removed, merged with the next one
+	 * if both are nearly empty or if the segment is empty.
+	 */
+	private void remove(LabelPostingEntity segment, PostingList ids) {
+		if (ids.size() < SEGMENT_SIZE / 4 && segment.getUpperKey() != null) {
+			LabelPostingEntity next = lockSegment(segment.getLabel(), segment.getResourceType(), segment.getUpperKey());
+			if (next != null && (ids.isEmpty() || ids.size() + next.getSize() <= SEGMENT_SIZE / 2)) {
+				List<PostingList> lists = new ArrayList<PostingList>(2);
+				lists.add(ids);
+				lists.add(PostingList.fromBytes(next.getData()));
+				segment.setUpperKey(next.getUpperKey());
+				write(segment, PostingList.concat(lists));
+				update(segment);
+				delete(next);
+				return;
+			}
+		}
+		if (ids.isEmpty() && segment.getLowerKey().isEmpty() && segment.getUpperKey() == null) {
+			delete(segment);
+			return;
+		}
+		write(segment, ids);
+		update(segment);
+	}
+
+	private static boolean isInSegment(LabelPostingEntity segment, String key) {
+		return key.compareTo(segment.getLowerKey()) >= 0
+				&& (segment.getUpperKey() == null || key.compareTo(segment.getUpperKey()) < 0);
+	}
+
+	/**
+	 * @return the labels of the lists of a type holding an id
+	 */
+	private Set<String> getIndexedLabels(int resourceType, String resourceID) {
+		Set<String> labels = new TreeSet<String>();
+		for (LabelPostingEntity segment : findSegmentsContaining(resourceType, PostingList.key(resourceID))) {
+			if (PostingList.fromBytes(segment.getData()).contains(resourceID)) {
+				labels.add(segment.getLabel());
+			}
+		}
+		return labels;
+	}
+
+	/**
+	 * @return the labels of a resource in lock order
+	 */
+	private static Set<String> getLabels(ResourceEntity resource) {
+		Set<String> labels = new TreeSet<String>();
+		for (Iterator<LabelEntity> i = resource.getLabelsEntities().iterator(); i.hasNext();) {
+			LabelEntity label = i.next();
+			if (label != null && label.getLabel() != null) {
+				labels.add(label.getLabel());
+			}
+		}
+		return labels;
+	}
+
+	private static void write(LabelPostingEntity segment, PostingList ids) {
+		segment.setSize(ids.size());
+		segment.setData(ids.toBytes());
+	}
+
+}
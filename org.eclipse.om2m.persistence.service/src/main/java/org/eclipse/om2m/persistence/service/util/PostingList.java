@@ -0,0 +1,453 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.service.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sorted set of resource ids, stored compressed.
+ * <p>
+ * The ids are sorted by their UTF-8 bytes, the order of their
+ * {@link #key(String) keys}. Each id is written as the length of the prefix
+ * it shares with the previous id followed by the rest of its bytes, the
+ * lengths as variable length integers. The ids of a CSE share long
+ * prefixes, an id usually takes a few bytes.
+ * <p>
+ * The lists are read sequentially: {@link #contains(String)} and the
+ * updates decode the whole list, they are meant for the segments of a
+ * {@link LabelIndex}. The set operations merge the lists in one pass.
+ */
+public final class PostingList implements Iterable<String> {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/** Order of the ids in the lists, the order of their UTF-8 bytes */
+	public static final Comparator<String> ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String a, String b) {
+			int i = 0;
+			int j = 0;
+			while (i < a.length() && j < b.length()) {
+				int ca = a.codePointAt(i);
+				int cb = b.codePointAt(j);
+				if (ca != cb) {
+					return ca < cb ? -1 : 1;
+				}
+				i += Character.charCount(ca);
+				j += Character.charCount(cb);
+			}
+			return i < a.length() ? 1 : j < b.length() ? -1 : 0;
+		}
+	};
+
+	public static final PostingList EMPTY = new PostingList(new byte[0], 0, null, null);
+
+	private final byte[] data;
+	private final int size;
+	private final String first;
+	private final String last;
+
+	private PostingList(byte[] data, int size, String first, String last) {
+		this.data = data;
+		this.size = size;
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * @param ids resource ids in any order, duplicates allowed
+	 * @return the list of the distinct ids
+	 */
+	public static PostingList of(Collection<String> ids) {
+		String[] sorted = ids.toArray(new String[ids.size()]);
+		Arrays.sort(sorted, ORDER);
+		Builder builder = new Builder();
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || ORDER.compare(sorted[i - 1], sorted[i]) != 0) {
+				builder.add(sorted[i]);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param data bytes written by {@link #toBytes()}
+	 * @return the list read from the bytes
+	 * @throws IllegalArgumentException if the bytes are not a list
+	 */
+	public static PostingList fromBytes(byte[] data) {
+		if (data == null || data.length == 0) {
+			return EMPTY;
+		}
+		String first = null;
+		String last = null;
+		int size = 0;
+		try {
+			for (Decoder decoder = new Decoder(data); decoder.hasNext(); size++) {
+				last = decoder.next();
+				if (first == null) {
+					first = last;
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("truncated posting list", e);
+		}
+		return new PostingList(data, size, first, last);
+	}
+
+	/**
+	 * @param resourceID resource id
+	 * @return the lower case hexadecimal form of the UTF-8 bytes of the id,
+	 *         ordered like the ids by any database collation
+	 */
+	public static String key(String resourceID) {
+		byte[] bytes = resourceID.getBytes(UTF_8);
+		char[] key = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			key[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			key[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(key);
+	}
+
+	/**
+	 * @return the encoded ids
+	 */
+	public byte[] toBytes() {
+		return data.clone();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the lowest id, null if the list is empty
+	 */
+	public String first() {
+		return first;
+	}
+
+	/**
+	 * @return the highest id, null if the list is empty
+	 */
+	public String last() {
+		return last;
+	}
+
+	public boolean contains(String resourceID) {
+		if (size == 0 || ORDER.compare(resourceID, first) < 0 || ORDER.compare(resourceID, last) > 0) {
+			return false;
+		}
+		for (String id : this) {
+			int comparison = ORDER.compare(id, resourceID);
+			if (comparison >= 0) {
+				return comparison == 0;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return this list with the id, this list if it already holds the id
+	 */
+	public PostingList with(String resourceID) {
+		if (contains(resourceID)) {
+			return this;
+		}
+		Builder builder = new Builder();
+		boolean added = false;
+		for (String id : this) {
+			if (!added && ORDER.compare(resourceID, id) < 0) {
+				builder.add(resourceID);
+				added = true;
+			}
+			builder.add(id);
+		}
+		if (!added) {
+			builder.add(resourceID);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return this list without the id, this list if it does not hold the id
+	 */
+	public PostingList without(String resourceID) {
+		if (!contains(resourceID)) {
+			return this;
+		}
+		Builder builder = new Builder();
+		for (String id : this) {
+			if (!id.equals(resourceID)) {
+				builder.add(id);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Splits the list in two halves.
+	 * @return the lower and the upper half, the upper one holds the middle id
+	 */
+	public PostingList[] split() {
+		Builder lower = new Builder();
+		Builder upper = new Builder();
+		int i = 0;
+		for (String id : this) {
+			(i++ < size / 2 ? lower : upper).add(id);
+		}
+		return new PostingList[] { lower.build(), upper.build() };
+	}
+
+	/**
+	 * Concatenates lists of consecutive ranges of ids, the ids out of order
+	 * or repeated from the previous lists are skipped.
+	 * @param lists lists in the order of their ranges
+	 * @return the concatenated list
+	 */
+	public static PostingList concat(List<PostingList> lists) {
+		if (lists.size() == 1) {
+			return lists.get(0);
+		}
+		Builder builder = new Builder();
+		for (PostingList list : lists) {
+			for (String id : list) {
+				if (builder.last == null || ORDER.compare(id, builder.last) > 0) {
+					builder.add(id);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the ids held by all the lists, empty for no list
+	 */
+	public static PostingList and(List<PostingList> lists) {
+		if (lists.isEmpty()) {
+			return EMPTY;
+		}
+		List<PostingList> bySize = new ArrayList<PostingList>(lists);
+		Collections.sort(bySize, new Comparator<PostingList>() {
+			@Override
+			public int compare(PostingList a, PostingList b) {
+				return a.size < b.size ? -1 : a.size > b.size ? 1 : 0;
+			}
+		});
+		PostingList result = bySize.get(0);
+		for (int i = 1; i < bySize.size() && !result.isEmpty(); i++) {
+			result = intersect(result, bySize.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the ids held by one of the lists at least
+	 */
+	public static PostingList or(List<PostingList> lists) {
+		PostingList result = EMPTY;
+		for (PostingList list : lists) {
+			result = result.isEmpty() ? list : union(result, list);
+		}
+		return result;
+	}
+
+	private static PostingList intersect(PostingList a, PostingList b) {
+		Builder builder = new Builder();
+		Iterator<String> i = a.iterator();
+		Iterator<String> j = b.iterator();
+		String x = i.hasNext() ? i.next() : null;
+		String y = j.hasNext() ? j.next() : null;
+		while (x != null && y != null) {
+			int comparison = ORDER.compare(x, y);
+			if (comparison == 0) {
+				builder.add(x);
+			}
+			if (comparison <= 0) {
+				x = i.hasNext() ? i.next() : null;
+			}
+			if (comparison >= 0) {
+				y = j.hasNext() ? j.next() : null;
+			}
+		}
+		return builder.build();
+	}
+
+	private static PostingList union(PostingList a, PostingList b) {
+		Builder builder = new Builder();
+		Iterator<String> i = a.iterator();
+		Iterator<String> j = b.iterator();
+		String x = i.hasNext() ? i.next() : null;
+		String y = j.hasNext() ? j.next() : null;
+		while (x != null || y != null) {
+			int comparison = x == null ? 1 : y == null ? -1 : ORDER.compare(x, y);
+			builder.add(comparison <= 0 ? x : y);
+			if (comparison <= 0) {
+				x = i.hasNext() ? i.next() : null;
+			}
+			if (comparison >= 0) {
+				y = j.hasNext() ? j.next() : null;
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the ids in ascending order
+	 */
+	@Override
+	public Iterator<String> iterator() {
+		return new Decoder(data);
+	}
+
+	/**
+	 * @return the ids in a modifiable list
+	 */
+	public List<String> toList() {
+		List<String> ids = new ArrayList<String>(size);
+		for (String id : this) {
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	@Override
+	public String toString() {
+		return toList().toString();
+	}
+
+	/**
+	 * Builds a list from ids added in ascending order.
+	 */
+	public static final class Builder {
+
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		private byte[] previous = new byte[0];
+		private int size;
+		private String first;
+		private String last;
+
+		/**
+		 * @param resourceID id higher than the ids already added
+		 * @return this builder
+		 * @throws IllegalArgumentException if the id is not higher than the last one
+		 */
+		public Builder add(String resourceID) {
+			if (last != null && ORDER.compare(resourceID, last) <= 0) {
+				throw new IllegalArgumentException("ids out of order: " + last + ", " + resourceID);
+			}
+			byte[] bytes = resourceID.getBytes(UTF_8);
+			int shared = 0;
+			int max = Math.min(bytes.length, previous.length);
+			while (shared < max && bytes[shared] == previous[shared]) {
+				shared++;
+			}
+			writeVarInt(shared);
+			writeVarInt(bytes.length - shared);
+			out.write(bytes, shared, bytes.length - shared);
+			previous = bytes;
+			if (first == null) {
+				first = resourceID;
+			}
+			last = resourceID;
+			size++;
+			return this;
+		}
+
+		public PostingList build() {
+			return size == 0 ? EMPTY : new PostingList(out.toByteArray(), size, first, last);
+		}
+
+		private void writeVarInt(int value) {
+			while ((value & ~0x7f) != 0) {
+				out.write((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			out.write(value);
+		}
+	}
+
+	/**
+	 * Sequential reader of the encoded ids.
+	 */
+	private static final class Decoder implements Iterator<String> {
+
+		private final byte[] data;
+		private int position;
+		private byte[] previous = new byte[16];
+
+		Decoder(byte[] data) {
+			this.data = data;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return position < data.length;
+		}
+
+		@Override
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int shared = readVarInt();
+			int length = readVarInt();
+			if (shared + length > previous.length) {
+				previous = Arrays.copyOf(previous, Math.max(shared + length, 2 * previous.length));
+			}
+			System.arraycopy(data, position, previous, shared, length);
+			position += length;
+			return new String(previous, 0, shared + length, UTF_8);
+		}
+
+		private int readVarInt() {
+			int value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = data[position++];
+				value |= (b & 0x7f) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
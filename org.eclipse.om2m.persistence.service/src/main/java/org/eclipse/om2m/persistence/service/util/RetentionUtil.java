@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.service.util;
+
+import java.util.List;
+
+import org.eclipse.om2m.commons.entities.ContainerEntity;
+import org.eclipse.om2m.commons.entities.ContentInstanceEntity;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Bulk access to the content instances of the containers, used to enforce
+ * the maxNrOfInstances, maxByteSize and maxInstanceAge limits.
+ */
+public interface RetentionUtil {
+
+	/**
+	 * Retrieves the oldest content instances of a container.
+	 * @param transaction current transaction
+	 * @param containerID resource id of the container
+	 * @param createdBefore creation time the instances are older than, null for all the instances
+	 * @param limit maximum number of instances
+	 * @return the instances, the oldest first
+	 */
+	public abstract List<ContentInstanceEntity> findOldest(DBTransaction transaction, String containerID,
+			String createdBefore, int limit);
+
+	/**
+	 * Deletes content instances of a container at once. The latest and oldest
+	 * instance ids of the container are updated, its counters are not.
+	 * @param transaction current transaction
+	 * @param container parent container of the instances
+	 * @param instances content instances to delete
+	 */
+	public abstract void delete(DBTransaction transaction, ContainerEntity container,
+			List<ContentInstanceEntity> instances);
+
+	/**
+	 * @param transaction current transaction
+	 * @return the ids of the containers with a maxInstanceAge
+	 */
+	public abstract List<String> findContainersWithMaxInstanceAge(DBTransaction transaction);
+
+}
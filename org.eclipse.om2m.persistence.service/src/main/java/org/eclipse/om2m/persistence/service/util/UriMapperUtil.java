@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2016 LAAS-CNRS (www.laas.fr)
+ * 7 Colonel Roche 31077 Toulouse - France
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Initial Contributors:
+ *     Thierry Monteil : Project manager, technical co-manager
+ *     Mahdi Ben Alaya : Technical co-manager
+ *     Samir Medjiah : Technical co-manager
+ *     Khalil Drira : Strategy expert
+ *     Guillaume Garzone : Developer
+ *     François Aïssaoui : Developer
+ *
+ * New contributors :
+ *******************************************************************************/
+package org.eclipse.om2m.persistence.service.util;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.om2m.commons.entities.UriMapperEntity;
+import org.eclipse.om2m.persistence.service.DBTransaction;
+
+/**
+ * Resolution of several uris at once, used to resolve the members of the
+ * groups with a single query.
+ */
+public interface UriMapperUtil {
+
+	/**
+	 * Retrieves the uri mappings of several resources.
+	 * @param transaction current transaction
+	 * @param uris SP-relative hierarchical or non-hierarchical uris of the resources
+	 * @return the mappings of the existing resources, in no particular order
+	 */
+	public abstract List<UriMapperEntity> findAll(DBTransaction transaction, Collection<String> uris);
+
+}
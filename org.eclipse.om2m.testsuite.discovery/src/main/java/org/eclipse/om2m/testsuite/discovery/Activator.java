@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.testsuite.discovery;
+
+import org.eclipse.om2m.core.service.CseService;
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+
+/**
+ * Runs the discovery filter criteria tests once the CSE service is
+ * available. The same tests are expected to pass whatever the persistence
+ * bundle deployed with the CSE.
+ */
+public class Activator implements BundleActivator {
+
+	/**
+	 * CSE Service tracker
+	 */
+	private ServiceTracker<CseService, CseService> cseServiceTracker;
+
+	/**
+	 * CSE service instance
+	 */
+	private CseService currentCseService;
+
+	/**
+	 * current bundle context
+	 */
+	private BundleContext bundleContext;
+
+	@Override
+	public void start(BundleContext context) throws Exception {
+		bundleContext = context;
+
+		cseServiceTracker = new ServiceTracker<>(context, CseService.class,
+				new ServiceTrackerCustomizer<CseService, CseService>() {
+
+					@Override
+					public CseService addingService(ServiceReference<CseService> arg0) {
+						// a new CseService is available
+						if (currentCseService == null) {
+							CseService cseService = bundleContext.getService(arg0);
+							setCseServiceAndStartTesting(cseService);
+							return cseService;
+						}
+						return null;
+					}
+
+					@Override
+					public void modifiedService(ServiceReference<CseService> arg0, CseService arg1) {
+						// nothing to do
+					}
+
+					@Override
+					public void removedService(ServiceReference<CseService> arg0, CseService arg1) {
+						currentCseService = null;
+					}
+				});
+
+		cseServiceTracker.open();
+	}
+
+	@Override
+	public void stop(BundleContext arg0) throws Exception {
+		cseServiceTracker.close();
+
+		cseServiceTracker = null;
+	}
+
+	private void setCseServiceAndStartTesting(CseService cseService) {
+		currentCseService = cseService;
+		DiscoveryFilterTest test = new DiscoveryFilterTest(currentCseService);
+		test.executeTestsAndPrintReports();
+	}
+
+}
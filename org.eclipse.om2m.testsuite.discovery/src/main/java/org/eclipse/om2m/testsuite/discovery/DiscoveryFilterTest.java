@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2016 Orange.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.om2m.testsuite.discovery;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.om2m.commons.constants.Constants;
+import org.eclipse.om2m.commons.constants.FilterOperation;
+import org.eclipse.om2m.commons.constants.FilterUsage;
+import org.eclipse.om2m.commons.constants.MimeMediaType;
+import org.eclipse.om2m.commons.constants.Operation;
+import org.eclipse.om2m.commons.constants.ResourceType;
+import org.eclipse.om2m.commons.constants.ResponseStatusCode;
+import org.eclipse.om2m.commons.constants.ResultContent;
+import org.eclipse.om2m.commons.constants.ShortName;
+import org.eclipse.om2m.commons.resource.AE;
+import org.eclipse.om2m.commons.resource.Attribute;
+import org.eclipse.om2m.commons.resource.Container;
+import org.eclipse.om2m.commons.resource.ContentInstance;
+import org.eclipse.om2m.commons.resource.FilterCriteria;
+import org.eclipse.om2m.commons.resource.RequestPrimitive;
+import org.eclipse.om2m.commons.resource.Resource;
+import org.eclipse.om2m.commons.resource.ResponsePrimitive;
+import org.eclipse.om2m.commons.resource.URIList;
+import org.eclipse.om2m.core.service.CseService;
+import org.eclipse.om2m.testsuite.discovery.TestReport.Status;
+
+/**
+ * Checks the discovery filter criteria against the persistence bundle
+ * deployed with the CSE. Every persistence bundle must return the same
+ * resources for the same criteria, the suite is run once per backend.
+ * <p>
+ * The fixture is an AE holding two containers:
+ * <ul>
+ * <li>the AE: label "discovery/ae"</li>
+ * <li>cntA: label "discovery/sensor", mni 7, instances a0 (text/plain:0, 1
+ * byte), a1 (application/json, 8 bytes) and a2 (application/json:0, 9 bytes),
+ * updated once the other resources are created with the label
+ * "discovery/updated" added</li>
+ * <li>cntB: created one second after a2, expiring in 2999, instance b0
+ * (text/plain, 2 bytes)</li>
+ * </ul>
+ */
+public class DiscoveryFilterTest {
+
+	private static final String BASE_LOCATION = "/" + Constants.CSE_ID + "/" + Constants.CSE_NAME;
+
+	private static final String LABEL = "discovery/sensor";
+
+	private static final String FAR_EXPIRATION = "29991231T235959";
+
+	/** Delay between the resources compared by time, the times have a one second precision */
+	private static final long TIME_STEP = 1100;
+
+	private final CseService cseService;
+	private final List<TestReport> reports = new ArrayList<TestReport>();
+
+	private String aeLocation;
+	private String cntACreation;
+	private String cntBCreation;
+	private String cntBModification;
+	private String a2Creation;
+
+	public DiscoveryFilterTest(final CseService pCseService) {
+		this.cseService = pCseService;
+	}
+
+	public void executeTestsAndPrintReports() {
+		try {
+			createFixture();
+			executeTests();
+		} catch (Exception e) {
+			createTestReport("createFixture", Status.KO, "unable to create the discovery fixture", e);
+		} finally {
+			if (aeLocation != null) {
+				sendDeleteRequest(aeLocation);
+			}
+		}
+		printTestReports();
+	}
+
+	private void executeTests() {
+		FilterCriteria filter = new FilterCriteria();
+		filter.setResourceType(BigInteger.valueOf(ResourceType.CONTAINER));
+		check("testResourceType", filter, "cntA", "cntB");
+
+		filter = new FilterCriteria();
+		filter.getLabels().add(LABEL);
+		check("testLabels", filter, "cntA");
+
+		filter = new FilterCriteria();
+		filter.getLabels().add(LABEL);
+		filter.getLabels().add("discovery/updated");
+		check("testLabelsAnd", filter, "cntA");
+
+		filter = new FilterCriteria();
+		filter.getLabels().add(LABEL);
+		filter.getLabels().add("discovery/ae");
+		check("testLabelsAndDisjoint", filter);
+
+		filter = new FilterCriteria();
+		filter.getLabels().add(LABEL);
+		filter.getLabels().add("discovery/ae");
+		filter.setFilterOperation(FilterOperation.OR);
+		check("testLabelsOr", filter, "", "cntA");
+
+		filter = new FilterCriteria();
+		filter.setCreatedBefore(cntBCreation);
+		check("testCreatedBefore", filter, "", "cntA", "cntA/a0", "cntA/a1", "cntA/a2");
+
+		filter = new FilterCriteria();
+		filter.setCreatedAfter(a2Creation);
+		check("testCreatedAfter", filter, "cntB", "cntB/b0");
+
+		filter = new FilterCriteria();
+		filter.setResourceType(BigInteger.valueOf(ResourceType.CONTAINER));
+		filter.setModifiedSince(cntBModification);
+		check("testModifiedSince", filter, "cntA");
+
+		filter = new FilterCriteria();
+		filter.setResourceType(BigInteger.valueOf(ResourceType.CONTENT_INSTANCE));
+		filter.setUnmodifiedSince(cntBCreation);
+		check("testUnmodifiedSince", filter, "cntA/a0", "cntA/a1", "cntA/a2");
+
+		filter = new FilterCriteria();
+		filter.setResourceType(BigInteger.valueOf(ResourceType.CONTAINER));
+		filter.setStateTagSmaller(BigInteger.valueOf(2));
+		check("testStateTagSmaller", filter, "cntB");
+
+		filter = new FilterCriteria();
+		filter.setResourceType(BigInteger.valueOf(ResourceType.CONTAINER));
+		filter.setStateTagBigger(BigInteger.valueOf(2));
+		check("testStateTagBigger", filter, "cntA");
+
+		filter = new FilterCriteria();
+		filter.setExpireAfter("29990101T000000");
+		check("testExpireAfter", filter, "cntB");
+
+		filter = new FilterCriteria();
+		filter.setResourceType(BigInteger.valueOf(ResourceType.CONTAINER));
+		filter.setExpireBefore("29990101T000000");
+		check("testExpireBefore", filter, "cntA");
+
+		filter = new FilterCriteria();
+		filter.setSizeAbove(BigInteger.valueOf(8));
+		check("testSizeAbove", filter, "cntA/a1", "cntA/a2");
+
+		filter = new FilterCriteria();
+		filter.setSizeBelow(BigInteger.valueOf(2));
+		check("testSizeBelow", filter, "cntA/a0");
+
+		filter = new FilterCriteria();
+		filter.setSizeAbove(BigInteger.valueOf(2));
+		filter.setSizeBelow(BigInteger.valueOf(9));
+		check("testSizeRange", filter, "cntA/a1", "cntB/b0");
+
+		filter = new FilterCriteria();
+		filter.getContentType().add("application/json");
+		check("testContentType", filter, "cntA/a1", "cntA/a2");
+
+		filter = new FilterCriteria();
+		filter.getContentType().add("text/plain");
+		check("testContentTypeWithEncoding", filter, "cntA/a0", "cntB/b0");
+
+		filter = new FilterCriteria();
+		filter.getAttribute().add(attribute(ShortName.RESOURCE_NAME, "cntB"));
+		check("testAttributeName", filter, "cntB");
+
+		filter = new FilterCriteria();
+		filter.getAttribute().add(attribute(ShortName.MAX_NR_OF_INSTANCES, "7"));
+		check("testAttributeMaxNrOfInstances", filter, "cntA");
+
+		filter = new FilterCriteria();
+		filter.setLevel(BigInteger.ONE);
+		check("testLevel", filter, "", "cntA", "cntB");
+
+		filter = new FilterCriteria();
+		filter.setResourceType(BigInteger.valueOf(ResourceType.CONTENT_INSTANCE));
+		filter.getContentType().add("application/json");
+		filter.setSizeAbove(BigInteger.valueOf(9));
+		check("testCombinedCriteria", filter, "cntA/a2");
+
+		testLimitAndContinuationToken();
+		testUnsupportedAttribute();
+	}
+
+	private void testLimitAndContinuationToken() {
+		FilterCriteria filter = new FilterCriteria();
+		filter.setResourceType(BigInteger.valueOf(ResourceType.CONTENT_INSTANCE));
+		filter.setLimit(BigInteger.valueOf(2));
+		ResponsePrimitive response = sendDiscoveryRequest(filter);
+		if (!check("testLimit", response, "cntA/a0", "cntA/a1")) {
+			return;
+		}
+		if (response.getContinuationToken() == null) {
+			createTestReport("testContinuationToken", Status.KO, "no continuation token for a truncated result", null);
+			return;
+		}
+		filter.setContinuationToken(response.getContinuationToken());
+		check("testContinuationToken", sendDiscoveryRequest(filter), "cntA/a2", "cntB/b0");
+	}
+
+	private void testUnsupportedAttribute() {
+		FilterCriteria filter = new FilterCriteria();
+		filter.getAttribute().add(attribute("unknownAttribute", "value"));
+		ResponsePrimitive response = sendDiscoveryRequest(filter);
+		if (!ResponseStatusCode.BAD_REQUEST.equals(response.getResponseStatusCode())) {
+			createTestReport("testUnsupportedAttribute", Status.KO,
+					"expected BAD_REQUEST, received " + response.getResponseStatusCode(), null);
+			return;
+		}
+		createTestReport("testUnsupportedAttribute", Status.OK, null, null);
+	}
+
+	private void createFixture() throws Exception {
+		String aeName = "dscAE_" + System.currentTimeMillis();
+		AE ae = new AE();
+		ae.setName(aeName);
+		ae.setAppID("discoveryTest");
+		ae.setRequestReachability(Boolean.FALSE);
+		ae.getLabels().add("discovery/ae");
+		expect(sendCreateRequest(BASE_LOCATION, ResourceType.AE, ae), ResponseStatusCode.CREATED);
+		aeLocation = BASE_LOCATION + "/" + aeName;
+
+		Container cntA = new Container();
+		cntA.setName("cntA");
+		cntA.getLabels().add(LABEL);
+		cntA.setMaxNrOfInstances(BigInteger.valueOf(7));
+		cntACreation = ((Container) expect(sendCreateRequest(aeLocation, ResourceType.CONTAINER, cntA),
+				ResponseStatusCode.CREATED)).getCreationTime();
+		createContentInstance("cntA", "a0", "text/plain:0", "1");
+		createContentInstance("cntA", "a1", "application/json", "{\"v\":12}");
+		a2Creation = createContentInstance("cntA", "a2", "application/json:0", "123456789").getCreationTime();
+
+		Thread.sleep(TIME_STEP);
+		Container cntB = new Container();
+		cntB.setName("cntB");
+		cntB.setExpirationTime(FAR_EXPIRATION);
+		cntBCreation = ((Container) expect(sendCreateRequest(aeLocation, ResourceType.CONTAINER, cntB),
+				ResponseStatusCode.CREATED)).getCreationTime();
+		createContentInstance("cntB", "b0", "text/plain", "22");
+		cntBModification = ((Container) expect(sendRetrieveRequest(aeLocation + "/cntB"), ResponseStatusCode.OK))
+				.getLastModifiedTime();
+
+		Thread.sleep(TIME_STEP);
+		Container update = new Container();
+		update.getLabels().add(LABEL);
+		update.getLabels().add("discovery/updated");
+		expect(sendUpdateRequest(aeLocation + "/cntA", ResourceType.CONTAINER, update), ResponseStatusCode.UPDATED);
+		if (cntACreation.compareTo(cntBCreation) >= 0) {
+			throw new Exception("cntA created after cntB");
+		}
+	}
+
+	private ContentInstance createContentInstance(String container, String name, String contentInfo, String content)
+			throws Exception {
+		ContentInstance cin = new ContentInstance();
+		cin.setName(name);
+		cin.setContentInfo(contentInfo);
+		cin.setContent(content);
+		return (ContentInstance) expect(sendCreateRequest(aeLocation + "/" + container, ResourceType.CONTENT_INSTANCE, cin),
+				ResponseStatusCode.CREATED);
+	}
+
+	private static Attribute attribute(String name, Object value) {
+		Attribute attribute = new Attribute();
+		attribute.setName(name);
+		attribute.setValue(value);
+		return attribute;
+	}
+
+	private static Object expect(ResponsePrimitive response, BigInteger statusCode) throws Exception {
+		if (!statusCode.equals(response.getResponseStatusCode())) {
+			throw new Exception("expected " + statusCode + ", received " + response.getResponseStatusCode() + " "
+					+ response.getContent());
+		}
+		return response.getContent();
+	}
+
+	private boolean check(String testName, FilterCriteria filter, String... expected) {
+		return check(testName, sendDiscoveryRequest(filter), expected);
+	}
+
+	/**
+	 * Compares the discovered resources to the expected ones.
+	 * @param testName name of the test
+	 * @param response discovery response
+	 * @param expected paths of the resources relative to the AE, "" for the AE
+	 * @return true if the expected resources have been discovered
+	 */
+	private boolean check(String testName, ResponsePrimitive response, String... expected) {
+		if (!ResponseStatusCode.OK.equals(response.getResponseStatusCode())) {
+			createTestReport(testName, Status.KO, "discovery failed: " + response.getResponseStatusCode() + " "
+					+ response.getContent(), null);
+			return false;
+		}
+		List<String> discovered = new ArrayList<String>();
+		for (String uri : ((URIList) response.getContent()).getListOfUri()) {
+			discovered.add(uri.equals(aeLocation) ? "" : uri.substring(aeLocation.length() + 1));
+		}
+		List<String> expectedPaths = new ArrayList<String>(Arrays.asList(expected));
+		Collections.sort(discovered);
+		Collections.sort(expectedPaths);
+		if (!expectedPaths.equals(discovered)) {
+			createTestReport(testName, Status.KO, "expected " + expectedPaths + ", discovered " + discovered, null);
+			return false;
+		}
+		createTestReport(testName, Status.OK, null, null);
+		return true;
+	}
+
+	private ResponsePrimitive sendDiscoveryRequest(FilterCriteria filter) {
+		filter.setFilterUsage(FilterUsage.DISCOVERY_CRITERIA);
+		RequestPrimitive request = new RequestPrimitive();
+		request.setFrom(Constants.ADMIN_REQUESTING_ENTITY);
+		request.setTo(aeLocation);
+		request.setRequestContentType(MimeMediaType.OBJ);
+		request.setReturnContentType(MimeMediaType.OBJ);
+		request.setOperation(Operation.RETRIEVE);
+		request.setFilterCriteria(filter);
+		return cseService.doRequest(request);
+	}
+
+	private ResponsePrimitive sendCreateRequest(String resourceLocation, int resourceType, Resource resource) {
+		RequestPrimitive request = new RequestPrimitive();
+		request.setContent(resource);
+		request.setFrom(Constants.ADMIN_REQUESTING_ENTITY);
+		request.setTo(resourceLocation);
+		request.setResourceType(BigInteger.valueOf(resourceType));
+		request.setRequestContentType(MimeMediaType.OBJ);
+		request.setReturnContentType(MimeMediaType.OBJ);
+		request.setOperation(Operation.CREATE);
+		return cseService.doRequest(request);
+	}
+
+	private ResponsePrimitive sendUpdateRequest(String resourceLocation, int resourceType, Resource resource) {
+		RequestPrimitive request = new RequestPrimitive();
+		request.setContent(resource);
+		request.setFrom(Constants.ADMIN_REQUESTING_ENTITY);
+		request.setTo(resourceLocation);
+		request.setResourceType(BigInteger.valueOf(resourceType));
+		request.setRequestContentType(MimeMediaType.OBJ);
+		request.setReturnContentType(MimeMediaType.OBJ);
+		request.setOperation(Operation.UPDATE);
+		return cseService.doRequest(request);
+	}
+
+	private ResponsePrimitive sendRetrieveRequest(String resourceLocation) {
+		RequestPrimitive request = new RequestPrimitive();
+		request.setFrom(Constants.ADMIN_REQUESTING_ENTITY);
+		request.setTo(resourceLocation);
+		request.setRequestContentType(MimeMediaType.OBJ);
+		request.setReturnContentType(MimeMediaType.OBJ);
+		request.setOperation(Operation.RETRIEVE);
+		request.setResultContent(ResultContent.ATTRIBUTES);
+		return cseService.doRequest(request);
+	}
+
+	private ResponsePrimitive sendDeleteRequest(String resourceLocation) {
+		RequestPrimitive request = new RequestPrimitive();
+		request.setFrom(Constants.ADMIN_REQUESTING_ENTITY);
+		request.setTo(resourceLocation);
+		request.setRequestContentType(MimeMediaType.OBJ);
+		request.setReturnContentType(MimeMediaType.OBJ);
+		request.setOperation(Operation.DELETE);
+		return cseService.doRequest(request);
+	}
+
+	private void createTestReport(String testName, Status status, String message, Exception e) {
+		reports.add(new TestReport(testName, status, message, e));
+	}
+
+	private void printTestReports() {
+		System.out.println("\n\nDiscoveryFilterTest\n");
+		for (TestReport tr : reports) {
+			System.out.println(tr.toString());
+			if (tr.getException() != null) {
+				tr.getException().printStackTrace();
+			}
+		}
+	}
+
+}